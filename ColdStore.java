@@ -0,0 +1,452 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Compressed storage for the entries of a PhonebookManager that
+// are rarely read. A clock hand sweeps the list in order, giving each
+// entry a second chance: an entry read since the hand last passed is
+// marked unread and kept, and one still unread the next time round is
+// frozen. Frozen entries are gathered into blocks of BLOCK_ENTRIES,
+// whose last names, addresses and unpackable phone numbers are
+// Deflate-compressed together and dropped from the nodes. First names
+// and cities are left alone, as they are shared Strings, and so are the
+// nodes themselves, since the indexes and IDs refer to them. Reading a
+// frozen field decompresses its block, and each reading thread keeps
+// its last few blocks decompressed for neighbours read next. An entry
+// read twice before the hand comes round again, with other entries read
+// in between, is thawed back into its node; reads made for scans,
+// exports and snapshots are not counted. Blocks are held only by their
+// frozen nodes, and are collected with the last of them. Frozen fields
+// may be read from several threads, as parallel scans do: each block is
+// locked on its own, and only while its entries are looked up or thawed.
+//
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class ColdStore {
+    // Clock states of a ListNode. NEW entries have not been swept since they
+    // were added or cold storage started; PENDING ones wait for a block.
+    static final byte NEW = 0;
+    static final byte USED = 1;
+    static final byte UNUSED = 2;
+    static final byte PENDING = 3;
+    // Fields kept in blocks, in their order within an entry.
+    static final int LAST_NAME = 0;
+    static final int ADDRESS = 1;
+    static final int PHONE_NUMBER = 2;
+    private static final int FIELDS = 3;
+    // Entries compressed together. Larger blocks compress better but cost
+    // more to decompress for one read.
+    static final int BLOCK_ENTRIES = 32;
+    // Decompressed blocks each thread keeps for further reads; a power of two.
+    private static final int CACHED_BLOCKS = 8;
+    private static final ThreadLocal<Decoder> DECODERS = ThreadLocal.withInitial(Decoder::new);
+
+    private final PhonebookManager owner;
+    private final Deflater deflater = new Deflater();
+    private ListNode hand; // Next entry the sweep looks at, or null to start over.
+    private final ListNode[] pending = new ListNode[BLOCK_ENTRIES];
+    private int pendingCount;
+    private byte[] encoded = new byte[BLOCK_ENTRIES * 64]; // Reused to build blocks.
+    private byte[] deflated = new byte[BLOCK_ENTRIES * 64];
+    private int serial; // Numbers blocks, to spread them over the caches.
+    // Counted under the store's lock, apart from the reads.
+    private int coldEntries;
+    private int blocks;
+    private long compressedBytes;
+    private long rawBytes;
+    private long frozen;
+    private long thawed;
+    private final LongAdder coldReads = new LongAdder();
+    private final LongAdder decompressions = new LongAdder();
+
+    /**
+     * A block of frozen entries, held by each of them until it is thawed.
+     */
+    static final class Block {
+        private final ColdStore store;
+        private final int serial;
+        private final byte[] data; // The compressed fields.
+        private final int length; // Length of the fields uncompressed.
+        // Entries in the order of their fields; null once thawed.
+        private final ListNode[] nodes;
+        private int live;
+
+        private Block(ColdStore store, int serial, byte[] data, int length,
+                ListNode[] nodes) {
+            this.store = store;
+            this.serial = serial;
+            this.data = data;
+            this.length = length;
+            this.nodes = nodes;
+            this.live = nodes.length;
+        }
+
+        /**
+         * Returns a field of a frozen entry in this block, thawing the entry
+         * if it was read before since the clock hand last passed.
+         *
+         * @param node  The entry.
+         * @param field LAST_NAME, ADDRESS or PHONE_NUMBER.
+         * @return The field's value.
+         */
+        String read(ListNode node, int field) {
+            return store.read(this, node, field, true);
+        }
+
+        /**
+         * Returns a field of a frozen entry in this block without counting
+         * the read, for passes over the whole phone book.
+         *
+         * @param node  The entry.
+         * @param field LAST_NAME, ADDRESS or PHONE_NUMBER.
+         * @return The field's value.
+         */
+        String peek(ListNode node, int field) {
+            return store.read(this, node, field, false);
+        }
+
+        /**
+         * Thaws a frozen entry in this block, before it is edited or leaves
+         * the phone book.
+         *
+         * @param node The entry.
+         */
+        void thaw(ListNode node) {
+            store.thaw(this, node);
+        }
+    }
+
+    /**
+     * Creates an empty store for a phone book.
+     *
+     * @param owner The phone book whose entries are swept.
+     */
+    ColdStore(PhonebookManager owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Returns the number of frozen entries.
+     *
+     * @return The number of entries whose fields are compressed.
+     */
+    public synchronized int getColdEntries() {
+        return coldEntries;
+    }
+
+    /**
+     * Returns the heap taken by compressed fields, counting whole blocks
+     * even after some of their entries are thawed.
+     *
+     * @return The size of the compressed blocks in bytes.
+     */
+    public synchronized long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Returns the number of entries thawed so far, read twice while frozen
+     * or thawed to be edited or removed.
+     *
+     * @return The number of entries thawed.
+     */
+    public synchronized long getThawed() {
+        return thawed;
+    }
+
+    /**
+     * Moves the clock hand over the next entries of the list, wrapping
+     * round to the head, and freezes each full block of entries found
+     * unread twice in a row.
+     *
+     * @param head    The head of the owner's list.
+     * @param entries The number of entries to look at.
+     * @return The number of entries frozen.
+     */
+    synchronized int sweep(ListNode head, int entries) {
+        int count = 0;
+        for (int i = 0; i < entries && head != null; i++) {
+            if (hand == null || hand.owner != owner) {
+                hand = head;
+            }
+            ListNode node = hand;
+            hand = node.getNext();
+            if (node.clock == NEW || node.clock == USED) {
+                node.clock = UNUSED; // Its second chance.
+            } else if (node.clock == UNUSED && node.cold == null) {
+                node.clock = PENDING;
+                pending[pendingCount++] = node;
+                if (pendingCount == BLOCK_ENTRIES) {
+                    count += freeze();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Compresses the pending entries still unread and in the phone book
+     * into a new block.
+     *
+     * @return The number of entries frozen.
+     */
+    private int freeze() {
+        ListNode[] nodes = new ListNode[pendingCount];
+        int count = 0;
+        int length = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            ListNode node = pending[i];
+            pending[i] = null;
+            if (node.clock != PENDING || node.owner != owner || node.cold != null) {
+                continue;
+            }
+            nodes[count++] = node;
+            for (int field = 0; field < FIELDS; field++) {
+                String value = node.coldField(field);
+                byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+                int size = bytes == null ? 0 : bytes.length;
+                if (encoded.length < length + size + 5) {
+                    encoded = Arrays.copyOf(encoded, Math.max(encoded.length * 2,
+                            length + size + 5));
+                }
+                length = writeLength(bytes == null ? 0 : size + 1, length);
+                if (bytes != null) {
+                    System.arraycopy(bytes, 0, encoded, length, size);
+                    length += size;
+                }
+            }
+        }
+        pendingCount = 0;
+        if (count == 0) {
+            return 0;
+        }
+        deflater.reset();
+        deflater.setInput(encoded, 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == deflated.length) {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            size += deflater.deflate(deflated, size, deflated.length - size);
+        }
+        Block block = new Block(this, serial++, Arrays.copyOf(deflated, size), length,
+                count == nodes.length ? nodes : Arrays.copyOf(nodes, count));
+        for (int i = 0; i < count; i++) {
+            nodes[i].freeze(block);
+        }
+        coldEntries += count;
+        blocks++;
+        compressedBytes += size;
+        rawBytes += length;
+        frozen += count;
+        return count;
+    }
+
+    /**
+     * Reads a field of a frozen entry for Block.read and Block.peek. Only
+     * the lookup of the entry and its clock are under the block's lock; the
+     * block is decompressed by the reading thread's own Decoder.
+     */
+    private String read(Block block, ListNode node, int field, boolean counted) {
+        Decoder decoder = DECODERS.get();
+        int entry;
+        synchronized (block) {
+            if (node.cold != block) {
+                return node.coldField(field); // Thawed by another thread meanwhile.
+            }
+            coldReads.increment();
+            entry = entryOf(block, node);
+            if (counted) {
+                if (node.clock == USED && node != decoder.lastRead) {
+                    thaw(block, node, entry, decoder);
+                    return node.coldField(field);
+                }
+                node.clock = USED;
+                decoder.lastRead = node;
+            }
+        }
+        return decoder.string(decoder.decompress(block), entry * FIELDS + field);
+    }
+
+    /**
+     * Restores the fields of a frozen entry to its node, for Block.thaw.
+     */
+    private void thaw(Block block, ListNode node) {
+        synchronized (block) {
+            if (node.cold == block) { // Else thawed by another thread meanwhile.
+                thaw(block, node, entryOf(block, node), DECODERS.get());
+            }
+        }
+    }
+
+    /**
+     * Restores the fields of a frozen entry, holding its block's lock.
+     */
+    private void thaw(Block block, ListNode node, int entry, Decoder decoder) {
+        int slot = decoder.decompress(block);
+        int first = entry * FIELDS;
+        node.restore(decoder.string(slot, first + LAST_NAME),
+                decoder.string(slot, first + ADDRESS),
+                decoder.string(slot, first + PHONE_NUMBER));
+        block.nodes[entry] = null;
+        boolean empty = --block.live == 0;
+        if (empty) {
+            decoder.evict(block, slot); // Let it be collected.
+        }
+        synchronized (this) {
+            coldEntries--;
+            thawed++;
+            if (empty) {
+                blocks--;
+                compressedBytes -= block.data.length;
+                rawBytes -= block.length;
+            }
+        }
+    }
+
+    /**
+     * Decompresses blocks for one thread, keeping the last few of them.
+     * A block's compressed data never changes, so decoding needs no lock.
+     */
+    private static final class Decoder {
+        private final Inflater inflater = new Inflater();
+        private final Block[] blocks = new Block[CACHED_BLOCKS];
+        private final byte[][] bytes = new byte[CACHED_BLOCKS][];
+        // Offset of each field of each entry in the cached block's bytes.
+        private final int[][] offsets = new int[CACHED_BLOCKS][BLOCK_ENTRIES * FIELDS];
+        // Frozen entry this thread read last; reading its other fields is the
+        // same read.
+        private ListNode lastRead;
+
+        /**
+         * Decompresses a block into the cache, unless it is there already.
+         *
+         * @return The cache slot holding the block.
+         */
+        int decompress(Block block) {
+            int slot = block.serial & (CACHED_BLOCKS - 1);
+            if (blocks[slot] == block) {
+                return slot;
+            }
+            byte[] data = bytes[slot];
+            if (data == null || data.length < block.length) {
+                data = new byte[Math.max(block.length, BLOCK_ENTRIES * 64)];
+                bytes[slot] = data;
+            }
+            inflater.reset();
+            inflater.setInput(block.data);
+            try {
+                int length = 0;
+                while (length < block.length) {
+                    int read = inflater.inflate(data, length, block.length - length);
+                    if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IllegalStateException("Truncated cold storage block");
+                    }
+                    length += read;
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt cold storage block", e);
+            }
+            int[] fieldOffsets = offsets[slot];
+            int offset = 0;
+            for (int i = 0; i < block.nodes.length * FIELDS; i++) {
+                fieldOffsets[i] = offset;
+                int size = readLength(data, offset);
+                offset += lengthSize(size) + Math.max(0, size - 1);
+            }
+            blocks[slot] = block;
+            block.store.decompressions.increment();
+            return slot;
+        }
+
+        /**
+         * Decodes one field of a cached block.
+         *
+         * @param slot  The cache slot holding the block.
+         * @param field The field's index, counting FIELDS per entry.
+         * @return A new String, or null if the field was null.
+         */
+        String string(int slot, int field) {
+            byte[] data = bytes[slot];
+            int offset = offsets[slot][field];
+            int size = readLength(data, offset);
+            if (size == 0) {
+                return null;
+            }
+            return new String(data, offset + lengthSize(size), size - 1,
+                    StandardCharsets.UTF_8);
+        }
+
+        void evict(Block block, int slot) {
+            if (blocks[slot] == block) {
+                blocks[slot] = null;
+            }
+        }
+    }
+
+    private static int entryOf(Block block, ListNode node) {
+        for (int i = 0; i < block.nodes.length; i++) {
+            if (block.nodes[i] == node) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Entry is not in its cold storage block");
+    }
+
+    /**
+     * Writes a field length, plus one so that 0 can mean null, seven bits
+     * to a byte.
+     *
+     * @return The offset after the length.
+     */
+    private int writeLength(int value, int offset) {
+        while (value >= 0x80) {
+            encoded[offset++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        encoded[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readLength(byte[] bytes, int offset) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = bytes[offset++];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int lengthSize(int value) {
+        int size = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Summarizes the store: how many entries are frozen, the heap their
+     * blocks take against the fields uncompressed, and how often frozen
+     * entries are read and thawed.
+     *
+     * @return The summary.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("cold storage: %d entries in %d blocks, %.1f/%.1f KB"
+                + " compressed, %d frozen, %d thawed, %d cold reads, %d decompressions",
+                coldEntries, blocks, compressedBytes / 1024.0, rawBytes / 1024.0, frozen,
+                thawed, coldReads.sum(), decompressions.sum());
+    }
+}
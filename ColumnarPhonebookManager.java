@@ -0,0 +1,591 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A phone book for very large contact sets that keeps its entries
+// off the Java heap. Each of the five fields is stored in its own
+// column: a direct ByteBuffer arena holding the UTF-8 values back to
+// back, and an int array with the offset of each row's value. List
+// order is an int array of row numbers. A million entries therefore
+// cost the garbage collector a handful of arrays instead of six
+// million objects, and a search scans one contiguous column.
+// There are no hash indexes: every search is a scan of the columns
+// it needs. Results are detached ListNode copies, so editing them
+// does not change the phone book; use modifyEntryAtIndex instead.
+//
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnarPhonebookManager {
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int ADDRESS = 2;
+    private static final int CITY = 3;
+    private static final int PHONE = 4;
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_ARENA = 64 * 1024;
+
+    private final Column[] columns = new Column[5];
+    private long[] packedPhones = new long[INITIAL_ROWS]; // By row, for phone searches.
+    private int rows; // Rows handed out since the last compaction, live or not.
+    private int[] order = new int[INITIAL_ROWS]; // Row of the entry at each index.
+    private int size; // Number of entries in the list.
+
+    public ColumnarPhonebookManager() {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(INITIAL_ROWS, INITIAL_ARENA);
+        }
+    }
+
+    /**
+     * Returns the number of entries in the phone book.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the phone book has no entries.
+     *
+     * @return true if the phone book is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a new entry at the beginning of the phone book.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     */
+    public void addEntryAtFront(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        addAtIndex(0, firstName, lastName, address, city, phoneNumber);
+    }
+
+    /**
+     * Adds a new entry at the end of the phone book.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     */
+    public void addEntryAtEnd(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        addAtIndex(size, firstName, lastName, address, city, phoneNumber);
+    }
+
+    /**
+     * Adds a new entry at a specified index in the phone book. Indexes
+     * outside 0 to size() are ignored. Entries after the index are shifted
+     * with one array copy of their row numbers.
+     *
+     * @param index       The index at which the entry should be added.
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     */
+    public void addAtIndex(int index, String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        if (index < 0 || index > size) {
+            return;
+        }
+        if (rows == packedPhones.length) {
+            growRows(rows * 2);
+        }
+        int row = rows++;
+        store(row, firstName, lastName, address, city, phoneNumber);
+        if (size == order.length) {
+            order = Arrays.copyOf(order, size * 2);
+        }
+        System.arraycopy(order, index, order, index + 1, size - index);
+        order[index] = row;
+        size++;
+    }
+
+    /**
+     * Deletes an entry at a specified index in the phone book. Indexes
+     * outside the list are ignored.
+     *
+     * @param index The index of the entry to be deleted.
+     */
+    public void deleteAtIndex(int index) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        int row = order[index];
+        for (Column column : columns) {
+            column.release(row);
+        }
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        compactIfSparse();
+    }
+
+    /**
+     * Modifies an existing entry's information by index. Indexes outside the
+     * list are ignored.
+     *
+     * @param index       The index of the entry to modify.
+     * @param firstName   The new first name.
+     * @param lastName    The new last name.
+     * @param address     The new address.
+     * @param city        The new city.
+     * @param phoneNumber The new phone number.
+     */
+    public void modifyEntryAtIndex(int index, String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        int row = order[index];
+        for (Column column : columns) {
+            column.release(row);
+        }
+        store(row, firstName, lastName, address, city, phoneNumber);
+        compactIfSparse();
+    }
+
+    /**
+     * Returns a copy of the entry at an index.
+     *
+     * @param index The index of the entry.
+     * @return A detached copy of the entry, or null if the index is outside
+     *         the list.
+     */
+    public ListNode getEntry(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        return toNode(order[index]);
+    }
+
+    /**
+     * Searches the phone book for all entries matching the given criteria and
+     * value, with the same matching rules as PhonebookManager. Each search
+     * scans the columns it needs, comparing the stored bytes in place; only
+     * matching entries are decoded.
+     *
+     * @param criteria The criteria to search for ("name", "address", "city",
+     *                 or "phoneNumber").
+     * @param value    The value to match against the criteria.
+     * @return Detached copies of the matching entries in list order; empty if
+     *         no match is found.
+     */
+    public List<ListNode> searchByCriteria(String criteria, String value) {
+        List<ListNode> matches = new ArrayList<>();
+        if (value == null) {
+            return matches;
+        }
+        if ("name".equals(criteria)) {
+            String trimmed = value.trim();
+            String[] nameParts = trimmed.split("\\s+");
+            Key[] parts = new Key[nameParts.length];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = new Key(nameParts[i]);
+            }
+            Key fullName = nameParts.length > 1 ? new Key(trimmed) : null;
+            Column first = columns[FIRST_NAME];
+            Column last = columns[LAST_NAME];
+            for (int i = 0; i < size; i++) {
+                int row = order[i];
+                boolean match = fullName != null && fullNameEquals(row, fullName);
+                for (int p = 0; p < parts.length && !match; p++) {
+                    match = first.equalsFolded(row, parts[p])
+                            || last.equalsFolded(row, parts[p]);
+                }
+                if (match) {
+                    matches.add(toNode(row));
+                }
+            }
+        } else if ("address".equals(criteria) || "city".equals(criteria)) {
+            Key key = new Key(value);
+            Column column = columns["city".equals(criteria) ? CITY : ADDRESS];
+            for (int i = 0; i < size; i++) {
+                if (column.equalsFolded(order[i], key)) {
+                    matches.add(toNode(order[i]));
+                }
+            }
+        } else if ("phoneNumber".equals(criteria)) {
+            long packed = PhoneNumbers.pack(value);
+            String key = ContactIndex.phoneKey(value);
+            for (int i = 0; i < size; i++) {
+                int row = order[i];
+                // Numbers that cannot be packed only match each other.
+                if (packed != PhoneNumbers.NONE ? packedPhones[row] == packed
+                        : packedPhones[row] == PhoneNumbers.NONE
+                                && key.equals(ContactIndex.phoneKey(columns[PHONE].get(row)))) {
+                    matches.add(toNode(row));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Searches the phone book for entries whose first, last or full name
+     * starts with the given text, ignoring case. Results are ordered by the
+     * matching name, then by list order, as in PhonebookManager. Every
+     * search scans the name columns, so this suits occasional lookups
+     * rather than type-ahead.
+     *
+     * @param prefix The start of the name to look for.
+     * @param offset The number of matching entries to skip, for paging.
+     * @param limit  The largest number of entries to return.
+     * @return Detached copies of up to limit matching entries.
+     */
+    public List<ListNode> searchByNamePrefix(String prefix, int offset,
+            int limit) {
+        List<ListNode> page = new ArrayList<>();
+        if (prefix == null || offset < 0 || limit <= 0) {
+            return page;
+        }
+        Key key = new Key(prefix.trim());
+        boolean spansFullName = key.folded.indexOf(' ') >= 0;
+        List<Object[]> matches = new ArrayList<>(); // Matching name and row.
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            String name = null;
+            if (columns[FIRST_NAME].startsWithFolded(row, key)) {
+                name = ContactIndex.fold(columns[FIRST_NAME].get(row));
+            }
+            if (columns[LAST_NAME].startsWithFolded(row, key)) {
+                String last = ContactIndex.fold(columns[LAST_NAME].get(row));
+                name = name == null || last.compareTo(name) < 0 ? last : name;
+            }
+            if (name == null && spansFullName) {
+                String first = columns[FIRST_NAME].get(row);
+                String last = columns[LAST_NAME].get(row);
+                if (first != null && last != null) {
+                    String full = ContactIndex.fold(first + " " + last);
+                    name = full.startsWith(key.folded) ? full : null;
+                }
+            }
+            if (name != null) {
+                matches.add(new Object[] { name, row });
+            }
+        }
+        // The sort is stable, so equal names stay in list order.
+        matches.sort((a, b) -> ((String) a[0]).compareTo((String) b[0]));
+        for (int i = offset; i < matches.size() && page.size() < limit; i++) {
+            page.add(toNode((Integer) matches.get(i)[1]));
+        }
+        return page;
+    }
+
+    /**
+     * Removes every entry from the phone book and releases its arenas.
+     */
+    public void clear() {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(INITIAL_ROWS, INITIAL_ARENA);
+        }
+        packedPhones = new long[INITIAL_ROWS];
+        order = new int[INITIAL_ROWS];
+        rows = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes every entry of the phone book to a writer in the same format as
+     * PhonebookManager.writeTo. ASCII values are copied straight from the
+     * arenas into one reused buffer without creating Strings.
+     *
+     * @param out The writer to write to. It is not flushed or closed.
+     * @throws IOException If the writer fails.
+     */
+    public void writeTo(Writer out) throws IOException {
+        StringBuilder entry = new StringBuilder(128);
+        char[] chars = new char[128];
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            entry.setLength(0);
+            entry.append("\nContact ").append(i + 1).append(":\n\nName: ");
+            columns[FIRST_NAME].appendTo(row, entry);
+            entry.append(' ');
+            columns[LAST_NAME].appendTo(row, entry);
+            entry.append("\nAddress: ");
+            columns[ADDRESS].appendTo(row, entry);
+            entry.append("\nCity: ");
+            columns[CITY].appendTo(row, entry);
+            entry.append("\nPhone Number: ");
+            columns[PHONE].appendTo(row, entry);
+            entry.append('\n');
+            if (chars.length < entry.length()) {
+                chars = new char[entry.length() * 2]; // Grow for unusually long entries.
+            }
+            entry.getChars(0, entry.length(), chars, 0);
+            out.write(chars, 0, entry.length());
+        }
+    }
+
+    /**
+     * Returns the number of bytes reserved off the heap by the arenas.
+     *
+     * @return The total capacity of the arenas.
+     */
+    long offHeapBytes() {
+        long total = 0;
+        for (Column column : columns) {
+            total += column.arena.capacity();
+        }
+        return total;
+    }
+
+    private void store(int row, String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        columns[FIRST_NAME].set(row, firstName);
+        columns[LAST_NAME].set(row, lastName);
+        columns[ADDRESS].set(row, address);
+        columns[CITY].set(row, city);
+        columns[PHONE].set(row, phoneNumber);
+        packedPhones[row] = PhoneNumbers.pack(phoneNumber);
+    }
+
+    private ListNode toNode(int row) {
+        return new ListNode(columns[FIRST_NAME].get(row), columns[LAST_NAME].get(row),
+                columns[ADDRESS].get(row), columns[CITY].get(row),
+                columns[PHONE].get(row));
+    }
+
+    /**
+     * Returns whether the row's first name, a space and its last name equal
+     * the key, ignoring case.
+     */
+    private boolean fullNameEquals(int row, Key key) {
+        Column first = columns[FIRST_NAME];
+        Column last = columns[LAST_NAME];
+        if (!first.isAscii(row) || !last.isAscii(row) || !key.ascii) {
+            String firstName = first.get(row);
+            String lastName = last.get(row);
+            return firstName != null && lastName != null
+                    && ContactIndex.fold(firstName + " " + lastName).equals(key.folded);
+        }
+        int firstLength = first.length(row);
+        return firstLength + 1 + last.length(row) == key.bytes.length
+                && key.bytes[firstLength] == ' '
+                && first.regionEqualsFolded(row, key, 0)
+                && last.regionEqualsFolded(row, key, firstLength + 1);
+    }
+
+    private void growRows(int capacity) {
+        for (Column column : columns) {
+            column.offsets = Arrays.copyOf(column.offsets, capacity);
+        }
+        packedPhones = Arrays.copyOf(packedPhones, capacity);
+    }
+
+    /**
+     * Rewrites the arenas in list order once more than half of their bytes,
+     * or more than half of the rows, belong to deleted or replaced values.
+     */
+    private void compactIfSparse() {
+        long used = 0;
+        long garbage = 0;
+        for (Column column : columns) {
+            used += column.used;
+            garbage += column.garbage;
+        }
+        boolean sparseBytes = used > INITIAL_ARENA && garbage * 2 > used;
+        boolean sparseRows = rows > INITIAL_ROWS && size * 2 < rows;
+        if (!sparseBytes && !sparseRows) {
+            return;
+        }
+        int capacity = Math.max(INITIAL_ROWS, size);
+        long[] phones = new long[capacity];
+        for (int c = 0; c < columns.length; c++) {
+            Column old = columns[c];
+            Column compacted = new Column(capacity,
+                    (int) Math.max(INITIAL_ARENA, old.used - old.garbage));
+            for (int i = 0; i < size; i++) {
+                compacted.copy(old, order[i], i);
+            }
+            columns[c] = compacted;
+        }
+        for (int i = 0; i < size; i++) {
+            phones[i] = packedPhones[order[i]];
+            order[i] = i;
+        }
+        packedPhones = phones;
+        rows = size;
+    }
+
+    /**
+     * A case-folded search value, with its UTF-8 bytes for comparing against
+     * a column in place.
+     */
+    private static final class Key {
+        final String folded;
+        final byte[] bytes;
+        final boolean ascii;
+
+        Key(String value) {
+            folded = ContactIndex.fold(value);
+            bytes = folded.getBytes(StandardCharsets.UTF_8);
+            ascii = bytes.length == folded.length(); // Only ASCII encodes one byte per char.
+        }
+    }
+
+    /**
+     * One field of every row. Each value is stored in the arena as an int
+     * header followed by its UTF-8 bytes. The header holds the byte length,
+     * with the top bit set when the value is not pure ASCII, so that ASCII
+     * values can be compared a byte at a time.
+     */
+    private static final class Column {
+        private static final int NON_ASCII = 0x80000000;
+        private static final int NULL = -1; // Offset of a null value.
+
+        ByteBuffer arena;
+        int used; // Bytes of the arena written so far.
+        long garbage; // Bytes of values that no row refers to any more.
+        int[] offsets; // Arena offset of each row's value.
+
+        Column(int rows, int arenaBytes) {
+            arena = ByteBuffer.allocateDirect(arenaBytes);
+            offsets = new int[rows];
+        }
+
+        void set(int row, String value) {
+            if (value == null) {
+                offsets[row] = NULL;
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            reserve(4 + bytes.length);
+            int header = bytes.length == value.length() ? bytes.length
+                    : bytes.length | NON_ASCII;
+            arena.putInt(used, header);
+            arena.put(used + 4, bytes);
+            offsets[row] = used;
+            used += 4 + bytes.length;
+        }
+
+        /**
+         * Copies a row's value from another column without decoding it.
+         */
+        void copy(Column from, int fromRow, int row) {
+            int offset = from.offsets[fromRow];
+            if (offset == NULL) {
+                offsets[row] = NULL;
+                return;
+            }
+            int bytes = 4 + (from.arena.getInt(offset) & ~NON_ASCII);
+            reserve(bytes);
+            arena.put(used, from.arena, offset, bytes);
+            offsets[row] = used;
+            used += bytes;
+        }
+
+        void release(int row) {
+            if (offsets[row] != NULL) {
+                garbage += 4 + length(row);
+                offsets[row] = NULL;
+            }
+        }
+
+        String get(int row) {
+            int offset = offsets[row];
+            if (offset == NULL) {
+                return null;
+            }
+            byte[] bytes = new byte[length(row)];
+            arena.get(offset + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void appendTo(int row, StringBuilder out) {
+            if (!isAscii(row)) {
+                out.append(get(row)); // Also appends "null" for a null value.
+                return;
+            }
+            int start = offsets[row] + 4;
+            int end = start + length(row);
+            for (int i = start; i < end; i++) {
+                out.append((char) arena.get(i));
+            }
+        }
+
+        int length(int row) {
+            return arena.getInt(offsets[row]) & ~NON_ASCII;
+        }
+
+        boolean isAscii(int row) {
+            return offsets[row] != NULL && arena.getInt(offsets[row]) >= 0;
+        }
+
+        boolean equalsFolded(int row, Key key) {
+            if (offsets[row] == NULL) {
+                return false;
+            }
+            if (!key.ascii || !isAscii(row)) {
+                return ContactIndex.fold(get(row)).equals(key.folded);
+            }
+            return length(row) == key.bytes.length && regionEqualsFolded(row, key, 0);
+        }
+
+        boolean startsWithFolded(int row, Key key) {
+            if (offsets[row] == NULL) {
+                return false;
+            }
+            if (!key.ascii || !isAscii(row)) {
+                return ContactIndex.fold(get(row)).startsWith(key.folded);
+            }
+            int length = Math.min(length(row), key.bytes.length);
+            return length == key.bytes.length && regionEqualsFolded(row, key, 0, length);
+        }
+
+        /**
+         * Compares this row's whole ASCII value with the key's bytes starting
+         * at from, ignoring case.
+         */
+        boolean regionEqualsFolded(int row, Key key, int from) {
+            return regionEqualsFolded(row, key, from, length(row));
+        }
+
+        private boolean regionEqualsFolded(int row, Key key, int from, int length) {
+            int start = offsets[row] + 4;
+            for (int i = 0; i < length; i++) {
+                byte b = arena.get(start + i);
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != key.bytes[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void reserve(int bytes) {
+            long needed = (long) used + bytes;
+            if (needed <= arena.capacity()) {
+                return;
+            }
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Column arena is full");
+            }
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(needed, 2L * arena.capacity()));
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            grown.put(0, arena, 0, used);
+            arena = grown;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A thread-safe phone book for serving lookups from many threads
+// while updates come in. Entries are immutable ContactRecords kept in
+// a concurrent skip list in list order, with concurrent hash indexes
+// for exact lookups. Readers never take a lock. Writers that edit or
+// delete a record lock one stripe chosen by the record, so unrelated
+// writers proceed in parallel.
+//
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentPhonebookManager {
+    private static final int STRIPES = 64; // Must be a power of two.
+
+    // Live records by order key. A record is live only while it is the value
+    // stored under its own key; index entries for older records are ignored.
+    private final ConcurrentSkipListMap<Long, ContactRecord> entries =
+            new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Set<ContactRecord>> byPhone =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<ContactRecord>> byAddress =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<ContactRecord>> byCity =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<ContactRecord>> byFirstName =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<ContactRecord>> byLastName =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<ContactRecord>> byFullName =
+            new ConcurrentHashMap<>();
+    // Front keys count down from -1 and end keys count up from 0, so list
+    // order is ascending key order.
+    private final AtomicLong nextFrontKey = new AtomicLong(-1);
+    private final AtomicLong nextEndKey = new AtomicLong(0);
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    public ConcurrentPhonebookManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the phone book.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns whether the phone book has no entries.
+     *
+     * @return true if the phone book is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Adds a new entry at the beginning of the phone book.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @return The new entry.
+     */
+    public ContactRecord addEntryAtFront(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        return add(new ContactRecord(nextFrontKey.getAndDecrement(), firstName,
+                lastName, address, city, phoneNumber));
+    }
+
+    /**
+     * Adds a new entry at the end of the phone book.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @return The new entry.
+     */
+    public ContactRecord addEntryAtEnd(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        return add(new ContactRecord(nextEndKey.getAndIncrement(), firstName,
+                lastName, address, city, phoneNumber));
+    }
+
+    /**
+     * Replaces the details of an entry. The entry keeps its position.
+     *
+     * @param record      The entry to modify, as returned by an add, a
+     *                    modify or a search.
+     * @param firstName   The new first name.
+     * @param lastName    The new last name.
+     * @param address     The new address.
+     * @param city        The new city.
+     * @param phoneNumber The new phone number.
+     * @return The replacement entry, or null if the entry was already
+     *         deleted or replaced by another writer.
+     */
+    public ContactRecord modifyEntry(ContactRecord record, String firstName,
+            String lastName, String address, String city, String phoneNumber) {
+        ContactRecord replacement = new ContactRecord(record.getKey(), firstName,
+                lastName, address, city, phoneNumber);
+        ReentrantLock lock = stripeFor(record);
+        lock.lock();
+        try {
+            // Index the replacement before it becomes live, so a concurrent
+            // lookup by an unchanged field never misses the entry.
+            index(replacement);
+            if (!entries.replace(record.getKey(), record, replacement)) {
+                unindex(replacement);
+                return null;
+            }
+            unindex(record);
+            return replacement;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes an entry.
+     *
+     * @param record The entry to delete.
+     * @return true if the entry was deleted, false if it was already deleted
+     *         or replaced by another writer.
+     */
+    public boolean deleteEntry(ContactRecord record) {
+        ReentrantLock lock = stripeFor(record);
+        lock.lock();
+        try {
+            if (!entries.remove(record.getKey(), record)) {
+                return false;
+            }
+            size.decrementAndGet();
+            unindex(record);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Searches the phone book for all entries matching the given criteria and
+     * value, with the same matching rules as PhonebookManager. Never blocks.
+     *
+     * @param criteria The criteria to search for ("name", "address", "city",
+     *                 or "phoneNumber").
+     * @param value    The value to match against the criteria.
+     * @return The matching entries in list order.
+     */
+    public List<ContactRecord> searchByCriteria(String criteria, String value) {
+        Set<ContactRecord> matches = new LinkedHashSet<>();
+        if (value == null) {
+            return new ArrayList<>();
+        }
+        if ("name".equals(criteria)) {
+            String trimmed = value.trim();
+            String[] nameParts = trimmed.split("\\s+");
+            for (String part : nameParts) {
+                collect(byFirstName, ContactIndex.fold(part), matches);
+                collect(byLastName, ContactIndex.fold(part), matches);
+            }
+            if (nameParts.length > 1) {
+                collect(byFullName, ContactIndex.fold(trimmed), matches);
+            }
+        } else if ("address".equals(criteria)) {
+            collect(byAddress, ContactIndex.fold(value), matches);
+        } else if ("city".equals(criteria)) {
+            collect(byCity, ContactIndex.fold(value), matches);
+        } else if ("phoneNumber".equals(criteria)) {
+            collect(byPhone, ContactIndex.phoneKey(value), matches);
+        }
+        List<ContactRecord> results = new ArrayList<>(matches);
+        results.sort(Comparator.comparingLong(ContactRecord::getKey));
+        return results;
+    }
+
+    /**
+     * Writes every entry to a writer in the same format as
+     * PhonebookManager.writeTo. Concurrent updates may or may not be seen,
+     * but each entry is written as one consistent version.
+     *
+     * @param out The writer to write to. It is not flushed or closed.
+     * @throws IOException If the writer fails.
+     */
+    public void writeTo(Writer out) throws IOException {
+        StringBuilder entry = new StringBuilder(128);
+        int contactNumber = 1;
+        for (ContactRecord record : entries.values()) {
+            entry.setLength(0);
+            entry.append("\nContact ").append(contactNumber).append(":\n\n")
+                    .append(record).append('\n');
+            out.append(entry);
+            contactNumber++;
+        }
+    }
+
+    /**
+     * Checks that the indexes and the size agree with the live entries. Only
+     * meaningful while no writers are running.
+     *
+     * @return A description of the first inconsistency, or null if none.
+     */
+    String verify() {
+        if (entries.size() != size.get()) {
+            return "size " + size.get() + " but " + entries.size() + " entries";
+        }
+        for (ContactRecord record : entries.values()) {
+            if (!contains(byPhone, ContactIndex.phoneKey(record.getPhoneNumber()), record)
+                    || !contains(byAddress, ContactIndex.fold(record.getAddress()), record)
+                    || !contains(byCity, ContactIndex.fold(record.getCity()), record)
+                    || !contains(byFirstName, ContactIndex.fold(record.getFirstName()), record)
+                    || !contains(byLastName, ContactIndex.fold(record.getLastName()), record)) {
+                return "entry missing from an index: " + record;
+            }
+        }
+        for (ConcurrentHashMap<String, Set<ContactRecord>> index : List.of(byPhone,
+                byAddress, byCity, byFirstName, byLastName, byFullName)) {
+            for (Set<ContactRecord> bucket : index.values()) {
+                for (ContactRecord record : bucket) {
+                    if (!isLive(record)) {
+                        return "stale entry left in an index: " + record;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private ContactRecord add(ContactRecord record) {
+        index(record); // Unreachable to readers until it is in entries.
+        entries.put(record.getKey(), record);
+        size.incrementAndGet();
+        return record;
+    }
+
+    private void index(ContactRecord record) {
+        put(byPhone, ContactIndex.phoneKey(record.getPhoneNumber()), record);
+        put(byAddress, ContactIndex.fold(record.getAddress()), record);
+        put(byCity, ContactIndex.fold(record.getCity()), record);
+        put(byFirstName, ContactIndex.fold(record.getFirstName()), record);
+        put(byLastName, ContactIndex.fold(record.getLastName()), record);
+        put(byFullName, fullNameKey(record), record);
+    }
+
+    private void unindex(ContactRecord record) {
+        take(byPhone, ContactIndex.phoneKey(record.getPhoneNumber()), record);
+        take(byAddress, ContactIndex.fold(record.getAddress()), record);
+        take(byCity, ContactIndex.fold(record.getCity()), record);
+        take(byFirstName, ContactIndex.fold(record.getFirstName()), record);
+        take(byLastName, ContactIndex.fold(record.getLastName()), record);
+        take(byFullName, fullNameKey(record), record);
+    }
+
+    private boolean isLive(ContactRecord record) {
+        return entries.get(record.getKey()) == record;
+    }
+
+    /**
+     * Adds the live records of one index bucket to the matches.
+     */
+    private void collect(ConcurrentHashMap<String, Set<ContactRecord>> index,
+            String key, Set<ContactRecord> matches) {
+        if (key == null) {
+            return;
+        }
+        Set<ContactRecord> bucket = index.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (ContactRecord record : bucket) {
+            if (isLive(record)) {
+                matches.add(record);
+            }
+        }
+    }
+
+    private ReentrantLock stripeFor(ContactRecord record) {
+        long key = record.getKey();
+        return stripes[(int) (key ^ (key >>> 32)) & (STRIPES - 1)];
+    }
+
+    private static String fullNameKey(ContactRecord record) {
+        if (record.getFirstName() == null || record.getLastName() == null) {
+            return null;
+        }
+        return ContactIndex.fold(record.getFirstName() + " " + record.getLastName());
+    }
+
+    private static void put(ConcurrentHashMap<String, Set<ContactRecord>> index,
+            String key, ContactRecord record) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = ConcurrentHashMap.newKeySet();
+            }
+            bucket.add(record);
+            return bucket;
+        });
+    }
+
+    private static void take(ConcurrentHashMap<String, Set<ContactRecord>> index,
+            String key, ContactRecord record) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(record);
+            return bucket.isEmpty() ? null : bucket; // Drop empty buckets.
+        });
+    }
+
+    private static boolean contains(ConcurrentHashMap<String, Set<ContactRecord>> index,
+            String key, ContactRecord record) {
+        if (key == null) {
+            return true;
+        }
+        Set<ContactRecord> bucket = index.get(key);
+        return bucket != null && bucket.contains(record);
+    }
+}
@@ -0,0 +1,378 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Imports and exports contacts as delimited text, one contact per
+// line with the fields first name, last name, address, city and phone
+// number. Comma-separated files follow RFC 4180: fields holding the
+// delimiter, a quote or a line break are quoted, and quotes inside
+// them are doubled. Tab-separated files use the same rules with a
+// tab. Imports are a pipeline: a parser thread decodes the file in
+// fixed-size chunks and hands rows over in batches, while the calling
+// thread links each batch onto the end of the phone book. Batches are
+// recycled through bounded queues, so memory stays constant beyond the
+// contacts themselves.
+//
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+final class ContactCsv {
+    static final String[] HEADER = { "firstName", "lastName", "address", "city",
+            "phoneNumber" };
+    static final int FIELDS = 5;
+    private static final int BATCH_ROWS = 4096;
+    private static final int QUEUE_DEPTH = 4; // Batches in flight between the threads.
+    private static final int CHUNK_BYTES = 1 << 16;
+
+    private ContactCsv() {
+    }
+
+    /**
+     * Returns the delimiter for a file: a tab for .tsv and .tab files, a
+     * comma otherwise.
+     *
+     * @param file The file.
+     * @return The delimiter.
+     */
+    static char delimiterFor(Path file) {
+        Path fileName = file.getFileName();
+        String name = fileName == null ? "" : fileName.toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+    }
+
+    /**
+     * Appends every contact in a delimited file to the end of a phone book.
+     * A first line that matches HEADER is skipped, as are blank lines. If
+     * the file cannot be read or a line does not have five fields, the
+     * contacts appended so far are removed again and the phone book is left
+     * as it was.
+     *
+     * @param file      The file to read, in UTF-8.
+     * @param delimiter The field delimiter.
+     * @param manager   The phone book to append to.
+     * @return The number of contacts imported.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    static int read(Path file, char delimiter, PhonebookManager manager)
+            throws IOException {
+        BlockingQueue<Batch> full = new ArrayBlockingQueue<>(QUEUE_DEPTH + 1);
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+        for (int i = 0; i < QUEUE_DEPTH; i++) {
+            free.add(new Batch());
+        }
+        Batch end = new Batch(); // Sent once the parser stops, for any reason.
+        Throwable[] failure = new Throwable[1];
+        Thread parser = new Thread(() -> {
+            try {
+                parse(file, delimiter, free.take(), batch -> {
+                    full.put(batch);
+                    return free.take();
+                });
+            } catch (IOException | RuntimeException | Error e) {
+                failure[0] = e; // Rethrown by the builder.
+            } catch (InterruptedException e) {
+                // The builder gave up; the end below goes unread.
+            } finally {
+                full.add(end); // Never blocks: there is one spare slot for it.
+            }
+        }, "csv-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        int before = manager.size();
+        boolean imported = false;
+        ListNode[] nodes = new ListNode[BATCH_ROWS];
+        try {
+            for (Batch batch = full.take(); batch != end; batch = full.take()) {
+                String[] fields = batch.fields;
+                for (int row = 0; row < batch.rows; row++) {
+                    int f = row * FIELDS;
+                    nodes[row] = new ListNode(fields[f], fields[f + 1], fields[f + 2],
+                            fields[f + 3], fields[f + 4]);
+                }
+                manager.appendAll(nodes, batch.rows);
+                Arrays.fill(nodes, 0, batch.rows, null);
+                batch.clear();
+                free.add(batch);
+            }
+            parser.join(); // Makes the failure written by the parser visible.
+            if (failure[0] instanceof IOException) {
+                throw (IOException) failure[0];
+            }
+            if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException) failure[0];
+            }
+            if (failure[0] instanceof Error) {
+                throw (Error) failure[0];
+            }
+            imported = true;
+            return manager.size() - before;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import of " + file + " was interrupted", e);
+        } finally {
+            if (!imported) {
+                parser.interrupt();
+                while (manager.size() > before) {
+                    manager.deleteAtIndex(manager.size() - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a delimited file on the calling thread, passing each batch of
+     * rows to a consumer. The batch is reused once the consumer returns.
+     *
+     * @param file      The file to read, in UTF-8.
+     * @param delimiter The field delimiter.
+     * @param consumer  Receives each batch.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    static void parse(Path file, char delimiter, Consumer<Batch> consumer)
+            throws IOException {
+        try {
+            parse(file, delimiter, new Batch(), batch -> {
+                consumer.accept(batch);
+                batch.clear();
+                return batch;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Parse of " + file + " was interrupted", e);
+        }
+    }
+
+    /**
+     * Writes a chain of entries to a delimited file, starting with HEADER.
+     * Null fields are written as empty fields.
+     *
+     * @param head      The first entry; entries are followed through next.
+     * @param file      The file to write, in UTF-8.
+     * @param delimiter The field delimiter.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(ListNode head, Path file, char delimiter) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < FIELDS; i++) {
+                appendField(line, HEADER[i], delimiter, i);
+            }
+            line.append('\n');
+            out.append(line);
+            for (ListNode node = head; node != null; node = node.getNext()) {
+                line.setLength(0);
+                appendField(line, node.peekFirstName(), delimiter, 0);
+                appendField(line, node.peekLastName(), delimiter, 1);
+                appendField(line, node.peekAddress(), delimiter, 2);
+                appendField(line, node.peekCity(), delimiter, 3);
+                appendField(line, node.peekPhoneNumber(), delimiter, 4);
+                line.append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    private static void appendField(StringBuilder line, String value,
+            char delimiter, int column) {
+        if (column > 0) {
+            line.append(delimiter);
+        }
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"'); // Double quotes inside a quoted field.
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Decodes the file a chunk at a time and runs the characters through a
+     * small state machine, passing each batch to the sink as soon as it is
+     * full and continuing with the batch the sink returns.
+     */
+    private static void parse(Path file, char delimiter, Batch batch, Sink sink)
+            throws IOException, InterruptedException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        CharBuffer chars = CharBuffer.allocate(CHUNK_BYTES);
+        StringBuilder field = new StringBuilder(64);
+        String[] row = new String[FIELDS];
+        int column = 0;
+        boolean quoted = false; // Inside a quoted field.
+        boolean quoteSeen = false; // The last character in a quoted field was a quote.
+        boolean wasQuoted = false; // The current field started with a quote.
+        boolean firstRow = true;
+        long line = 1;
+        try (FileChannel channel = FileChannel.open(file)) {
+            boolean eof = false;
+            while (!eof) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                eof = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, eof);
+                if (eof && !result.isError()) {
+                    result = decoder.flush(chars);
+                }
+                if (result.isError()) {
+                    throw new IOException(file + " line " + line + ": not valid UTF-8");
+                }
+                bytes.compact();
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    char c = chars.get();
+                    if (quoted) {
+                        if (c == '"') {
+                            quoted = false;
+                            quoteSeen = true;
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append(c);
+                        }
+                        continue;
+                    }
+                    if (c == '"' && (quoteSeen || field.length() == 0 && !wasQuoted)) {
+                        if (quoteSeen) {
+                            field.append('"'); // A doubled quote.
+                        }
+                        quoted = true;
+                        quoteSeen = false;
+                        wasQuoted = true;
+                    } else if (c == delimiter || c == '\n') {
+                        if (column < FIELDS) {
+                            row[column] = field.toString();
+                        }
+                        column++;
+                        field.setLength(0);
+                        quoteSeen = false;
+                        wasQuoted = false;
+                        if (c == '\n') {
+                            if (endRow(row, column, firstRow, batch, file, line)) {
+                                firstRow = false;
+                                if (batch.rows == BATCH_ROWS) {
+                                    batch = sink.accept(batch);
+                                }
+                            }
+                            column = 0;
+                            line++;
+                        }
+                    } else if (c != '\r') {
+                        if (wasQuoted) {
+                            throw new IOException(file + " line " + line
+                                    + ": text after a closing quote");
+                        }
+                        field.append(c);
+                    }
+                }
+                chars.clear();
+            }
+        }
+        if (quoted) {
+            throw new IOException(file + " line " + line + ": unterminated quoted field");
+        }
+        if (column > 0 || field.length() > 0 || wasQuoted) { // No final line break.
+            if (column < FIELDS) {
+                row[column] = field.toString();
+            }
+            endRow(row, column + 1, firstRow, batch, file, line);
+        }
+        if (batch.rows > 0) {
+            sink.accept(batch);
+        }
+    }
+
+    /**
+     * Adds a finished row to the batch, unless it is blank or the header.
+     *
+     * @return Whether the row counted as a line of data or the header.
+     */
+    private static boolean endRow(String[] row, int columns, boolean firstRow,
+            Batch batch, Path file, long line) throws IOException {
+        if (columns == 1 && row[0].isEmpty()) {
+            return false; // A blank line.
+        }
+        if (columns != FIELDS) {
+            throw new IOException(file + " line " + line + ": expected " + FIELDS
+                    + " fields but found " + columns);
+        }
+        if (firstRow && isHeader(row)) {
+            return true;
+        }
+        System.arraycopy(row, 0, batch.fields, batch.rows * FIELDS, FIELDS);
+        batch.rows++;
+        return true;
+    }
+
+    private static boolean isHeader(String[] row) {
+        for (int i = 0; i < FIELDS; i++) {
+            if (!HEADER[i].equalsIgnoreCase(row[i].trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives full batches from the parser.
+     */
+    private interface Sink {
+        /**
+         * Takes a full batch.
+         *
+         * @param batch The batch.
+         * @return An empty batch to continue with.
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        Batch accept(Batch batch) throws InterruptedException;
+    }
+
+    /**
+     * Parsed rows handed from the parser to the builder, five fields per
+     * row.
+     */
+    static final class Batch {
+        final String[] fields = new String[BATCH_ROWS * FIELDS];
+        int rows;
+
+        void clear() {
+            Arrays.fill(fields, 0, rows * FIELDS, null);
+            rows = 0;
+        }
+    }
+}
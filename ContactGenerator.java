@@ -0,0 +1,109 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Generates reproducible synthetic contacts for benchmarks. The
+// same seed always yields the same sequence. Names and cities repeat
+// with realistic skew, while each contact gets a unique phone number.
+//
+
+import java.util.Random;
+
+class ContactGenerator {
+    private static final String[] FIRST_NAMES = { "James", "Mary", "John",
+            "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+            "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph",
+            "Jessica", "Caiden", "Sarah", "Thomas", "Karen", "Daniel", "Nancy",
+            "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Sandra", "Steven",
+            "Ashley", "Paul", "Emily", "Andrew", "Donna", "Joshua", "Michelle" };
+    private static final String[] LAST_NAME_STARTS = { "San", "John", "Wil",
+            "Brow", "Gar", "Mil", "Dav", "Rod", "Mar", "Her", "Lop", "Gon",
+            "And", "Tay", "Moo", "Jack", "Whit", "Harr", "Cl", "Lew", "Rob",
+            "Walk", "Young", "All", "King", "Wright", "Scott", "Hill", "Green",
+            "Ad", "Bak", "Nel", "Carl", "Mitch", "Per", "Ed" };
+    private static final String[] LAST_NAME_ENDS = { "ders", "son", "liams",
+            "n", "cia", "ler", "is", "riguez", "tinez", "nandez", "ez", "zalez",
+            "erson", "lor", "re", "man", "ford", "ton", "ley", "well", "ins",
+            "doval", "ers", "ner", "by", "ing", "stone", "wood", "field", "ams" };
+    private static final String[] STREETS = { "Main St", "Pine St",
+            "Pacific Ave", "Broadway", "Union Ave", "6th Ave", "Division St",
+            "Oak St", "Cedar Ave", "Lake Rd", "Hill Dr", "Park Pl" };
+    private static final String[] CITIES = { "Tacoma", "Seattle", "Olympia",
+            "Spokane", "Bellevue", "Everett", "Kent", "Renton", "Yakima",
+            "Lakewood", "Vancouver", "Bellingham", "Kennewick", "Auburn",
+            "Pasco", "Marysville", "Redmond", "Sammamish", "Federal Way",
+            "Kirkland" };
+
+    private final Random random;
+    private int sequence; // Number of contacts generated so far.
+
+    /**
+     * Creates a generator whose output is fully determined by the seed.
+     *
+     * @param seed The random seed.
+     */
+    ContactGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates the next contact.
+     *
+     * @return The first name, last name, address, city and phone number.
+     */
+    String[] next() {
+        String[] contact = {
+                skewed(FIRST_NAMES),
+                skewed(LAST_NAME_STARTS) + skewed(LAST_NAME_ENDS),
+                (1 + random.nextInt(19_999)) + " " + skewed(STREETS),
+                skewed(CITIES),
+                phoneNumber(sequence) };
+        sequence++;
+        return contact;
+    }
+
+    /**
+     * Adds the next count contacts to the end of a phone book.
+     *
+     * @param manager The phone book to fill.
+     * @param count   The number of contacts to add.
+     */
+    void fill(PhonebookManager manager, int count) {
+        for (int i = 0; i < count; i++) {
+            String[] contact = next();
+            manager.addEntryAtEnd(contact[0], contact[1], contact[2], contact[3],
+                    contact[4]);
+        }
+    }
+
+    /**
+     * Formats a unique, North American style phone number for the i-th
+     * contact.
+     *
+     * @param i The contact's sequence number.
+     * @return The phone number.
+     */
+    static String phoneNumber(int i) {
+        char[] digits = "(000) 000-0000".toCharArray();
+        int local = i % 10_000_000;
+        int area = 253 + i / 10_000_000; // Move to the next area code every 10M.
+        for (int position : new int[] { 13, 12, 11, 10, 8, 7, 6 }) {
+            digits[position] = (char) ('0' + local % 10);
+            local /= 10;
+        }
+        for (int position : new int[] { 3, 2, 1 }) {
+            digits[position] = (char) ('0' + area % 10);
+            area /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Picks a value, favouring the front of the array: about half of all
+     * picks come from the first quarter.
+     */
+    private String skewed(String[] values) {
+        double u = random.nextDouble();
+        return values[(int) (u * u * values.length)];
+    }
+}
@@ -0,0 +1,567 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Secondary indexes over the entries of a PhonebookManager.
+// Entries are hashed by packed phone number, case-folded address and
+// city, and case-folded first, last and full name so that exact lookups
+// do not have to walk the linked list. The case-folded names are also
+// kept in sorted order to answer prefix (type-ahead) searches, and in a
+// FuzzyNameIndex to answer misspelled and sound-alike name searches.
+// Cities and first names repeat across many entries, so they are
+// dictionary encoded: the two indexes are keyed by the FieldDictionary
+// code stored on each node, and nodes share one String per value.
+// Entries sorted by name, city or phone number are kept in a SortedIndex
+// for each, built the first time a sorted view asks for it.
+//
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+class ContactIndex {
+    // Each map value is either a single ListNode or a Set of ListNodes. Most
+    // keys are unique, so a set is only allocated once a key is shared.
+    // Phone numbers by their packed digits; only numbers that cannot be
+    // packed fall back to byPhone.
+    private final LongHashMap<Object> byPackedPhone = new LongHashMap<>();
+    private final Map<String, Object> byPhone = new HashMap<>();
+    private final Map<String, Object> byAddress = new HashMap<>();
+    // Cities and first names by their dictionary codes.
+    private final LongHashMap<Object> byCity = new LongHashMap<>();
+    private final LongHashMap<Object> byFirstName = new LongHashMap<>();
+    private final Map<String, Object> byLastName = new HashMap<>();
+    private final Map<String, Object> byFullName = new HashMap<>();
+    // First, last and full names together, in sorted order for prefix searches.
+    private final NavigableMap<String, Object> sortedNames = new TreeMap<>();
+    // Distinct first and last names, for fuzzy and phonetic searches.
+    private final FuzzyNameIndex names = new FuzzyNameIndex();
+    private final FieldDictionary cities = new FieldDictionary();
+    private final FieldDictionary firstNames = new FieldDictionary();
+    // Sorted indexes by SortedIndex.Key ordinal, or null until first used.
+    private final SortedIndex[] sorted = new SortedIndex[SortedIndex.Key.values().length];
+
+    /**
+     * Adds a node to every index under its current field values, encoding
+     * its city and first name.
+     *
+     * @param node The node to index.
+     */
+    void add(ListNode node) {
+        node.firstNameCode = firstNames.encode(node.peekFirstName());
+        node.cityCode = cities.encode(node.peekCity());
+        node.share(firstNames.share(node.firstNameCode, node.peekFirstName()),
+                cities.share(node.cityCode, node.peekCity()));
+        String first = fold(node.peekFirstName());
+        String last = fold(node.peekLastName());
+        String full = fullNameKey(node);
+        if (node.getPackedPhone() != PhoneNumbers.NONE) {
+            put(byPackedPhone, node.getPackedPhone(), node);
+        } else {
+            put(byPhone, phoneKey(node.peekPhoneNumber()), node);
+        }
+        put(byAddress, fold(node.peekAddress()), node);
+        if (node.cityCode != FieldDictionary.NONE) {
+            put(byCity, node.cityCode, node);
+        }
+        if (node.firstNameCode != FieldDictionary.NONE) {
+            put(byFirstName, node.firstNameCode, node);
+        }
+        put(byLastName, last, node);
+        put(byFullName, full, node);
+        put(sortedNames, first, node);
+        put(sortedNames, last, node);
+        put(sortedNames, full, node);
+        names.add(first);
+        names.add(last);
+        for (SortedIndex order : sorted) {
+            if (order != null) {
+                order.add(node);
+            }
+        }
+    }
+
+    /**
+     * Removes a node from every index. Must be called before any of the
+     * node's fields change, since the keys are derived from them.
+     *
+     * @param node The node to remove.
+     */
+    void remove(ListNode node) {
+        if (node.getPackedPhone() != PhoneNumbers.NONE) {
+            take(byPackedPhone, node.getPackedPhone(), node);
+        } else {
+            take(byPhone, phoneKey(node.peekPhoneNumber()), node);
+        }
+        String first = fold(node.peekFirstName());
+        String last = fold(node.peekLastName());
+        String full = fullNameKey(node);
+        take(byAddress, fold(node.peekAddress()), node);
+        if (node.cityCode != FieldDictionary.NONE) {
+            take(byCity, node.cityCode, node);
+        }
+        if (node.firstNameCode != FieldDictionary.NONE) {
+            take(byFirstName, node.firstNameCode, node);
+        }
+        cities.release(node.cityCode);
+        firstNames.release(node.firstNameCode);
+        node.cityCode = FieldDictionary.NONE;
+        node.firstNameCode = FieldDictionary.NONE;
+        take(byLastName, last, node);
+        take(byFullName, full, node);
+        take(sortedNames, first, node);
+        take(sortedNames, last, node);
+        take(sortedNames, full, node);
+        names.remove(first);
+        names.remove(last);
+        for (SortedIndex order : sorted) {
+            if (order != null) {
+                order.remove(node);
+            }
+        }
+    }
+
+    /**
+     * Removes every node from every index.
+     */
+    void clear() {
+        byPackedPhone.clear();
+        byPhone.clear();
+        byAddress.clear();
+        byCity.clear();
+        byFirstName.clear();
+        byLastName.clear();
+        byFullName.clear();
+        sortedNames.clear();
+        names.clear();
+        cities.clear();
+        firstNames.clear();
+        for (SortedIndex order : sorted) {
+            if (order != null) {
+                order.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the nodes sorted by a key, sorting the list into
+     * a new one the first time. From then on, add and remove keep it up to
+     * date.
+     *
+     * @param key  The field to sort by.
+     * @param head The first node of the indexed list.
+     * @param size The number of nodes in the list.
+     * @return The sorted index.
+     */
+    SortedIndex sorted(SortedIndex.Key key, ListNode head, int size) {
+        SortedIndex order = sorted[key.ordinal()];
+        if (order == null) {
+            order = new SortedIndex(key, head, size);
+            sorted[key.ordinal()] = order;
+        }
+        return order;
+    }
+
+    /**
+     * Returns the number of distinct cities, ignoring case.
+     *
+     * @return The size of the city dictionary.
+     */
+    int distinctCities() {
+        return cities.size();
+    }
+
+    /**
+     * Returns the number of distinct first names, ignoring case.
+     *
+     * @return The size of the first name dictionary.
+     */
+    int distinctFirstNames() {
+        return firstNames.size();
+    }
+
+    /**
+     * Finds all nodes whose first or last name equals one of the
+     * whitespace-separated parts of the value, or whose full name equals the
+     * whole value when it has more than one part.
+     *
+     * @param value The name to look up.
+     * @return The matching nodes, without duplicates, first-name matches
+     *         first, each in the order they were indexed.
+     */
+    List<ListNode> findByName(String value) {
+        String trimmed = value.trim();
+        String[] nameParts = trimmed.split("\\s+");
+        Set<ListNode> matches = new LinkedHashSet<>();
+        for (String part : nameParts) {
+            String key = fold(part);
+            collect(byFirstName.get(firstNames.codeOf(key)), matches);
+            collect(byLastName.get(key), matches);
+        }
+        if (nameParts.length > 1) {
+            collect(byFullName.get(fold(trimmed)), matches);
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Finds nodes whose names are within an edit distance of each
+     * whitespace-separated part of the value. A node matches when every part
+     * is within maxDistance insertions, deletions and substitutions of its
+     * first or last name, ignoring case.
+     *
+     * @param value       The name to look up, possibly misspelled.
+     * @param maxDistance The largest distance allowed for each part.
+     * @return The matching nodes, closest first: ordered by the sum over the
+     *         parts of each one's distance to the nearer name.
+     */
+    List<ListNode> findByNameFuzzy(String value, int maxDistance) {
+        String[] parts = nameParts(value);
+        List<Map<String, Integer>> matches = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            matches.add(names.near(part, maxDistance));
+        }
+        return rank(matches);
+    }
+
+    /**
+     * Finds nodes whose names sound like each whitespace-separated part of
+     * the value. A node matches when every part has the same Soundex code
+     * as its first or last name.
+     *
+     * @param value The name to look up.
+     * @return The matching nodes, ordered as by findByNameFuzzy.
+     */
+    List<ListNode> findByNameSoundsLike(String value) {
+        String[] parts = nameParts(value);
+        List<Map<String, Integer>> matches = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            matches.add(names.soundsLike(part));
+        }
+        return rank(matches);
+    }
+
+    /**
+     * Finds nodes whose first, last or full name starts with a prefix,
+     * ignoring case. Nodes are ordered by the name that matched, and a node
+     * matching on more than one name is returned once, at its first match.
+     * The walk stops once the page is full, so the cost grows with offset
+     * plus limit rather than with the total number of matches.
+     *
+     * @param prefix The start of the name.
+     * @param offset The number of matching nodes to skip.
+     * @param limit  The largest number of nodes to return.
+     * @return The requested page of matching nodes.
+     */
+    @SuppressWarnings("unchecked")
+    List<ListNode> findByNamePrefix(String prefix, int offset, int limit) {
+        String start = fold(prefix.trim());
+        Set<ListNode> seen = new HashSet<>();
+        List<ListNode> page = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : sortedNames.tailMap(start, true).entrySet()) {
+            if (!entry.getKey().startsWith(start)) {
+                break;
+            }
+            Object value = entry.getValue();
+            Iterable<ListNode> bucket = value instanceof ListNode
+                    ? Collections.singletonList((ListNode) value)
+                    : (Set<ListNode>) value;
+            for (ListNode node : bucket) {
+                if (seen.add(node) && seen.size() > offset) {
+                    page.add(node);
+                    if (page.size() == limit) {
+                        return page;
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Finds all nodes whose address equals the value, ignoring case.
+     *
+     * @param value The address to look up.
+     * @return The matching nodes.
+     */
+    List<ListNode> findByAddress(String value) {
+        List<ListNode> matches = new ArrayList<>();
+        collect(byAddress.get(fold(value)), matches);
+        return matches;
+    }
+
+    /**
+     * Finds all nodes whose city equals the value, ignoring case.
+     *
+     * @param value The city to look up.
+     * @return The matching nodes.
+     */
+    List<ListNode> findByCity(String value) {
+        List<ListNode> matches = new ArrayList<>();
+        collect(byCity.get(cities.codeOf(value)), matches);
+        return matches;
+    }
+
+    /**
+     * Finds all nodes whose normalized phone number equals the normalized
+     * value.
+     *
+     * @param value The phone number to look up.
+     * @return The matching nodes.
+     */
+    List<ListNode> findByPhoneNumber(String value) {
+        List<ListNode> matches = new ArrayList<>();
+        long packed = PhoneNumbers.pack(value);
+        if (packed != PhoneNumbers.NONE) {
+            collect(byPackedPhone.get(packed), matches);
+        } else {
+            collect(byPhone.get(phoneKey(value)), matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds all nodes whose field equals the value, as ContactQuery.equalTo
+     * describes: names, addresses and cities ignoring case, and phone
+     * numbers on their digits.
+     *
+     * @param field The field ("firstName", "lastName", "address", "city",
+     *              or "phoneNumber").
+     * @param value The value to look up.
+     * @return The matching nodes.
+     */
+    List<ListNode> findEqual(String field, String value) {
+        List<ListNode> matches = new ArrayList<>();
+        collect(postings(field, value), matches);
+        return matches;
+    }
+
+    /**
+     * Counts the nodes findEqual would return, in O(1), so a query planner
+     * can see how selective an equality is before fetching any nodes.
+     *
+     * @param field The field, as for findEqual.
+     * @param value The value to look up.
+     * @return The number of matching nodes.
+     */
+    @SuppressWarnings("unchecked")
+    int countEqual(String field, String value) {
+        Object entry = postings(field, value);
+        if (entry instanceof ListNode) {
+            return 1;
+        }
+        return entry == null ? 0 : ((Set<ListNode>) entry).size();
+    }
+
+    /**
+     * Returns the dictionary code of a city or first name, which equals the
+     * cityCode or firstNameCode of exactly the nodes findEqual would return.
+     *
+     * @param field "city" or "firstName".
+     * @param value The value to look up.
+     * @return The code, or FieldDictionary.NONE if no node has the value.
+     */
+    int codeOf(String field, String value) {
+        return "city".equals(field) ? cities.codeOf(value) : firstNames.codeOf(value);
+    }
+
+    /**
+     * Returns the index entry for a field value: null, a ListNode or a Set.
+     */
+    private Object postings(String field, String value) {
+        switch (field) {
+            case "firstName":
+                return byFirstName.get(firstNames.codeOf(value));
+            case "lastName":
+                return byLastName.get(fold(value));
+            case "address":
+                return byAddress.get(fold(value));
+            case "city":
+                return byCity.get(cities.codeOf(value));
+            case "phoneNumber": {
+                long packed = PhoneNumbers.pack(value);
+                return packed != PhoneNumbers.NONE ? byPackedPhone.get(packed)
+                        : byPhone.get(phoneKey(value));
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Normalizes a phone number to its digits so that "(555) 123-4567" and
+     * "555.123.4567" share a key. Country codes are kept as entered, so
+     * "+1 555 123 4567" has a different key. Values without any digits
+     * fall back to their case-folded form.
+     *
+     * @param phoneNumber The phone number to normalize.
+     * @return The index key, or null if the phone number is null.
+     */
+    static String phoneKey(String phoneNumber) {
+        if (phoneNumber == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() > 0 ? digits.toString() : fold(phoneNumber);
+    }
+
+    /**
+     * Splits a name search into its case-folded parts.
+     */
+    private static String[] nameParts(String value) {
+        String[] parts = value.trim().split("\\s+");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = fold(parts[i]);
+        }
+        return parts;
+    }
+
+    /**
+     * Collects the nodes with a first or last name matching the first part,
+     * keeps those that have a matching name for every other part as well,
+     * and sorts them by their total distance. Nodes at the same distance
+     * keep the order they were found in.
+     *
+     * @param matches For each part, the matching names and their distances.
+     */
+    private List<ListNode> rank(List<Map<String, Integer>> matches) {
+        Set<ListNode> candidates = new LinkedHashSet<>();
+        for (String name : matches.get(0).keySet()) {
+            collect(byFirstName.get(firstNames.codeOf(name)), candidates);
+            collect(byLastName.get(name), candidates);
+        }
+        List<ListNode> ranked = new ArrayList<>(candidates.size());
+        Map<ListNode, Integer> totals = new HashMap<>();
+        for (ListNode node : candidates) {
+            String first = fold(node.peekFirstName());
+            String last = fold(node.peekLastName());
+            int total = 0;
+            for (Map<String, Integer> part : matches) {
+                Integer byFirst = first == null ? null : part.get(first);
+                Integer byLast = last == null ? null : part.get(last);
+                if (byFirst == null && byLast == null) {
+                    total = -1;
+                    break;
+                }
+                total += Math.min(byFirst == null ? Integer.MAX_VALUE : byFirst,
+                        byLast == null ? Integer.MAX_VALUE : byLast);
+            }
+            if (total >= 0) {
+                ranked.add(node);
+                totals.put(node, total);
+            }
+        }
+        ranked.sort((a, b) -> Integer.compare(totals.get(a), totals.get(b)));
+        return ranked;
+    }
+
+    /**
+     * Case-folds a value for use as an index key.
+     *
+     * @param value The value to fold.
+     * @return The folded value, or null if the value is null.
+     */
+    static String fold(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String fullNameKey(ListNode node) {
+        if (node.peekFirstName() == null || node.peekLastName() == null) {
+            return null;
+        }
+        return fold(node.peekFirstName() + " " + node.peekLastName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> index, String key,
+            ListNode node) {
+        if (key == null) {
+            return;
+        }
+        Object existing = index.putIfAbsent(key, node);
+        if (existing == null || existing == node) {
+            return;
+        }
+        if (existing instanceof ListNode) {
+            Set<ListNode> bucket = new LinkedHashSet<>();
+            bucket.add((ListNode) existing);
+            bucket.add(node);
+            index.put(key, bucket);
+        } else {
+            ((Set<ListNode>) existing).add(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void take(Map<String, Object> index, String key,
+            ListNode node) {
+        if (key == null) {
+            return;
+        }
+        Object existing = index.get(key);
+        if (existing == node) {
+            index.remove(key);
+        } else if (existing instanceof Set) {
+            Set<ListNode> bucket = (Set<ListNode>) existing;
+            bucket.remove(node);
+            if (bucket.size() == 1) {
+                index.put(key, bucket.iterator().next()); // Collapse back to a single node.
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(LongHashMap<Object> index, long key, ListNode node) {
+        Object existing = index.get(key);
+        if (existing == null) {
+            index.put(key, node);
+        } else if (existing instanceof ListNode) {
+            if (existing != node) {
+                Set<ListNode> bucket = new LinkedHashSet<>();
+                bucket.add((ListNode) existing);
+                bucket.add(node);
+                index.put(key, bucket);
+            }
+        } else {
+            ((Set<ListNode>) existing).add(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void take(LongHashMap<Object> index, long key, ListNode node) {
+        Object existing = index.get(key);
+        if (existing == node) {
+            index.remove(key);
+        } else if (existing instanceof Set) {
+            Set<ListNode> bucket = (Set<ListNode>) existing;
+            bucket.remove(node);
+            if (bucket.size() == 1) {
+                index.put(key, bucket.iterator().next()); // Collapse back to a single node.
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collect(Object entry, Collection<ListNode> out) {
+        if (entry instanceof ListNode) {
+            out.add((ListNode) entry);
+        } else if (entry != null) {
+            out.addAll((Set<ListNode>) entry);
+        }
+    }
+}
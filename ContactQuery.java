@@ -0,0 +1,273 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A search over several fields at once, for
+// PhonebookManager.searchByQuery. Conditions on the first name, last
+// name, address, city and phone number are combined with AND, OR and
+// NOT, so "last name Smith in Tacoma" is one query instead of a search
+// filtered by hand. A query only describes what to find; QueryPlan
+// decides which indexes answer it.
+//
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class ContactQuery {
+    enum Kind {
+        EQUAL, MATCH, RANGE, AND, OR, NOT
+    }
+
+    final Kind kind;
+    final String field; // The field a condition tests, or null for AND, OR and NOT.
+    final String value; // The value, pattern or lower bound, or null for none.
+    final String to; // The upper bound of a RANGE, or null for none.
+    final MatchMode mode; // How a MATCH compares, or null.
+    final List<ContactQuery> parts; // The operands of AND, OR and NOT.
+
+    private ContactQuery(Kind kind, String field, String value, String to,
+            MatchMode mode, List<ContactQuery> parts) {
+        this.kind = kind;
+        this.field = field;
+        this.value = value;
+        this.to = to;
+        this.mode = mode;
+        this.parts = parts;
+    }
+
+    /**
+     * Finds the entries whose field equals a value. Names, addresses and
+     * cities are compared ignoring case, and phone numbers on their digits,
+     * as searchByCriteria does. Every field is indexed for this.
+     *
+     * @param field The field ("firstName", "lastName", "address", "city", or
+     *              "phoneNumber").
+     * @param value The value to look for.
+     * @return The query.
+     * @throws IllegalArgumentException If the field is unknown or the value
+     *                                  is null.
+     */
+    public static ContactQuery equalTo(String field, String value) {
+        return new ContactQuery(Kind.EQUAL, requireField(field),
+                requireValue(value), null, null, null);
+    }
+
+    /**
+     * Finds the entries whose field matches a value in the given mode, as
+     * searchByCriteria(criteria, value, mode) does for one field. EXACT is
+     * the same as equalTo. STARTS_WITH on the last name or city is answered
+     * from the sorted index for the field; the other modes test entries one
+     * by one.
+     *
+     * @param field The field, as for equalTo.
+     * @param value The text, or for REGEX the regular expression, to look
+     *              for.
+     * @param mode  How the value is compared with the field.
+     * @return The query.
+     * @throws IllegalArgumentException If the field is unknown, or the value
+     *                                  or mode is null.
+     */
+    public static ContactQuery matches(String field, String value, MatchMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Mode cannot be null");
+        }
+        if (mode == MatchMode.EXACT) {
+            return equalTo(field, value);
+        }
+        return new ContactQuery(Kind.MATCH, requireField(field), requireValue(value),
+                null, mode, null);
+    }
+
+    /**
+     * Finds the entries whose last name, city or phone number is between two
+     * bounds, as searchByRange does: from the lower bound up to and including
+     * every value starting with the upper bound.
+     *
+     * @param field The field ("lastName", "city", or "phoneNumber").
+     * @param from  The lower bound, or null for none.
+     * @param to    The upper bound, or null for none.
+     * @return The query.
+     * @throws IllegalArgumentException If the field has no sorted order.
+     */
+    public static ContactQuery between(String field, String from, String to) {
+        if (sortKey(requireField(field)) == null) {
+            throw new IllegalArgumentException("Cannot range over " + field);
+        }
+        return new ContactQuery(Kind.RANGE, field, from, to, null, null);
+    }
+
+    /**
+     * Finds the entries matching every one of the queries.
+     *
+     * @param parts The queries, at least one.
+     * @return The query.
+     * @throws IllegalArgumentException If there are no queries or one is
+     *                                  null.
+     */
+    public static ContactQuery and(ContactQuery... parts) {
+        return new ContactQuery(Kind.AND, null, null, null, null, requireParts(parts));
+    }
+
+    /**
+     * Finds the entries matching any of the queries.
+     *
+     * @param parts The queries, at least one.
+     * @return The query.
+     * @throws IllegalArgumentException If there are no queries or one is
+     *                                  null.
+     */
+    public static ContactQuery or(ContactQuery... parts) {
+        return new ContactQuery(Kind.OR, null, null, null, null, requireParts(parts));
+    }
+
+    /**
+     * Finds the entries not matching a query.
+     *
+     * @param part The query to negate.
+     * @return The query.
+     * @throws IllegalArgumentException If the query is null.
+     */
+    public static ContactQuery not(ContactQuery part) {
+        return new ContactQuery(Kind.NOT, null, null, null, null,
+                requireParts(new ContactQuery[] { part }));
+    }
+
+    /**
+     * Returns the sorted index key for a field, or null if the field has no
+     * sorted index. The name index sorts by last name first, so its ranges
+     * are ranges of last names.
+     */
+    static SortedIndex.Key sortKey(String field) {
+        switch (field) {
+            case "lastName":
+                return SortedIndex.Key.NAME;
+            case "city":
+                return SortedIndex.Key.CITY;
+            case "phoneNumber":
+                return SortedIndex.Key.PHONE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the value of a field of an entry.
+     */
+    static String fieldOf(ListNode node, String field) {
+        switch (field) {
+            case "firstName":
+                return node.peekFirstName();
+            case "lastName":
+                return node.peekLastName();
+            case "address":
+                return node.peekAddress();
+            case "city":
+                return node.peekCity();
+            default:
+                return node.peekPhoneNumber();
+        }
+    }
+
+    private static String requireField(String field) {
+        if (field != null) {
+            switch (field) {
+                case "firstName":
+                case "lastName":
+                case "address":
+                case "city":
+                case "phoneNumber":
+                    return field;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field " + field);
+    }
+
+    private static String requireValue(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        return value;
+    }
+
+    private static List<ContactQuery> requireParts(ContactQuery[] parts) {
+        if (parts == null || parts.length == 0) {
+            throw new IllegalArgumentException("A query needs at least one part");
+        }
+        for (ContactQuery part : parts) {
+            if (part == null) {
+                throw new IllegalArgumentException("Query parts cannot be null");
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(parts.clone()));
+    }
+
+    /**
+     * Returns the query in a readable form, such as
+     * lastName = "Smith" AND (city = "Tacoma" OR city = "Seattle").
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        appendTo(out);
+        return out.toString();
+    }
+
+    private void appendTo(StringBuilder out) {
+        switch (kind) {
+            case EQUAL:
+                out.append(field).append(" = ");
+                appendQuoted(out, value);
+                break;
+            case MATCH:
+                out.append(field).append(' ').append(mode).append(' ');
+                appendQuoted(out, value);
+                break;
+            case RANGE:
+                out.append(field).append(" BETWEEN ");
+                appendQuoted(out, value);
+                out.append(" AND ");
+                appendQuoted(out, to);
+                break;
+            case NOT:
+                out.append("NOT ");
+                parts.get(0).appendOperand(out);
+                break;
+            default:
+                for (int i = 0; i < parts.size(); i++) {
+                    if (i > 0) {
+                        out.append(' ').append(kind).append(' ');
+                    }
+                    parts.get(i).appendOperand(out);
+                }
+        }
+    }
+
+    /**
+     * Appends the query as an operand of AND, OR or NOT, in parentheses if
+     * it combines several conditions.
+     */
+    private void appendOperand(StringBuilder out) {
+        boolean group = (kind == Kind.AND || kind == Kind.OR) && parts.size() > 1;
+        if (group) {
+            out.append('(');
+        }
+        appendTo(out);
+        if (group) {
+            out.append(')');
+        }
+    }
+
+    /**
+     * Appends a value in double quotes, or * for a missing range bound.
+     */
+    private static void appendQuoted(StringBuilder out, String value) {
+        if (value == null) {
+            out.append('*');
+        } else {
+            out.append('"').append(value.replace("\"", "\\\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,104 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: An immutable phone book entry. Unlike ListNode, a record never
+// changes after it is created, so it can be shared between threads
+// without locking; an edit replaces the record with a new one.
+//
+
+public final class ContactRecord {
+    private final long key; // Position of the record in list order.
+    private final String firstName;
+    private final String lastName;
+    private final String address;
+    private final String city;
+    private final String phoneNumber;
+
+    /**
+     * Creates a record with the given order key and details.
+     *
+     * @param key         The order key; records are listed by ascending key.
+     * @param firstName   The first name of the person.
+     * @param lastName    The last name of the person.
+     * @param address     The address of the person.
+     * @param city        The city where the person lives.
+     * @param phoneNumber The phone number of the person.
+     */
+    ContactRecord(long key, String firstName, String lastName, String address,
+            String city, String phoneNumber) {
+        this.key = key;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.city = city;
+        this.phoneNumber = phoneNumber;
+    }
+
+    /**
+     * Returns the order key of this record.
+     *
+     * @return The order key.
+     */
+    long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the first name.
+     *
+     * @return The first name.
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Returns the last name.
+     *
+     * @return The last name.
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Returns the address.
+     *
+     * @return The address.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the city.
+     *
+     * @return The city.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Returns the phone number.
+     *
+     * @return The phone number.
+     */
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    /**
+     * Returns the record's details in the same format as ListNode.toString.
+     *
+     * @return A formatted string containing the person's details.
+     */
+    @Override
+    public String toString() {
+        return "Name: " + firstName + " " + lastName + "\n" +
+                "Address: " + address + "\n" +
+                "City: " + city + "\n" +
+                "Phone Number: " + phoneNumber;
+    }
+}
@@ -0,0 +1,197 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Evaluates searches that no index can answer, such as substring
+// and regular expression matches, by testing every entry. The entries
+// are taken as an array in list order and split into chunks that a
+// ForkJoinPool tests in parallel. Each chunk's matches stay in order
+// and chunks are joined left to right, so results come back in list
+// order.
+//
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+final class ContactScanner {
+    // Entries tested by one task; smaller ranges are not worth splitting.
+    static final int CHUNK = 16 * 1024;
+
+    private ContactScanner() {
+    }
+
+    /**
+     * Returns the entries of an array that match a predicate.
+     *
+     * @param nodes     The entries, in list order.
+     * @param predicate The test to apply; must be safe to call from several
+     *                  threads at once.
+     * @param pool      The pool to run chunks on.
+     * @return The matching entries in list order.
+     */
+    static List<ListNode> scan(ListNode[] nodes, Predicate<ListNode> predicate,
+            ForkJoinPool pool) {
+        if (nodes.length <= CHUNK) {
+            return new ScanTask(nodes, predicate, 0, nodes.length).compute();
+        }
+        return pool.invoke(new ScanTask(nodes, predicate, 0, nodes.length));
+    }
+
+    /**
+     * Builds the test for a search with a match mode other than EXACT.
+     * Names match on the first name, the last name, or both joined by a
+     * space; phone numbers are compared on their digits, except by REGEX,
+     * which sees the number as entered.
+     *
+     * @param criteria The field to search ("name", "address", "city", or
+     *                 "phoneNumber").
+     * @param value    The text or regular expression to look for.
+     * @param mode     CONTAINS, STARTS_WITH or REGEX.
+     * @return The test, or null if the criteria is unknown.
+     * @throws java.util.regex.PatternSyntaxException If the mode is REGEX and
+     *                                                the value is not a valid
+     *                                                regular expression.
+     */
+    static Predicate<ListNode> predicate(String criteria, String value,
+            MatchMode mode) {
+        Predicate<String> test = fieldTest(value, mode, "phoneNumber".equals(criteria));
+        switch (criteria) {
+            case "name":
+                return node -> test.test(node.peekFirstName())
+                        || test.test(node.peekLastName())
+                        || node.peekFirstName() != null && node.peekLastName() != null
+                                && test.test(node.peekFirstName() + " " + node.peekLastName());
+            case "address":
+                return node -> test.test(node.peekAddress());
+            case "city":
+                return node -> test.test(node.peekCity());
+            case "phoneNumber":
+                return mode == MatchMode.REGEX ? node -> test.test(node.peekPhoneNumber())
+                        : phoneTest(value, mode);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Builds the test that predicate applies to the text of one field. Null
+     * fields never match.
+     *
+     * @param value       The text or regular expression to look for.
+     * @param mode        CONTAINS, STARTS_WITH or REGEX.
+     * @param phoneNumber true to compare digits only, unless the mode is
+     *                    REGEX.
+     * @return The test.
+     * @throws java.util.regex.PatternSyntaxException If the mode is REGEX and
+     *                                                the value is not a valid
+     *                                                regular expression.
+     */
+    static Predicate<String> fieldTest(String value, MatchMode mode,
+            boolean phoneNumber) {
+        if (mode == MatchMode.REGEX) {
+            Pattern pattern = Pattern.compile(value,
+                    Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return field -> field != null && pattern.matcher(field).find();
+        } else if (phoneNumber) {
+            String digits = ContactIndex.phoneKey(value);
+            return field -> field != null && matches(ContactIndex.phoneKey(field),
+                    digits, mode);
+        }
+        return field -> field != null && matches(field, value, mode);
+    }
+
+    /**
+     * Builds the CONTAINS or STARTS_WITH test for phone numbers, which
+     * compares the packed digits of each entry without allocating. Only
+     * numbers too long to pack have their text searched.
+     *
+     * @param value The number or part of a number to look for.
+     * @param mode  CONTAINS or STARTS_WITH.
+     * @return The test.
+     */
+    static Predicate<ListNode> phoneTest(String value, MatchMode mode) {
+        Predicate<String> text = fieldTest(value, mode, true);
+        String key = ContactIndex.phoneKey(value);
+        long digits = PhoneNumbers.pack(key);
+        boolean prefix = mode == MatchMode.STARTS_WITH;
+        return node -> {
+            long packed = node.getPackedPhone();
+            if (packed == PhoneNumbers.NONE) {
+                return text.test(node.peekPhoneNumber());
+            }
+            if (digits == PhoneNumbers.NONE) { // No digits, or more than fit.
+                return key.isEmpty();
+            }
+            return prefix ? PhoneNumbers.startsWith(packed, digits)
+                    : PhoneNumbers.contains(packed, digits);
+        };
+    }
+
+    /**
+     * Tests for a substring or prefix ignoring case, without allocating.
+     */
+    private static boolean matches(String field, String value, MatchMode mode) {
+        if (mode == MatchMode.STARTS_WITH) {
+            return field.regionMatches(true, 0, value, 0, value.length());
+        }
+        if (value.isEmpty()) {
+            return true;
+        }
+        // Only try a full comparison where the first character matches. The
+        // quick check is exact for ASCII; other characters always compare.
+        char first = value.charAt(0);
+        boolean ascii = first < 128;
+        char lower = Character.toLowerCase(first);
+        char upper = Character.toUpperCase(first);
+        for (int i = 0; i + value.length() <= field.length(); i++) {
+            char c = field.charAt(i);
+            if ((!ascii || c == lower || c == upper)
+                    && field.regionMatches(true, i, value, 0, value.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests one range of the array, splitting it in half while it is larger
+     * than a chunk.
+     */
+    private static final class ScanTask extends RecursiveTask<List<ListNode>> {
+        private static final long serialVersionUID = 1L;
+        private final ListNode[] nodes;
+        private final Predicate<ListNode> predicate;
+        private final int from;
+        private final int to;
+
+        ScanTask(ListNode[] nodes, Predicate<ListNode> predicate, int from, int to) {
+            this.nodes = nodes;
+            this.predicate = predicate;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ListNode> compute() {
+            if (to - from <= CHUNK) {
+                List<ListNode> matches = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    if (predicate.test(nodes[i])) {
+                        matches.add(nodes[i]);
+                    }
+                }
+                return matches;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask right = new ScanTask(nodes, predicate, middle, to);
+            right.fork();
+            List<ListNode> matches = new ScanTask(nodes, predicate, from, middle).compute();
+            matches.addAll(right.join());
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Dictionary encoding for a low-cardinality contact field such as
+// the city or first name, for ContactIndex. Each distinct value, ignoring
+// case as searches do, gets a small integer code and one shared String,
+// with a count of the entries using it. Entries keep the code, so
+// equality searches and index lookups compare ints, and share the
+// dictionary's String when they are spelled the same way, so a million
+// entries in a few hundred cities hold a few hundred city Strings
+// instead of a million. The code of a value no entry uses any more is
+// reused for the next new value.
+//
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class FieldDictionary {
+    // The code of a null value, and of a node that is not indexed. Real
+    // codes start at 1, so a new ListNode has no code.
+    static final int NONE = 0;
+
+    private final Map<String, Integer> codes = new HashMap<>(); // By case-folded value.
+    private String[] values = new String[16]; // Shared spelling by code; null if free.
+    private String[] keys = new String[16]; // Case-folded value by code.
+    private int[] counts = new int[16]; // Entries using each code.
+    private int[] free = new int[16]; // Released codes, reused first.
+    private int freeCount;
+    private int next = 1; // Lowest code never handed out.
+
+    /**
+     * Counts one more entry using a value and returns its code, giving the
+     * value a code if it has none.
+     *
+     * @param value The value; null has the code NONE.
+     * @return The code.
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        String key = ContactIndex.fold(value);
+        Integer existing = codes.get(key);
+        int code;
+        if (existing != null) {
+            code = existing;
+        } else {
+            code = freeCount > 0 ? free[--freeCount] : allocate();
+            values[code] = value;
+            keys[code] = key;
+            codes.put(key, code);
+        }
+        counts[code]++;
+        return code;
+    }
+
+    /**
+     * Counts one less entry using a code, freeing the code if no entry uses
+     * it any more.
+     *
+     * @param code The code from encode; NONE is ignored.
+     */
+    void release(int code) {
+        if (code == NONE || --counts[code] > 0) {
+            return;
+        }
+        codes.remove(keys[code]);
+        values[code] = null;
+        keys[code] = null;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = code;
+    }
+
+    /**
+     * Returns the code of a value without counting a use of it, for
+     * searches.
+     *
+     * @param value The value, compared ignoring case.
+     * @return The code, or NONE if no entry uses the value.
+     */
+    int codeOf(String value) {
+        Integer code = value == null ? null : codes.get(ContactIndex.fold(value));
+        return code == null ? NONE : code;
+    }
+
+    /**
+     * Returns the shared String of a code if it is spelled exactly like a
+     * value, so that the value's own copy can be dropped.
+     *
+     * @param code  The code of the value.
+     * @param value The value.
+     * @return The shared String, or the value itself if the code is NONE or
+     *         the value differs in case.
+     */
+    String share(int code, String value) {
+        String shared = code == NONE ? null : values[code];
+        return value != null && value.equals(shared) ? shared : value;
+    }
+
+    /**
+     * Returns the number of distinct values in use.
+     *
+     * @return The number of codes handed out and not freed.
+     */
+    int size() {
+        return codes.size();
+    }
+
+    /**
+     * Forgets every value.
+     */
+    void clear() {
+        codes.clear();
+        Arrays.fill(values, null);
+        Arrays.fill(keys, null);
+        Arrays.fill(counts, 0);
+        freeCount = 0;
+        next = 1;
+    }
+
+    private int allocate() {
+        if (next == values.length) {
+            int capacity = values.length * 2;
+            values = Arrays.copyOf(values, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,268 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Finds the distinct first and last names of a phone book that are
+// close to a misspelled name, for ContactIndex. Names are kept once
+// each, case-folded and with a count of the entries using them, in a
+// BK-tree ordered by Levenshtein distance: every child of a name sits
+// at a known distance from it, so a query only visits the subtrees the
+// triangle inequality cannot rule out. Names are also grouped by their
+// Soundex code for matching by sound. Both are maintained as entries
+// are added and removed, so a query never compares against every
+// entry. A name whose count drops to zero stays in the tree as a
+// placeholder until more than half the tree is placeholders, when it
+// is rebuilt.
+//
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class FuzzyNameIndex {
+    // Placeholders tolerated before a rebuild is considered.
+    private static final int MIN_REBUILD = 1024;
+
+    private final Map<String, Term> terms = new HashMap<>();
+    private final Map<String, List<Term>> bySoundex = new HashMap<>();
+    private Term root;
+    private int live; // Names used by at least one entry.
+    // Reused by distance(); like ContactIndex, this class is not thread-safe.
+    private int[] previous = new int[32];
+    private int[] current = new int[32];
+
+    /**
+     * One distinct name, a node of the BK-tree.
+     */
+    private static final class Term {
+        final String name;
+        final String soundex;
+        int count; // Entries using the name; 0 for a placeholder.
+        Term[] children = new Term[0]; // Indexed by distance from this name.
+
+        Term(String name) {
+            this.name = name;
+            this.soundex = soundex(name);
+        }
+    }
+
+    /**
+     * Counts one more use of a name.
+     *
+     * @param name The case-folded name; null is ignored.
+     */
+    void add(String name) {
+        if (name == null) {
+            return;
+        }
+        Term term = terms.get(name);
+        if (term == null) {
+            term = new Term(name);
+            index(term);
+        }
+        if (term.count++ == 0) {
+            live++;
+        }
+    }
+
+    /**
+     * Counts one less use of a name.
+     *
+     * @param name The case-folded name; null is ignored.
+     */
+    void remove(String name) {
+        Term term = name == null ? null : terms.get(name);
+        if (term == null || term.count == 0) {
+            return;
+        }
+        if (--term.count == 0) {
+            live--;
+            int placeholders = terms.size() - live;
+            if (placeholders > MIN_REBUILD && placeholders > live) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Forgets every name.
+     */
+    void clear() {
+        terms.clear();
+        bySoundex.clear();
+        root = null;
+        live = 0;
+    }
+
+    /**
+     * Returns the number of distinct names in use.
+     *
+     * @return The number of names.
+     */
+    int size() {
+        return live;
+    }
+
+    /**
+     * Finds the names within an edit distance of a name.
+     *
+     * @param name        The case-folded name to look for.
+     * @param maxDistance The largest number of single-character insertions,
+     *                    deletions and substitutions allowed.
+     * @return Each matching name with its distance, in no particular order.
+     */
+    Map<String, Integer> near(String name, int maxDistance) {
+        Map<String, Integer> matches = new LinkedHashMap<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Term> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Term term = pending.pop();
+            int distance = distance(name, term.name);
+            if (distance <= maxDistance && term.count > 0) {
+                matches.put(term.name, distance);
+            }
+            // Only children between distance - max and distance + max away
+            // from this name can be within max of the query.
+            int from = Math.max(0, distance - maxDistance);
+            int to = Math.min(term.children.length - 1, distance + maxDistance);
+            for (int d = from; d <= to; d++) {
+                if (term.children[d] != null) {
+                    pending.push(term.children[d]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the names with the same Soundex code as a name.
+     *
+     * @param name The case-folded name to look for.
+     * @return Each matching name with its edit distance from the name.
+     */
+    Map<String, Integer> soundsLike(String name) {
+        Map<String, Integer> matches = new LinkedHashMap<>();
+        String code = soundex(name);
+        List<Term> candidates = code == null ? null : bySoundex.get(code);
+        if (candidates != null) {
+            for (Term term : candidates) {
+                if (term.count > 0) {
+                    matches.put(term.name, distance(name, term.name));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the American Soundex code of a name: its first letter and three
+     * digits for the consonant sounds that follow.
+     *
+     * @param name The name.
+     * @return The code, or null if the name has no ASCII letters.
+     */
+    static String soundex(String name) {
+        // Digits for a to z; '0' for vowels and y, which separate sounds,
+        // and '-' for h and w, which do not.
+        final String digits = "0123012-02245501262301-202";
+        char[] code = new char[4];
+        int length = 0;
+        char last = 0;
+        for (int i = 0; i < name.length() && length < 4; i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char digit = digits.charAt(c - 'a');
+            if (length == 0) {
+                code[length++] = Character.toUpperCase(c);
+            } else if (digit != '0' && digit != '-' && digit != last) {
+                code[length++] = digit;
+            }
+            if (digit != '-') {
+                last = digit;
+            }
+        }
+        if (length == 0) {
+            return null;
+        }
+        Arrays.fill(code, length, 4, '0');
+        return new String(code);
+    }
+
+    /**
+     * Returns the Levenshtein distance between two strings.
+     */
+    int distance(String a, String b) {
+        if (previous.length <= b.length()) {
+            previous = new int[b.length() + 1];
+            current = new int[b.length() + 1];
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution,
+                        Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private void index(Term term) {
+        terms.put(term.name, term);
+        if (term.soundex != null) {
+            bySoundex.computeIfAbsent(term.soundex, k -> new ArrayList<>()).add(term);
+        }
+        if (root == null) {
+            root = term;
+            return;
+        }
+        Term parent = root;
+        while (true) {
+            int d = distance(term.name, parent.name);
+            if (d >= parent.children.length) {
+                parent.children = Arrays.copyOf(parent.children, d + 1);
+            }
+            if (parent.children[d] == null) {
+                parent.children[d] = term;
+                return;
+            }
+            parent = parent.children[d];
+        }
+    }
+
+    /**
+     * Rebuilds the tree and Soundex groups from the names still in use.
+     */
+    private void rebuild() {
+        List<Term> used = new ArrayList<>(live);
+        for (Term term : terms.values()) {
+            if (term.count > 0) {
+                used.add(term);
+            }
+        }
+        clear();
+        for (Term old : used) {
+            Term term = new Term(old.name);
+            term.count = old.count;
+            index(term);
+        }
+        live = used.size();
+    }
+}
@@ -1,164 +1,452 @@
-//
-// Author: Caiden Sanders
-// Date: February 14, 2024
-// Class: CS145 Assignment 2
-// Purpose: This class represents a node in a singly linked list for a phonebook
-// 			application. It stores information about a person including their
-// 			first name, last name, address, city, and phone number. Each node
-// 			contains a reference to the next node in the list.
-//
-public class ListNode {
-	// Data fields for the phone book entry.
-	private String firstName;
-	private String lastName;
-	private String address;
-	private String city;
-	private String phoneNumber;
-	// Reference to the next node in the list.
-	private ListNode next;
-  
-	/**
-	 * Constructor to create a new ListNode with specified information.
-	 * Initializes the node with the provided personal details and sets the next
-	 * node reference to null.
-	 *
-	 * @param firstName   The first name of the person.
-	 * @param lastName    The last name of the person.
-	 * @param address     The address of the person.
-	 * @param city        The city where the person lives.
-	 * @param phoneNumber The phone number of the person.
-	 */
-	public ListNode(String firstName, String lastName,
-		String address, String city, String phoneNumber) {
-	  this.firstName = firstName;
-	  this.lastName = lastName;
-	  this.address = address;
-	  this.city = city;
-	  this.phoneNumber = phoneNumber;
-	  this.next = null; // Initially, the next node is null.
-	}
-  
-	/**
-	 * Returns the first name stored in this node.
-	 *
-	 * @return The first name.
-	 */
-	public String getFirstName() {
-	  return firstName;
-	}
-  
-	/**
-	 * Sets the first name stored in this node.
-	 *
-	 * @param firstName The new first name.
-	 */
-	public void setFirstName(String firstName) {
-	  this.firstName = firstName;
-	}
-  
-	/**
-	 * Returns the last name stored in this node.
-	 *
-	 * @return The last name.
-	 */
-	public String getLastName() {
-	  return lastName;
-	}
-  
-	/**
-	 * Sets the last name stored in this node.
-	 *
-	 * @param lastName The new last name.
-	 */
-	public void setLastName(String lastName) {
-	  this.lastName = lastName;
-	}
-  
-	/**
-	 * Returns the address stored in this node.
-	 *
-	 * @return The address.
-	 */
-	public String getAddress() {
-	  return address;
-	}
-  
-	/**
-	 * Sets the address stored in this node.
-	 *
-	 * @param address The new address.
-	 */
-	public void setAddress(String address) {
-	  this.address = address;
-	}
-  
-	/**
-	 * Returns the city stored in this node.
-	 *
-	 * @return The city.
-	 */
-	public String getCity() {
-	  return city;
-	}
-  
-	/**
-	 * Sets the city stored in this node.
-	 *
-	 * @param city The new city.
-	 */
-	public void setCity(String city) {
-	  this.city = city;
-	}
-  
-	/**
-	 * Returns the phone number stored in this node.
-	 *
-	 * @return The phone number.
-	 */
-	public String getPhoneNumber() {
-	  return phoneNumber;
-	}
-  
-	/**
-	 * Sets the phone number stored in this node.
-	 *
-	 * @param phoneNumber The new phone number.
-	 */
-	public void setPhoneNumber(String phoneNumber) {
-	  this.phoneNumber = phoneNumber;
-	}
-  
-	/**
-	 * Returns the next node in the linked list.
-	 *
-	 * @return The next node.
-	 */
-	public ListNode getNext() {
-	  return next;
-	}
-  
-	/**
-	 * Sets the reference to the next node in the linked list.
-	 *
-	 * @param next The next node in the list.
-	 */
-	public void setNext(ListNode next) {
-	  this.next = next;
-	}
-  
-	/**
-	 * Overrides the toString method to provide a string representation of the
-	 * ListNode's data. Formats the personal details into a readable string
-	 * format for easy viewing.
-	 *
-	 * @return A formatted string containing the person's details stored in this
-	 *         node.
-	 */
-	@Override
-	public String toString() {
-	  return "Name: " + firstName + " " + lastName + "\n" +
-		  "Address: " + address + "\n" +
-		  "City: " + city + "\n" +
-		  "Phone Number: " + phoneNumber;
-	}
+//
+// Author: Caiden Sanders
+// Date: February 14, 2024
+// Class: CS145 Assignment 2
+// Purpose: This class represents a node in a singly linked list for a phonebook
+// 			application. It stores information about a person including their
+// 			first name, last name, address, city, and phone number. Each node
+// 			contains a reference to the next node in the list. A phone book
+// 			also links each of its nodes back to the previous one and gives
+// 			it a stable ID, and with cold storage on, may compress the last
+// 			name, address and phone number of a node it rarely reads; the
+// 			getters decompress them.
+//
+public class ListNode {
+	// Data fields for the phone book entry.
+	private String firstName;
+	private String lastName;
+	private String address;
+	private String city;
+	// The phone number text, kept only when phoneStyle cannot rebuild it.
+	private String phoneNumber;
+	// Digits of the phone number packed by PhoneNumbers, or PhoneNumbers.NONE.
+	private long packedPhone;
+	// Layout of the phone number as entered; see PhoneNumbers.
+	private byte phoneStyle;
+	// Reference to the next node in the list.
+	private ListNode next;
+	// The previous node in the owning manager's list, or null for the head.
+	ListNode previous;
+	// ID given by the first phone book this entry was added to, or 0.
+	long id;
+	// Manager whose indexes contain this node, or null if it is not in a list.
+	PhonebookManager owner;
+	// Slot of this node in the owning manager's position tree.
+	PositionTree.Slot slot;
+	// Dictionary codes of the first name and city in the owning manager's
+	// indexes, or FieldDictionary.NONE if the node is not indexed.
+	int firstNameCode;
+	int cityCode;
+	// Slots of this node in the owning manager's sorted indexes, or null for
+	// indexes that have not been built.
+	PositionTree.Slot nameOrder;
+	PositionTree.Slot cityOrder;
+	PositionTree.Slot phoneOrder;
+	// Clock state of this node in the owning manager's ColdStore.
+	byte clock;
+	// Block holding the last name, address and phone number text while the
+	// node is frozen, or null while they are in the fields above.
+	ColdStore.Block cold;
+  
+	/**
+	 * Constructor to create a new ListNode with specified information.
+	 * Initializes the node with the provided personal details and sets the next
+	 * node reference to null.
+	 *
+	 * @param firstName   The first name of the person.
+	 * @param lastName    The last name of the person.
+	 * @param address     The address of the person.
+	 * @param city        The city where the person lives.
+	 * @param phoneNumber The phone number of the person.
+	 */
+	public ListNode(String firstName, String lastName,
+		String address, String city, String phoneNumber) {
+	  this.firstName = firstName;
+	  this.lastName = lastName;
+	  this.address = address;
+	  this.city = city;
+	  storePhoneNumber(phoneNumber);
+	  this.next = null; // Initially, the next node is null.
+	}
+  
+	/**
+	 * Returns the first name stored in this node.
+	 *
+	 * @return The first name.
+	 */
+	public String getFirstName() {
+	  used();
+	  return firstName;
+	}
+  
+	/**
+	 * Sets the first name stored in this node.
+	 *
+	 * @param firstName The new first name.
+	 */
+	public void setFirstName(String firstName) {
+	  beforeUpdate();
+	  this.firstName = firstName;
+	  afterUpdate();
+	}
+  
+	/**
+	 * Returns the last name stored in this node.
+	 *
+	 * @return The last name.
+	 */
+	public String getLastName() {
+	  ColdStore.Block block = cold;
+	  if (block != null) {
+		return block.read(this, ColdStore.LAST_NAME);
+	  }
+	  used();
+	  return lastName;
+	}
+  
+	/**
+	 * Sets the last name stored in this node.
+	 *
+	 * @param lastName The new last name.
+	 */
+	public void setLastName(String lastName) {
+	  beforeUpdate();
+	  this.lastName = lastName;
+	  afterUpdate();
+	}
+  
+	/**
+	 * Returns the address stored in this node.
+	 *
+	 * @return The address.
+	 */
+	public String getAddress() {
+	  ColdStore.Block block = cold;
+	  if (block != null) {
+		return block.read(this, ColdStore.ADDRESS);
+	  }
+	  used();
+	  return address;
+	}
+  
+	/**
+	 * Sets the address stored in this node.
+	 *
+	 * @param address The new address.
+	 */
+	public void setAddress(String address) {
+	  beforeUpdate();
+	  this.address = address;
+	  afterUpdate();
+	}
+  
+	/**
+	 * Returns the city stored in this node.
+	 *
+	 * @return The city.
+	 */
+	public String getCity() {
+	  used();
+	  return city;
+	}
+  
+	/**
+	 * Sets the city stored in this node.
+	 *
+	 * @param city The new city.
+	 */
+	public void setCity(String city) {
+	  beforeUpdate();
+	  this.city = city;
+	  afterUpdate();
+	}
+  
+	/**
+	 * Returns the phone number stored in this node.
+	 *
+	 * @return The phone number.
+	 */
+	public String getPhoneNumber() {
+	  if (phoneStyle == PhoneNumbers.STYLE_NONE) {
+		ColdStore.Block block = cold;
+		if (block != null) {
+		  return block.read(this, ColdStore.PHONE_NUMBER);
+		}
+		used();
+		return phoneNumber;
+	  }
+	  used();
+	  return PhoneNumbers.format(packedPhone, phoneStyle);
+	}
+  
+	/**
+	 * Returns the digits of the phone number packed into a long, which is
+	 * what the phone index is keyed on.
+	 *
+	 * @return The packed phone number, or PhoneNumbers.NONE if it has no
+	 *         digits or too many to pack.
+	 */
+	long getPackedPhone() {
+	  return packedPhone;
+	}
+  
+	/**
+	 * Returns the first name for a pass over the whole phone book, such as a
+	 * scan, export or snapshot, without counting it as a read for cold
+	 * storage. The peek methods return the same values as the getters.
+	 *
+	 * @return The first name.
+	 */
+	String peekFirstName() {
+	  return firstName;
+	}
+  
+	/**
+	 * Returns the last name without counting it as a read for cold storage.
+	 *
+	 * @return The last name.
+	 */
+	String peekLastName() {
+	  ColdStore.Block block = cold;
+	  return block != null ? block.peek(this, ColdStore.LAST_NAME) : lastName;
+	}
+  
+	/**
+	 * Returns the address without counting it as a read for cold storage.
+	 *
+	 * @return The address.
+	 */
+	String peekAddress() {
+	  ColdStore.Block block = cold;
+	  return block != null ? block.peek(this, ColdStore.ADDRESS) : address;
+	}
+  
+	/**
+	 * Returns the city without counting it as a read for cold storage.
+	 *
+	 * @return The city.
+	 */
+	String peekCity() {
+	  return city;
+	}
+  
+	/**
+	 * Returns the phone number without counting it as a read for cold storage.
+	 *
+	 * @return The phone number.
+	 */
+	String peekPhoneNumber() {
+	  if (phoneStyle == PhoneNumbers.STYLE_NONE) {
+		ColdStore.Block block = cold;
+		return block != null ? block.peek(this, ColdStore.PHONE_NUMBER) : phoneNumber;
+	  }
+	  return PhoneNumbers.format(packedPhone, phoneStyle);
+	}
+  
+	/**
+	 * Sets the phone number stored in this node.
+	 *
+	 * @param phoneNumber The new phone number.
+	 */
+	public void setPhoneNumber(String phoneNumber) {
+	  beforeUpdate();
+	  storePhoneNumber(phoneNumber);
+	  afterUpdate();
+	}
+  
+	/**
+	 * Replaces all of the data fields at once, so that the owning manager only
+	 * re-indexes this node a single time.
+	 *
+	 * @param firstName   The new first name.
+	 * @param lastName    The new last name.
+	 * @param address     The new address.
+	 * @param city        The new city.
+	 * @param phoneNumber The new phone number.
+	 */
+	void update(String firstName, String lastName, String address, String city,
+		String phoneNumber) {
+	  beforeUpdate();
+	  this.firstName = firstName;
+	  this.lastName = lastName;
+	  this.address = address;
+	  this.city = city;
+	  storePhoneNumber(phoneNumber);
+	  afterUpdate();
+	}
+  
+	/**
+	 * Swaps the first name and city for equal Strings shared with other
+	 * nodes, so that the duplicate copies can be collected. Owning managers
+	 * are not notified, since the values do not change.
+	 *
+	 * @param firstName A String equal to the first name, or a different
+	 *                  value to leave the first name alone.
+	 * @param city      A String equal to the city, or a different value to
+	 *                  leave the city alone.
+	 */
+	void share(String firstName, String city) {
+	  if (firstName != null && firstName.equals(this.firstName)) {
+		this.firstName = firstName;
+	  }
+	  if (city != null && city.equals(this.city)) {
+		this.city = city;
+	  }
+	}
+  
+	/**
+	 * Returns the ID of this entry, which stays the same for as long as the
+	 * entry exists, across edits, moves and restarts, and is never given to
+	 * another entry of the same phone book.
+	 *
+	 * @return The ID, or 0 if the entry has never been in a phone book.
+	 */
+	public long getId() {
+	  return id;
+	}
+  
+	/**
+	 * Returns the next node in the linked list.
+	 *
+	 * @return The next node.
+	 */
+	public ListNode getNext() {
+	  return next;
+	}
+  
+	/**
+	 * Sets the reference to the next node in the linked list.
+	 *
+	 * @param next The next node in the list.
+	 */
+	public void setNext(ListNode next) {
+	  this.next = next;
+	}
+  
+	/**
+	 * Stores a phone number as packed digits, keeping the text only when it
+	 * is not in one of the layouts PhoneNumbers can rebuild.
+	 */
+	private void storePhoneNumber(String phoneNumber) {
+	  packedPhone = PhoneNumbers.pack(phoneNumber);
+	  phoneStyle = PhoneNumbers.styleOf(phoneNumber, packedPhone);
+	  this.phoneNumber = phoneStyle == PhoneNumbers.STYLE_NONE ? phoneNumber : null;
+	}
+  
+	/**
+	 * Marks this node as read since the cold storage clock hand last passed
+	 * it. Writes only when the mark changes, so scans stay read-only. Reads
+	 * of the fields a frozen node keeps are not counted, since thawing it
+	 * would not make them faster; ColdStore counts reads of the others.
+	 */
+	private void used() {
+	  if (clock > ColdStore.USED && cold == null) {
+		clock = ColdStore.USED;
+	  }
+	}
+  
+	/**
+	 * Returns a field that cold storage compresses, as stored: the phone
+	 * number text is null when the packed digits rebuild it.
+	 *
+	 * @param field ColdStore.LAST_NAME, ADDRESS or PHONE_NUMBER.
+	 * @return The field.
+	 */
+	String coldField(int field) {
+	  switch (field) {
+		case ColdStore.LAST_NAME:
+		  return lastName;
+		case ColdStore.ADDRESS:
+		  return address;
+		default:
+		  return phoneNumber;
+	  }
+	}
+  
+	/**
+	 * Drops the fields cold storage has compressed into a block.
+	 *
+	 * @param block The block now holding them.
+	 */
+	void freeze(ColdStore.Block block) {
+	  cold = block;
+	  clock = ColdStore.UNUSED;
+	  lastName = null;
+	  address = null;
+	  phoneNumber = null;
+	}
+  
+	/**
+	 * Puts back the fields of a frozen node, as read from its block.
+	 *
+	 * @param lastName    The last name.
+	 * @param address     The address.
+	 * @param phoneNumber The phone number text, or null if it was packed.
+	 */
+	void restore(String lastName, String address, String phoneNumber) {
+	  this.lastName = lastName;
+	  this.address = address;
+	  this.phoneNumber = phoneNumber;
+	  cold = null;
+	  clock = ColdStore.USED;
+	}
+  
+	/**
+	 * Puts back the fields of this node if it is frozen, so that they can be
+	 * changed or the node can leave its phone book.
+	 */
+	void thaw() {
+	  ColdStore.Block block = cold;
+	  if (block != null) {
+		block.thaw(this);
+	  }
+	}
+  
+	/**
+	 * Notifies the owning manager that a data field is about to change.
+	 */
+	private void beforeUpdate() {
+	  thaw();
+	  if (owner != null) {
+		owner.nodeChanging(this);
+	  }
+	}
+  
+	/**
+	 * Notifies the owning manager that a data field has changed.
+	 */
+	private void afterUpdate() {
+	  if (owner != null) {
+		owner.nodeChanged(this);
+	  }
+	}
+  
+	/**
+	 * Overrides the toString method to provide a string representation of the
+	 * ListNode's data. Formats the personal details into a readable string
+	 * format for easy viewing.
+	 *
+	 * @return A formatted string containing the person's details stored in this
+	 *         node.
+	 */
+	@Override
+	public String toString() {
+	  return appendTo(new StringBuilder(96)).toString();
+	}
+  
+	/**
+	 * Appends the same text as toString to a builder, so that callers
+	 * formatting many nodes can reuse one buffer. Formatting a node does not
+	 * count as reading it for cold storage.
+	 *
+	 * @param out The builder to append to.
+	 * @return The builder.
+	 */
+	StringBuilder appendTo(StringBuilder out) {
+	  return out.append("Name: ").append(peekFirstName()).append(' ')
+		  .append(peekLastName())
+		  .append("\nAddress: ").append(peekAddress())
+		  .append("\nCity: ").append(peekCity())
+		  .append("\nPhone Number: ").append(peekPhoneNumber());
+	}
   }
\ No newline at end of file
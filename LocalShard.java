@@ -0,0 +1,117 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A PhonebookShard backed by a PhonebookManager in this JVM. The
+// phone book is not thread-safe, so each call holds the shard's lock;
+// calls on different shards run in parallel, which is what lets a
+// ShardedPhonebook of local shards use several cores. Results are
+// copied into ContactRecords, keyed by their position in the result,
+// so callers never hold nodes that another thread may change.
+//
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class LocalShard implements PhonebookShard {
+    private final PhonebookManager manager;
+
+    /**
+     * Creates a shard over a phone book, which nothing else should use.
+     *
+     * @param manager The phone book.
+     */
+    LocalShard(PhonebookManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public synchronized int size() {
+        return manager.size();
+    }
+
+    @Override
+    public synchronized void add(List<ContactRecord> contacts) {
+        for (ContactRecord contact : contacts) {
+            manager.addEntryAtEnd(contact.getFirstName(), contact.getLastName(),
+                    contact.getAddress(), contact.getCity(), contact.getPhoneNumber());
+        }
+    }
+
+    @Override
+    public synchronized List<ContactRecord> find(String criteria, String value) {
+        return records(manager.searchByCriteria(criteria, value));
+    }
+
+    @Override
+    public synchronized List<ContactRecord> search(String criteria, String value,
+            MatchMode mode) {
+        return records(manager.searchByCriteria(criteria, value, mode));
+    }
+
+    @Override
+    public synchronized int remove(String criteria, String value) {
+        return remove(manager, criteria, value);
+    }
+
+    @Override
+    public synchronized List<ContactRecord> take(String field, int slot) {
+        return records(take(manager, field, slot));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Deletes the entries of a phone book that searchByCriteria(criteria,
+     * value) returns. Also runs the REMOVE request of the line protocol.
+     *
+     * @param manager  The phone book.
+     * @param criteria The field ("name", "address", "city", or
+     *                 "phoneNumber").
+     * @param value    The value to match.
+     * @return The number of entries deleted.
+     */
+    static int remove(PhonebookManager manager, String criteria, String value) {
+        List<ListNode> matches = manager.searchByCriteria(criteria, value);
+        for (ListNode node : matches) {
+            manager.deleteNode(node);
+        }
+        return matches.size();
+    }
+
+    /**
+     * Deletes the entries of a phone book whose partition key falls in a
+     * slot, in one walk of the list. Also runs the TAKE request of the line
+     * protocol.
+     *
+     * @param manager The phone book.
+     * @param field   The partition key field.
+     * @param slot    The slot.
+     * @return The deleted entries, in list order; their fields can still be
+     *         read.
+     */
+    static List<ListNode> take(PhonebookManager manager, String field, int slot) {
+        List<ListNode> taken = new ArrayList<>();
+        for (ListNode node = manager.getHead(); node != null; node = node.getNext()) {
+            if (ShardedPhonebook.slotOf(field, node) == slot) {
+                taken.add(node);
+            }
+        }
+        for (ListNode node : taken) {
+            manager.deleteNode(node);
+        }
+        return taken;
+    }
+
+    private static List<ContactRecord> records(List<ListNode> nodes) {
+        List<ContactRecord> records = new ArrayList<>(nodes.size());
+        for (ListNode node : nodes) {
+            records.add(new ContactRecord(records.size(), node.peekFirstName(),
+                    node.peekLastName(), node.peekAddress(), node.peekCity(),
+                    node.peekPhoneNumber()));
+        }
+        return records;
+    }
+}
@@ -1,286 +1,565 @@
-//
-// Author: Caiden Sanders
-// Date: February 14, 2024
-// Class: CS145 Assignment 2
-// Purpose: This file serves as the interactive interface for a console-based
-// phone book application. It allows users to add, delete, and search
-// for contacts in a phone book. Utilizing the PhonebookManager class,
-// it manages contacts stored in a singly linked list, providing
-// functionalities such as viewing all contacts, searching contacts by
-// name, address, or phone number, and editing contact details. This
-// interface is designed to be user-friendly, offering clear prompts
-// and feedback for all operations to ensure a seamless user experience.
-//
-
-import java.util.Scanner;
-import java.util.List;
-
-public class Main {
-  private static Scanner scanner = new Scanner(System.in);
-  private static PhonebookManager phonebookManager = new PhonebookManager();
-
-  /**
-   * Entry point of the application. Displays a menu and handles user input.
-   */
-  public static void main(String[] args) {
-    while (true) {
-      System.out.println("\n1 - Add\n2 - Delete\n3 - View Contacts\n" +
-          "4 - Name Search\n5 - Address Search\n6 - Phone Number Search\n" +
-          "7 - Edit Name\n8 - Edit Address\n9 - Edit Phone Number\n0 - Quit\n");
-      System.out.print("Enter a command: ");
-      int command = scanner.nextInt();
-      scanner.nextLine(); // Consume newline.
-      switch (command) {
-        case 1:
-          addContact();
-          break;
-        case 2:
-          deleteContact();
-          break;
-        case 3:
-          if (phonebookManager.toString().trim().isEmpty()) {
-            System.out.println("No contacts in the phonebook yet.");
-          } else {
-            System.out.println(phonebookManager);
-          }
-          break;
-        case 4:
-          searchByName();
-          break;
-        case 5:
-          searchByAddress();
-          break;
-        case 6:
-          searchByPhoneNumber();
-          break;
-        case 7:
-          editName();
-          break;
-        case 8:
-          editAddress();
-          break;
-        case 9:
-          editPhoneNumber();
-          break;
-        case 0:
-          System.out.println("Quitting...");
-          System.exit(0);
-        default:
-          System.out.println("Invalid command. Please try again.");
-      }
-    }
-  }
-
-  /**
-   * Adds a new contact to the phone book. Prompts the user for contact details.
-   */
-  private static void addContact() {
-    System.out.println("Add a new contact to the phonebook.\n");
-    System.out.print("Enter first name: ");
-    String firstName = scanner.nextLine();
-    System.out.print("Enter last name: ");
-    String lastName = scanner.nextLine();
-    System.out.print("Enter address: ");
-    String address = scanner.nextLine();
-    System.out.print("Enter city: ");
-    String city = scanner.nextLine();
-    System.out.print("Enter phone number: ");
-    String phoneNumber = scanner.nextLine();
-    phonebookManager.addEntryAtEnd(firstName, lastName, address, city,
-        phoneNumber);
-    System.out.println("Contact added.");
-  }
-
-  /**
-   * Deletes a contact from the phone book based on user-specified criteria and
-   * value.
-   */
-  private static void deleteContact() {
-    System.out.println("Enter criteria for deletion (name, address, "
-        + "phoneNumber): ");
-    String criteria = scanner.nextLine().trim();
-    // Validate criteria input by the user.
-    if (!criteria.equals("name") && !criteria.equals("address")
-        && !criteria.equals("phoneNumber")) {
-      System.out.println("Invalid criteria. Please enter 'name', 'address', "
-          + "or 'phoneNumber'.");
-      return;
-    }
-    System.out.println("Enter the value for " + criteria + " to search and "
-        + "delete: ");
-    String value = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria(criteria, value);
-    if (results.isEmpty()) {
-      System.out.println("No contact found with the given criteria.");
-      return;
-    }
-    System.out.println("Matching contacts found:\n");
-    int index = 1;
-    for (ListNode node : results) {
-      System.out.println(index++ + ": " + node + "\n");
-    }
-    System.out.println("Enter the number of the contact you wish to delete: ");
-    int choice = scanner.nextInt();
-    scanner.nextLine(); // Consume the newline.
-    if (choice < 1 || choice > results.size()) {
-      System.out.println("Invalid selection.");
-      return;
-    }
-    // Adjusted to directly access the ListNode to be deleted.
-    ListNode toDelete = results.get(choice - 1);
-    boolean deleted = phonebookManager.deleteNode(toDelete);
-    if (deleted) {
-      System.out.println("Contact deleted successfully.");
-    } else {
-      System.out.println("Error deleting contact.");
-    }
-  }
-
-  /**
-   * Searches for and displays contacts matching a given name.
-   */
-  private static void searchByName() {
-    System.out.print("Enter the name to search for: ");
-    String fullName = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria("name", fullName);
-    displaySearchResults(results, "name");
-  }
-
-  /**
-   * Searches for and displays contacts matching a given address.
-   */
-  private static void searchByAddress() {
-    System.out.print("Enter the address to search for: ");
-    String address = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria("address",
-        address);
-    displaySearchResults(results, "address");
-  }
-
-  /**
-   * Searches for and displays contacts matching a given phone number.
-   */
-  private static void searchByPhoneNumber() {
-    System.out.print("Enter the phone number to search for: ");
-    String phoneNumber = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria("phoneNumber",
-        phoneNumber);
-    displaySearchResults(results, "phone number");
-  }
-
-  /**
-   * Allows the user to edit the name of a contact after searching for it by
-   * name.
-   */
-  private static void editName() {
-    System.out.print("Enter the name to search for: ");
-    String name = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria("name", name);
-    if (!results.isEmpty()) {
-      System.out.println("Matching contacts found:\n");
-      int index = 1;
-      for (ListNode node : results) {
-        System.out.println(index++ + ": " + node + "\n");
-      }
-      System.out.print("Enter the number of the contact you wish to edit: ");
-      int choice = scanner.nextInt();
-      scanner.nextLine(); // Consume the newline.
-      if (choice > 0 && choice <= results.size()) {
-        ListNode selectedNode = results.get(choice - 1);
-        System.out.print("Enter new first name: ");
-        String newFirstName = scanner.nextLine();
-        System.out.print("Enter new last name: ");
-        String newLastName = scanner.nextLine();
-        selectedNode.setFirstName(newFirstName);
-        selectedNode.setLastName(newLastName);
-        System.out.println("Contact updated successfully.");
-      } else {
-        System.out.println("Invalid selection.");
-      }
-    } else {
-      System.out.println("No contacts found with the given name.");
-    }
-  }
-
-  /**
-   * Allows the user to edit the address of a contact after searching for it by
-   * address.
-   */
-  private static void editAddress() {
-    System.out.print("Enter the address to search for: ");
-    String address = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria("address",
-        address);
-    if (!results.isEmpty()) {
-      System.out.println("Matching contacts found:\n");
-      int index = 1;
-      for (ListNode node : results) {
-        System.out.println(index++ + ": " + node + "\n");
-      }
-      System.out.print("Enter the number of the contact you wish to edit: ");
-      int choice = scanner.nextInt();
-      scanner.nextLine(); // Consume the newline.
-      if (choice > 0 && choice <= results.size()) {
-        ListNode selectedNode = results.get(choice - 1);
-        System.out.print("Enter new address: ");
-        String newAddress = scanner.nextLine();
-        selectedNode.setAddress(newAddress);
-        System.out.println("Contact updated successfully.");
-      } else {
-        System.out.println("Invalid selection.");
-      }
-    } else {
-      System.out.println("No contacts found with the given address.");
-    }
-  }
-
-  /**
-   * Allows the user to edit the phone number of a contact after searching for
-   * it by phone number.
-   */
-  private static void editPhoneNumber() {
-    System.out.print("Enter the phone number to search for: ");
-    String phoneNumber = scanner.nextLine();
-    List<ListNode> results = phonebookManager.searchByCriteria("phoneNumber",
-        phoneNumber);
-    if (!results.isEmpty()) {
-      System.out.println("Matching contacts found:\n");
-      int index = 1;
-      for (ListNode node : results) {
-        System.out.println(index++ + ": " + node + "\n");
-      }
-      System.out.print("Enter the number of the contact you wish to edit: ");
-      int choice = scanner.nextInt();
-      scanner.nextLine(); // Consume the newline.
-      if (choice > 0 && choice <= results.size()) {
-        ListNode selectedNode = results.get(choice - 1);
-        System.out.print("Enter new phone number: ");
-        String newPhoneNumber = scanner.nextLine();
-        selectedNode.setPhoneNumber(newPhoneNumber);
-        System.out.println("Contact updated successfully.");
-      } else {
-        System.out.println("Invalid selection.");
-      }
-    } else {
-      System.out.println("No contacts found with the given phone number.");
-    }
-  }
-
-  /**
-   * Utility method to display search results and handle no results found
-   * scenario.
-   *
-   * @param results List of contacts found.
-   */
-  private static void displaySearchResults(List<ListNode> results,
-      String criteria) {
-    if (!results.isEmpty()) {
-      System.out.println("Matching contact(s) found:\n");
-      for (ListNode node : results) {
-        System.out.println(node + "\n");
-      }
-    } else {
-      System.out.println("No contacts found with the given " + criteria + ".");
-    }
-  }
+//
+// Author: Caiden Sanders
+// Date: February 14, 2024
+// Class: CS145 Assignment 2
+// Purpose: This file serves as the interactive interface for a console-based
+// phone book application. It allows users to add, delete, and search
+// for contacts in a phone book. Utilizing the PhonebookManager class,
+// it manages contacts stored in a singly linked list, providing
+// functionalities such as viewing all contacts, searching contacts by
+// name, address, or phone number, and editing contact details. This
+// interface is designed to be user-friendly, offering clear prompts
+// and feedback for all operations to ensure a seamless user experience.
+//
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+import javax.management.JMException;
+
+public class Main {
+  // Created only for the menu, so scripted runs skip its setup.
+  private static Scanner scanner;
+  private static PhonebookManager phonebookManager = new PhonebookManager();
+  // Directory holding the snapshot and write-ahead log of the phone book.
+  private static final Path DATA_DIRECTORY = Paths.get("phonebook-data");
+  private static PhonebookJournal journal;
+  // Scan results the server keeps for clients repeating the same searches.
+  private static final int SERVER_SEARCH_CACHE = 256;
+  // Edit distance and count of the suggestions offered when a name is not
+  // found.
+  private static final int SUGGESTION_DISTANCE = 2;
+  private static final int SUGGESTIONS = 10;
+
+  /**
+   * Entry point of the application. Displays a menu and handles user input.
+   * With the argument --server [port], serves the phone book over TCP on
+   * localhost instead. With --batch [file], runs the commands of a script
+   * file, or of standard input, without the menu.
+   */
+  public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals("--server")) {
+      runServer(args.length > 1 ? Integer.parseInt(args[1])
+          : PhonebookLoadClient.DEFAULT_PORT);
+      return;
+    }
+    if (args.length > 0 && args[0].equals("--batch")) {
+      runBatch(args.length > 1 ? Paths.get(args[1]) : null);
+      return;
+    }
+    scanner = new Scanner(System.in);
+    loadPhonebook(true);
+    while (true) {
+      System.out.println("\n1 - Add\n2 - Delete\n3 - View Contacts\n" +
+          "4 - Name Search\n5 - Address Search\n6 - Phone Number Search\n" +
+          "7 - Edit Name\n8 - Edit Address\n9 - Edit Phone Number\n" +
+          "10 - Advanced Search\n11 - Import Contacts\n12 - Export Contacts\n" +
+          "0 - Quit\n");
+      System.out.print("Enter a command: ");
+      int command = scanner.nextInt();
+      scanner.nextLine(); // Consume newline.
+      switch (command) {
+        case 1:
+          addContact();
+          break;
+        case 2:
+          deleteContact();
+          break;
+        case 3:
+          if (phonebookManager.isEmpty()) {
+            System.out.println("No contacts in the phonebook yet.");
+          } else {
+            viewContacts();
+          }
+          break;
+        case 4:
+          searchByName();
+          break;
+        case 5:
+          searchByAddress();
+          break;
+        case 6:
+          searchByPhoneNumber();
+          break;
+        case 7:
+          editName();
+          break;
+        case 8:
+          editAddress();
+          break;
+        case 9:
+          editPhoneNumber();
+          break;
+        case 10:
+          advancedSearch();
+          break;
+        case 11:
+          importContacts();
+          break;
+        case 12:
+          exportContacts();
+          break;
+        case 0:
+          System.out.println("Quitting...");
+          savePhonebook();
+          System.exit(0);
+        default:
+          System.out.println("Invalid command. Please try again.");
+      }
+    }
+  }
+
+  /**
+   * Restores the contacts saved by previous runs, if there are any, and
+   * starts logging every change so that none is lost.
+   *
+   * @param synchronous true if each change should wait until it is on disk.
+   */
+  private static void loadPhonebook(boolean synchronous) {
+    try {
+      journal = PhonebookJournal.open(DATA_DIRECTORY, phonebookManager, 64, 5,
+          synchronous);
+      if (!phonebookManager.isEmpty()) {
+        System.out.println("Loaded " + phonebookManager.size()
+            + " contact(s).");
+      }
+    } catch (IOException e) {
+      System.out.println("Error loading contacts: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Serves the phone book to other processes until the JVM is stopped, for
+   * example with Ctrl+C, then saves it as Quit does. The server syncs the
+   * log itself before acknowledging changes, so the journal does not wait
+   * on each one.
+   *
+   * @param port The port to listen on.
+   */
+  private static void runServer(int port) {
+    loadPhonebook(false);
+    phonebookManager.setSearchCache(SERVER_SEARCH_CACHE,
+        SearchCache.Policy.TINY_LFU);
+    phonebookManager.setMetricsEnabled(true);
+    try {
+      phonebookManager.getMetrics().register("server");
+    } catch (JMException e) {
+      System.out.println("Metrics are not available over JMX: " + e.getMessage());
+    }
+    try {
+      PhonebookServer server = new PhonebookServer(phonebookManager, journal,
+          port);
+      Thread serving = Thread.currentThread();
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        server.stop();
+        try {
+          serving.join(); // Let the phone book be saved before exiting.
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }));
+      System.out.println("Serving " + phonebookManager.size()
+          + " contact(s) on localhost port " + server.getPort()
+          + ". Press Ctrl+C to stop.");
+      server.run();
+    } catch (IOException e) {
+      System.out.println("Server error: " + e.getMessage());
+    }
+    savePhonebook();
+  }
+
+  /**
+   * Runs a script of PhonebookCommands requests, one per line, and writes
+   * their replies to standard output with no prompts, so other programs can
+   * drive the phone book. Replies are written in large blocks rather than
+   * line by line, and the journal groups changes rather than waiting on
+   * each one; they are all on disk when the script ends, which saves the
+   * phone book as Quit does. Other messages go to standard error.
+   *
+   * @param script The script file, or null to read standard input.
+   */
+  private static void runBatch(Path script) {
+    try {
+      journal = PhonebookJournal.open(DATA_DIRECTORY, phonebookManager, 64, 5,
+          false);
+    } catch (IOException e) {
+      System.err.println("Error loading contacts: " + e.getMessage());
+      return;
+    }
+    Writer out = new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8),
+        1 << 16);
+    try (InputStream in = script == null
+        ? new FileInputStream(FileDescriptor.in) : Files.newInputStream(script)) {
+      PhonebookScript.run(phonebookManager, in, out);
+    } catch (IOException e) {
+      System.err.println("Error running script: " + e.getMessage());
+    }
+    savePhonebook();
+  }
+
+  /**
+   * Compacts the change log into a snapshot, so that the next run starts
+   * quickly, and closes the log.
+   */
+  private static void savePhonebook() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.checkpoint();
+      journal.close();
+    } catch (IOException e) {
+      System.out.println("Error saving contacts: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Prints every contact in the phone book. Contacts are streamed through a
+   * buffered writer so that the whole listing is never held in memory.
+   */
+  private static void viewContacts() {
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+    try {
+      phonebookManager.writeTo(out);
+      out.write(System.lineSeparator());
+      out.flush(); // Flush only; closing would close System.out.
+    } catch (IOException e) {
+      System.out.println("Error printing contacts: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Adds a new contact to the phone book. Prompts the user for contact details.
+   */
+  private static void addContact() {
+    System.out.println("Add a new contact to the phonebook.\n");
+    System.out.print("Enter first name: ");
+    String firstName = scanner.nextLine();
+    System.out.print("Enter last name: ");
+    String lastName = scanner.nextLine();
+    System.out.print("Enter address: ");
+    String address = scanner.nextLine();
+    System.out.print("Enter city: ");
+    String city = scanner.nextLine();
+    System.out.print("Enter phone number: ");
+    String phoneNumber = scanner.nextLine();
+    phonebookManager.addEntryAtEnd(firstName, lastName, address, city,
+        phoneNumber);
+    System.out.println("Contact added.");
+  }
+
+  /**
+   * Deletes a contact from the phone book based on user-specified criteria and
+   * value.
+   */
+  private static void deleteContact() {
+    System.out.println("Enter criteria for deletion (name, address, city, "
+        + "phoneNumber): ");
+    String criteria = scanner.nextLine().trim();
+    // Validate criteria input by the user.
+    if (!isCriteria(criteria)) {
+      System.out.println("Invalid criteria. Please enter 'name', 'address', "
+          + "'city', or 'phoneNumber'.");
+      return;
+    }
+    System.out.println("Enter the value for " + criteria + " to search and "
+        + "delete: ");
+    String value = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria(criteria, value);
+    if (results.isEmpty()) {
+      System.out.println("No contact found with the given criteria.");
+      return;
+    }
+    listWithIds(results);
+    System.out.println("Enter the ID of the contact you wish to delete: ");
+    ListNode selectedNode = chooseById(results);
+    if (selectedNode == null) {
+      System.out.println("Invalid selection.");
+      return;
+    }
+    boolean deleted = phonebookManager.deleteById(selectedNode.getId());
+    if (deleted) {
+      System.out.println("Contact deleted successfully.");
+    } else {
+      System.out.println("Error deleting contact.");
+    }
+  }
+
+  /**
+   * Searches for and displays contacts matching a given name. If none match
+   * exactly, the closest spellings are offered instead, or failing those,
+   * names that sound alike.
+   */
+  private static void searchByName() {
+    System.out.print("Enter the name to search for: ");
+    String fullName = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria("name", fullName);
+    if (results.isEmpty()) {
+      List<ListNode> suggestions = phonebookManager.searchByNameFuzzy(fullName,
+          SUGGESTION_DISTANCE);
+      if (suggestions.isEmpty()) {
+        suggestions = phonebookManager.searchByNameSoundsLike(fullName);
+      }
+      if (!suggestions.isEmpty()) {
+        System.out.println("No exact match. Did you mean:\n");
+        for (ListNode node : suggestions.subList(0,
+            Math.min(SUGGESTIONS, suggestions.size()))) {
+          System.out.println(node + "\n");
+        }
+        return;
+      }
+    }
+    displaySearchResults(results, "name");
+  }
+
+  /**
+   * Searches for and displays contacts matching a given address.
+   */
+  private static void searchByAddress() {
+    System.out.print("Enter the address to search for: ");
+    String address = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria("address",
+        address);
+    displaySearchResults(results, "address");
+  }
+
+  /**
+   * Searches for and displays contacts matching a given phone number.
+   */
+  private static void searchByPhoneNumber() {
+    System.out.print("Enter the phone number to search for: ");
+    String phoneNumber = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria("phoneNumber",
+        phoneNumber);
+    displaySearchResults(results, "phone number");
+  }
+
+  /**
+   * Searches for and displays contacts whose name, address, city or phone
+   * number equals, contains, starts with, or matches a regular expression.
+   */
+  private static void advancedSearch() {
+    System.out.print("Enter the field to search (name, address, city, "
+        + "phoneNumber): ");
+    String criteria = scanner.nextLine().trim();
+    if (!isCriteria(criteria)) {
+      System.out.println("Invalid criteria. Please enter 'name', 'address', "
+          + "'city', or 'phoneNumber'.");
+      return;
+    }
+    System.out.print("Enter the match mode (exact, contains, startsWith, "
+        + "regex): ");
+    MatchMode mode;
+    switch (scanner.nextLine().trim()) {
+      case "exact":
+        mode = MatchMode.EXACT;
+        break;
+      case "contains":
+        mode = MatchMode.CONTAINS;
+        break;
+      case "startsWith":
+        mode = MatchMode.STARTS_WITH;
+        break;
+      case "regex":
+        mode = MatchMode.REGEX;
+        break;
+      default:
+        System.out.println("Invalid match mode. Please enter 'exact', "
+            + "'contains', 'startsWith', or 'regex'.");
+        return;
+    }
+    System.out.print("Enter the value to search for: ");
+    String value = scanner.nextLine();
+    List<ListNode> results;
+    try {
+      results = phonebookManager.searchByCriteria(criteria, value, mode);
+    } catch (PatternSyntaxException e) {
+      System.out.println("Invalid regular expression: " + e.getDescription());
+      return;
+    }
+    displaySearchResults(results, criteria);
+  }
+
+  /**
+   * Adds every contact in a CSV or TSV file to the end of the phone book.
+   */
+  private static void importContacts() {
+    System.out.print("Enter the file to import (.csv or .tsv): ");
+    Path file = Paths.get(scanner.nextLine().trim());
+    try {
+      int count = phonebookManager.importContacts(file);
+      System.out.println("Imported " + count + " contact(s).");
+    } catch (IOException e) {
+      System.out.println("Error importing contacts: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes every contact to a CSV or TSV file.
+   */
+  private static void exportContacts() {
+    System.out.print("Enter the file to export to (.csv or .tsv): ");
+    Path file = Paths.get(scanner.nextLine().trim());
+    try {
+      phonebookManager.exportContacts(file);
+      System.out.println("Exported " + phonebookManager.size()
+          + " contact(s).");
+    } catch (IOException e) {
+      System.out.println("Error exporting contacts: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns whether the text names a field that contacts can be searched by.
+   */
+  private static boolean isCriteria(String criteria) {
+    return criteria.equals("name") || criteria.equals("address")
+        || criteria.equals("city") || criteria.equals("phoneNumber");
+  }
+
+  /**
+   * Allows the user to edit the name of a contact after searching for it by
+   * name.
+   */
+  private static void editName() {
+    System.out.print("Enter the name to search for: ");
+    String name = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria("name", name);
+    if (!results.isEmpty()) {
+      listWithIds(results);
+      System.out.print("Enter the ID of the contact you wish to edit: ");
+      ListNode selectedNode = chooseById(results);
+      if (selectedNode != null) {
+        System.out.print("Enter new first name: ");
+        String newFirstName = scanner.nextLine();
+        System.out.print("Enter new last name: ");
+        String newLastName = scanner.nextLine();
+        selectedNode.setFirstName(newFirstName);
+        selectedNode.setLastName(newLastName);
+        System.out.println("Contact updated successfully.");
+      } else {
+        System.out.println("Invalid selection.");
+      }
+    } else {
+      System.out.println("No contacts found with the given name.");
+    }
+  }
+
+  /**
+   * Allows the user to edit the address of a contact after searching for it by
+   * address.
+   */
+  private static void editAddress() {
+    System.out.print("Enter the address to search for: ");
+    String address = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria("address",
+        address);
+    if (!results.isEmpty()) {
+      listWithIds(results);
+      System.out.print("Enter the ID of the contact you wish to edit: ");
+      ListNode selectedNode = chooseById(results);
+      if (selectedNode != null) {
+        System.out.print("Enter new address: ");
+        String newAddress = scanner.nextLine();
+        selectedNode.setAddress(newAddress);
+        System.out.println("Contact updated successfully.");
+      } else {
+        System.out.println("Invalid selection.");
+      }
+    } else {
+      System.out.println("No contacts found with the given address.");
+    }
+  }
+
+  /**
+   * Allows the user to edit the phone number of a contact after searching for
+   * it by phone number.
+   */
+  private static void editPhoneNumber() {
+    System.out.print("Enter the phone number to search for: ");
+    String phoneNumber = scanner.nextLine();
+    List<ListNode> results = phonebookManager.searchByCriteria("phoneNumber",
+        phoneNumber);
+    if (!results.isEmpty()) {
+      listWithIds(results);
+      System.out.print("Enter the ID of the contact you wish to edit: ");
+      ListNode selectedNode = chooseById(results);
+      if (selectedNode != null) {
+        System.out.print("Enter new phone number: ");
+        String newPhoneNumber = scanner.nextLine();
+        selectedNode.setPhoneNumber(newPhoneNumber);
+        System.out.println("Contact updated successfully.");
+      } else {
+        System.out.println("Invalid selection.");
+      }
+    } else {
+      System.out.println("No contacts found with the given phone number.");
+    }
+  }
+
+  /**
+   * Prints contacts with their IDs, which stay the same from one command to
+   * the next, for the user to choose one by.
+   *
+   * @param results The contacts to list.
+   */
+  private static void listWithIds(List<ListNode> results) {
+    System.out.println("Matching contacts found:\n");
+    for (ListNode node : results) {
+      System.out.println("ID " + node.getId() + ": " + node + "\n");
+    }
+  }
+
+  /**
+   * Reads the ID of one of the listed contacts.
+   *
+   * @param results The contacts listed for the user to choose from.
+   * @return The chosen contact, or null if the line is not the ID of one
+   *         of them.
+   */
+  private static ListNode chooseById(List<ListNode> results) {
+    long id;
+    try {
+      id = Long.parseLong(scanner.nextLine().trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    for (ListNode node : results) {
+      if (node.getId() == id) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Utility method to display search results and handle no results found
+   * scenario.
+   *
+   * @param results List of contacts found.
+   */
+  private static void displaySearchResults(List<ListNode> results,
+      String criteria) {
+    if (!results.isEmpty()) {
+      System.out.println("Matching contact(s) found:\n");
+      for (ListNode node : results) {
+        System.out.println("ID " + node.getId() + ": " + node + "\n");
+      }
+    } else {
+      System.out.println("No contacts found with the given " + criteria + ".");
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: How PhonebookManager.searchByCriteria compares a search value
+// with an entry's field. EXACT lookups are answered from the hash
+// indexes; the other modes scan every entry in parallel.
+//
+
+public enum MatchMode {
+    // The field equals the value, ignoring case.
+    EXACT,
+    // The field contains the value, ignoring case.
+    CONTAINS,
+    // The field starts with the value, ignoring case.
+    STARTS_WITH,
+    // The value is a regular expression found somewhere in the field,
+    // ignoring case.
+    REGEX
+}
@@ -0,0 +1,211 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Packs phone numbers into a single long. A number's digits, up to
+// 15 of them, are stored together with how many there are, so "0555"
+// and "555" stay distinct. Only punctuation is dropped: no country
+// code is added or removed, so "+1 253 555 0101" and "(253) 555-0101"
+// are different numbers, and prefix and substring searches match the
+// digits as entered. The punctuation of the common layouts is recorded
+// as a small style code, so the original text can be rebuilt for
+// display without keeping the String.
+//
+
+final class PhoneNumbers {
+    // Returned by pack when a number has no digits or more than 15.
+    static final long NONE = -1;
+    // Styles in which a packed number can be displayed exactly as entered.
+    static final byte STYLE_NONE = 0; // Keep the original text.
+    static final byte STYLE_DIGITS = 1; // 2535550101
+    static final byte STYLE_PARENS = 2; // (253) 555-0101
+    static final byte STYLE_DASHES = 3; // 253-555-0101
+    static final byte STYLE_PLUS = 4; // +12535550101
+    private static final int MAX_DIGITS = 15;
+    private static final int COUNT_SHIFT = 50; // 10^15 < 2^50.
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Packs the digits of a phone number, ignoring every other character.
+     *
+     * @param phoneNumber The phone number, in any layout.
+     * @return The packed number, or NONE if it has no digits, more than 15
+     *         digits, or is null.
+     */
+    static long pack(String phoneNumber) {
+        if (phoneNumber == null) {
+            return NONE;
+        }
+        long value = 0;
+        int count = 0;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++count > MAX_DIGITS) {
+                    return NONE;
+                }
+                value = value * 10 + (c - '0');
+            }
+        }
+        return count == 0 ? NONE : ((long) count << COUNT_SHIFT) | value;
+    }
+
+    /**
+     * Compares two packed numbers by their digits as text, so that a number
+     * comes just before the longer numbers starting with it: "253" sorts
+     * before "2535550101", which sorts before "254".
+     *
+     * @param a The first packed number; not NONE.
+     * @param b The second packed number; not NONE.
+     * @return A negative number, zero or a positive number as a sorts
+     *         before, with or after b.
+     */
+    static int compare(long a, long b) {
+        int countA = (int) (a >>> COUNT_SHIFT);
+        int countB = (int) (b >>> COUNT_SHIFT);
+        long valueA = a & ((1L << COUNT_SHIFT) - 1);
+        long valueB = b & ((1L << COUNT_SHIFT) - 1);
+        // Pad the shorter number with zeros on the right; both still fit.
+        if (countA < countB) {
+            valueA *= POWERS_OF_TEN[countB - countA];
+        } else {
+            valueB *= POWERS_OF_TEN[countA - countB];
+        }
+        if (valueA != valueB) {
+            return Long.compare(valueA, valueB);
+        }
+        return Integer.compare(countA, countB);
+    }
+
+    /**
+     * Returns whether the digits of a packed number start with the digits of
+     * another.
+     *
+     * @param packed The packed number; not NONE.
+     * @param prefix The packed leading digits; not NONE.
+     * @return true if packed starts with prefix.
+     */
+    static boolean startsWith(long packed, long prefix) {
+        int extra = (int) (packed >>> COUNT_SHIFT) - (int) (prefix >>> COUNT_SHIFT);
+        return extra >= 0 && (packed & ((1L << COUNT_SHIFT) - 1)) / POWERS_OF_TEN[extra]
+                == (prefix & ((1L << COUNT_SHIFT) - 1));
+    }
+
+    /**
+     * Returns whether the digits of a packed number contain the digits of
+     * another, anywhere.
+     *
+     * @param packed The packed number; not NONE.
+     * @param part   The packed digits to look for; not NONE.
+     * @return true if the digits of part appear in a row in packed.
+     */
+    static boolean contains(long packed, long part) {
+        int extra = (int) (packed >>> COUNT_SHIFT) - (int) (part >>> COUNT_SHIFT);
+        long value = packed & ((1L << COUNT_SHIFT) - 1);
+        long digits = part & ((1L << COUNT_SHIFT) - 1);
+        long window = POWERS_OF_TEN[(int) (part >>> COUNT_SHIFT)];
+        for (; extra >= 0; extra--) { // Drop one trailing digit at a time.
+            if (value % window == digits) {
+                return true;
+            }
+            value /= 10;
+        }
+        return false;
+    }
+
+    /**
+     * Finds a style that displays a packed number exactly as the original
+     * text.
+     *
+     * @param phoneNumber The original text.
+     * @param packed      The packed form of the same text.
+     * @return The matching style, or STYLE_NONE if the text must be kept.
+     */
+    static byte styleOf(String phoneNumber, long packed) {
+        if (packed == NONE) {
+            return STYLE_NONE;
+        }
+        for (byte style = STYLE_DIGITS; style <= STYLE_PLUS; style++) {
+            if (phoneNumber.equals(format(packed, style))) {
+                return style;
+            }
+        }
+        return STYLE_NONE;
+    }
+
+    /**
+     * Rebuilds the display text of a packed number.
+     *
+     * @param packed The packed number.
+     * @param style  A style other than STYLE_NONE.
+     * @return The phone number as it was entered.
+     */
+    static String format(long packed, byte style) {
+        String digits = digits(packed);
+        switch (style) {
+            case STYLE_PARENS:
+                if (digits.length() != 10) {
+                    return null;
+                }
+                return "(" + digits.substring(0, 3) + ") " + digits.substring(3, 6)
+                        + "-" + digits.substring(6);
+            case STYLE_DASHES:
+                if (digits.length() != 10) {
+                    return null;
+                }
+                return digits.substring(0, 3) + "-" + digits.substring(3, 6) + "-"
+                        + digits.substring(6);
+            case STYLE_PLUS:
+                return "+" + digits;
+            default:
+                return digits;
+        }
+    }
+
+    /**
+     * Returns just the digits of a packed number, including leading zeros.
+     *
+     * @param packed The packed number.
+     * @return The digits.
+     */
+    static String digits(long packed) {
+        int count = (int) (packed >>> COUNT_SHIFT);
+        char[] digits = new char[count];
+        long value = packed & ((1L << COUNT_SHIFT) - 1);
+        for (int i = count - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Returns the hash code of the digits of a packed number, the same as
+     * digits(packed).hashCode() but without building the String.
+     *
+     * @param packed The packed number.
+     * @return The hash code.
+     */
+    static int digitsHashCode(long packed) {
+        int count = (int) (packed >>> COUNT_SHIFT);
+        long value = packed & ((1L << COUNT_SHIFT) - 1);
+        int hash = 0;
+        int power = 1; // 31 to the number of digits after this one.
+        for (int i = 0; i < count; i++) { // Last digit first, dividing by a constant.
+            hash += ('0' + (int) (value % 10)) * power;
+            value /= 10;
+            power *= 31;
+        }
+        return hash;
+    }
+}
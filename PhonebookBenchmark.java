@@ -0,0 +1,2185 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Command-line benchmarks for the phone book. Each scenario builds
+// a synthetic phone book and prints timings to standard output.
+// Run with: java PhonebookBenchmark <scenario> [entries]
+//
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.spi.ToolProvider;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+public class PhonebookBenchmark {
+    private static final String[] FIRST_NAMES = { "James", "Mary", "John",
+            "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+            "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph",
+            "Jessica", "Caiden", "Sarah", "Thomas", "Karen" };
+    private static final String[] LAST_NAMES = { "Smith", "Johnson",
+            "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+            "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson",
+            "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Sanders" };
+    private static final String[] CITIES = { "Tacoma", "Seattle", "Olympia",
+            "Spokane", "Bellevue", "Everett", "Kent", "Renton", "Yakima",
+            "Lakewood" };
+    private static final String[] STREETS = { "Main St", "Pine St",
+            "Pacific Ave", "Broadway", "Union Ave", "6th Ave", "Division St" };
+    // Times the regions marked by start/stop in the "operations" scenario.
+    private static final SampleTimer timer = new SampleTimer();
+    // Client threads in the "shards" scenario.
+    private static final int SHARD_THREADS = 8;
+
+    /**
+     * Runs the scenario named by the first argument.
+     *
+     * @param args The scenario name, optionally followed by an entry count.
+     */
+    public static void main(String[] args) throws IOException {
+        String scenario = args.length > 0 ? args[0] : "load";
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        switch (scenario) {
+            case "load":
+                benchmarkLoad(entries);
+                break;
+            case "view":
+                benchmarkView(entries);
+                break;
+            case "snapshot":
+                benchmarkSnapshot(entries);
+                break;
+            case "wal":
+                benchmarkWriteAheadLog(entries);
+                break;
+            case "concurrent":
+                benchmarkConcurrent(entries);
+                break;
+            case "operations":
+                benchmarkOperations(entries);
+                break;
+            case "prefix":
+                benchmarkPrefix(entries);
+                break;
+            case "phone":
+                benchmarkPhone(entries);
+                break;
+            case "columnar":
+                benchmarkColumnar(entries);
+                break;
+            case "scan":
+                benchmarkScan(entries);
+                break;
+            case "csv":
+                benchmarkCsv(entries);
+                break;
+            case "batch":
+                benchmarkBatch(entries);
+                break;
+            case "server":
+                benchmarkServer(entries);
+                break;
+            case "cache":
+                benchmarkCache(entries);
+                break;
+            case "fuzzy":
+                benchmarkFuzzy(entries);
+                break;
+            case "dictionary":
+                benchmarkDictionary(entries);
+                break;
+            case "metrics":
+                benchmarkMetrics(entries);
+                break;
+            case "sorted":
+                benchmarkSorted(entries);
+                break;
+            case "query":
+                benchmarkQuery(entries);
+                break;
+            case "feed":
+                benchmarkFeed(entries);
+                break;
+            case "shards":
+                benchmarkShards(entries);
+                break;
+            case "script":
+                benchmarkScript(entries);
+                break;
+            case "cold":
+                benchmarkCold(entries);
+                break;
+            default:
+                System.out.println("Unknown scenario: " + scenario);
+        }
+    }
+
+    /**
+     * Measures every public PhonebookManager operation at phone book sizes
+     * from 1K up to the given entry count, growing tenfold each step. Each
+     * operation is timed call by call after a warmup, and its latency
+     * percentiles and heap allocation per call are printed. Where an
+     * operation changes the size, an untimed inverse operation restores it.
+     */
+    private static void benchmarkOperations(int maxEntries) {
+        for (int size = 1_000; size <= maxEntries; size *= 10) {
+            System.out.printf("%n%,d entries%n", size);
+            System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation",
+                    "p50 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op");
+            ContactGenerator generator = new ContactGenerator(42);
+            PhonebookManager manager = new PhonebookManager();
+            String[][] contacts = new String[size][];
+            for (int i = 0; i < size; i++) {
+                contacts[i] = generator.next();
+                manager.addEntryAtEnd(contacts[i][0], contacts[i][1],
+                        contacts[i][2], contacts[i][3], contacts[i][4]);
+            }
+            Random random = new Random(7);
+            int samples = Math.min(10_000, size);
+
+            measure("addEntryAtFront", samples, i -> {
+                String[] c = generator.next();
+                timer.start();
+                manager.addEntryAtFront(c[0], c[1], c[2], c[3], c[4]);
+                timer.stop();
+                manager.deleteAtIndex(0);
+            });
+            measure("addEntryAtEnd", samples, i -> {
+                String[] c = generator.next();
+                timer.start();
+                manager.addEntryAtEnd(c[0], c[1], c[2], c[3], c[4]);
+                timer.stop();
+                manager.deleteAtIndex(manager.size() - 1);
+            });
+            measure("addAtIndex", samples, i -> {
+                String[] c = generator.next();
+                int index = random.nextInt(manager.size());
+                timer.start();
+                manager.addAtIndex(index, c[0], c[1], c[2], c[3], c[4]);
+                timer.stop();
+                manager.deleteAtIndex(index);
+            });
+            measure("deleteAtIndex", samples, i -> {
+                String[] c = generator.next();
+                int index = random.nextInt(manager.size());
+                manager.addAtIndex(index, c[0], c[1], c[2], c[3], c[4]);
+                timer.start();
+                manager.deleteAtIndex(index);
+                timer.stop();
+            });
+            measure("deleteNode", samples, i -> {
+                String[] c = generator.next();
+                manager.addAtIndex(random.nextInt(manager.size()), c[0], c[1],
+                        c[2], c[3], c[4]);
+                ListNode node = manager.searchByCriteria("phoneNumber", c[4]).get(0);
+                timer.start();
+                manager.deleteNode(node);
+                timer.stop();
+            });
+            measure("getById", samples, i -> {
+                long id = manager.getEntry(random.nextInt(manager.size())).getId();
+                timer.start();
+                manager.getById(id);
+                timer.stop();
+            });
+            measure("modifyById", samples, i -> {
+                String[] c = generator.next();
+                long id = manager.getEntry(random.nextInt(manager.size())).getId();
+                timer.start();
+                manager.modifyById(id, c[0], c[1], c[2], c[3], c[4]);
+                timer.stop();
+            });
+            measure("deleteById", samples, i -> {
+                String[] c = generator.next();
+                int index = random.nextInt(manager.size());
+                manager.addAtIndex(index, c[0], c[1], c[2], c[3], c[4]);
+                long id = manager.getEntry(index).getId();
+                timer.start();
+                manager.deleteById(id);
+                timer.stop();
+            });
+            for (String criteria : new String[] { "name", "address", "phoneNumber" }) {
+                measure("searchByCriteria " + criteria, samples, i -> {
+                    String[] c = contacts[random.nextInt(contacts.length)];
+                    String value = "name".equals(criteria) ? c[0] + " " + c[1]
+                            : "address".equals(criteria) ? c[2] : c[4];
+                    timer.start();
+                    manager.searchByCriteria(criteria, value);
+                    timer.stop();
+                });
+            }
+            if (size <= 100_000) {
+                measure("toString", 20, i -> {
+                    timer.start();
+                    manager.toString();
+                    timer.stop();
+                });
+            }
+            measure("modifyEntryAtIndex", samples, i -> {
+                String[] c = generator.next();
+                int index = random.nextInt(manager.size());
+                timer.start();
+                manager.modifyEntryAtIndex(index, c[0], c[1], c[2], c[3], c[4]);
+                timer.stop();
+            });
+        }
+    }
+
+    /**
+     * Measures type-ahead lookups: the first page of ten names starting with
+     * two to four letters of a random contact's first or last name, and the
+     * third page of the same query.
+     */
+    private static void benchmarkPrefix(int entries) {
+        ContactGenerator generator = new ContactGenerator(42);
+        PhonebookManager manager = new PhonebookManager();
+        String[][] contacts = new String[Math.min(entries, 100_000)][];
+        for (int i = 0; i < entries; i++) {
+            String[] c = generator.next();
+            if (i < contacts.length) {
+                contacts[i] = c;
+            }
+            manager.addEntryAtEnd(c[0], c[1], c[2], c[3], c[4]);
+        }
+        Random random = new Random(7);
+        System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation",
+                "p50 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op");
+        for (int page = 0; page < 3; page += 2) {
+            int offset = page * 10;
+            measure("searchByNamePrefix page " + (page + 1), 10_000, i -> {
+                String[] c = contacts[random.nextInt(contacts.length)];
+                String name = random.nextBoolean() ? c[0] : c[1];
+                String prefix = name.substring(0, Math.min(name.length(),
+                        2 + random.nextInt(3)));
+                timer.start();
+                manager.searchByNamePrefix(prefix, offset, 10);
+                timer.stop();
+            });
+        }
+    }
+
+    /**
+     * Compares paging through the phone book sorted by name by copying and
+     * sorting every entry per request, as callers had to before, with the
+     * sorted indexes. Also reports the one-time cost of building the
+     * indexes, their heap per entry, range queries and counts, and how much
+     * keeping the indexes up to date slows adds and deletes.
+     */
+    private static void benchmarkSorted(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        Comparator<ListNode> byName = Comparator
+                .comparing(ListNode::getLastName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(ListNode::getFirstName, String.CASE_INSENSITIVE_ORDER);
+        int rounds = 3;
+        long start = System.nanoTime();
+        List<ListNode> page = null;
+        for (int round = 0; round < rounds; round++) {
+            List<ListNode> copy = new ArrayList<>(entries);
+            for (ListNode node = manager.getEntry(0); node != null; node = node.getNext()) {
+                copy.add(node);
+            }
+            copy.sort(byName);
+            page = new ArrayList<>(copy.subList(entries / 2, entries / 2 + 20));
+        }
+        report("copy and sort, middle page of 20", start, rounds);
+
+        Random random = new Random(7);
+        int pairs = Math.min(entries, 100_000);
+        for (int round = 0; round < 2; round++) { // The first round is a warmup.
+            start = System.nanoTime();
+            for (int i = 0; i < pairs; i++) {
+                manager.addEntryAtEnd("Ada", "Lovelace", "1 Main St", "Tacoma",
+                        ContactGenerator.phoneNumber(random.nextInt(entries)));
+                manager.deleteAtIndex(manager.size() - 1);
+            }
+        }
+        report("add + delete, no sorted indexes", start, pairs);
+
+        long before = usedHeap();
+        start = System.nanoTime();
+        manager.getSorted("name", 0, 1);
+        report("build name index", start, 1);
+        start = System.nanoTime();
+        manager.getSorted("city", 0, 1);
+        report("build city index", start, 1);
+        start = System.nanoTime();
+        manager.getSorted("phoneNumber", 0, 1);
+        report("build phone index", start, 1);
+        System.out.printf("sorted indexes: %.1f bytes/entry%n",
+                (double) (usedHeap() - before) / entries);
+        List<ListNode> indexed = manager.getSorted("name", entries / 2, 20);
+        for (int i = 0; i < indexed.size(); i++) {
+            if (byName.compare(indexed.get(i), page.get(i)) != 0) {
+                throw new IllegalStateException("sorted page differs at " + i);
+            }
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < pairs; i++) {
+            manager.addEntryAtEnd("Ada", "Lovelace", "1 Main St", "Tacoma",
+                    ContactGenerator.phoneNumber(random.nextInt(entries)));
+            manager.deleteAtIndex(manager.size() - 1);
+        }
+        report("add + delete, three sorted indexes", start, pairs);
+
+        System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation",
+                "p50 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op");
+        measure("getSorted first page", 10_000, i -> {
+            timer.start();
+            manager.getSorted("name", 0, 20);
+            timer.stop();
+        });
+        measure("getSorted random page", 10_000, i -> {
+            int offset = random.nextInt(entries);
+            timer.start();
+            manager.getSorted("name", offset, 20);
+            timer.stop();
+        });
+        measure("range M-O, random page", 10_000, i -> {
+            int offset = random.nextInt(entries / 10);
+            timer.start();
+            manager.searchByRange("name", "M", "O", offset, 20);
+            timer.stop();
+        });
+        measure("range phone prefix, page 1", 10_000, i -> {
+            // Area code and exchange, such as 253555.
+            String prefix = PhoneNumbers.digits(PhoneNumbers.pack(
+                    ContactGenerator.phoneNumber(random.nextInt(entries)))).substring(0, 6);
+            timer.start();
+            manager.searchByRange("phoneNumber", prefix, prefix, 0, 20);
+            timer.stop();
+        });
+        measure("countInRange M-O", 10_000, i -> {
+            timer.start();
+            manager.countInRange("name", "M", "O");
+            timer.stop();
+        });
+    }
+
+    /**
+     * Compares compound queries answered by hand, by testing every entry
+     * against each condition, with searchByQuery, which plans them over the
+     * indexes. The first query is also answered the way callers used to:
+     * one indexed search, filtered by hand. Prints each query's plan and
+     * checks that both ways find the same entries.
+     */
+    private static void benchmarkQuery(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        ContactQuery[] queries = {
+                ContactQuery.and(ContactQuery.equalTo("lastName", "Sanders"),
+                        ContactQuery.equalTo("city", "Tacoma")),
+                ContactQuery.and(ContactQuery.or(ContactQuery.equalTo("city", "Kent"),
+                        ContactQuery.equalTo("city", "Renton")),
+                        ContactQuery.equalTo("firstName", "Mary")),
+                ContactQuery.and(ContactQuery.matches("lastName", "Wil", MatchMode.STARTS_WITH),
+                        ContactQuery.not(ContactQuery.equalTo("city", "Tacoma"))),
+                ContactQuery.and(ContactQuery.matches("address", "Lake", MatchMode.CONTAINS),
+                        ContactQuery.equalTo("city", "Pasco")),
+                ContactQuery.matches("address", "Lake Rd", MatchMode.CONTAINS) };
+        List<Predicate<ListNode>> byHand = Arrays.asList(
+                node -> "Sanders".equalsIgnoreCase(node.getLastName())
+                        && "Tacoma".equalsIgnoreCase(node.getCity()),
+                node -> ("Kent".equalsIgnoreCase(node.getCity())
+                        || "Renton".equalsIgnoreCase(node.getCity()))
+                        && "Mary".equalsIgnoreCase(node.getFirstName()),
+                node -> node.getLastName().regionMatches(true, 0, "Wil", 0, 3)
+                        && !"Tacoma".equalsIgnoreCase(node.getCity()),
+                node -> node.getAddress().contains("Lake")
+                        && "Pasco".equalsIgnoreCase(node.getCity()),
+                node -> node.getAddress().contains("Lake Rd"));
+        ListNode head = manager.getEntry(0);
+        int samples = Math.max(20, Math.min(1_000, 20_000_000 / entries));
+        for (int q = 0; q < queries.length; q++) {
+            ContactQuery query = queries[q];
+            Predicate<ListNode> test = byHand.get(q);
+            System.out.printf("%n%s%n%s", query, manager.explainQuery(query));
+            List<ListNode> expected = new ArrayList<>();
+            for (ListNode node = head; node != null; node = node.getNext()) {
+                if (test.test(node)) {
+                    expected.add(node);
+                }
+            }
+            List<ListNode> results = manager.searchByQuery(query);
+            if (!new HashSet<>(results).equals(new HashSet<>(expected))) {
+                throw new IllegalStateException("query " + (q + 1) + " found "
+                        + results.size() + " entries instead of " + expected.size());
+            }
+            System.out.printf("%,d matches%n", results.size());
+            System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation",
+                    "p50 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op");
+            measure("scan by hand", samples, i -> {
+                timer.start();
+                List<ListNode> matches = new ArrayList<>();
+                for (ListNode node = head; node != null; node = node.getNext()) {
+                    if (test.test(node)) {
+                        matches.add(node);
+                    }
+                }
+                timer.stop();
+            });
+            if (q == 0) {
+                measure("searchByCriteria + filter", samples, i -> {
+                    timer.start();
+                    List<ListNode> matches = new ArrayList<>();
+                    for (ListNode node : manager.searchByCriteria("name", "Sanders")) {
+                        if (test.test(node)) {
+                            matches.add(node);
+                        }
+                    }
+                    timer.stop();
+                });
+            }
+            measure("searchByQuery", samples, i -> {
+                timer.start();
+                manager.searchByQuery(query);
+                timer.stop();
+            });
+        }
+    }
+
+    /**
+     * Measures what the change feed and views cost. The same changes, an
+     * insert, an edit and a delete per sample, are timed with no feed, with
+     * a feed nobody reads, with a BLOCK feed read by a subscriber on another
+     * thread, and with a DROP feed whose subscriber never reads. Then times
+     * opening a view, reading one against walking the list, and editing
+     * while a view is open, which keeps revisions of the edited entries.
+     */
+    private static void benchmarkFeed(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        ContactGenerator generator = new ContactGenerator(42);
+        generator.fill(manager, entries);
+        String[][] contacts = new String[1024][];
+        for (int i = 0; i < contacts.length; i++) {
+            contacts[i] = generator.next();
+        }
+        Random random = new Random(42);
+        int samples = 20_000;
+        IntConsumer change = i -> {
+            String[] c = contacts[i & 1023];
+            int index = random.nextInt(manager.size());
+            int edited = random.nextInt(manager.size());
+            timer.start();
+            manager.addAtIndex(index, c[0], c[1], c[2], c[3], c[4]);
+            manager.modifyEntryAtIndex(edited, c[0], c[1], c[2], c[3], c[4]);
+            manager.deleteAtIndex(index);
+            timer.stop();
+        };
+        System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation",
+                "p50 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op");
+        measure("changes, no feed", samples, change);
+        manager.setChangeFeed(4096, PhonebookChangeFeed.Overflow.DROP);
+        measure("changes, unread feed", samples, change);
+
+        manager.setChangeFeed(4096, PhonebookChangeFeed.Overflow.BLOCK);
+        PhonebookChangeFeed feed = manager.getChangeFeed();
+        PhonebookChangeFeed.Subscription follower = feed.subscribe();
+        AtomicLong followed = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    List<PhonebookChange> changes =
+                            follower.take(256, 100, TimeUnit.MILLISECONDS);
+                    followed.addAndGet(changes.size());
+                    if (changes.isEmpty() && feed.isClosed()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+        measure("changes, BLOCK + reader", samples, change);
+
+        manager.setChangeFeed(4096, PhonebookChangeFeed.Overflow.DROP);
+        PhonebookChangeFeed.Subscription idle = manager.getChangeFeed().subscribe();
+        measure("changes, DROP, idle reader", samples, change);
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.printf("BLOCK reader read %,d changes, missed %,d; "
+                + "DROP reader missed %,d%n", followed.get(), follower.getMissed(),
+                idle.getMissed());
+        manager.setChangeFeed(0, null);
+
+        System.out.println();
+        measure("openView", 1_000, i -> {
+            timer.start();
+            PhonebookView view = manager.openView();
+            timer.stop();
+            view.close();
+        });
+        measure("openView after add+delete", 20, i -> {
+            String[] c = contacts[i & 1023];
+            manager.addAtIndex(entries / 2, c[0], c[1], c[2], c[3], c[4]);
+            manager.deleteAtIndex(entries / 2);
+            timer.start();
+            PhonebookView view = manager.openView();
+            timer.stop();
+            view.close();
+        });
+
+        int passes = 5;
+        long expected = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            expected = 0;
+            for (ListNode node = manager.getHead(); node != null; node = node.getNext()) {
+                expected += node.getLastName().length() + node.getCity().length();
+            }
+        }
+        report("walk list x " + passes, start, (long) passes * entries);
+        int edits = Math.max(1, entries / 10);
+        try (PhonebookView view = manager.openView()) {
+            checksum(view); // Warmup.
+            start = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                if (checksum(view) != expected) {
+                    throw new IllegalStateException("view differs from the list");
+                }
+            }
+            report("read view x " + passes, start, (long) passes * entries);
+            long before = usedHeap();
+            start = System.nanoTime();
+            for (int i = 0; i < edits; i++) {
+                manager.getEntry(random.nextInt(entries)).setCity(CITIES[i % CITIES.length]);
+            }
+            report("setCity x " + edits + ", view open", start, edits);
+            long kept = usedHeap() - before;
+            System.out.printf("revisions kept: %.1f MB, %d bytes per edit%n",
+                    kept / 1e6, kept / edits);
+            start = System.nanoTime();
+            for (int pass = 0; pass < passes; pass++) {
+                if (checksum(view) != expected) {
+                    throw new IllegalStateException("view saw an edit made after it opened");
+                }
+            }
+            report("read view x " + passes + ", 10% edited", start, (long) passes * entries);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < edits; i++) {
+            manager.getEntry(random.nextInt(entries)).setCity(CITIES[i % CITIES.length]);
+        }
+        report("setCity x " + edits + ", no view", start, edits);
+    }
+
+    /**
+     * Sums the lengths of the last names and cities in a view, so that
+     * reading it cannot be optimized away.
+     */
+    private static long checksum(PhonebookView view) {
+        long sum = 0;
+        for (ContactRecord record : view) {
+            sum += record.getLastName().length() + record.getCity().length();
+        }
+        return sum;
+    }
+
+    /**
+     * Measures what metrics cost: the same mix of lookups, searches and
+     * changes runs in alternating rounds with metrics off, on with the
+     * default sampling, and on with every call timed, and the median round
+     * of each is compared. Prints the metrics text dump at the end.
+     */
+    private static void benchmarkMetrics(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        String[] labels = { "metrics off", "metrics on, sampled",
+                "metrics on, every call" };
+        int rounds = 21;
+        long[][] times = new long[labels.length][rounds];
+        for (int round = -2; round < rounds; round++) { // Two warmup rounds.
+            // Rotate the order, so no mode always runs first after a switch.
+            for (int m = 0; m < labels.length; m++) {
+                int mode = (m + round + 2) % labels.length;
+                manager.setMetricsEnabled(false);
+                manager.setMetricsEnabled(mode > 0);
+                if (mode == 2) {
+                    manager.getMetrics().setSampleInterval(1);
+                }
+                long start = System.nanoTime();
+                runMetricsMix(manager, new Random(round + 100));
+                if (round >= 0) {
+                    times[mode][round] = System.nanoTime() - start;
+                }
+            }
+        }
+        printMedians("mixed", labels, times, 50_000);
+
+        // The cheapest call, to show the cost per call.
+        int calls = 1_000_000;
+        times = new long[labels.length][rounds];
+        for (int round = -2; round < rounds; round++) {
+            for (int m = 0; m < labels.length; m++) {
+                int mode = (m + round + 2) % labels.length;
+                manager.setMetricsEnabled(false);
+                manager.setMetricsEnabled(mode > 0);
+                if (mode == 2) {
+                    manager.getMetrics().setSampleInterval(1);
+                }
+                Random random = new Random(round);
+                long start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    manager.getEntry(random.nextInt(entries));
+                }
+                if (round >= 0) {
+                    times[mode][round] = System.nanoTime() - start;
+                }
+            }
+        }
+        printMedians("getEntry", labels, times, calls);
+        manager.setMetricsEnabled(false);
+        manager.setMetricsEnabled(true);
+        runMetricsMix(manager, new Random(7));
+        System.out.print(manager.getMetrics().dump());
+    }
+
+    /**
+     * Prints the median of each mode's times per operation, and how much
+     * slower it is than the first mode.
+     */
+    private static void printMedians(String label, String[] modes, long[][] times,
+            int operations) {
+        long baseline = 0;
+        for (int mode = 0; mode < modes.length; mode++) {
+            Arrays.sort(times[mode]);
+            long median = times[mode][times[mode].length / 2];
+            if (mode == 0) {
+                baseline = median;
+            }
+            System.out.printf("%-9s %-24s %9.1f ns/op  %+5.1f%%%n", label, modes[mode],
+                    (double) median / operations, 100.0 * (median - baseline) / baseline);
+        }
+    }
+
+    /**
+     * One round of the metrics benchmark: 50,000 operations, mostly lookups
+     * by index, phone number and name, with some prefix searches, edits,
+     * and appends followed by deletes.
+     */
+    private static void runMetricsMix(PhonebookManager manager, Random random) {
+        int entries = manager.size();
+        for (int i = 0; i < 50_000; i++) {
+            int index = random.nextInt(entries);
+            switch (i % 10) {
+                case 0:
+                case 1:
+                case 2:
+                    manager.getEntry(index);
+                    break;
+                case 3:
+                case 4:
+                case 5:
+                    manager.searchByCriteria("phoneNumber",
+                            ContactGenerator.phoneNumber(index));
+                    break;
+                case 6:
+                    manager.searchByCriteria("name", manager.getEntry(index).getLastName());
+                    break;
+                case 7:
+                    manager.searchByNamePrefix(manager.getEntry(index).getLastName(), 0, 10);
+                    break;
+                case 8:
+                    ListNode entry = manager.getEntry(index);
+                    manager.modifyEntryAtIndex(index, entry.getFirstName(),
+                            entry.getLastName(), (1 + random.nextInt(19_999)) + " Main St",
+                            entry.getCity(), entry.getPhoneNumber());
+                    break;
+                default:
+                    manager.addEntryAtEnd("New", "Entry", "1 Main St", "Tacoma",
+                            "(253) 555-0000");
+                    manager.deleteAtIndex(entries);
+            }
+        }
+    }
+
+    /**
+     * Measures the heap saved by dictionary encoding cities and first names.
+     * Every field of every contact is a fresh String, as when contacts are
+     * typed in or imported. The phone book is loaded while an array keeps
+     * the original city and first name Strings alive, which is what the
+     * entries would hold without the dictionaries; the saving is the heap
+     * freed once the array lets go of them.
+     */
+    private static void benchmarkDictionary(int entries) {
+        ContactGenerator generator = new ContactGenerator(42);
+        String[] originals = new String[2 * entries];
+        long before = usedHeap();
+        PhonebookManager manager = new PhonebookManager();
+        for (int i = 0; i < entries; i++) {
+            String[] c = generator.next();
+            // Copy the characters, since new String(String) would share them.
+            String firstName = new String(c[0].toCharArray());
+            String city = new String(c[3].toCharArray());
+            originals[2 * i] = firstName;
+            originals[2 * i + 1] = city;
+            manager.addEntryAtEnd(firstName, c[1], c[2], city, c[4]);
+        }
+        long withCopies = usedHeap() - before;
+        Arrays.fill(originals, null);
+        long shared = usedHeap() - before;
+        Reference.reachabilityFence(manager);
+        System.out.printf("%d entries, %d distinct cities, %d distinct first names%n",
+                entries, manager.getDistinctCities(), manager.getDistinctFirstNames());
+        System.out.printf("one String per entry:  %6.1f bytes/entry%n",
+                (double) withCopies / entries);
+        System.out.printf("shared Strings:        %6.1f bytes/entry%n",
+                (double) shared / entries);
+        System.out.printf("saved:                 %6.1f bytes/entry, %.1f MB in all%n",
+                (double) (withCopies - shared) / entries,
+                (withCopies - shared) / 1e6);
+
+    }
+
+    /**
+     * Compares the memory held by a phone index keyed on digit strings with
+     * one keyed on packed longs, then the memory per contact when phone
+     * numbers are in a layout that can be rebuilt from the packed digits and
+     * when their text must be kept, and finally times lookups by phone
+     * number. Memory is the heap in use after a full collection.
+     */
+    private static void benchmarkPhone(int entries) {
+        ContactGenerator generator = new ContactGenerator(42);
+        String[][] contacts = new String[entries][];
+        for (int i = 0; i < entries; i++) {
+            contacts[i] = generator.next();
+        }
+
+        long before = usedHeap();
+        Map<String, Object> byString = new HashMap<>();
+        for (String[] c : contacts) {
+            byString.put(ContactIndex.phoneKey(c[4]), c);
+        }
+        long stringBytes = usedHeap() - before;
+        Reference.reachabilityFence(byString);
+        byString = null;
+        before = usedHeap();
+        LongHashMap<Object> byPacked = new LongHashMap<>();
+        for (String[] c : contacts) {
+            byPacked.put(PhoneNumbers.pack(c[4]), c);
+        }
+        long packedBytes = usedHeap() - before;
+        Reference.reachabilityFence(byPacked);
+        byPacked = null;
+        System.out.printf("phone index, String keys: %6.1f bytes/entry%n",
+                (double) stringBytes / entries);
+        System.out.printf("phone index, packed keys: %6.1f bytes/entry%n",
+                (double) packedBytes / entries);
+
+        before = usedHeap();
+        PhonebookManager manager = new PhonebookManager();
+        for (String[] c : contacts) {
+            manager.addEntryAtEnd(c[0], c[1], c[2], c[3], c[4]);
+        }
+        long packedContact = usedHeap() - before;
+        Reference.reachabilityFence(manager);
+        manager.clear();
+        manager = null;
+        before = usedHeap();
+        manager = new PhonebookManager();
+        for (String[] c : contacts) {
+            // Same digits, but dots are not a layout that can be rebuilt.
+            manager.addEntryAtEnd(c[0], c[1], c[2], c[3],
+                    c[4].substring(1, 4) + "." + c[4].substring(6, 9) + "." + c[4].substring(10));
+        }
+        long textContact = usedHeap() - before;
+        Reference.reachabilityFence(manager);
+        System.out.printf("contact, number packed:   %6.1f bytes/entry%n",
+                (double) packedContact / entries);
+        System.out.printf("contact, text kept:       %6.1f bytes/entry%n",
+                (double) textContact / entries);
+
+        PhonebookManager book = manager;
+        Random random = new Random(7);
+        System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation",
+                "p50 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op");
+        measure("searchByCriteria phone", 100_000, i -> {
+            String phone = contacts[random.nextInt(entries)][4];
+            timer.start();
+            book.searchByCriteria("phoneNumber", phone);
+            timer.stop();
+        });
+    }
+
+    /**
+     * Loads the same contacts into PhonebookManager and into
+     * ColumnarPhonebookManager, one at a time, and compares the heap and
+     * off-heap memory each holds, the GC time spent loading it, and how fast
+     * a search that must look at every entry runs. The linked list is
+     * scanned by walking its nodes, since its own searches use indexes.
+     */
+    private static void benchmarkColumnar(int entries) {
+        String missing = "0 Nowhere Rd"; // Matches no contact, so every entry is compared.
+        int scans = 5;
+        System.out.printf("%-26s %10s %10s %10s %12s%n", "backend", "heap MB",
+                "direct MB", "load GC ms", "scan ns/entry");
+
+        long heapBefore = usedHeap();
+        long gcBefore = gcMillis();
+        PhonebookManager list = new PhonebookManager();
+        new ContactGenerator(42).fill(list, entries);
+        long gc = gcMillis() - gcBefore;
+        long heap = usedHeap() - heapBefore;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < scans; i++) {
+            for (ListNode node = list.getHead(); node != null; node = node.getNext()) {
+                if (missing.equalsIgnoreCase(node.getAddress())) {
+                    found++;
+                }
+            }
+        }
+        long scan = (System.nanoTime() - start) / ((long) scans * entries);
+        System.out.printf("%-26s %10.1f %10.1f %10d %12d%n", "PhonebookManager",
+                heap / 1e6, 0.0, gc, scan);
+        Reference.reachabilityFence(list);
+        list.clear();
+        list = null;
+
+        heapBefore = usedHeap();
+        long directBefore = directBytes();
+        gcBefore = gcMillis();
+        ColumnarPhonebookManager columnar = new ColumnarPhonebookManager();
+        ContactGenerator generator = new ContactGenerator(42);
+        for (int i = 0; i < entries; i++) {
+            String[] c = generator.next();
+            columnar.addEntryAtEnd(c[0], c[1], c[2], c[3], c[4]);
+        }
+        gc = gcMillis() - gcBefore;
+        heap = usedHeap() - heapBefore;
+        long direct = directBytes() - directBefore;
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            found += columnar.searchByCriteria("address", missing).size();
+        }
+        scan = (System.nanoTime() - start) / ((long) scans * entries);
+        System.out.printf("%-26s %10.1f %10.1f %10d %12d%n",
+                "ColumnarPhonebookManager", heap / 1e6, direct / 1e6, gc, scan);
+        Reference.reachabilityFence(columnar);
+        if (found != 0) {
+            System.out.println("unexpected matches: " + found);
+        }
+    }
+
+    /**
+     * Times searches that must test every entry, at pool sizes doubling from
+     * one thread up to the number of cores, and prints the speedup over one
+     * thread.
+     */
+    private static void benchmarkScan(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        String[][] queries = { { "address", "pine", "CONTAINS" },
+                { "city", "se", "STARTS_WITH" },
+                { "name", "^jo.*son$", "REGEX" },
+                { "phoneNumber", "0101", "CONTAINS" } };
+        int cores = Runtime.getRuntime().availableProcessors();
+        int rounds = 5;
+        System.out.printf("%-34s %8s %10s %10s %8s%n", "search", "threads",
+                "ms/search", "ns/entry", "speedup");
+        for (String[] query : queries) {
+            MatchMode mode = MatchMode.valueOf(query[2]);
+            String label = query[0] + " " + query[2] + " \"" + query[1] + "\"";
+            double single = 0;
+            for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                manager.scan(query[0], query[1], mode, pool); // Warmup.
+                long start = System.nanoTime();
+                int found = 0;
+                for (int i = 0; i < rounds; i++) {
+                    found += manager.scan(query[0], query[1], mode, pool).size();
+                }
+                double nanos = (double) (System.nanoTime() - start) / rounds;
+                pool.shutdown();
+                if (threads == 1) {
+                    single = nanos;
+                }
+                System.out.printf("%-34s %8d %10.1f %10.1f %7.2fx%n", label, threads,
+                        nanos / 1e6, nanos / entries, single / nanos);
+                if (found == 0) {
+                    System.out.println("  (no matches)");
+                }
+                if (threads == cores) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the same Zipf-distributed stream of address-contains searches,
+     * with one edit per hundred searches, against a phone book with no
+     * search cache and with LRU and TinyLFU caches of two sizes.
+     */
+    private static void benchmarkCache(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        // Search popularity follows a Zipf distribution with exponent 0.99
+        // over 1000 house numbers, ranked in a random order.
+        int distinct = 1000;
+        double[] cumulative = new double[distinct];
+        double total = 0;
+        for (int rank = 0; rank < distinct; rank++) {
+            total += 1 / Math.pow(rank + 1, 0.99);
+            cumulative[rank] = total;
+        }
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < distinct; i++) {
+            numbers.add(Integer.toString(1000 + i));
+        }
+        Random random = new Random(7);
+        Collections.shuffle(numbers, random);
+        String[] values = new String[2_000];
+        for (int q = 0; q < values.length; q++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            values[q] = numbers.get(rank < 0 ? -rank - 1 : rank);
+        }
+
+        runCachedSearches("no cache", manager, values, random);
+        for (int capacity : new int[] { 32, 128 }) {
+            for (SearchCache.Policy policy : SearchCache.Policy.values()) {
+                manager.setSearchCache(capacity, policy);
+                runCachedSearches(policy + " " + capacity, manager, values, random);
+                System.out.println("    " + manager.getSearchCache());
+            }
+        }
+        manager.setSearchCache(0, null);
+    }
+
+    private static void runCachedSearches(String label, PhonebookManager manager,
+            String[] values, Random random) {
+        long found = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < values.length; q++) {
+            found += manager.searchByCriteria("address", values[q],
+                    MatchMode.CONTAINS).size();
+            if (q % 100 == 99) {
+                // Move a random entry to a new house number; cached results
+                // it joins or leaves are dropped.
+                int index = random.nextInt(manager.size());
+                ListNode entry = manager.getEntry(index);
+                entry.setAddress(random.nextInt(20_000) + " Main St");
+            }
+        }
+        report(label + " (" + found + " found)", start, values.length);
+    }
+
+    /**
+     * Times misspelled name searches at edit distances 1 and 2. The BK-tree
+     * of distinct names is timed alone against comparing the misspelling
+     * with every distinct name, and the whole search, including gathering
+     * and ranking the matching entries, against comparing it with the first
+     * and last name of every entry.
+     */
+    private static void benchmarkFuzzy(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        // The folded first and last name of every entry, and the distinct
+        // names among them.
+        String[][] entryNames = new String[manager.size()][];
+        Set<String> distinct = new HashSet<>();
+        for (int i = 0; i < entryNames.length; i++) {
+            ListNode entry = manager.getEntry(i);
+            entryNames[i] = new String[] {
+                    entry.getFirstName().toLowerCase(Locale.ROOT),
+                    entry.getLastName().toLowerCase(Locale.ROOT) };
+            distinct.add(entryNames[i][0]);
+            distinct.add(entryNames[i][1]);
+        }
+        FuzzyNameIndex tree = new FuzzyNameIndex();
+        for (String name : distinct) {
+            tree.add(name);
+        }
+        String[] names = distinct.toArray(new String[0]);
+        System.out.println(names.length + " distinct names in " + entryNames.length
+                + " entries");
+
+        // Misspell generated names with one random insertion, deletion or
+        // substitution each.
+        Random random = new Random(7);
+        String[] queries = new String[1_000];
+        for (int q = 0; q < queries.length; q++) {
+            String[] pair = entryNames[random.nextInt(entryNames.length)];
+            StringBuilder name = new StringBuilder(pair[random.nextInt(2)]);
+            int at = random.nextInt(name.length());
+            char letter = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(3)) {
+                case 0:
+                    name.insert(at, letter);
+                    break;
+                case 1:
+                    name.deleteCharAt(at);
+                    break;
+                default:
+                    name.setCharAt(at, letter);
+            }
+            queries[q] = name.toString();
+        }
+
+        for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {
+            for (int round = 0; round < 2; round++) { // The first is a warmup.
+                long found = 0;
+                long start = System.nanoTime();
+                for (String query : queries) {
+                    found += tree.near(query, maxDistance).size();
+                }
+                if (round == 1) {
+                    report("names, BK-tree, distance " + maxDistance + " (" + found
+                            + " found)", start, queries.length);
+                }
+                found = 0;
+                start = System.nanoTime();
+                for (String query : queries) {
+                    for (String name : names) {
+                        if (levenshtein(query, name) <= maxDistance) {
+                            found++;
+                        }
+                    }
+                }
+                if (round == 1) {
+                    report("names, linear, distance " + maxDistance + " (" + found
+                            + " found)", start, queries.length);
+                }
+            }
+        }
+        // Comparing every entry is slow, so it only runs a tenth of the
+        // queries.
+        String[] sample = Arrays.copyOf(queries, queries.length / 10);
+        for (String query : sample) {
+            manager.searchByNameFuzzy(query, 2); // Warmup.
+        }
+        for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {
+            long found = 0;
+            long start = System.nanoTime();
+            for (String query : sample) {
+                found += manager.searchByNameFuzzy(query, maxDistance).size();
+            }
+            report("entries, indexed, distance " + maxDistance + " (" + found
+                    + " found)", start, sample.length);
+            found = 0;
+            start = System.nanoTime();
+            for (String query : sample) {
+                for (String[] pair : entryNames) {
+                    if (levenshtein(query, pair[0]) <= maxDistance
+                            || levenshtein(query, pair[1]) <= maxDistance) {
+                        found++;
+                    }
+                }
+            }
+            report("entries, full scan, distance " + maxDistance + " (" + found
+                    + " found)", start, sample.length);
+        }
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1]
+                        + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution,
+                        Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Serves a generated phone book from a PhonebookServer on another thread
+     * and runs PhonebookLoadClient against it at several connection counts
+     * and pipeline depths.
+     */
+    private static void benchmarkServer(int entries) throws IOException {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        PhonebookServer server = new PhonebookServer(manager, null, 0);
+        Thread serving = new Thread(() -> {
+            try {
+                server.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "phonebook-server");
+        serving.start();
+        try {
+            PhonebookLoadClient.run(server.getPort(), 1, 20_000, 1); // Warmup.
+            for (int connections : new int[] { 1, 4 }) {
+                for (int depth : new int[] { 1, 8, 64 }) {
+                    PhonebookLoadClient.run(server.getPort(), connections,
+                            200_000, depth);
+                }
+            }
+            server.stop();
+            serving.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Measures cold storage on a phone book whose entries are mostly never
+     * read. It reports the heap with every entry inflated, then the time to
+     * sweep the list twice, which freezes every entry, and the heap after.
+     * Then it times phone number lookups that read the found entry's
+     * fields, Zipf-distributed (exponent 0.99) over every entry, with cold
+     * storage off and on. With it on, ten entries are swept before each
+     * lookup, outside the timed region, so the clock hand laps the list as
+     * a background sweeper would; the heap and frozen entries are reported
+     * again afterwards. Run it with -XX:MarkSweepDeadRatio=0: otherwise a
+     * full GC under G1 leaves the space of dropped fields unreclaimed in
+     * mostly live regions, and the heap looks the same.
+     */
+    private static void benchmarkCold(int entries) {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        int samples = 200_000;
+        double[] cumulative = new double[entries];
+        double total = 0;
+        for (int rank = 0; rank < entries; rank++) {
+            total += 1 / Math.pow(rank + 1, 0.99);
+            cumulative[rank] = total;
+        }
+        int[] order = new int[entries]; // Entries by popularity.
+        Random random = new Random(7);
+        for (int i = 0; i < entries; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        String[] queries = new String[samples];
+        for (int q = 0; q < samples; q++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            queries[q] = ContactGenerator.phoneNumber(order[rank < 0 ? -rank - 1 : rank]);
+        }
+        cumulative = null;
+        order = null;
+        long[] sink = new long[1];
+
+        long hot = usedHeap();
+        System.out.printf("heap, all entries hot: %.1f MB (%d bytes/entry)%n", hot / 1e6,
+                hot / entries);
+        System.out.printf("%-26s %9s %9s %9s %9s %10s%n", "operation", "p50 ns", "p99 ns",
+                "p99.9 ns", "max ns", "bytes/op");
+        measure("lookup + read, all hot", samples, i -> {
+            timer.start();
+            sink[0] += readFound(manager, queries[i]);
+            timer.stop();
+        });
+
+        manager.setColdStorage(true);
+        long start = System.nanoTime();
+        manager.sweepColdEntries(2 * entries);
+        report("sweepColdEntries x " + 2 * entries, start, 2 * entries);
+        timer.reset(0); // Drop the latencies recorded above.
+        long cold = usedHeap();
+        System.out.printf("heap, all entries cold: %.1f MB (%d bytes/entry, %.1f%% less)%n",
+                cold / 1e6, cold / entries, 100.0 * (hot - cold) / hot);
+        System.out.println("  " + manager.getColdStore());
+        long[] sweepNanos = new long[1];
+        measure("lookup + read, cold store", samples, i -> {
+            long swept = System.nanoTime();
+            manager.sweepColdEntries(10);
+            sweepNanos[0] += System.nanoTime() - swept;
+            timer.start();
+            sink[0] += readFound(manager, queries[i]);
+            timer.stop();
+        });
+        System.out.printf("sweeping: %.0f ns/entry%n", sweepNanos[0] / (2.0 * samples * 10));
+        timer.reset(0);
+        long after = usedHeap();
+        System.out.printf("heap after the lookups: %.1f MB (%.1f%% less than all hot)%n",
+                after / 1e6, 100.0 * (hot - after) / hot);
+        System.out.println("  " + manager.getColdStore());
+        System.out.println("(checksum " + sink[0] + ")");
+    }
+
+    /**
+     * Looks up a phone number and reads the fields of the entries found.
+     *
+     * @return The total length of the fields read.
+     */
+    private static long readFound(PhonebookManager manager, String phoneNumber) {
+        long length = 0;
+        for (ListNode node : manager.searchByCriteria("phoneNumber", phoneNumber)) {
+            length += node.getFirstName().length() + node.getLastName().length()
+                    + node.getAddress().length() + node.getCity().length()
+                    + node.getPhoneNumber().length();
+        }
+        return length;
+    }
+
+    /**
+     * Measures how a ShardedPhonebook scales with its number of shards. For
+     * 1, 2, 4 and 8 shards in this JVM, and 1, 2 and 4 shards served by
+     * PhonebookServers in child JVMs, it times a bulk load, the throughput
+     * of eight threads looking up phone numbers with one add in ten, and a
+     * substring search that every shard runs. Then it adds a fifth local
+     * shard and removes it again while four threads keep looking up
+     * numbers, and reports the entries moved and the slowest lookup.
+     */
+    private static void benchmarkShards(int entries) throws IOException {
+        List<String[]> contacts = new ArrayList<>(entries);
+        ContactGenerator generator = new ContactGenerator(42);
+        for (int i = 0; i < entries; i++) {
+            contacts.add(generator.next());
+        }
+        System.out.printf("%d cores, %d threads%n",
+                Runtime.getRuntime().availableProcessors(), SHARD_THREADS);
+        System.out.printf("%-8s %6s %10s %12s %10s%n", "shards", "count", "load ms",
+                "ops/s", "scan ms");
+        for (int count : new int[] { 1, 2, 4, 8 }) {
+            List<PhonebookShard> shards = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                shards.add(PhonebookShard.local());
+            }
+            runShards("local", contacts, shards);
+        }
+        int remoteEntries = Math.min(entries, 200_000);
+        for (int count : new int[] { 1, 2, 4 }) {
+            List<Process> servers = new ArrayList<>();
+            try {
+                List<PhonebookShard> shards = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    shards.add(PhonebookShard.remote(startShardServer(servers)));
+                }
+                runShards("remote", contacts.subList(0, remoteEntries), shards);
+            } finally {
+                for (Process server : servers) {
+                    server.destroy();
+                }
+            }
+        }
+
+        List<PhonebookShard> shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shards.add(PhonebookShard.local());
+        }
+        try (ShardedPhonebook phonebook = new ShardedPhonebook(shards)) {
+            phonebook.addAll(contacts);
+            AtomicInteger running = new AtomicInteger(1);
+            AtomicLong lookups = new AtomicLong();
+            AtomicLong misses = new AtomicLong();
+            AtomicLong slowest = new AtomicLong();
+            Thread[] readers = new Thread[4];
+            for (int t = 0; t < readers.length; t++) {
+                Random random = new Random(t);
+                readers[t] = new Thread(() -> {
+                    try {
+                        while (running.get() > 0) {
+                            long start = System.nanoTime();
+                            if (phonebook.searchByCriteria("phoneNumber",
+                                    ContactGenerator.phoneNumber(random.nextInt(entries)))
+                                    .isEmpty()) {
+                                misses.incrementAndGet();
+                            }
+                            slowest.accumulateAndGet(System.nanoTime() - start, Math::max);
+                            lookups.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, "shard-reader-" + t);
+                readers[t].start();
+            }
+            long start = System.nanoTime();
+            phonebook.addShard(PhonebookShard.local());
+            report("addShard, 4 to 5 shards", start, phonebook.getEntriesMoved());
+            System.out.printf("slots %s, entries %s%n",
+                    Arrays.toString(phonebook.getSlotCounts()),
+                    Arrays.toString(phonebook.getShardSizes()));
+            long moved = phonebook.getEntriesMoved();
+            start = System.nanoTime();
+            phonebook.removeShard().close();
+            report("removeShard, 5 to 4 shards", start, phonebook.getEntriesMoved() - moved);
+            running.set(0);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            System.out.printf("%,d entries moved; %,d lookups during the moves, "
+                    + "%d missed, slowest %.1f ms%n", phonebook.getEntriesMoved(),
+                    lookups.get(), misses.get(), slowest.get() / 1e6);
+            if (phonebook.size() != entries) {
+                throw new IllegalStateException("rebalancing lost entries");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loads contacts into a new ShardedPhonebook over the given shards,
+     * times lookups, adds and a substring search across them, prints one
+     * row of the table, and closes the phone book.
+     */
+    private static void runShards(String kind, List<String[]> contacts,
+            List<PhonebookShard> shards) throws IOException {
+        try (ShardedPhonebook phonebook = new ShardedPhonebook(shards)) {
+            long start = System.nanoTime();
+            phonebook.addAll(contacts);
+            double loadMillis = (System.nanoTime() - start) / 1e6;
+            runShardMix(phonebook, contacts.size(), 20_000); // Warmup.
+            double throughput = runShardMix(phonebook, contacts.size(), 200_000);
+            long[] scans = new long[5];
+            for (int i = 0; i < scans.length; i++) {
+                start = System.nanoTime();
+                phonebook.searchByCriteria("address", "Lake Rd", MatchMode.CONTAINS);
+                scans[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(scans);
+            System.out.printf("%-8s %6d %10.0f %12.0f %10.1f%n", kind, shards.size(),
+                    loadMillis, throughput, scans[scans.length / 2] / 1e6);
+        }
+    }
+
+    /**
+     * Runs lookups by phone number, with one add of a new number in ten,
+     * split over SHARD_THREADS threads, and returns the operations per
+     * second.
+     */
+    private static double runShardMix(ShardedPhonebook phonebook, int entries,
+            int operations) throws IOException {
+        IOException[] failure = new IOException[1];
+        Thread[] threads = new Thread[SHARD_THREADS];
+        int perThread = operations / threads.length;
+        int added = phonebook.size();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(t);
+            int first = added + t * perThread; // Each thread adds its own numbers.
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        if (random.nextInt(10) == 0) {
+                            phonebook.add("Shard", "Bench", i + " Main St", "Tacoma",
+                                    ContactGenerator.phoneNumber(first + i));
+                        } else {
+                            phonebook.searchByCriteria("phoneNumber",
+                                    ContactGenerator.phoneNumber(random.nextInt(entries)));
+                        }
+                    }
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "shard-client-" + t);
+            threads[t].start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return (double) perThread * threads.length * 1e9 / elapsed;
+    }
+
+    /**
+     * Starts "java PhonebookServer 0" in a child JVM with this JVM's class
+     * path and returns the port it prints once it is listening.
+     */
+    private static int startShardServer(List<Process> servers) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process server = new ProcessBuilder(java, "-cp",
+                System.getProperty("java.class.path"), "PhonebookServer", "0")
+                .redirectErrorStream(true).start();
+        servers.add(server);
+        BufferedReader out = new BufferedReader(new InputStreamReader(
+                server.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        String prefix = "Listening on port ";
+        if (line == null || !line.startsWith(prefix)) {
+            throw new IOException("Shard server did not start: " + line);
+        }
+        return Integer.parseInt(line.substring(prefix.length()));
+    }
+
+    /**
+     * Measures scripted use of the phone book. A script of the given number
+     * of commands, six in ten adds and the rest phone number and address
+     * lookups, is run in this JVM by PhonebookScript, and by a plain loop
+     * that reads, runs and writes one line at a time, timing each and
+     * counting the bytes allocated per command. Then it times whole runs of
+     * Main in child JVMs: a shorter script through --batch and through the
+     * menu, and the startup of an empty --batch run with and without an
+     * AppCDS archive, and with the archive and only the C1 compiler.
+     */
+    private static void benchmarkScript(int commands) throws IOException {
+        Path directory = Files.createTempDirectory("phonebook-script");
+        Path script = directory.resolve("script.txt");
+        Path menu = directory.resolve("menu.txt");
+        Path empty = directory.resolve("empty.txt");
+        Path archive = directory.resolve("phonebook.jsa");
+        try {
+            writeScripts(commands, script, null);
+            System.out.printf("script: %d commands, %.1f MB%n", commands,
+                    Files.size(script) / 1e6);
+            Writer sink = new BufferedWriter(new OutputStreamWriter(
+                    OutputStream.nullOutputStream(), StandardCharsets.UTF_8),
+                    1 << 16);
+            for (int round = 0; round < 3; round++) { // The first round warms up.
+                boolean print = round > 0;
+                PhonebookManager manager = new PhonebookManager();
+                timer.reset(1);
+                long start = System.nanoTime();
+                timer.start();
+                try (InputStream in = Files.newInputStream(script)) {
+                    PhonebookScript.run(manager, in, sink);
+                }
+                timer.stop();
+                if (print) {
+                    report("PhonebookScript x " + commands, start, commands);
+                    System.out.printf("  %d bytes/command%n",
+                            timer.allocatedBytes() / commands);
+                }
+                manager = new PhonebookManager();
+                PhonebookCommands lines = new PhonebookCommands(manager);
+                StringBuilder reply = new StringBuilder();
+                timer.reset(1);
+                start = System.nanoTime();
+                timer.start();
+                try (BufferedReader in = Files.newBufferedReader(script)) {
+                    for (String line = in.readLine(); line != null; line = in.readLine()) {
+                        reply.setLength(0);
+                        lines.execute(line, reply);
+                        sink.append(reply);
+                        sink.flush();
+                    }
+                }
+                timer.stop();
+                if (print) {
+                    report("line at a time x " + commands, start, commands);
+                    System.out.printf("  %d bytes/command%n",
+                            timer.allocatedBytes() / commands);
+                }
+            }
+
+            // AppCDS archives only classes loaded from JAR files.
+            String classPath = System.getProperty("java.class.path");
+            if (!classPath.endsWith(".jar")) {
+                Path jar = directory.resolve("phonebook.jar");
+                ToolProvider.findFirst("jar").orElseThrow().run(System.out, System.err,
+                        "--create", "--file", jar.toString(), "-C", classPath, ".");
+                classPath = jar.toString();
+            }
+            int shorter = Math.min(commands, 2_000);
+            writeScripts(shorter, script, menu);
+            Files.write(empty, new byte[0]);
+            System.out.printf("%-26s %9s%n", "child JVM run", "ms");
+            long[] times = new long[5];
+            for (int i = 0; i < times.length; i++) {
+                times[i] = runMain(directory, classPath, script, "--batch", script.toString());
+            }
+            printRun("--batch x " + shorter, times);
+            for (int i = 0; i < times.length; i++) {
+                times[i] = runMain(directory, classPath, menu);
+            }
+            printRun("menu x " + shorter, times);
+            for (int i = 0; i < times.length; i++) {
+                times[i] = runMain(directory, classPath, empty, "--batch");
+            }
+            printRun("--batch, empty", times);
+            runMain(directory, classPath, empty,
+                    "-XX:ArchiveClassesAtExit=" + archive, "--batch");
+            for (int i = 0; i < times.length; i++) {
+                times[i] = runMain(directory, classPath, empty,
+                        "-XX:SharedArchiveFile=" + archive, "--batch");
+            }
+            printRun("--batch, empty, AppCDS", times);
+            for (int i = 0; i < times.length; i++) {
+                times[i] = runMain(directory, classPath, empty,
+                        "-XX:SharedArchiveFile=" + archive, "-XX:TieredStopAtLevel=1",
+                        "--batch");
+            }
+            printRun("  and C1 only", times);
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    deleteRecursively(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Writes a script of protocol commands and, if menu is not null, the
+     * same commands as answers to Main's menu prompts.
+     */
+    private static void writeScripts(int commands, Path script, Path menu)
+            throws IOException {
+        ContactGenerator generator = new ContactGenerator(42);
+        Random random = new Random(42);
+        List<String[]> added = new ArrayList<>();
+        StringBuilder lines = new StringBuilder();
+        StringBuilder answers = new StringBuilder();
+        for (int i = 0; i < commands; i++) {
+            int kind = added.isEmpty() ? 0 : random.nextInt(10);
+            if (kind < 6) {
+                String[] contact = generator.next();
+                added.add(contact);
+                lines.append("ADD\t").append(String.join("\t", contact)).append('\n');
+                answers.append("1\n").append(String.join("\n", contact)).append('\n');
+            } else {
+                String[] contact = added.get(random.nextInt(added.size()));
+                if (kind < 9) {
+                    lines.append("FIND\tphoneNumber\t").append(contact[4]).append('\n');
+                    answers.append("6\n").append(contact[4]).append('\n');
+                } else {
+                    lines.append("FIND\taddress\t").append(contact[2]).append('\n');
+                    answers.append("5\n").append(contact[2]).append('\n');
+                }
+            }
+        }
+        Files.writeString(script, lines);
+        if (menu != null) {
+            Files.writeString(menu, answers.append("0\n"));
+        }
+    }
+
+    /**
+     * Runs Main in a child JVM in an empty phone book, with standard input
+     * from a file and standard output discarded.
+     *
+     * @return The wall-clock time of the run in milliseconds.
+     */
+    private static long runMain(Path directory, String classPath, Path input,
+            String... args) throws IOException {
+        deleteRecursively(directory.resolve("phonebook-data"));
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(classPath);
+        int main = 0;
+        while (main < args.length && args[main].startsWith("-XX:")) {
+            command.add(args[main++]);
+        }
+        command.add("Main");
+        command.addAll(Arrays.asList(args).subList(main, args.length));
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(directory.toFile())
+                .redirectInput(input.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("Main exited with " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void printRun(String label, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-26s %9d%n", label, sorted[sorted.length / 2]);
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+                for (Path file : files) {
+                    deleteRecursively(file);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Exports a phone book to CSV, then times parsing the file alone and
+     * importing it into an empty phone book through the parser pipeline.
+     */
+    private static void benchmarkCsv(int entries) throws IOException {
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        Path file = Files.createTempFile("phonebook", ".csv");
+        try {
+            long start = System.nanoTime();
+            manager.exportContacts(file);
+            report("exportContacts x " + entries, start, entries);
+            System.out.printf("file size: %.1f MB%n", Files.size(file) / 1e6);
+            manager.clear();
+            manager = null;
+
+            for (int round = 0; round < 2; round++) { // The first round warms up.
+                int[] rows = new int[1];
+                start = System.nanoTime();
+                ContactCsv.parse(file, ',', batch -> rows[0] += batch.rows);
+                report("parse only x " + rows[0], start, rows[0]);
+            }
+            PhonebookManager imported = new PhonebookManager();
+            start = System.nanoTime();
+            int count = imported.importContacts(file);
+            report("importContacts x " + count, start, count);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Applies batches of random inserts, modifications and deletions that
+     * touch 1% and then 10% of the entries, once through applyBatch and
+     * once one call at a time on an identical phone book, and checks that
+     * both end up the same.
+     */
+    private static void benchmarkBatch(int entries) throws IOException {
+        for (int percent : new int[] { 1, 10 }) {
+            batchRound(entries, percent, false); // Warmup.
+            batchRound(entries, percent, true);
+        }
+    }
+
+    /**
+     * Runs one batch of the given size both ways, printing the timings only
+     * if print is set.
+     */
+    private static void batchRound(int entries, int percent, boolean print)
+            throws IOException {
+        int changes = Math.max(1, entries / 100 * percent);
+        Random random = new Random(percent);
+        List<PhonebookMutation> batch = new ArrayList<>();
+        boolean[] touched = new boolean[entries];
+        for (int i = 0; i < changes; i++) {
+            int index = random.nextInt(entries);
+            int kind = random.nextInt(3);
+            if (kind == 0) {
+                batch.add(PhonebookMutation.insert(index, "Insert" + i, "Batch",
+                        i + " Main St", "Tacoma", phoneNumber(entries + i)));
+            } else if (!touched[index]) {
+                touched[index] = true;
+                batch.add(kind == 1 ? PhonebookMutation.delete(index)
+                        : PhonebookMutation.modify(index, "Modify" + i, "Batch",
+                                i + " Pine St", "Kent", phoneNumber(2 * entries + i)));
+            }
+        }
+
+        PhonebookManager manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        long start = System.nanoTime();
+        manager.applyBatch(batch);
+        if (print) {
+            report("applyBatch, " + percent + "% x " + batch.size(), start,
+                    batch.size());
+        }
+        long expected = checksum(manager);
+        manager.clear();
+
+        manager = new PhonebookManager();
+        new ContactGenerator(42).fill(manager, entries);
+        // The same changes one call at a time, from the highest index
+        // down so that earlier indexes still refer to the same entries.
+        // At one index the entry is changed first, then the inserts go
+        // in before it from the last one in the batch to the first.
+        List<PhonebookMutation> ordered = new ArrayList<>(batch);
+        Collections.reverse(ordered);
+        ordered.sort((a, b) -> b.index != a.index ? Integer.compare(b.index, a.index)
+                : Integer.compare(rank(a), rank(b)));
+        start = System.nanoTime();
+        for (PhonebookMutation m : ordered) {
+            if (m.kind == PhonebookMutation.Kind.INSERT) {
+                manager.addAtIndex(m.index, m.firstName, m.lastName, m.address,
+                        m.city, m.phoneNumber);
+            } else if (m.kind == PhonebookMutation.Kind.DELETE) {
+                manager.deleteAtIndex(m.index);
+            } else {
+                manager.modifyEntryAtIndex(m.index, m.firstName, m.lastName,
+                        m.address, m.city, m.phoneNumber);
+            }
+        }
+        if (print) {
+            report("one by one, " + percent + "% x " + batch.size(), start,
+                    batch.size());
+        }
+        if (checksum(manager) != expected) {
+            System.out.println("results differ");
+        }
+        manager.clear();
+    }
+
+    /**
+     * Returns 0 for a change to an existing entry and 1 for an insert.
+     */
+    private static int rank(PhonebookMutation mutation) {
+        return mutation.kind == PhonebookMutation.Kind.INSERT ? 1 : 0;
+    }
+
+    /**
+     * Returns a CRC32 of everything writeTo prints for a phone book.
+     */
+    private static long checksum(PhonebookManager manager) throws IOException {
+        CRC32 crc = new CRC32();
+        manager.writeTo(new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                for (int i = offset; i < offset + length; i++) {
+                    crc.update(chars[i]);
+                    crc.update(chars[i] >>> 8);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the total time all garbage collectors have spent collecting.
+     */
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Returns the bytes currently allocated for direct buffers.
+     */
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the heap in use after asking for a few full collections.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Times the part of each sample between timer.start() and timer.stop(),
+     * first for a warmup round and then for the recorded round, and prints
+     * the latency percentiles and allocation per call.
+     */
+    private static void measure(String label, int samples, IntConsumer sample) {
+        for (int i = 0; i < samples; i++) {
+            sample.accept(i); // Warmup.
+        }
+        timer.reset(samples);
+        for (int i = 0; i < samples; i++) {
+            sample.accept(i);
+        }
+        long[] latencies = timer.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("%-26s %9d %9d %9d %9d %10d%n", label,
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[latencies.length - 1],
+                timer.allocatedBytes() / samples);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    /**
+     * Records the latency and allocated bytes of each timed region on the
+     * benchmark thread.
+     */
+    private static final class SampleTimer {
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private long[] latencies = new long[0];
+        private int count;
+        private long allocated;
+        private long startNanos;
+        private long startBytes;
+
+        void reset(int samples) {
+            latencies = new long[samples];
+            count = 0;
+            allocated = 0;
+        }
+
+        void start() {
+            startBytes = threads.getCurrentThreadAllocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        void stop() {
+            long elapsed = System.nanoTime() - startNanos;
+            allocated += threads.getCurrentThreadAllocatedBytes() - startBytes;
+            if (count < latencies.length) {
+                latencies[count++] = elapsed;
+            }
+        }
+
+        long[] latencies() {
+            return Arrays.copyOf(latencies, count);
+        }
+
+        long allocatedBytes() {
+            return allocated;
+        }
+    }
+
+    /**
+     * Appends entries one at a time, as Main.addContact does, and then runs
+     * a round of index-based operations against the loaded list.
+     */
+    private static void benchmarkLoad(int entries) {
+        Random random = new Random(42);
+        PhonebookManager manager = new PhonebookManager();
+        long start = System.nanoTime();
+        for (int i = 0; i < entries; i++) {
+            addRandomEntry(manager, random, i);
+        }
+        report("addEntryAtEnd x " + entries, start, entries);
+
+        int operations = 100_000;
+        start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int index = random.nextInt(manager.size());
+            switch (i % 3) {
+                case 0:
+                    manager.addAtIndex(index, "Index", "Insert", "1 Main St",
+                            "Tacoma", "2535550000");
+                    break;
+                case 1:
+                    manager.modifyEntryAtIndex(index, "Index", "Modify",
+                            "2 Main St", "Tacoma", "2535550001");
+                    break;
+                default:
+                    manager.deleteAtIndex(index);
+            }
+        }
+        report("addAtIndex/modifyEntryAtIndex/deleteAtIndex x " + operations,
+                start, operations);
+    }
+
+    /**
+     * Streams the whole phone book through writeTo into a writer that
+     * discards its input, and reports how much the heap grew while doing so.
+     */
+    private static void benchmarkView(int entries) throws IOException {
+        Random random = new Random(42);
+        PhonebookManager manager = new PhonebookManager();
+        for (int i = 0; i < entries; i++) {
+            addRandomEntry(manager, random, i);
+        }
+        Writer discard = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        manager.writeTo(discard);
+        report("writeTo x " + entries, start, entries);
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("heap growth during writeTo: %.1f MB%n",
+                (after - before) / 1e6);
+    }
+
+    /**
+     * Saves a phone book as a binary snapshot and as tab-separated text, then
+     * compares loading each back into an empty phone book.
+     */
+    private static void benchmarkSnapshot(int entries) throws IOException {
+        Random random = new Random(42);
+        PhonebookManager manager = new PhonebookManager();
+        for (int i = 0; i < entries; i++) {
+            addRandomEntry(manager, random, i);
+        }
+        Path snapshot = Files.createTempFile("phonebook", ".dat");
+        Path text = Files.createTempFile("phonebook", ".tsv");
+        try {
+            long start = System.nanoTime();
+            manager.save(snapshot);
+            report("save snapshot x " + entries, start, entries);
+            try (BufferedWriter out = Files.newBufferedWriter(text)) {
+                for (ListNode node = manager.getHead(); node != null; node = node.getNext()) {
+                    out.write(node.getFirstName() + "\t" + node.getLastName() + "\t"
+                            + node.getAddress() + "\t" + node.getCity() + "\t"
+                            + node.getPhoneNumber());
+                    out.newLine();
+                }
+            }
+            System.out.printf("snapshot %.1f MB, text %.1f MB%n",
+                    Files.size(snapshot) / 1e6, Files.size(text) / 1e6);
+            manager = null;
+            System.gc();
+
+            PhonebookManager loaded = new PhonebookManager();
+            start = System.nanoTime();
+            loaded.load(snapshot);
+            report("load snapshot x " + loaded.size(), start, entries);
+            loaded = null;
+            System.gc();
+
+            PhonebookManager parsed = new PhonebookManager();
+            start = System.nanoTime();
+            try (BufferedReader in = Files.newBufferedReader(text)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.split("\t");
+                    parsed.addEntryAtEnd(fields[0], fields[1], fields[2],
+                            fields[3], fields[4]);
+                }
+            }
+            report("parse text x " + parsed.size(), start, entries);
+        } finally {
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(text);
+        }
+    }
+
+    /**
+     * Measures synchronous write-ahead log throughput with 16 concurrent
+     * writers at several group-commit sizes, then the throughput of a
+     * journaled phone book whose log is flushed in the background.
+     */
+    private static void benchmarkWriteAheadLog(int entries) throws IOException {
+        int writers = 16;
+        int perWriter = Math.max(1, Math.min(entries, 20_000) / writers);
+        byte[] payload = new byte[64];
+        for (int batchSize : new int[] { 1, 8, 64, 256 }) {
+            Path directory = Files.createTempDirectory("wal");
+            try (WriteAheadLog log = new WriteAheadLog(directory, batchSize, 2, true)) {
+                Thread[] threads = new Thread[writers];
+                long start = System.nanoTime();
+                for (int t = 0; t < writers; t++) {
+                    threads[t] = new Thread(() -> {
+                        try {
+                            for (int i = 0; i < perWriter; i++) {
+                                log.append(ByteBuffer.wrap(payload));
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    threads[t].start();
+                }
+                joinAll(threads);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("group commit %4d, %d writers: %10.0f ops/sec%n",
+                        batchSize, writers, writers * perWriter / (elapsed / 1e9));
+            } finally {
+                deleteDirectory(directory);
+            }
+        }
+
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            PhonebookManager manager = new PhonebookManager();
+            Random random = new Random(42);
+            try (PhonebookJournal journal = PhonebookJournal.open(directory,
+                    manager, 256, 5, false)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < entries; i++) {
+                    addRandomEntry(manager, random, i);
+                }
+                journal.sync();
+                report("journaled addEntryAtEnd x " + entries, start, entries);
+            }
+            PhonebookManager replayed = new PhonebookManager();
+            long start = System.nanoTime();
+            PhonebookJournal.open(directory, replayed, 256, 5, false).close();
+            report("restore x " + replayed.size(), start, entries);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Stress tests ConcurrentPhonebookManager with read-heavy (95/5) and
+     * write-heavy (50/50) mixes at 1 to 32 threads. Reads are phone number
+     * and address lookups; writes modify, delete or add entries. After each run
+     * the indexes are checked against the live entries.
+     */
+    private static void benchmarkConcurrent(int entries) {
+        int preload = Math.min(entries, 200_000);
+        int operationsPerRun = 400_000;
+        for (int readPercent : new int[] { 95, 50 }) {
+            for (int threadCount : new int[] { 1, 2, 4, 8, 16, 32 }) {
+                ConcurrentPhonebookManager manager = new ConcurrentPhonebookManager();
+                Random seed = new Random(42);
+                for (int i = 0; i < preload; i++) {
+                    manager.addEntryAtEnd(pick(FIRST_NAMES, seed),
+                            pick(LAST_NAMES, seed), i + " Main St",
+                            pick(CITIES, seed), phoneNumber(i));
+                }
+                AtomicInteger nextPhone = new AtomicInteger(preload);
+                Thread[] threads = new Thread[threadCount];
+                int perThread = operationsPerRun / threadCount;
+                long start = System.nanoTime();
+                for (int t = 0; t < threadCount; t++) {
+                    long threadSeed = t;
+                    threads[t] = new Thread(() -> {
+                        Random random = new Random(threadSeed);
+                        for (int i = 0; i < perThread; i++) {
+                            String phone = phoneNumber(random.nextInt(nextPhone.get()));
+                            if (random.nextInt(100) < readPercent) {
+                                if ((i & 1) == 0) {
+                                    manager.searchByCriteria("phoneNumber", phone);
+                                } else {
+                                    manager.searchByCriteria("address",
+                                            random.nextInt(nextPhone.get()) + " Main St");
+                                }
+                                continue;
+                            }
+                            List<ContactRecord> found =
+                                    manager.searchByCriteria("phoneNumber", phone);
+                            if (found.isEmpty() || random.nextInt(3) == 0) {
+                                int n = nextPhone.getAndIncrement();
+                                manager.addEntryAtEnd(pick(FIRST_NAMES, random),
+                                        pick(LAST_NAMES, random), n + " Main St",
+                                        pick(CITIES, random), phoneNumber(n));
+                            } else if (random.nextBoolean()) {
+                                ContactRecord record = found.get(0);
+                                manager.modifyEntry(record, record.getFirstName(),
+                                        pick(LAST_NAMES, random), record.getAddress(),
+                                        pick(CITIES, random), record.getPhoneNumber());
+                            } else {
+                                manager.deleteEntry(found.get(0));
+                            }
+                        }
+                    });
+                }
+                for (Thread thread : threads) {
+                    thread.start();
+                }
+                joinAll(threads);
+                long elapsed = System.nanoTime() - start;
+                String problem = manager.verify();
+                System.out.printf("%d/%d mix, %2d threads: %10.0f ops/sec%s%n",
+                        readPercent, 100 - readPercent, threadCount,
+                        perThread * threadCount / (elapsed / 1e9),
+                        problem == null ? "" : "  INCONSISTENT: " + problem);
+            }
+        }
+    }
+
+    static void joinAll(Thread[] threads) {
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Appends one synthetic contact whose phone number is unique to i.
+     */
+    static void addRandomEntry(PhonebookManager manager, Random random, int i) {
+        manager.addEntryAtEnd(pick(FIRST_NAMES, random),
+                pick(LAST_NAMES, random),
+                (100 + random.nextInt(9900)) + " " + pick(STREETS, random),
+                pick(CITIES, random), phoneNumber(i));
+    }
+
+    /**
+     * Formats a unique, North American style phone number for i.
+     */
+    static String phoneNumber(int i) {
+        return String.format("(253) %03d-%04d", (i / 10_000) % 1000, i % 10_000);
+    }
+
+    static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Prints the elapsed time and per-operation cost since start.
+     */
+    static void report(String label, long start, long operations) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-50s %10.1f ms %10.0f ns/op%n", label,
+                elapsed / 1e6, (double) elapsed / Math.max(1, operations));
+    }
+}
@@ -0,0 +1,166 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: One change to a phone book, as delivered by a
+// PhonebookChangeFeed: an entry added, modified or deleted, or every
+// entry cleared. Each change has the phone book's version after it as
+// its sequence number, so changes are numbered 1, 2, 3 and so on
+// without gaps. Entries are named by their IDs, which, unlike indexes,
+// do not shift as other entries come and go. A change never changes
+// after it is created, so it can be read from any thread.
+//
+
+public final class PhonebookChange {
+    /**
+     * What happened to the phone book.
+     */
+    public enum Kind {
+        // An entry was added after the entry with getPreviousId.
+        ADD,
+        // An entry's fields were replaced with the ones given.
+        MODIFY,
+        // An entry with the fields given was deleted.
+        DELETE,
+        // Every entry was deleted.
+        CLEAR
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final long id;
+    private final long previousId;
+    private final String firstName;
+    private final String lastName;
+    private final String address;
+    private final String city;
+    private final String phoneNumber;
+
+    /**
+     * Creates a change, copying the fields of the entry it is about.
+     *
+     * @param sequence   The phone book's version after the change.
+     * @param kind       What happened.
+     * @param entry      The entry added, modified or deleted, or null for
+     *                   CLEAR.
+     * @param previousId For ADD, the ID of the entry before the new one, or 0
+     *                   if it is first; otherwise 0.
+     */
+    PhonebookChange(long sequence, Kind kind, ListNode entry, long previousId) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.previousId = previousId;
+        if (entry == null) {
+            id = 0;
+            firstName = null;
+            lastName = null;
+            address = null;
+            city = null;
+            phoneNumber = null;
+        } else {
+            id = entry.getId();
+            firstName = entry.getFirstName();
+            lastName = entry.getLastName();
+            address = entry.getAddress();
+            city = entry.getCity();
+            phoneNumber = entry.getPhoneNumber();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the change: the phone book's version
+     * just after it.
+     *
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns what happened.
+     *
+     * @return The kind of change.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the ID of the entry added, modified or deleted.
+     *
+     * @return The ID, or 0 for CLEAR.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns where an added entry went: the ID of the entry just before it
+     * when it was added. Replaying ADD changes in order, each after its
+     * previous entry, rebuilds the phone book's order.
+     *
+     * @return The ID of the previous entry, or 0 if the entry was added
+     *         first or the change is not an ADD.
+     */
+    public long getPreviousId() {
+        return previousId;
+    }
+
+    /**
+     * Returns the first name the entry has after an ADD or MODIFY, or had
+     * when it was deleted.
+     *
+     * @return The first name, or null for CLEAR.
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Returns the last name, as for getFirstName.
+     *
+     * @return The last name.
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Returns the address, as for getFirstName.
+     *
+     * @return The address.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the city, as for getFirstName.
+     *
+     * @return The city.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Returns the phone number, as for getFirstName.
+     *
+     * @return The phone number.
+     */
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    @Override
+    public String toString() {
+        if (kind == Kind.CLEAR) {
+            return "#" + sequence + " CLEAR";
+        }
+        return "#" + sequence + " " + kind + " " + id
+                + (kind == Kind.ADD ? " after " + previousId : "") + ": "
+                + firstName + " " + lastName + ", " + address + ", " + city + ", "
+                + phoneNumber;
+    }
+}
@@ -0,0 +1,296 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Publishes the changes made to a PhonebookManager, so that
+// replicas and caches can follow a phone book without re-reading it.
+// The most recent changes are kept in a fixed-size ring buffer, and
+// each subscriber reads from it at its own pace, on any thread. When a
+// subscriber falls a whole buffer behind, the feed either makes the
+// phone book wait for it (backpressure) or drops the changes it has not
+// read and counts them as missed, so it can start over from a
+// PhonebookView. Subscribers resume after any sequence number the
+// buffer still holds.
+//
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public final class PhonebookChangeFeed {
+    /**
+     * What the feed does with a change when the buffer is full of changes
+     * a subscriber has not read yet.
+     */
+    public enum Overflow {
+        // The change waits, and with it the phone book method that made it,
+        // until every subscriber has read or closed enough to make room.
+        // A subscriber must not read on the thread that changes the phone
+        // book.
+        BLOCK,
+        // The oldest change is dropped from the buffer, and subscribers that
+        // had not read it skip it and count it as missed.
+        DROP
+    }
+
+    private final PhonebookChange[] ring; // Change n is in slot n % length.
+    private final Overflow overflow;
+    private final long start; // The phone book's version when the feed started.
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private long last; // Sequence number of the newest change published.
+    private boolean closed;
+
+    /**
+     * Creates a feed for a phone book.
+     *
+     * @param capacity The number of recent changes to keep.
+     * @param overflow What to do when a subscriber falls behind.
+     * @param version  The phone book's version; the first change published
+     *                 is the one after it.
+     */
+    PhonebookChangeFeed(int capacity, Overflow overflow, long version) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        if (overflow == null) {
+            throw new IllegalArgumentException("Overflow cannot be null");
+        }
+        this.ring = new PhonebookChange[capacity];
+        this.overflow = overflow;
+        this.start = version;
+        this.last = version;
+    }
+
+    /**
+     * Returns the sequence number of the newest change, which is the phone
+     * book's version.
+     *
+     * @return The sequence number.
+     */
+    public synchronized long getLastSequence() {
+        return last;
+    }
+
+    /**
+     * Returns whether the feed has stopped, because the phone book's feed
+     * was replaced or turned off. Subscribers can still read the changes
+     * published before it stopped.
+     *
+     * @return true if no more changes will be published.
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Subscribes to the changes published from now on.
+     *
+     * @return The subscription.
+     */
+    public synchronized Subscription subscribe() {
+        return subscribe(last);
+    }
+
+    /**
+     * Subscribes to the changes after a sequence number, such as the version
+     * of a PhonebookView or the last change a replica applied before it
+     * restarted. Changes the buffer no longer holds are counted as missed.
+     *
+     * @param afterSequence The sequence number of the last change already
+     *                      seen.
+     * @return The subscription.
+     * @throws IllegalArgumentException If no change has that sequence
+     *                                  number yet.
+     */
+    public synchronized Subscription subscribe(long afterSequence) {
+        if (afterSequence > last) {
+            throw new IllegalArgumentException("Sequence " + afterSequence
+                    + " is after the last change, " + last);
+        }
+        Subscription subscription = new Subscription(afterSequence + 1);
+        subscription.skipTo(oldest());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Adds a change to the buffer and wakes the subscribers waiting for one.
+     *
+     * @param change The change; its sequence number must follow the last
+     *               one.
+     */
+    synchronized void publish(PhonebookChange change) {
+        if (closed) {
+            return;
+        }
+        long overwritten = change.getSequence() - ring.length;
+        if (overflow == Overflow.BLOCK) {
+            while (slowest() <= overwritten && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // The phone book cannot stop halfway through a change, so
+                    // the slow subscribers miss it instead.
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.skipTo(overwritten + 1);
+        }
+        ring[(int) (change.getSequence() % ring.length)] = change;
+        last = change.getSequence();
+        notifyAll();
+    }
+
+    /**
+     * Stops the feed, waking every subscriber that is waiting for a change.
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns the sequence number of the oldest change the buffer holds, or
+     * of the next change if it holds none.
+     */
+    private long oldest() {
+        return Math.max(start, last - ring.length) + 1;
+    }
+
+    /**
+     * Returns the position of the subscriber furthest behind.
+     */
+    private long slowest() {
+        long slowest = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.next);
+        }
+        return slowest;
+    }
+
+    /**
+     * A reader of the feed. Each subscription has its own position, so one
+     * slow subscriber does not hold back the others, except under
+     * Overflow.BLOCK, where it holds back the phone book.
+     */
+    public final class Subscription implements AutoCloseable {
+        private long next; // Sequence number of the next change to read.
+        private long missed;
+        private boolean open = true;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Returns the changes published since the last read, without
+         * waiting.
+         *
+         * @param max The largest number of changes to return.
+         * @return The changes, oldest first; empty if there are none.
+         * @throws IllegalStateException If the subscription is closed.
+         */
+        public List<PhonebookChange> poll(int max) {
+            synchronized (PhonebookChangeFeed.this) {
+                return read(max);
+            }
+        }
+
+        /**
+         * Returns the changes published since the last read, waiting for
+         * the first one if there are none yet.
+         *
+         * @param max     The largest number of changes to return.
+         * @param timeout The longest time to wait.
+         * @param unit    The unit of the timeout.
+         * @return The changes, oldest first; empty if none came in time or
+         *         the feed closed.
+         * @throws InterruptedException  If the thread is interrupted while
+         *                               waiting.
+         * @throws IllegalStateException If the subscription is closed.
+         */
+        public List<PhonebookChange> take(int max, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            synchronized (PhonebookChangeFeed.this) {
+                long deadline = System.nanoTime() + unit.toNanos(timeout);
+                while (open && next > last && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(PhonebookChangeFeed.this, remaining);
+                }
+                return read(max);
+            }
+        }
+
+        /**
+         * Returns the number of changes this subscription skipped because
+         * the buffer dropped them before they were read. A subscriber that
+         * missed changes no longer has an exact copy and should start over
+         * from a PhonebookView.
+         *
+         * @return The number of missed changes.
+         */
+        public long getMissed() {
+            synchronized (PhonebookChangeFeed.this) {
+                return missed;
+            }
+        }
+
+        /**
+         * Returns the sequence number of the last change read or skipped.
+         *
+         * @return The sequence number.
+         */
+        public long getLastSequence() {
+            synchronized (PhonebookChangeFeed.this) {
+                return next - 1;
+            }
+        }
+
+        /**
+         * Stops the subscription. Under Overflow.BLOCK this also stops it
+         * from holding back the phone book.
+         */
+        @Override
+        public void close() {
+            synchronized (PhonebookChangeFeed.this) {
+                if (open) {
+                    open = false;
+                    subscriptions.remove(this);
+                    PhonebookChangeFeed.this.notifyAll();
+                }
+            }
+        }
+
+        private List<PhonebookChange> read(int max) {
+            if (!open) {
+                throw new IllegalStateException("Subscription is closed");
+            }
+            int count = (int) Math.max(0, Math.min(max, last - next + 1));
+            List<PhonebookChange> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                changes.add(ring[(int) (next++ % ring.length)]);
+            }
+            if (count > 0) {
+                PhonebookChangeFeed.this.notifyAll(); // Room for a blocked change.
+            }
+            return changes;
+        }
+
+        /**
+         * Moves past the changes before a sequence number, counting them as
+         * missed.
+         */
+        private void skipTo(long sequence) {
+            if (next < sequence) {
+                missed += sequence - next;
+                next = sequence;
+            }
+        }
+    }
+}
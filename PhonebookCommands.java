@@ -0,0 +1,361 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Runs the text commands of the phone book's line protocol
+// against a PhonebookManager. A request is one line of tab-separated
+// fields, the first being the command name. A reply is "OK",
+// "OK <number>", "ERR <message>", "FOUND <n>" followed by n lines,
+// one per contact, with the first name, last name, address, city and
+// phone number separated by tabs, or "TEXT <n>" followed by n lines of
+// text. Tabs, line breaks and backslashes inside a field are escaped as
+// \t, \n, \r and \\.
+//
+// Commands:
+//   PING                                       OK
+//   SIZE                                       OK <size>
+//   ADD first last address city phone          OK <index of the new entry>
+//   INSERT index first last address city phone OK
+//   MODIFY index first last address city phone OK
+//   DELETE index                               OK
+//   GET index                                  FOUND 1
+//   FIND field value                           FOUND <n>
+//   SEARCH field mode value                    FOUND <n>
+//   PREFIX text offset limit                   FOUND <n>
+//   FUZZY name maxDistance                     FOUND <n>, closest first
+//   SOUNDSLIKE name                            FOUND <n>, closest first
+//   SORTED field offset limit                  FOUND <n>, in sorted order
+//   RANGE field from to offset limit           FOUND <n>, in sorted order
+//   COUNT field from to                        OK <count>
+//   REMOVE field value                         OK <entries deleted>
+//   TAKE key slot                              FOUND <n>, deleted
+//   METRICS                                    TEXT <n>, in the Prometheus
+//                                              text format
+// where field is name, address, city or phoneNumber, and mode is exact,
+// contains, startsWith or regex. SORTED, RANGE and COUNT take name, city or
+// phoneNumber, and an empty from or to leaves that end of the range open.
+// REMOVE deletes the entries FIND returns. TAKE deletes and returns the
+// entries whose key (firstName, lastName, address, city or phoneNumber)
+// falls in a ShardedPhonebook slot, for moving them to another shard.
+//
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+final class PhonebookCommands {
+    private final PhonebookManager manager;
+    private final List<String> fields = new ArrayList<>(); // Reused for every request.
+
+    /**
+     * Creates a command processor for a phone book.
+     *
+     * @param manager The phone book that commands read and change.
+     */
+    PhonebookCommands(PhonebookManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Runs one request and appends its reply, ending with a line break.
+     *
+     * @param line  The request, without its line break.
+     * @param reply Receives the reply.
+     * @return true if the request changed the phone book.
+     */
+    boolean execute(String line, StringBuilder reply) {
+        split(line, fields);
+        String command = fields.get(0).toUpperCase(Locale.ROOT);
+        try {
+            switch (command) {
+                case "PING":
+                    requireArguments(0);
+                    reply.append("OK\n");
+                    return false;
+                case "SIZE":
+                    requireArguments(0);
+                    reply.append("OK ").append(manager.size()).append('\n');
+                    return false;
+                case "ADD":
+                    requireArguments(5);
+                    manager.addEntryAtEnd(fields.get(1), fields.get(2), fields.get(3),
+                            fields.get(4), fields.get(5));
+                    reply.append("OK ").append(manager.size() - 1).append('\n');
+                    return true;
+                case "INSERT":
+                    requireArguments(6);
+                    manager.addAtIndex(index(1, manager.size()), fields.get(2),
+                            fields.get(3), fields.get(4), fields.get(5), fields.get(6));
+                    reply.append("OK\n");
+                    return true;
+                case "MODIFY":
+                    requireArguments(6);
+                    manager.modifyEntryAtIndex(index(1, manager.size() - 1),
+                            fields.get(2), fields.get(3), fields.get(4), fields.get(5),
+                            fields.get(6));
+                    reply.append("OK\n");
+                    return true;
+                case "DELETE":
+                    requireArguments(1);
+                    manager.deleteAtIndex(index(1, manager.size() - 1));
+                    reply.append("OK\n");
+                    return true;
+                case "GET":
+                    requireArguments(1);
+                    found(Collections.singletonList(
+                            manager.getEntry(index(1, manager.size() - 1))), reply);
+                    return false;
+                case "FIND":
+                    requireArguments(2);
+                    found(manager.searchByCriteria(criteria(1), fields.get(2)), reply);
+                    return false;
+                case "SEARCH":
+                    requireArguments(3);
+                    found(manager.searchByCriteria(criteria(1), fields.get(3), mode(2)),
+                            reply);
+                    return false;
+                case "PREFIX":
+                    requireArguments(3);
+                    found(manager.searchByNamePrefix(fields.get(1), number(2),
+                            number(3)), reply);
+                    return false;
+                case "FUZZY":
+                    requireArguments(2);
+                    found(manager.searchByNameFuzzy(fields.get(1), number(2)), reply);
+                    return false;
+                case "SOUNDSLIKE":
+                    requireArguments(1);
+                    found(manager.searchByNameSoundsLike(fields.get(1)), reply);
+                    return false;
+                case "SORTED":
+                    requireArguments(3);
+                    found(manager.getSorted(sortField(1), number(2), number(3)), reply);
+                    return false;
+                case "RANGE":
+                    requireArguments(5);
+                    found(manager.searchByRange(sortField(1), bound(2), bound(3), number(4),
+                            number(5)), reply);
+                    return false;
+                case "COUNT":
+                    requireArguments(3);
+                    reply.append("OK ")
+                            .append(manager.countInRange(sortField(1), bound(2), bound(3)))
+                            .append('\n');
+                    return false;
+                case "REMOVE":
+                    requireArguments(2);
+                    reply.append("OK ")
+                            .append(LocalShard.remove(manager, criteria(1), fields.get(2)))
+                            .append('\n');
+                    return true;
+                case "TAKE":
+                    requireArguments(2);
+                    found(LocalShard.take(manager, partitionField(1), slot(2)), reply);
+                    return true;
+                case "METRICS":
+                    requireArguments(0);
+                    if (manager.getMetrics() == null) {
+                        throw new IllegalArgumentException("metrics are off");
+                    }
+                    text(manager.getMetrics().dump(), reply);
+                    return false;
+                default:
+                    throw new IllegalArgumentException("unknown command " + command);
+            }
+        } catch (IllegalArgumentException e) { // Also bad numbers and regexes.
+            reply.append("ERR ");
+            appendEscaped(reply, e.getMessage());
+            reply.append('\n');
+            return false;
+        }
+    }
+
+    /**
+     * Splits a line at its tabs and unescapes each field.
+     *
+     * @param line   The line.
+     * @param fields Cleared, then receives the fields.
+     */
+    static void split(String line, List<String> fields) {
+        fields.clear();
+        int start = 0;
+        while (true) {
+            int tab = line.indexOf('\t', start);
+            int end = tab < 0 ? line.length() : tab;
+            fields.add(unescape(line, start, end));
+            if (tab < 0) {
+                return;
+            }
+            start = tab + 1;
+        }
+    }
+
+    /**
+     * Appends a contact as one line of tab-separated, escaped fields. Null
+     * fields are written as empty fields.
+     *
+     * @param node  The contact.
+     * @param reply Receives the line.
+     */
+    static void appendContact(ListNode node, StringBuilder reply) {
+        appendEscaped(reply, node.getFirstName());
+        reply.append('\t');
+        appendEscaped(reply, node.getLastName());
+        reply.append('\t');
+        appendEscaped(reply, node.getAddress());
+        reply.append('\t');
+        appendEscaped(reply, node.getCity());
+        reply.append('\t');
+        appendEscaped(reply, node.getPhoneNumber());
+        reply.append('\n');
+    }
+
+    /**
+     * Appends text with tabs, line breaks and backslashes escaped.
+     *
+     * @param out  Receives the escaped text.
+     * @param text The text; null appends nothing.
+     */
+    static void appendEscaped(StringBuilder out, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String line, int start, int end) {
+        int slash = line.indexOf('\\', start);
+        if (slash < 0 || slash >= end) {
+            return line.substring(start, end); // Nothing to unescape.
+        }
+        StringBuilder field = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = line.charAt(++i);
+                c = c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c;
+            }
+            field.append(c);
+        }
+        return field.toString();
+    }
+
+    private void found(List<ListNode> results, StringBuilder reply) {
+        reply.append("FOUND ").append(results.size()).append('\n');
+        for (ListNode node : results) {
+            appendContact(node, reply);
+        }
+    }
+
+    private static void text(String text, StringBuilder reply) {
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        reply.append("TEXT ").append(lines).append('\n').append(text);
+    }
+
+    private void requireArguments(int count) {
+        if (fields.size() - 1 != count) {
+            throw new IllegalArgumentException(fields.get(0) + " takes " + count
+                    + " argument(s) but got " + (fields.size() - 1));
+        }
+    }
+
+    private int number(int field) {
+        return Integer.parseInt(fields.get(field).trim());
+    }
+
+    /**
+     * Parses an index argument, which must be from 0 to max.
+     */
+    private int index(int field, int max) {
+        int index = number(field);
+        if (index < 0 || index > max) {
+            throw new IllegalArgumentException("index " + index
+                    + " out of range for " + manager.size() + " entries");
+        }
+        return index;
+    }
+
+    private String criteria(int field) {
+        String criteria = fields.get(field);
+        switch (criteria) {
+            case "name":
+            case "address":
+            case "city":
+            case "phoneNumber":
+                return criteria;
+            default:
+                throw new IllegalArgumentException("unknown field " + criteria);
+        }
+    }
+
+    private String partitionField(int field) {
+        String key = fields.get(field);
+        if (!ShardedPhonebook.isPartitionField(key)) {
+            throw new IllegalArgumentException("unknown key " + key);
+        }
+        return key;
+    }
+
+    private int slot(int field) {
+        int slot = number(field);
+        if (slot < 0 || slot >= ShardedPhonebook.SLOTS) {
+            throw new IllegalArgumentException("slot " + slot + " out of range");
+        }
+        return slot;
+    }
+
+    private String sortField(int field) {
+        String criteria = criteria(field);
+        if (criteria.equals("address")) {
+            throw new IllegalArgumentException("cannot sort by address");
+        }
+        return criteria;
+    }
+
+    /**
+     * Reads a range bound, where an empty field means no bound.
+     */
+    private String bound(int field) {
+        String bound = fields.get(field);
+        return bound.isEmpty() ? null : bound;
+    }
+
+    private MatchMode mode(int field) {
+        switch (fields.get(field)) {
+            case "exact":
+                return MatchMode.EXACT;
+            case "contains":
+                return MatchMode.CONTAINS;
+            case "startsWith":
+                return MatchMode.STARTS_WITH;
+            case "regex":
+                return MatchMode.REGEX;
+            default:
+                throw new IllegalArgumentException("unknown mode " + fields.get(field));
+        }
+    }
+}
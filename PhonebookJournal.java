@@ -0,0 +1,410 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Makes every mutation of a PhonebookManager durable. Each add,
+// delete and modify, including edits made through the ListNode
+// setters, is written to a WriteAheadLog as a compact binary record.
+// Adds record the new entry's ID, so replayed entries keep their IDs.
+// The records of a batch are gathered into one BATCH record, so that a
+// crash replays either all of the batch or none of it.
+// On startup the latest snapshot is loaded and the log segments after
+// it are replayed. Periodically the log is compacted into a new
+// snapshot on a background thread.
+//
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PhonebookJournal implements AutoCloseable {
+    // Record types. Index-based records carry the position they applied to.
+    private static final byte ADD_FRONT = 1;
+    private static final byte ADD_END = 2;
+    private static final byte ADD_AT = 3;
+    private static final byte DELETE_AT = 4;
+    private static final byte MODIFY_AT = 5;
+    private static final byte CLEAR = 6;
+    // Adds that also carry the entry's ID. Logs written before entries had
+    // IDs hold the plain adds, whose entries get new IDs when replayed.
+    private static final byte ADD_FRONT_WITH_ID = 7;
+    private static final byte ADD_END_WITH_ID = 8;
+    private static final byte ADD_AT_WITH_ID = 9;
+    // A count of records, each preceded by its length, applied as one change.
+    private static final byte BATCH = 10;
+    private static final int NULL_FIELD = -1;
+    // Records logged between automatic checkpoints.
+    private static final long CHECKPOINT_RECORDS = 100_000;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+
+    private final PhonebookManager manager;
+    private final Path directory;
+    private final WriteAheadLog log;
+    private ByteBuffer record = ByteBuffer.allocate(256); // Reused for every record.
+    private ByteBuffer batch; // Records of the batch being applied, or null.
+    private int batchRecords;
+    private long recordsSinceCheckpoint;
+    private Thread compactor; // Background snapshot writer, if one is running.
+    private volatile IOException compactionFailure;
+
+    private PhonebookJournal(PhonebookManager manager, Path directory,
+            WriteAheadLog log) {
+        this.manager = manager;
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Restores a phone book from a journal directory and starts logging its
+     * mutations there. The manager's current contents are replaced by the
+     * latest snapshot plus every logged mutation made after it.
+     *
+     * @param directory           The directory holding the snapshot and log.
+     * @param manager             The phone book to restore and journal.
+     * @param batchSize           Records per group commit.
+     * @param flushIntervalMillis Longest time a record waits to be flushed.
+     * @param synchronous         true if each mutation should wait until it
+     *                            is on disk before returning.
+     * @return The open journal.
+     * @throws IOException If the snapshot or log cannot be read or opened.
+     */
+    public static PhonebookJournal open(Path directory, PhonebookManager manager,
+            int batchSize, long flushIntervalMillis, boolean synchronous)
+            throws IOException {
+        if (manager.journal != null) {
+            throw new IllegalStateException("Phone book already has a journal");
+        }
+        manager.clear();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        long coveredSegment = 0;
+        if (Files.exists(snapshot)) {
+            coveredSegment = PhonebookSnapshot.read(snapshot, manager);
+        }
+        WriteAheadLog.replay(directory, coveredSegment,
+                payload -> apply(manager, payload));
+        WriteAheadLog log = new WriteAheadLog(directory, batchSize,
+                flushIntervalMillis, synchronous);
+        PhonebookJournal journal = new PhonebookJournal(manager, directory, log);
+        manager.journal = journal;
+        return journal;
+    }
+
+    /**
+     * Starts compacting the log into a new snapshot. The current segment is
+     * sealed and the entries are copied in the foreground; the snapshot is
+     * written and the sealed segments deleted on a background thread. Does
+     * nothing if a compaction is already running.
+     *
+     * @throws IOException If the log cannot be sealed or the previous
+     *                     compaction failed.
+     */
+    public void checkpoint() throws IOException {
+        if (compactionFailure != null) {
+            IOException failure = compactionFailure;
+            compactionFailure = null;
+            throw failure;
+        }
+        if (compactor != null && compactor.isAlive()) {
+            return;
+        }
+        long sealed = log.roll();
+        long count = manager.size();
+        long lastId = manager.getLastId();
+        ListNode copy = copyEntries(manager.getHead());
+        recordsSinceCheckpoint = 0;
+        compactor = new Thread(() -> {
+            try {
+                PhonebookSnapshot.write(copy, count, sealed, lastId,
+                        directory.resolve(SNAPSHOT_FILE));
+                log.deleteThrough(sealed);
+            } catch (IOException e) {
+                compactionFailure = e;
+            }
+        }, "journal-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Waits until every logged mutation is on disk.
+     *
+     * @throws IOException If the log cannot be flushed.
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Waits for any running compaction, flushes the log and detaches the
+     * journal from its phone book.
+     *
+     * @throws IOException If the log cannot be flushed or the last
+     *                     compaction failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            try {
+                compactor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        manager.journal = null;
+        log.close();
+        if (compactionFailure != null) {
+            throw compactionFailure;
+        }
+    }
+
+    void addedAtFront(ListNode node) {
+        begin(ADD_FRONT_WITH_ID);
+        putLong(node.getId());
+        putFields(node);
+        append();
+    }
+
+    void addedAtEnd(ListNode node) {
+        begin(ADD_END_WITH_ID);
+        putLong(node.getId());
+        putFields(node);
+        append();
+    }
+
+    void addedAt(int index, ListNode node) {
+        begin(ADD_AT_WITH_ID);
+        putLong(node.getId());
+        putInt(index);
+        putFields(node);
+        append();
+    }
+
+    void deletedAt(int index) {
+        begin(DELETE_AT);
+        putInt(index);
+        append();
+    }
+
+    void modifiedAt(int index, ListNode node) {
+        begin(MODIFY_AT);
+        putInt(index);
+        putFields(node);
+        append();
+    }
+
+    void cleared() {
+        begin(CLEAR);
+        append();
+    }
+
+    /**
+     * Starts gathering records for a batch instead of logging each one, until
+     * endBatch logs them together.
+     */
+    void beginBatch() {
+        if (batch != null) {
+            throw new IllegalStateException("A batch is already open");
+        }
+        batch = ByteBuffer.allocate(Math.max(256, record.capacity()));
+        batch.put(BATCH);
+        batch.putInt(0); // The record count, filled in by endBatch.
+        batchRecords = 0;
+    }
+
+    /**
+     * Logs the records gathered since beginBatch as a single record, and
+     * takes any checkpoint they made due.
+     */
+    void endBatch() {
+        ByteBuffer records = batch;
+        int count = batchRecords;
+        batch = null;
+        if (count == 0) {
+            return;
+        }
+        records.putInt(1, count);
+        records.flip();
+        try {
+            log.append(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordsSinceCheckpoint += count;
+        checkpointIfDue();
+    }
+
+    /**
+     * Starts encoding a record of the given type into the reused buffer.
+     */
+    private void begin(byte type) {
+        record.clear();
+        record.put(type);
+    }
+
+    private void putInt(int value) {
+        ensureRoom(4);
+        record.putInt(value);
+    }
+
+    private void putLong(long value) {
+        ensureRoom(8);
+        record.putLong(value);
+    }
+
+    private void putFields(ListNode node) {
+        putString(node.peekFirstName());
+        putString(node.peekLastName());
+        putString(node.peekAddress());
+        putString(node.peekCity());
+        putString(node.peekPhoneNumber());
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(NULL_FIELD);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensureRoom(bytes.length);
+        record.put(bytes);
+    }
+
+    private void ensureRoom(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(record.capacity() * 2,
+                    record.position() + bytes));
+            record.flip();
+            bigger.put(record);
+            record = bigger;
+        }
+    }
+
+    /**
+     * Hands the encoded record to the log, or adds it to the open batch. The
+     * manager's mutation methods do not declare IOException, so a log
+     * failure is rethrown unchecked.
+     */
+    private void append() {
+        record.flip();
+        if (batch != null) {
+            int length = record.remaining();
+            if (batch.remaining() < 4 + length) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(batch.capacity() * 2,
+                        batch.position() + 4 + length));
+                batch.flip();
+                bigger.put(batch);
+                batch = bigger;
+            }
+            batch.putInt(length).put(record);
+            batchRecords++;
+            return;
+        }
+        try {
+            log.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordsSinceCheckpoint++;
+        checkpointIfDue();
+    }
+
+    private void checkpointIfDue() {
+        if (recordsSinceCheckpoint >= CHECKPOINT_RECORDS) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Re-applies one logged mutation to a phone book that has no journal
+     * attached.
+     */
+    private static void apply(PhonebookManager manager, ByteBuffer payload) {
+        byte type = payload.get();
+        if (type == BATCH) {
+            int count = payload.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = payload.getInt();
+                apply(manager, payload.slice().limit(length));
+                payload.position(payload.position() + length);
+            }
+            return;
+        }
+        if (type == ADD_FRONT_WITH_ID || type == ADD_END_WITH_ID || type == ADD_AT_WITH_ID) {
+            manager.restoreId(payload.getLong());
+            type -= ADD_FRONT_WITH_ID - ADD_FRONT; // The rest is a plain add record.
+        }
+        switch (type) {
+            case ADD_FRONT:
+                manager.addEntryAtFront(getString(payload), getString(payload),
+                        getString(payload), getString(payload), getString(payload));
+                break;
+            case ADD_END:
+                manager.addEntryAtEnd(getString(payload), getString(payload),
+                        getString(payload), getString(payload), getString(payload));
+                break;
+            case ADD_AT: {
+                int index = payload.getInt();
+                manager.addAtIndex(index, getString(payload), getString(payload),
+                        getString(payload), getString(payload), getString(payload));
+                break;
+            }
+            case DELETE_AT:
+                manager.deleteAtIndex(payload.getInt());
+                break;
+            case MODIFY_AT: {
+                int index = payload.getInt();
+                manager.modifyEntryAtIndex(index, getString(payload),
+                        getString(payload), getString(payload), getString(payload),
+                        getString(payload));
+                break;
+            }
+            case CLEAR:
+                manager.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+        manager.restoreId(0); // In case the add was out of range and ignored.
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length == NULL_FIELD) {
+            return null;
+        }
+        String value = new String(payload.array(),
+                payload.arrayOffset() + payload.position(), length,
+                StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    /**
+     * Copies a chain of entries into detached nodes, so the snapshot writer
+     * sees a fixed version while the phone book keeps changing.
+     */
+    private static ListNode copyEntries(ListNode head) {
+        ListNode first = null;
+        ListNode last = null;
+        for (ListNode node = head; node != null; node = node.getNext()) {
+            ListNode copy = new ListNode(node.peekFirstName(), node.peekLastName(),
+                    node.peekAddress(), node.peekCity(), node.peekPhoneNumber());
+            copy.id = node.id;
+            if (last == null) {
+                first = copy;
+            } else {
+                last.setNext(copy);
+            }
+            last = copy;
+        }
+        return first;
+    }
+}
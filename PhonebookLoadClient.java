@@ -0,0 +1,249 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Generates load against a PhonebookServer on localhost and
+// reports throughput and p50/p99/p99.9 latency. Each connection runs
+// on its own thread and sends requests in windows of a fixed depth:
+// the whole window is written at once, then its replies are read. The
+// mix is 90% phone number lookups, 5% name prefix searches and 5%
+// edits. Usage:
+//
+//   java PhonebookLoadClient [port] [connections] [requests] [depth] [entries]
+//
+// The phone book is first filled with generated contacts until it has
+// at least the given number of entries.
+//
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class PhonebookLoadClient {
+    static final int DEFAULT_PORT = 7070;
+    private static final String[] PREFIXES = { "Ja", "Mar", "Jo", "Wil", "Sa",
+            "Br", "Da", "Li" };
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args Port, connections, requests, depth and entries; each
+     *             optional.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int entries = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+        fill(port, entries);
+        run(port, connections, requests, depth);
+    }
+
+    /**
+     * Adds generated contacts to the served phone book until it has at least
+     * the given number of entries. The contacts continue the generator's
+     * sequence, so entry i has ContactGenerator.phoneNumber(i) when the
+     * phone book was empty to begin with.
+     *
+     * @param port    The server's port.
+     * @param entries The smallest number of entries wanted.
+     * @throws IOException If the server cannot be reached.
+     */
+    static void fill(int port, int entries) throws IOException {
+        try (Client client = new Client(port)) {
+            int size = client.size();
+            ContactGenerator generator = new ContactGenerator(42);
+            for (int i = 0; i < size; i++) {
+                generator.next(); // Skip the contacts that are already there.
+            }
+            while (size < entries) {
+                int window = Math.min(1000, entries - size);
+                for (int i = 0; i < window; i++) {
+                    String[] contact = generator.next();
+                    client.send("ADD", contact[0], contact[1], contact[2], contact[3],
+                            contact[4]);
+                }
+                client.flush();
+                for (int i = 0; i < window; i++) {
+                    client.expectOk(client.readReply());
+                }
+                size += window;
+            }
+        }
+    }
+
+    /**
+     * Sends requests from several connections at once and prints the
+     * throughput and latency percentiles.
+     *
+     * @param port        The server's port.
+     * @param connections The number of connections, each on its own thread.
+     * @param requests    The total number of requests.
+     * @param depth       The requests each connection sends before reading
+     *                    their replies.
+     * @throws IOException          If a connection fails.
+     * @throws InterruptedException If interrupted while waiting for the
+     *                              connections to finish.
+     */
+    static void run(int port, int connections, int requests, int depth)
+            throws IOException, InterruptedException {
+        int size;
+        try (Client client = new Client(port)) {
+            size = client.size();
+        }
+        int perConnection = Math.max(depth, requests / connections / depth * depth);
+        long[][] latencies = new long[connections][perConnection];
+        IOException[] failure = new IOException[1];
+        Thread[] threads = new Thread[connections];
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            long[] mine = latencies[c];
+            Random random = new Random(c);
+            threads[c] = new Thread(() -> {
+                try (Client client = new Client(port)) {
+                    long[] sent = new long[depth];
+                    for (int done = 0; done < mine.length; done += depth) {
+                        for (int i = 0; i < depth; i++) {
+                            sent[i] = System.nanoTime();
+                            request(client, random, size);
+                        }
+                        client.flush();
+                        for (int i = 0; i < depth; i++) {
+                            client.expectOk(client.readReply());
+                            mine[done + i] = System.nanoTime() - sent[i];
+                        }
+                    }
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "load-client-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        long[] all = new long[connections * perConnection];
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, c * perConnection, perConnection);
+        }
+        Arrays.sort(all);
+        System.out.printf("%2d conn x depth %-4d %10.0f req/s  p50 %7d  p99 %7d"
+                + "  p99.9 %8d us%n", connections, depth,
+                all.length * 1e9 / elapsed, percentile(all, 0.50) / 1000,
+                percentile(all, 0.99) / 1000, percentile(all, 0.999) / 1000);
+    }
+
+    /**
+     * Queues one request from the mix.
+     */
+    private static void request(Client client, Random random, int size)
+            throws IOException {
+        int kind = random.nextInt(100);
+        int index = random.nextInt(Math.max(1, size));
+        if (kind < 90 || size == 0) {
+            client.send("FIND", "phoneNumber", ContactGenerator.phoneNumber(index));
+        } else if (kind < 95) {
+            client.send("PREFIX", PREFIXES[random.nextInt(PREFIXES.length)], "0", "10");
+        } else {
+            client.send("MODIFY", Integer.toString(index), "Load", "Client",
+                    index + " Main St", "Tacoma", ContactGenerator.phoneNumber(index));
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    /**
+     * One blocking connection to the server.
+     */
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder(128);
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8), 1 << 16);
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        int size() throws IOException {
+            send("SIZE");
+            flush();
+            String reply = readReply();
+            expectOk(reply);
+            return Integer.parseInt(reply.substring(3));
+        }
+
+        /**
+         * Queues a request; nothing is sent until flush.
+         */
+        void send(String... fields) throws IOException {
+            line.setLength(0);
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    line.append('\t');
+                }
+                PhonebookCommands.appendEscaped(line, fields[i]);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * Reads one reply and returns its status line, skipping any contact
+         * lines that follow it.
+         */
+        String readReply() throws IOException {
+            String status = in.readLine();
+            if (status == null) {
+                throw new IOException("Server closed the connection");
+            }
+            if (status.startsWith("FOUND ")) {
+                for (int n = Integer.parseInt(status.substring(6)); n > 0; n--) {
+                    in.readLine();
+                }
+            }
+            return status;
+        }
+
+        void expectOk(String status) throws IOException {
+            if (status.startsWith("ERR")) {
+                throw new IOException("Server replied " + status);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            send("QUIT");
+            flush();
+            socket.close();
+        }
+    }
+}
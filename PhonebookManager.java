@@ -1,230 +1,1528 @@
-//
-// Author: Caiden Sanders
-// Date: February 14, 2024
-// Class: CS145 Assignment 2
-// Purpose: Manages a phone book as a singly linked list. ALlows adding,
-// deleting, modifying, and searching for entries based on
-// various criteria.
-//
-
-import java.util.ArrayList;
-import java.util.List;
-
-public class PhonebookManager {
-    private ListNode head; // Head of the list.
-
-    public PhonebookManager() {
-        this.head = null; // Initially, the list is empty.
-    }
-
-    /**
-     * Adds a new entry at the beginning of the phone book.
-     *
-     * @param firstName   The first name of the contact.
-     * @param lastName    The last name of the contact.
-     * @param address     The address of the contact.
-     * @param city        The city of the contact.
-     * @param phoneNumber The phone number of the contact.
-     */
-    public void addEntryAtFront(String firstName, String lastName,
-            String address, String city, String phoneNumber) {
-        ListNode newNode = new ListNode(firstName, lastName, address, city,
-                phoneNumber);
-        newNode.setNext(head);
-        head = newNode;
-    }
-
-    /**
-     * Adds a new entry at the end of the phone book.
-     *
-     * @param firstName   The first name of the contact.
-     * @param lastName    The last name of the contact.
-     * @param address     The address of the contact.
-     * @param city        The city of the contact.
-     * @param phoneNumber The phone number of the contact.
-     */
-    public void addEntryAtEnd(String firstName, String lastName,
-            String address, String city, String phoneNumber) {
-        ListNode newNode = new ListNode(firstName, lastName, address, city,
-                phoneNumber);
-        if (head == null) {
-            head = newNode; // If list is empty, new node becomes the head.
-        } else {
-            ListNode current = head;
-            while (current.getNext() != null) { // Traverse to the end of the list.
-                current = current.getNext();
-            }
-            current.setNext(newNode);
-        }
-    }
-
-    /**
-     * Adds a new entry at a specified index in the phone book.
-     *
-     * @param index       The index at which the entry should be added.
-     * @param firstName   The first name of the contact.
-     * @param lastName    The last name of the contact.
-     * @param address     The address of the contact.
-     * @param city        The city of the contact.
-     * @param phoneNumber The phone number of the contact.
-     */
-    public void addAtIndex(int index, String firstName,
-            String lastName, String address, String city, String phoneNumber) {
-        if (index == 0) {
-            // Add at the front if index is 0.
-            addEntryAtFront(firstName, lastName, address, city, phoneNumber);
-            return;
-        }
-        ListNode newNode = new ListNode(firstName, lastName, address, city,
-                phoneNumber);
-        ListNode current = head;
-        for (int i = 0; current != null && i < index - 1; i++) {
-            current = current.getNext(); // Traverse to the node before the desired position.
-        }
-        if (current != null) {
-            newNode.setNext(current.getNext()); // Insert the new node after the current node.
-            current.setNext(newNode); // Current node points to the new node.
-        }
-    }
-
-    /**
-     * Deletes an entry at a specified index in the phone book.
-     *
-     * @param index The index of the entry to be deleted.
-     */
-    public void deleteAtIndex(int index) {
-        if (head == null)
-            return; // List is empty.
-        if (index == 0) {
-            head = head.getNext(); // Remove head.
-            return;
-        }
-        ListNode current = head;
-        for (int i = 0; current != null && i < index - 1; i++) {
-            current = current.getNext(); // Traverse to the node before the desired position.
-        }
-        if (current != null && current.getNext() != null) {
-            current.setNext(current.getNext().getNext()); // Remove the node at the desired position.
-        }
-    }
-
-    /**
-     * Modifies an existing entry's information by index.
-     *
-     * @param index       The index of the entry to modify.
-     * @param firstName   The new first name.
-     * @param lastName    The new last name.
-     * @param address     The new address.
-     * @param city        The new city.
-     * @param phoneNumber The new phone number.
-     */
-    public void modifyEntryAtIndex(int index, String firstName, String lastName,
-            String address, String city, String phoneNumber) {
-        ListNode current = head;
-        for (int i = 0; current != null && i < index; i++) {
-            current = current.getNext(); // Traverse to the desired position.
-        }
-        if (current != null) {
-            // Update the details of the nodes at the index.
-            current.setFirstName(firstName);
-            current.setLastName(lastName);
-            current.setAddress(address);
-            current.setCity(city);
-            current.setPhoneNumber(phoneNumber);
-        }
-    }
-
-    /**
-     * Searches the phone book for all entries matching the given criteria and
-     * value.
-     *
-     * @param criteria The criteria to search for ("name", "address", or
-     *                 "phoneNumber").
-     * @param value    The value to match against the criteria.
-     * @return The first ListNode matching the criteria, or null if no
-     *         match is found.
-     */
-    public List<ListNode> searchByCriteria(String criteria, String value) {
-        List<ListNode> matches = new ArrayList<>();
-        ListNode current = head;
-        while (current != null) {
-            if ("name".equals(criteria)) {
-                // Split the input value into parts to handle first name, last name, or both.
-                String[] nameParts = value.trim().split("\\s+"); // Splits by whitespace.
-                for (String part : nameParts) {
-                    if (current.getFirstName().equalsIgnoreCase(part)
-                            || current.getLastName().equalsIgnoreCase(part)) {
-                        matches.add(current);
-                        break; // Found a match, no need to check further for this node.
-                    }
-                }
-                // Check for full name match if there are multiple parts (assumes 2 parts max
-                // for simplicity).
-                if (nameParts.length > 1) {
-                    String fullName = current.getFirstName() + " " + current.getLastName();
-                    if (fullName.equalsIgnoreCase(value.trim())) {
-                        // To avoid adding the same node twice if it matches both on individual
-                        // and full name.
-                        if (!matches.contains(current)) {
-                            matches.add(current);
-                        }
-                    }
-                }
-            } else if ("address".equals(criteria)) {
-                if (current.getAddress().equalsIgnoreCase(value)) {
-                    matches.add(current);
-                }
-            } else if ("phoneNumber".equals(criteria)) {
-                if (current.getPhoneNumber().equalsIgnoreCase(value)) {
-                    matches.add(current);
-                }
-            }
-            current = current.getNext();
-        }
-        return matches;
-    }
-
-    /**
-     * Deletes a node from the phone book directly.
-     *
-     * @param nodeToDelete The node to delete.
-     * @return true if the node was deleted, false otherwise.
-     */
-    public boolean deleteNode(ListNode nodeToDelete) {
-        if (head == null || nodeToDelete == null)
-            return false;
-        // Special case: deleting the head node.
-        if (head == nodeToDelete) {
-            head = head.getNext();
-            return true;
-        }
-        ListNode current = head;
-        while (current != null && current.getNext() != null) {
-            if (current.getNext() == nodeToDelete) {
-                current.setNext(current.getNext().getNext());
-                return true;
-            }
-            current = current.getNext();
-        }
-        return false; // Node not found.
-    }
-
-    /**
-     * Returns a string representation of the entire phone book.
-     * Each contact is enumerated as "Contact 1", "Contact 2", etc.
-     *
-     * @return A formatted string containing all entries in the phone book.
-     */
-    @Override
-    public String toString() {
-        String result = "";
-        ListNode current = head;
-        int contactNumber = 1; // Start numbering contacts from 1.
-        while (current != null) {
-            result += "\nContact " + contactNumber + ":\n\n" + current.toString() + "\n";
-            current = current.getNext(); // Move to the next node.
-            contactNumber++; // Increment contact number.
-        }
-        return result;
-    }
+//
+// Author: Caiden Sanders
+// Date: February 14, 2024
+// Class: CS145 Assignment 2
+// Purpose: Manages a phone book as a singly linked list. ALlows adding,
+// deleting, modifying, and searching for entries based on
+// various criteria.
+//
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+public class PhonebookManager {
+    // A batch that inserts or deletes more than 1/REBUILD_RATIO of the
+    // entries rebuilds the list in one pass instead of editing it in place.
+    private static final int REBUILD_RATIO = 16;
+    private static final int DELETE_RANK = Integer.MAX_VALUE; // Sorts after inserts.
+    private ListNode head; // Head of the list.
+    private ListNode tail; // Last node of the list, for O(1) appends.
+    private int size; // Number of entries in the list.
+    private final ContactIndex index = new ContactIndex(); // Exact-match lookups.
+    private final PositionTree positions = new PositionTree(); // Index-based access.
+    private final LongHashMap<ListNode> byId = new LongHashMap<>(); // Entries by ID.
+    private long lastId; // Highest ID given out; IDs are never reused.
+    private long restoredId; // ID for the next entry added, when replaying, or 0.
+    PhonebookJournal journal; // Durable log of mutations, or null if not journaled.
+    private ListNode[] scanOrder; // Entries in list order for scans, or null if stale.
+    // Results of CONTAINS, STARTS_WITH and REGEX scans, or null if disabled.
+    private SearchCache cache;
+    private PhonebookMetrics metrics; // Call counts and latencies, or null if disabled.
+    private int scanned; // Entries read by the last search, for metrics.
+    private long version; // Number of changes made; the sequence number of the last.
+    private PhonebookChangeFeed feed; // Published changes, or null if disabled.
+    private ColdStore coldStore; // Compressed rarely read entries, or null if disabled.
+    // Versions of the open views, with how many are open at each.
+    private final TreeMap<Long, Integer> views = new TreeMap<>();
+    // Older fields of entries edited while views are open, newest first.
+    private final Map<ListNode, PhonebookView.Revision> revisions = new IdentityHashMap<>();
+
+    public PhonebookManager() {
+        this.head = null; // Initially, the list is empty.
+        this.tail = null;
+    }
+
+    /**
+     * Returns the number of entries in the phone book.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the phone book has no entries.
+     *
+     * @return true if the phone book is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a new entry at the beginning of the phone book.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     */
+    public void addEntryAtFront(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        long start = startTimer(PhonebookMetrics.Operation.ADD_ENTRY_AT_FRONT);
+        try {
+            addFront(firstName, lastName, address, city, phoneNumber);
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.ADD_ENTRY_AT_FRONT, start, 0, 0);
+        }
+    }
+
+    /**
+     * Adds a new entry at the beginning of the list, for addEntryAtFront and
+     * addAtIndex, which each time it as their own call.
+     */
+    private void addFront(String firstName, String lastName, String address,
+            String city, String phoneNumber) {
+        ListNode newNode = new ListNode(firstName, lastName, address, city,
+                phoneNumber);
+        newNode.setNext(head);
+        if (head != null) {
+            head.previous = newNode;
+        }
+        head = newNode;
+        if (tail == null) {
+            tail = newNode; // The first entry is both head and tail.
+        }
+        newNode.slot = positions.insert(0, newNode);
+        attach(newNode);
+        changed(PhonebookChange.Kind.ADD, newNode);
+        if (journal != null) {
+            journal.addedAtFront(newNode);
+        }
+    }
+
+    /**
+     * Adds a new entry at the end of the phone book in constant time.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     */
+    public void addEntryAtEnd(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        long start = startTimer(PhonebookMetrics.Operation.ADD_ENTRY_AT_END);
+        try {
+            ListNode newNode = new ListNode(firstName, lastName, address, city,
+                    phoneNumber);
+            if (head == null) {
+                head = newNode; // If list is empty, new node becomes the head.
+            } else {
+                tail.setNext(newNode);
+                newNode.previous = tail;
+            }
+            tail = newNode;
+            newNode.slot = positions.append(newNode);
+            attach(newNode);
+            changed(PhonebookChange.Kind.ADD, newNode);
+            if (journal != null) {
+                journal.addedAtEnd(newNode);
+            }
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.ADD_ENTRY_AT_END, start, 0, 0);
+        }
+    }
+
+    /**
+     * Adds a new entry at a specified index in the phone book. Indexes
+     * outside 0 to size() are ignored.
+     *
+     * @param index       The index at which the entry should be added.
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     */
+    public void addAtIndex(int index, String firstName,
+            String lastName, String address, String city, String phoneNumber) {
+        long start = startTimer(PhonebookMetrics.Operation.ADD_AT_INDEX);
+        try {
+            if (index == 0) {
+                // Add at the front if index is 0.
+                addFront(firstName, lastName, address, city, phoneNumber);
+                return;
+            }
+            if (index < 0 || index > size) {
+                return;
+            }
+            ListNode newNode = new ListNode(firstName, lastName, address, city,
+                    phoneNumber);
+            // The node before the desired position.
+            ListNode current = positions.get(index - 1);
+            newNode.setNext(current.getNext()); // Insert the new node after the current node.
+            current.setNext(newNode); // Current node points to the new node.
+            newNode.previous = current;
+            if (current == tail) {
+                tail = newNode;
+            } else {
+                newNode.getNext().previous = newNode;
+            }
+            newNode.slot = positions.insert(index, newNode);
+            attach(newNode);
+            changed(PhonebookChange.Kind.ADD, newNode);
+            if (journal != null) {
+                journal.addedAt(index, newNode);
+            }
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.ADD_AT_INDEX, start, 0, 0);
+        }
+    }
+
+    /**
+     * Deletes an entry at a specified index in the phone book. Indexes
+     * outside the list are ignored.
+     *
+     * @param index The index of the entry to be deleted.
+     */
+    public void deleteAtIndex(int index) {
+        long start = startTimer(PhonebookMetrics.Operation.DELETE_AT_INDEX);
+        try {
+            if (index < 0 || index >= size)
+                return; // List is empty or index is out of range.
+            remove(index == 0 ? head : positions.get(index), index);
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.DELETE_AT_INDEX, start, 0, 0);
+        }
+    }
+
+    /**
+     * Modifies an existing entry's information by index. Indexes outside the
+     * list are ignored.
+     *
+     * @param index       The index of the entry to modify.
+     * @param firstName   The new first name.
+     * @param lastName    The new last name.
+     * @param address     The new address.
+     * @param city        The new city.
+     * @param phoneNumber The new phone number.
+     */
+    public void modifyEntryAtIndex(int index, String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        long start = startTimer(PhonebookMetrics.Operation.MODIFY_ENTRY_AT_INDEX);
+        try {
+            if (index < 0 || index >= size) {
+                return;
+            }
+            ListNode current = positions.get(index);
+            // Update the details of the nodes at the index.
+            current.update(firstName, lastName, address, city, phoneNumber);
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.MODIFY_ENTRY_AT_INDEX, start, 0, 0);
+        }
+    }
+
+    /**
+     * Returns the entry at an index in O(log n) time.
+     *
+     * @param index The index of the entry.
+     * @return The entry, or null if the index is outside the list.
+     */
+    public ListNode getEntry(int index) {
+        long start = startTimer(PhonebookMetrics.Operation.GET_ENTRY);
+        ListNode entry = index < 0 || index >= size ? null : positions.get(index);
+        stopTimer(PhonebookMetrics.Operation.GET_ENTRY, start, 0, 0);
+        return entry;
+    }
+
+    /**
+     * Searches the phone book for all entries matching the given criteria and
+     * value. Lookups are answered from hash indexes rather than by walking the
+     * list. Names and addresses are matched ignoring case, and phone numbers
+     * are matched on their digits only.
+     *
+     * @param criteria The criteria to search for ("name", "address", "city",
+     *                 or "phoneNumber").
+     * @param value    The value to match against the criteria.
+     * @return All ListNodes matching the criteria, in list order; empty if
+     *         no match is found.
+     */
+    public List<ListNode> searchByCriteria(String criteria, String value) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_CRITERIA);
+        List<ListNode> results = lookup(criteria, value);
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_CRITERIA, start, results.size(),
+                results.size());
+        return results;
+    }
+
+    /**
+     * Answers searchByCriteria(criteria, value) from the indexes, in list
+     * order, as walking the list would.
+     */
+    private List<ListNode> lookup(String criteria, String value) {
+        if (value == null) {
+            return new ArrayList<>();
+        }
+        if ("name".equals(criteria)) {
+            return inListOrder(index.findByName(value));
+        } else if ("address".equals(criteria)) {
+            return inListOrder(index.findByAddress(value));
+        } else if ("city".equals(criteria)) {
+            return inListOrder(index.findByCity(value));
+        } else if ("phoneNumber".equals(criteria)) {
+            return inListOrder(index.findByPhoneNumber(value));
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Sorts entries found in the indexes, which keep them in the order they
+     * were indexed, into list order by their positions.
+     *
+     * @param nodes Entries of this phone book.
+     * @return The same list, sorted.
+     */
+    private List<ListNode> inListOrder(List<ListNode> nodes) {
+        int count = nodes.size();
+        if (count < 2) {
+            return nodes;
+        }
+        // Each key is a position in the high bits and the entry's place in
+        // nodes in the low bits, so sorting the keys sorts the entries.
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) positions.indexOf(nodes.get(i).slot) << 32) | i;
+        }
+        Arrays.sort(keys);
+        ListNode[] sorted = new ListNode[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = nodes.get((int) keys[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            nodes.set(i, sorted[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of distinct cities in the phone book, ignoring case.
+     * Each is stored once and shared by every entry spelling it the same way.
+     *
+     * @return The number of distinct cities.
+     */
+    public int getDistinctCities() {
+        return index.distinctCities();
+    }
+
+    /**
+     * Returns the number of distinct first names in the phone book, ignoring
+     * case. Each is stored once and shared by every entry spelling it the
+     * same way.
+     *
+     * @return The number of distinct first names.
+     */
+    public int getDistinctFirstNames() {
+        return index.distinctFirstNames();
+    }
+
+    /**
+     * Starts caching the results of searches by searchByCriteria(criteria,
+     * value, mode) that scan every entry, replacing any current cache, or
+     * stops caching. EXACT searches are not cached, since the indexes answer
+     * them about as fast as a cache could. A cached result is dropped as
+     * soon as an entry joins or leaves it. Each change to an entry tests it
+     * against every cached search, so large caches slow down changes.
+     *
+     * @param capacity The largest number of results to keep, or 0 to stop
+     *                 caching.
+     * @param policy   How a full cache chooses what to evict.
+     */
+    public void setSearchCache(int capacity, SearchCache.Policy policy) {
+        cache = capacity > 0 ? new SearchCache(capacity, policy) : null;
+    }
+
+    /**
+     * Returns the search cache, whose counters show how well it works.
+     *
+     * @return The cache, or null if searches are not cached.
+     */
+    public SearchCache getSearchCache() {
+        return cache;
+    }
+
+    /**
+     * Starts or stops collecting metrics on calls to the public methods:
+     * call counts, and for a sample of the calls, latency and, for
+     * searches, the entries read and returned. Stopping drops the metrics
+     * collected so far; while stopped, a call costs two null checks.
+     *
+     * @param enabled Whether to collect metrics.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (!enabled) {
+            metrics = null;
+        } else if (metrics == null) {
+            metrics = new PhonebookMetrics(this::size);
+        }
+    }
+
+    /**
+     * Returns the metrics being collected, to read or to register with JMX.
+     *
+     * @return The metrics, or null if they are not being collected.
+     */
+    public PhonebookMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts or stops keeping rarely read entries compressed. While it is
+     * on, sweepColdEntries freezes entries that have not been read for two
+     * sweeps, compressing their last names, addresses and phone numbers in
+     * blocks, and reading a frozen entry's fields decompresses them; an
+     * entry read twice between sweeps is thawed back in full. Stopping
+     * thaws every frozen entry.
+     *
+     * @param enabled Whether to use cold storage.
+     */
+    public void setColdStorage(boolean enabled) {
+        if (enabled) {
+            if (coldStore == null) {
+                coldStore = new ColdStore(this);
+            }
+            return;
+        }
+        for (ListNode current = head; current != null; current = current.getNext()) {
+            current.thaw();
+            current.clock = ColdStore.NEW;
+        }
+        coldStore = null;
+    }
+
+    /**
+     * Returns the cold storage, whose counters show how many entries are
+     * frozen and the heap their blocks take.
+     *
+     * @return The cold storage, or null if it is off.
+     */
+    public ColdStore getColdStore() {
+        return coldStore;
+    }
+
+    /**
+     * Moves the cold storage clock hand over the next entries, in list
+     * order and wrapping round to the head. An entry read since the hand
+     * last passed is kept and marked unread; an entry still unread is
+     * frozen, in blocks of ColdStore.BLOCK_ENTRIES. Sweeping the whole list
+     * twice freezes every entry not read in between. Call it in the
+     * background, or every so many changes; it does nothing while cold
+     * storage is off.
+     *
+     * @param entries The number of entries to look at.
+     * @return The number of entries frozen.
+     */
+    public int sweepColdEntries(int entries) {
+        long start = startTimer(PhonebookMetrics.Operation.SWEEP_COLD_ENTRIES);
+        int count = coldStore == null ? 0 : coldStore.sweep(head, entries);
+        stopTimer(PhonebookMetrics.Operation.SWEEP_COLD_ENTRIES, start, 0, 0);
+        return count;
+    }
+
+    /**
+     * Searches the phone book for all entries whose field matches the value
+     * in the given mode. EXACT searches are answered from the indexes, as by
+     * searchByCriteria(criteria, value). The other modes test every entry,
+     * splitting the list into chunks that are tested in parallel on the
+     * common ForkJoinPool, unless the search cache has the result.
+     *
+     * @param criteria The criteria to search for ("name", "address", "city",
+     *                 or "phoneNumber").
+     * @param value    The value, or for REGEX the regular expression, to
+     *                 match against the criteria.
+     * @param mode     How the value is compared with the field.
+     * @return All ListNodes matching the criteria, in list order; empty if
+     *         no match is found.
+     * @throws java.util.regex.PatternSyntaxException If the mode is REGEX and
+     *                                                the value is not a valid
+     *                                                regular expression.
+     */
+    public List<ListNode> searchByCriteria(String criteria, String value,
+            MatchMode mode) {
+        return scan(criteria, value, mode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Searches as searchByCriteria(criteria, value, mode) does, running the
+     * scan on the given pool.
+     */
+    List<ListNode> scan(String criteria, String value, MatchMode mode,
+            ForkJoinPool pool) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_CRITERIA_MODE);
+        scanned = 0;
+        List<ListNode> results = match(criteria, value, mode, pool);
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_CRITERIA_MODE, start, scanned,
+                results.size());
+        return results;
+    }
+
+    /**
+     * Runs a search for scan, setting scanned to the entries it reads.
+     */
+    private List<ListNode> match(String criteria, String value, MatchMode mode,
+            ForkJoinPool pool) {
+        if (value == null || mode == null || criteria == null) {
+            return new ArrayList<>();
+        }
+        if (mode == MatchMode.EXACT) {
+            List<ListNode> results = lookup(criteria, value);
+            scanned = results.size();
+            return results;
+        }
+        Predicate<ListNode> predicate = ContactScanner.predicate(criteria, value, mode);
+        if (predicate == null) {
+            return new ArrayList<>();
+        }
+        String key = null;
+        if (cache != null) {
+            key = SearchCache.key(criteria, value, mode);
+            List<ListNode> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<ListNode> results = ContactScanner.scan(scanOrder(), predicate, pool);
+        scanned = scanOrder.length;
+        if (key != null) {
+            cache.put(key, predicate, results);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the entries as an array in list order, for scans. The array is
+     * rebuilt only after entries are added or removed; edits change the
+     * nodes in place.
+     */
+    private ListNode[] scanOrder() {
+        if (scanOrder == null) {
+            scanOrder = new ListNode[size];
+            int i = 0;
+            for (ListNode current = head; current != null; current = current.getNext()) {
+                scanOrder[i++] = current;
+            }
+        }
+        return scanOrder;
+    }
+
+    /**
+     * Searches for the entries matching a query that combines conditions on
+     * several fields with AND, OR and NOT. The query is planned first: an
+     * AND fetches the entries of its most selective indexed condition and
+     * tests only those against the rest, and an OR of indexed conditions
+     * joins their entries. Only a query that no index narrows down, such as
+     * a lone substring match, tests every entry, in parallel as
+     * searchByCriteria(criteria, value, mode) does. explainQuery shows the
+     * plan.
+     *
+     * @param query The query.
+     * @return The matching ListNodes, each once, in list order whichever
+     *         plan is chosen. Empty if the query is null.
+     */
+    public List<ListNode> searchByQuery(ContactQuery query) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_QUERY);
+        List<ListNode> results;
+        int visited;
+        if (query == null) {
+            results = new ArrayList<>();
+            visited = 0;
+        } else {
+            QueryPlan plan = plan(query);
+            if (plan.usesIndex()) {
+                results = inListOrder(plan.fetch());
+                visited = plan.read();
+            } else {
+                results = ContactScanner.scan(scanOrder(), plan.predicate(),
+                        ForkJoinPool.commonPool());
+                visited = size;
+            }
+        }
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_QUERY, start, visited,
+                results.size());
+        return results;
+    }
+
+    /**
+     * Describes how searchByQuery would answer a query, without running it:
+     * one line per step of the plan, each with the estimated number of
+     * entries it yields. Counts read from an index are exact; conditions
+     * that no index can count are guessed to match one entry in ten.
+     *
+     * @param query The query.
+     * @return The plan, or an empty string if the query is null.
+     */
+    public String explainQuery(ContactQuery query) {
+        return query == null ? "" : plan(query).explain();
+    }
+
+    private QueryPlan plan(ContactQuery query) {
+        return new QueryPlan(query, index, size, key -> index.sorted(key, head, size));
+    }
+
+    /**
+     * Returns the version of the phone book: the number of changes made to
+     * it, counting each added, modified and deleted entry and each clear.
+     * Editing a ListNode through a setter counts as one change.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Starts publishing every change to a new change feed, replacing and
+     * closing any current feed, or stops publishing. The feed keeps the
+     * most recent changes for subscribers to read on other threads.
+     *
+     * @param capacity The number of recent changes to keep, or 0 to stop
+     *                 publishing.
+     * @param overflow What to do when a subscriber falls a whole buffer
+     *                 behind: make changes wait for it, or drop changes it
+     *                 has not read.
+     */
+    public void setChangeFeed(int capacity, PhonebookChangeFeed.Overflow overflow) {
+        if (feed != null) {
+            feed.close();
+        }
+        feed = capacity > 0 ? new PhonebookChangeFeed(capacity, overflow, version) : null;
+    }
+
+    /**
+     * Returns the change feed, to subscribe to.
+     *
+     * @return The feed, or null if changes are not published.
+     */
+    public PhonebookChangeFeed getChangeFeed() {
+        return feed;
+    }
+
+    /**
+     * Opens a view of the phone book as it is now, which keeps showing this
+     * version while entries are added, deleted and edited, including
+     * through ListNode setters. Opening a view copies nothing once the
+     * entries have been listed for a scan; while views are open, each edit
+     * keeps a copy of the edited entry's old fields for them. Like the rest
+     * of the phone book, a view must not be read while another thread
+     * changes it.
+     *
+     * @return The view, which must be closed when done.
+     */
+    public PhonebookView openView() {
+        long start = startTimer(PhonebookMetrics.Operation.OPEN_VIEW);
+        try {
+            views.merge(version, 1, Integer::sum);
+            return new PhonebookView(this, scanOrder(), version, revisions);
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.OPEN_VIEW, start, 0, 0);
+        }
+    }
+
+    /**
+     * Searches the phone book for entries whose first, last or full name
+     * starts with the given text, ignoring case, for type-ahead lookups.
+     * Results are ordered by the matching name and returned one page at a
+     * time.
+     *
+     * @param prefix The start of the name to look for.
+     * @param offset The number of matching entries to skip, for paging.
+     * @param limit  The largest number of entries to return.
+     * @return Up to limit matching ListNodes; empty if none match.
+     */
+    public List<ListNode> searchByNamePrefix(String prefix, int offset,
+            int limit) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_NAME_PREFIX);
+        List<ListNode> results = prefix == null || offset < 0 || limit <= 0
+                ? new ArrayList<>()
+                : index.findByNamePrefix(prefix, offset, limit);
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_NAME_PREFIX, start,
+                results.size(), results.size());
+        return results;
+    }
+
+    /**
+     * Returns one page of the phone book sorted by name (last name, then
+     * first name), city, or phone number. Names and cities are compared
+     * ignoring case, and phone numbers by their digits, so numbers in the
+     * same area code are together. Entries missing the field come last.
+     * The first call for a field sorts the phone book once into an index
+     * that is kept up to date from then on, so later pages cost
+     * O(log n + limit) however far into the order they are.
+     *
+     * @param criteria The field to sort by ("name", "city", or
+     *                 "phoneNumber").
+     * @param offset   The number of entries to skip, for paging.
+     * @param limit    The largest number of entries to return.
+     * @return Up to limit ListNodes in sorted order; empty for any other
+     *         field.
+     */
+    public List<ListNode> getSorted(String criteria, int offset, int limit) {
+        long start = startTimer(PhonebookMetrics.Operation.GET_SORTED);
+        SortedIndex order = sortedIndex(criteria);
+        List<ListNode> results = order == null || offset < 0 || limit <= 0
+                ? new ArrayList<>()
+                : order.page(offset, limit);
+        stopTimer(PhonebookMetrics.Operation.GET_SORTED, start, results.size(),
+                results.size());
+        return results;
+    }
+
+    /**
+     * Searches for the entries whose field is between two bounds, in sorted
+     * order as getSorted returns them, one page at a time. The range runs
+     * from the lower bound up to and including every value starting with
+     * the upper bound, so last names from "M" to "O" include "Olsen", and
+     * phone numbers from "253" to "254" cover both area codes. Entries
+     * missing the field are never in a range. Takes O(log n + limit).
+     *
+     * @param criteria The field to search ("name" for the last name,
+     *                 "city", or "phoneNumber").
+     * @param from     The lower bound, or null for none.
+     * @param to       The upper bound, or null for none.
+     * @param offset   The number of matching entries to skip, for paging.
+     * @param limit    The largest number of entries to return.
+     * @return Up to limit matching ListNodes; empty if none match, or if a
+     *         phone number bound has no digits.
+     */
+    public List<ListNode> searchByRange(String criteria, String from, String to,
+            int offset, int limit) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_RANGE);
+        SortedIndex order = sortedIndex(criteria);
+        List<ListNode> results = order == null || offset < 0 || limit <= 0
+                ? new ArrayList<>()
+                : order.range(from, to, offset, limit);
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_RANGE, start, results.size(),
+                results.size());
+        return results;
+    }
+
+    /**
+     * Counts the entries that searchByRange would find between two bounds,
+     * in O(log n), for showing the number of pages.
+     *
+     * @param criteria The field to search ("name", "city", or
+     *                 "phoneNumber").
+     * @param from     The lower bound, or null for none.
+     * @param to       The upper bound, or null for none.
+     * @return The number of matching entries.
+     */
+    public int countInRange(String criteria, String from, String to) {
+        long start = startTimer(PhonebookMetrics.Operation.COUNT_IN_RANGE);
+        SortedIndex order = sortedIndex(criteria);
+        int count = order == null ? 0 : order.count(from, to);
+        stopTimer(PhonebookMetrics.Operation.COUNT_IN_RANGE, start, 0, count);
+        return count;
+    }
+
+    /**
+     * Returns the sorted index for a field, building it on first use.
+     */
+    private SortedIndex sortedIndex(String criteria) {
+        if ("name".equals(criteria)) {
+            return index.sorted(SortedIndex.Key.NAME, head, size);
+        } else if ("city".equals(criteria)) {
+            return index.sorted(SortedIndex.Key.CITY, head, size);
+        } else if ("phoneNumber".equals(criteria)) {
+            return index.sorted(SortedIndex.Key.PHONE, head, size);
+        }
+        return null;
+    }
+
+    /**
+     * Searches for entries by a name that may be misspelled. Each
+     * whitespace-separated part of the name must be within maxDistance
+     * single-character insertions, deletions or substitutions of the entry's
+     * first or last name, ignoring case, so "Sandres" finds "Sanders" with a
+     * distance of 2. Candidate names come from an index of the distinct
+     * names, so the cost does not grow with the number of entries.
+     *
+     * @param name        The name to look for.
+     * @param maxDistance The largest edit distance allowed for each part.
+     * @return The matching ListNodes, closest first; exact matches come
+     *         before all others.
+     */
+    public List<ListNode> searchByNameFuzzy(String name, int maxDistance) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_NAME_FUZZY);
+        List<ListNode> results = name == null || maxDistance < 0
+                ? new ArrayList<>()
+                : index.findByNameFuzzy(name, maxDistance);
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_NAME_FUZZY, start,
+                results.size(), results.size());
+        return results;
+    }
+
+    /**
+     * Searches for entries whose names sound like the given name: each
+     * whitespace-separated part must have the same Soundex code as the
+     * entry's first or last name, so "Smyth" finds "Smith".
+     *
+     * @param name The name to look for.
+     * @return The matching ListNodes, closest in spelling first.
+     */
+    public List<ListNode> searchByNameSoundsLike(String name) {
+        long start = startTimer(PhonebookMetrics.Operation.SEARCH_BY_NAME_SOUNDS_LIKE);
+        List<ListNode> results = name == null
+                ? new ArrayList<>()
+                : index.findByNameSoundsLike(name);
+        stopTimer(PhonebookMetrics.Operation.SEARCH_BY_NAME_SOUNDS_LIKE, start,
+                results.size(), results.size());
+        return results;
+    }
+
+    /**
+     * Deletes a node from the phone book directly.
+     *
+     * @param nodeToDelete The node to delete.
+     * @return true if the node was deleted, false otherwise.
+     */
+    public boolean deleteNode(ListNode nodeToDelete) {
+        long start = startTimer(PhonebookMetrics.Operation.DELETE_NODE);
+        try {
+            if (nodeToDelete == null || nodeToDelete.owner != this)
+                return false; // Node not found.
+            remove(nodeToDelete, positions.indexOf(nodeToDelete.slot));
+            return true;
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.DELETE_NODE, start, 0, 0);
+        }
+    }
+
+    /**
+     * Returns the entry with an ID, as given by ListNode.getId, in O(1).
+     * Unlike an index, an ID keeps naming the same entry while others are
+     * added and deleted.
+     *
+     * @param id The ID of the entry.
+     * @return The entry, or null if no entry in the phone book has the ID.
+     */
+    public ListNode getById(long id) {
+        long start = startTimer(PhonebookMetrics.Operation.GET_BY_ID);
+        ListNode entry = id <= 0 ? null : byId.get(id);
+        stopTimer(PhonebookMetrics.Operation.GET_BY_ID, start, 0, 0);
+        return entry;
+    }
+
+    /**
+     * Replaces the information of the entry with an ID. The entry is found
+     * in O(1), without a search or a walk of the list.
+     *
+     * @param id          The ID of the entry to modify.
+     * @param firstName   The new first name.
+     * @param lastName    The new last name.
+     * @param address     The new address.
+     * @param city        The new city.
+     * @param phoneNumber The new phone number.
+     * @return true if the entry was modified, false if no entry has the ID.
+     */
+    public boolean modifyById(long id, String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        long start = startTimer(PhonebookMetrics.Operation.MODIFY_BY_ID);
+        try {
+            ListNode entry = id <= 0 ? null : byId.get(id);
+            if (entry == null) {
+                return false;
+            }
+            entry.update(firstName, lastName, address, city, phoneNumber);
+            return true;
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.MODIFY_BY_ID, start, 0, 0);
+        }
+    }
+
+    /**
+     * Deletes the entry with an ID. The entry is found in O(1) and unlinked
+     * from its neighbors directly; only the position tree behind the
+     * index-based methods takes O(log n) to update.
+     *
+     * @param id The ID of the entry to delete.
+     * @return true if the entry was deleted, false if no entry has the ID.
+     */
+    public boolean deleteById(long id) {
+        long start = startTimer(PhonebookMetrics.Operation.DELETE_BY_ID);
+        try {
+            ListNode entry = id <= 0 ? null : byId.get(id);
+            if (entry == null) {
+                return false;
+            }
+            remove(entry, positions.indexOf(entry.slot));
+            return true;
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.DELETE_BY_ID, start, 0, 0);
+        }
+    }
+
+    /**
+     * Applies a batch of inserts, modifications and deletions as one change.
+     * Every index in the batch refers to a position before the batch, and
+     * the whole batch is checked before anything changes: if any mutation
+     * is invalid, none is applied. Modifications are applied in place.
+     * Inserts and deletes are applied from the highest index down, so each
+     * takes logarithmic time, or, for a batch that touches a large share of
+     * the entries, by rebuilding the list in a single pass. A journal logs
+     * the batch as a single record, so recovery replays all of it or none.
+     *
+     * @param mutations The changes to make.
+     * @throws IllegalArgumentException If a mutation is null, an index is out
+     *                                  of range, an entry is not in this phone
+     *                                  book, or two mutations modify or delete
+     *                                  the same entry.
+     */
+    public void applyBatch(List<PhonebookMutation> mutations) {
+        long start = startTimer(PhonebookMetrics.Operation.APPLY_BATCH);
+        try {
+            int count = mutations.size();
+            int[] targets = new int[count];
+            int[] changed = new int[count]; // Targets of modifications and deletions.
+            int changes = 0;
+            int structural = 0;
+            for (int i = 0; i < count; i++) {
+                PhonebookMutation mutation = mutations.get(i);
+                if (mutation == null) {
+                    throw new IllegalArgumentException("Mutation " + i + " is null");
+                }
+                int target;
+                if (mutation.entry != null) {
+                    if (mutation.entry.owner != this) {
+                        throw new IllegalArgumentException(mutation
+                                + ": the entry is not in this phone book");
+                    }
+                    target = positions.indexOf(mutation.entry.slot);
+                } else {
+                    target = mutation.index == PhonebookMutation.END ? size : mutation.index;
+                }
+                boolean insert = mutation.kind == PhonebookMutation.Kind.INSERT;
+                if (insert ? target > size : target >= size) {
+                    throw new IllegalArgumentException(mutation
+                            + ": index out of range for " + size + " entries");
+                }
+                targets[i] = target;
+                if (!insert) {
+                    changed[changes++] = target;
+                }
+                if (mutation.kind != PhonebookMutation.Kind.MODIFY) {
+                    structural++;
+                }
+            }
+            Arrays.sort(changed, 0, changes);
+            for (int i = 1; i < changes; i++) {
+                if (changed[i] == changed[i - 1]) {
+                    throw new IllegalArgumentException(
+                            "More than one change to the entry at index " + changed[i]);
+                }
+            }
+
+            if (journal != null) {
+                journal.beginBatch(); // Logged as one record, so replayed whole.
+            }
+            try {
+                applyChecked(mutations, targets, structural);
+            } finally {
+                if (journal != null) {
+                    journal.endBatch();
+                }
+            }
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.APPLY_BATCH, start, 0, 0);
+        }
+    }
+
+    /**
+     * Applies a batch that applyBatch has checked.
+     *
+     * @param targets    The position before the batch of each mutation.
+     * @param structural The number of inserts and deletes.
+     */
+    private void applyChecked(List<PhonebookMutation> mutations, int[] targets,
+            int structural) {
+        int count = mutations.size();
+        // Modifications first, while every entry is still at its old index.
+        for (int i = 0; i < count; i++) {
+            PhonebookMutation mutation = mutations.get(i);
+            if (mutation.kind == PhonebookMutation.Kind.MODIFY) {
+                ListNode node = mutation.entry != null ? mutation.entry
+                        : positions.get(targets[i]);
+                node.update(mutation.firstName, mutation.lastName,
+                        mutation.address, mutation.city, mutation.phoneNumber);
+            }
+        }
+        if (structural == 0) {
+            return;
+        }
+
+        // Each step is an old index in the high bits and, in the low bits,
+        // either the mutation number of an insert or DELETE_RANK. Walked in
+        // reverse, every step finds the entries below it still in place,
+        // and inserts at one index come out in batch order.
+        long[] plan = new long[structural];
+        int steps = 0;
+        for (int i = 0; i < count; i++) {
+            PhonebookMutation.Kind kind = mutations.get(i).kind;
+            if (kind != PhonebookMutation.Kind.MODIFY) {
+                int rank = kind == PhonebookMutation.Kind.DELETE ? DELETE_RANK : i;
+                plan[steps++] = ((long) targets[i] << 32) | rank;
+            }
+        }
+        Arrays.sort(plan);
+        if ((long) structural * REBUILD_RATIO <= size) {
+            for (int s = plan.length - 1; s >= 0; s--) {
+                int target = (int) (plan[s] >>> 32);
+                int rank = (int) plan[s];
+                if (rank == DELETE_RANK) {
+                    deleteAtIndex(target);
+                } else {
+                    PhonebookMutation mutation = mutations.get(rank);
+                    addAtIndex(target, mutation.firstName, mutation.lastName,
+                            mutation.address, mutation.city, mutation.phoneNumber);
+                }
+            }
+        } else {
+            rebuild(mutations, plan);
+        }
+    }
+
+    /**
+     * Applies the inserts and deletes of a batch by walking the list once,
+     * building the new order, and relinking every node and its position.
+     * The journal receives the same records as applying the plan step by
+     * step would produce.
+     */
+    private void rebuild(List<PhonebookMutation> mutations, long[] plan) {
+        int oldSize = size;
+        ListNode[] inserted = new ListNode[mutations.size()];
+        ListNode[] order = new ListNode[oldSize + plan.length];
+        int length = 0;
+        int step = 0;
+        ListNode current = head;
+        for (int position = 0; position <= oldSize; position++) {
+            boolean delete = false;
+            for (; step < plan.length && (int) (plan[step] >>> 32) == position; step++) {
+                int rank = (int) plan[step];
+                if (rank == DELETE_RANK) {
+                    delete = true;
+                } else {
+                    PhonebookMutation mutation = mutations.get(rank);
+                    inserted[rank] = new ListNode(mutation.firstName,
+                            mutation.lastName, mutation.address, mutation.city,
+                            mutation.phoneNumber);
+                    order[length++] = inserted[rank];
+                }
+            }
+            if (position == oldSize) {
+                break;
+            }
+            ListNode next = current.getNext();
+            if (delete) {
+                changed(PhonebookChange.Kind.DELETE, current);
+                detach(current);
+            } else {
+                order[length++] = current;
+            }
+            current = next;
+        }
+
+        positions.clear();
+        for (int i = 0; i < length; i++) {
+            order[i].setNext(i + 1 < length ? order[i + 1] : null);
+            order[i].previous = i > 0 ? order[i - 1] : null;
+            order[i].slot = positions.append(order[i]);
+        }
+        head = length > 0 ? order[0] : null;
+        tail = length > 0 ? order[length - 1] : null;
+        for (int i = 0; i < length; i++) {
+            if (order[i].owner == null) { // Inserted by the batch; in list order, so
+                attach(order[i]); // each ADD change follows its previous entry.
+                changed(PhonebookChange.Kind.ADD, order[i]);
+            }
+        }
+        if (journal != null) {
+            for (int s = plan.length - 1; s >= 0; s--) {
+                int target = (int) (plan[s] >>> 32);
+                int rank = (int) plan[s];
+                if (rank == DELETE_RANK) {
+                    journal.deletedAt(target);
+                } else {
+                    journal.addedAt(target, inserted[rank]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a call to a public method and, if the call is sampled, returns
+     * its start time for stopTimer.
+     *
+     * @param operation The method called.
+     * @return The start time, or 0 if the call is not timed.
+     */
+    private long startTimer(PhonebookMetrics.Operation operation) {
+        return metrics == null ? 0 : metrics.start(operation);
+    }
+
+    /**
+     * Records a call timed by startTimer.
+     *
+     * @param operation The method called.
+     * @param start     The time returned by startTimer.
+     * @param visited   The entries the call read.
+     * @param results   The entries the call returned.
+     */
+    private void stopTimer(PhonebookMetrics.Operation operation, long start,
+            int visited, int results) {
+        if (start != 0 && metrics != null) {
+            metrics.stop(operation, start, visited, results);
+        }
+    }
+
+    /**
+     * Called by a node owned by this manager just before one of its fields
+     * changes, so that it can be removed from the indexes under its old keys.
+     *
+     * @param node The node about to change.
+     */
+    void nodeChanging(ListNode node) {
+        index.remove(node);
+        if (cache != null) {
+            cache.beforeChange(node);
+        }
+        if (!views.isEmpty()) {
+            PhonebookView.Revision newest = revisions.get(node);
+            // Fields written after the newest view opened are in no view.
+            if (newest == null || newest.until <= views.lastKey()) {
+                PhonebookView.Revision revision =
+                        new PhonebookView.Revision(version + 1, node, newest);
+                revision.prune(views.firstKey());
+                revisions.put(node, revision);
+            }
+        }
+    }
+
+    /**
+     * Called by a node owned by this manager after one of its fields has
+     * changed, so that it can be re-indexed under its new keys.
+     *
+     * @param node The node that changed.
+     */
+    void nodeChanged(ListNode node) {
+        index.add(node);
+        if (cache != null) {
+            cache.afterChange(node);
+        }
+        changed(PhonebookChange.Kind.MODIFY, node);
+        if (journal != null) {
+            journal.modifiedAt(positions.indexOf(node.slot), node);
+        }
+    }
+
+    /**
+     * Appends a batch of new nodes to the end of the list in order, for bulk
+     * loads that already hold the nodes.
+     *
+     * @param nodes The new nodes; they must not belong to any list.
+     * @param count The number of nodes, from the start of the array.
+     */
+    void appendAll(ListNode[] nodes, int count) {
+        for (int i = 0; i < count; i++) {
+            ListNode node = nodes[i];
+            if (head == null) {
+                head = node;
+            } else {
+                tail.setNext(node);
+                node.previous = tail;
+            }
+            tail = node;
+            node.slot = positions.append(node);
+            node.owner = this;
+            assignId(node);
+            index.add(node);
+            if (cache != null) {
+                cache.invalidate(node);
+            }
+            changed(PhonebookChange.Kind.ADD, node);
+        }
+        size += count;
+        scanOrder = null;
+        if (journal != null) {
+            for (int i = 0; i < count; i++) {
+                journal.addedAtEnd(nodes[i]);
+            }
+        }
+    }
+
+    /**
+     * Counts a change to the phone book and publishes it to the change feed.
+     *
+     * @param kind What changed.
+     * @param node The entry added, modified or deleted, or null for CLEAR. An
+     *             added entry must already be linked after its previous one.
+     */
+    private void changed(PhonebookChange.Kind kind, ListNode node) {
+        version++;
+        if (feed != null) {
+            long previousId = kind == PhonebookChange.Kind.ADD && node.previous != null
+                    ? node.previous.id : 0;
+            feed.publish(new PhonebookChange(version, kind, node, previousId));
+        }
+    }
+
+    /**
+     * Forgets a closed view, and once no view is open, every revision kept
+     * for the open views.
+     *
+     * @param version The view's version.
+     */
+    void closeView(long version) {
+        if (views.merge(version, -1, Integer::sum) == 0) {
+            views.remove(version);
+        }
+        if (views.isEmpty()) {
+            revisions.clear();
+        }
+    }
+
+    /**
+     * Sets the ID of the next entry added, so that replaying a journal or
+     * reading a snapshot gives entries back the IDs they had. If another
+     * entry already has the ID, the new entry gets a new one instead.
+     *
+     * @param id The ID, or 0 to give out the next unused one.
+     */
+    void restoreId(long id) {
+        restoredId = id;
+    }
+
+    /**
+     * Returns the highest ID given out so far, for snapshots.
+     *
+     * @return The highest ID, or 0 if no entry was ever added.
+     */
+    long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Raises the highest ID given out, so that IDs of entries deleted before
+     * a snapshot are not given out again after reading it.
+     *
+     * @param id The highest ID recorded in the snapshot.
+     */
+    void restoreLastId(long id) {
+        lastId = Math.max(lastId, id);
+    }
+
+    /**
+     * Unlinks a node from the list through its neighbors and releases it.
+     *
+     * @param node  The node to remove.
+     * @param index The node's position.
+     */
+    private void remove(ListNode node, int index) {
+        ListNode previous = node.previous;
+        ListNode next = node.getNext();
+        if (previous == null) {
+            head = next;
+        } else {
+            previous.setNext(next);
+        }
+        if (next == null) {
+            tail = previous;
+        } else {
+            next.previous = previous;
+        }
+        positions.remove(index);
+        changed(PhonebookChange.Kind.DELETE, node);
+        detach(node);
+        if (journal != null) {
+            journal.deletedAt(index);
+        }
+    }
+
+    /**
+     * Gives a node that is joining the list its ID and files it under that
+     * ID.
+     *
+     * @param node The new node.
+     */
+    private void assignId(ListNode node) {
+        long id = restoredId;
+        restoredId = 0;
+        if (id <= 0 || byId.get(id) != null) {
+            id = lastId + 1;
+        }
+        node.id = id;
+        lastId = Math.max(lastId, id);
+        byId.put(id, node);
+    }
+
+    /**
+     * Takes ownership of a node that has just been linked into the list and
+     * the position tree.
+     *
+     * @param node The new node.
+     */
+    private void attach(ListNode node) {
+        node.owner = this;
+        assignId(node);
+        index.add(node);
+        if (cache != null) {
+            cache.invalidate(node);
+        }
+        size++;
+        scanOrder = null;
+    }
+
+    /**
+     * Releases a node that has just been unlinked from the list. Later edits
+     * to the node no longer affect this manager's indexes.
+     *
+     * @param node The removed node.
+     */
+    private void detach(ListNode node) {
+        node.thaw(); // Its block must not keep it alive.
+        index.remove(node);
+        byId.remove(node.id);
+        if (cache != null) {
+            cache.invalidate(node);
+        }
+        node.owner = null;
+        node.slot = null;
+        node.previous = null;
+        node.setNext(null);
+        size--;
+        scanOrder = null;
+    }
+
+    /**
+     * Removes every entry from the phone book.
+     */
+    public void clear() {
+        long start = startTimer(PhonebookMetrics.Operation.CLEAR);
+        try {
+            ListNode current = head;
+            while (current != null) {
+                ListNode next = current.getNext();
+                current.thaw(); // As in detach, its block must not keep it alive.
+                // Later edits to removed nodes must not touch the indexes.
+                current.owner = null;
+                current.slot = null;
+                current.firstNameCode = FieldDictionary.NONE;
+                current.cityCode = FieldDictionary.NONE;
+                current.nameOrder = null;
+                current.cityOrder = null;
+                current.phoneOrder = null;
+                current.previous = null;
+                current.setNext(null);
+                current = next;
+            }
+            head = null;
+            tail = null;
+            size = 0;
+            scanOrder = null;
+            index.clear();
+            byId.clear();
+            if (cache != null) {
+                cache.clear();
+            }
+            positions.clear();
+            if (coldStore != null) {
+                coldStore = new ColdStore(this); // Forgets the hand and pending entries.
+            }
+            changed(PhonebookChange.Kind.CLEAR, null);
+            if (journal != null) {
+                journal.cleared();
+            }
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.CLEAR, start, 0, 0);
+        }
+    }
+
+    /**
+     * Saves every entry of the phone book to a binary snapshot file.
+     *
+     * @param file The snapshot file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        long start = startTimer(PhonebookMetrics.Operation.SAVE);
+        try {
+            PhonebookSnapshot.write(head, size, 0, lastId, file);
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.SAVE, start, size, size);
+        }
+    }
+
+    /**
+     * Replaces the contents of the phone book with the entries of a binary
+     * snapshot file written by save. If the snapshot cannot be read, the
+     * phone book is left empty.
+     *
+     * @param file The snapshot file to read.
+     * @throws IOException If the file cannot be read or is not a valid
+     *                     snapshot.
+     */
+    public void load(Path file) throws IOException {
+        long start = startTimer(PhonebookMetrics.Operation.LOAD);
+        try {
+            clear();
+            try {
+                PhonebookSnapshot.read(file, this);
+            } catch (IOException e) {
+                clear();
+                throw e;
+            }
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.LOAD, start, 0, 0);
+        }
+    }
+
+    /**
+     * Appends every contact in a comma-separated file, or a tab-separated
+     * file if its name ends in .tsv, to the end of the phone book. Each line
+     * holds first name, last name, address, city and phone number; a header
+     * line naming those fields is skipped. The file is parsed on a separate
+     * thread while the entries are added. If any line is malformed, no
+     * contacts are added.
+     *
+     * @param file The file to import, in UTF-8.
+     * @return The number of contacts imported.
+     * @throws IOException If the file cannot be read or is malformed.
+     */
+    public int importContacts(Path file) throws IOException {
+        long start = startTimer(PhonebookMetrics.Operation.IMPORT_CONTACTS);
+        try {
+            return ContactCsv.read(file, ContactCsv.delimiterFor(file), this);
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.IMPORT_CONTACTS, start, 0, 0);
+        }
+    }
+
+    /**
+     * Writes every entry to a comma-separated file, or a tab-separated file
+     * if its name ends in .tsv, in the format read by importContacts.
+     *
+     * @param file The file to write, in UTF-8.
+     * @throws IOException If the file cannot be written.
+     */
+    public void exportContacts(Path file) throws IOException {
+        long start = startTimer(PhonebookMetrics.Operation.EXPORT_CONTACTS);
+        try {
+            ContactCsv.write(head, file, ContactCsv.delimiterFor(file));
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.EXPORT_CONTACTS, start, size, size);
+        }
+    }
+
+    /**
+     * Returns the first node of the list, for package-level readers that
+     * need to walk every entry.
+     *
+     * @return The head of the list, or null if the phone book is empty.
+     */
+    ListNode getHead() {
+        return head;
+    }
+
+    /**
+     * Writes every entry of the phone book to a writer, in the same format as
+     * toString, without building the whole text in memory. Each entry is
+     * formatted into one reused buffer and then copied to the writer.
+     *
+     * @param out The writer to write to. It is not flushed or closed.
+     * @throws IOException If the writer fails.
+     */
+    public void writeTo(Writer out) throws IOException {
+        long start = startTimer(PhonebookMetrics.Operation.WRITE_TO);
+        try {
+            StringBuilder entry = new StringBuilder(128);
+            char[] chars = new char[128];
+            ListNode current = head;
+            int contactNumber = 1; // Start numbering contacts from 1.
+            while (current != null) {
+                entry.setLength(0);
+                appendEntry(entry, contactNumber, current);
+                if (chars.length < entry.length()) {
+                    chars = new char[entry.length() * 2]; // Grow for unusually long entries.
+                }
+                entry.getChars(0, entry.length(), chars, 0);
+                out.write(chars, 0, entry.length());
+                current = current.getNext(); // Move to the next node.
+                contactNumber++; // Increment contact number.
+            }
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.WRITE_TO, start, size, size);
+        }
+    }
+
+    /**
+     * Writes every entry of the phone book to an output stream as UTF-8, in
+     * the same format as toString.
+     *
+     * @param out The stream to write to. It is flushed but not closed.
+     * @throws IOException If the stream fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out,
+                StandardCharsets.UTF_8));
+        writeTo(writer);
+        writer.flush();
+    }
+
+    /**
+     * Returns a string representation of the entire phone book.
+     * Each contact is enumerated as "Contact 1", "Contact 2", etc.
+     *
+     * @return A formatted string containing all entries in the phone book.
+     */
+    @Override
+    public String toString() {
+        long start = startTimer(PhonebookMetrics.Operation.TO_STRING);
+        try {
+            StringBuilder result = new StringBuilder();
+            ListNode current = head;
+            int contactNumber = 1; // Start numbering contacts from 1.
+            while (current != null) {
+                appendEntry(result, contactNumber, current);
+                current = current.getNext(); // Move to the next node.
+                contactNumber++; // Increment contact number.
+            }
+            return result.toString();
+        } finally {
+            stopTimer(PhonebookMetrics.Operation.TO_STRING, start, size, size);
+        }
+    }
+
+    /**
+     * Appends one numbered entry, formatted as "Contact n:" followed by the
+     * node's details.
+     */
+    private static void appendEntry(StringBuilder out, int contactNumber,
+            ListNode node) {
+        out.append("\nContact ").append(contactNumber).append(":\n\n");
+        node.appendTo(out);
+        out.append('\n');
+    }
 }
\ No newline at end of file
@@ -0,0 +1,636 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Runtime metrics for a PhonebookManager: how often each public
+// operation is called, and histograms of its latency, of the entries
+// it reads and of the entries it returns. Every call is counted, but to
+// keep the cost to a few nanoseconds per call only one call in
+// sampleInterval of each operation is timed; the first call always is.
+// An untimed call only decrements a countdown: the calls since the last
+// timed one are added to the call count together.
+// Histograms are log-linear, HdrHistogram style: eight buckets per
+// power of two, so any recorded value is within 12.5% of the truth.
+// The numbers can be read through JMX, with one MXBean for the phone
+// book and one per operation, or as a text dump in the Prometheus
+// exposition format. Updates come from the manager's thread; readers
+// on other threads see them without locking.
+//
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class PhonebookMetrics {
+    // One call in this many is timed, unless changed.
+    static final int DEFAULT_SAMPLE_INTERVAL = 128;
+
+    /**
+     * The instrumented operations, one per public PhonebookManager method.
+     */
+    public enum Operation {
+        ADD_ENTRY_AT_FRONT("addEntryAtFront", false),
+        ADD_ENTRY_AT_END("addEntryAtEnd", false),
+        ADD_AT_INDEX("addAtIndex", false),
+        DELETE_AT_INDEX("deleteAtIndex", false),
+        DELETE_NODE("deleteNode", false),
+        MODIFY_ENTRY_AT_INDEX("modifyEntryAtIndex", false),
+        GET_ENTRY("getEntry", false),
+        GET_BY_ID("getById", false),
+        MODIFY_BY_ID("modifyById", false),
+        DELETE_BY_ID("deleteById", false),
+        SEARCH_BY_CRITERIA("searchByCriteria", true),
+        SEARCH_BY_CRITERIA_MODE("searchByCriteria(mode)", true),
+        SEARCH_BY_NAME_PREFIX("searchByNamePrefix", true),
+        SEARCH_BY_NAME_FUZZY("searchByNameFuzzy", true),
+        SEARCH_BY_NAME_SOUNDS_LIKE("searchByNameSoundsLike", true),
+        GET_SORTED("getSorted", true),
+        SEARCH_BY_RANGE("searchByRange", true),
+        COUNT_IN_RANGE("countInRange", true),
+        SEARCH_BY_QUERY("searchByQuery", true),
+        OPEN_VIEW("openView", false),
+        SWEEP_COLD_ENTRIES("sweepColdEntries", false),
+        APPLY_BATCH("applyBatch", false),
+        CLEAR("clear", false),
+        SAVE("save", true),
+        LOAD("load", false),
+        IMPORT_CONTACTS("importContacts", false),
+        EXPORT_CONTACTS("exportContacts", true),
+        WRITE_TO("writeTo", true),
+        TO_STRING("toString", true);
+
+        private final String method;
+        // Whether the entries the operation reads and returns are recorded:
+        // true for searches, and for saves and exports, which write them.
+        private final boolean counted;
+
+        Operation(String method, boolean counted) {
+            this.method = method;
+            this.counted = counted;
+        }
+
+        /**
+         * Returns the name of the PhonebookManager method.
+         *
+         * @return The method name; "searchByCriteria(mode)" for the search
+         *         that takes a MatchMode.
+         */
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    /**
+     * The JMX view of a phone book's metrics.
+     */
+    public interface PhonebookMXBean {
+        int getSize();
+
+        long getCalls();
+
+        int getSampleInterval();
+
+        void setSampleInterval(int sampleInterval);
+
+        String dump();
+
+        void reset();
+    }
+
+    /**
+     * The JMX view of one operation's metrics. Latencies are in
+     * microseconds and come from the sampled calls only.
+     */
+    public interface OperationMXBean {
+        String getMethod();
+
+        long getCalls();
+
+        long getSampledCalls();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP99Micros();
+
+        double getP999Micros();
+
+        double getMaxMicros();
+
+        double getMeanVisited();
+
+        double getMeanResults();
+
+        long getP99Results();
+    }
+
+    private final IntSupplier size;
+    private final Stats[] stats = new Stats[Operation.values().length];
+    private volatile int sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private ObjectName[] registered; // Names registered with JMX, or null.
+
+    /**
+     * Creates empty metrics for a phone book.
+     *
+     * @param size Reports the number of entries in the phone book.
+     */
+    PhonebookMetrics(IntSupplier size) {
+        this.size = size;
+        for (Operation operation : Operation.values()) {
+            stats[operation.ordinal()] = new Stats(operation);
+        }
+    }
+
+    /**
+     * Counts a call to an operation, and starts timing it if it is sampled.
+     *
+     * @param operation The operation called.
+     * @return The start time in nanoseconds for stop, or 0 if the call is not
+     *         timed.
+     */
+    long start(Operation operation) {
+        Stats s = stats[operation.ordinal()];
+        if (--s.untilSample > 0) {
+            return 0;
+        }
+        s.calls.add(s.period);
+        s.period = sampleInterval;
+        s.untilSample = s.period;
+        long start = System.nanoTime();
+        return start == 0 ? 1 : start;
+    }
+
+    /**
+     * Records a timed call once it has finished.
+     *
+     * @param operation The operation called.
+     * @param start     The time returned by start.
+     * @param visited   The entries the call read.
+     * @param results   The entries the call returned.
+     */
+    void stop(Operation operation, long start, int visited, int results) {
+        long nanos = System.nanoTime() - start;
+        Stats s = stats[operation.ordinal()];
+        s.latency.record(nanos);
+        if (operation.counted) {
+            s.visited.record(visited);
+            s.results.record(results);
+        }
+    }
+
+    /**
+     * Returns the metrics of one operation.
+     *
+     * @param operation The operation.
+     * @return Its counters and histograms.
+     */
+    public OperationMXBean get(Operation operation) {
+        return new OperationView(operation);
+    }
+
+    /**
+     * Returns the number of entries in the phone book.
+     *
+     * @return The size.
+     */
+    public int getSize() {
+        return size.getAsInt();
+    }
+
+    /**
+     * Returns the number of calls to every operation together.
+     *
+     * @return The call count.
+     */
+    public long getCalls() {
+        long calls = 0;
+        for (Stats s : stats) {
+            calls += s.getCalls();
+        }
+        return calls;
+    }
+
+    /**
+     * Returns how many calls of each operation there are per timed call.
+     *
+     * @return The sample interval.
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets how many calls of each operation there are per timed call.
+     *
+     * @param sampleInterval 1 to time every call, or more to time fewer.
+     */
+    public void setSampleInterval(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1: "
+                    + sampleInterval);
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Forgets every count and histogram.
+     */
+    public void reset() {
+        for (Operation operation : Operation.values()) {
+            stats[operation.ordinal()] = new Stats(operation);
+        }
+    }
+
+    /**
+     * Returns every metric in the Prometheus text exposition format: a gauge
+     * of the entries, a counter of the calls to each operation, and
+     * summaries with the 50th, 99th and 99.9th percentiles of the sampled
+     * latencies in seconds and, for searches and exports, of the entries
+     * read and returned. Operations never called are left out.
+     *
+     * @return The metrics, one per line.
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP phonebook_entries Entries in the phone book.\n")
+                .append("# TYPE phonebook_entries gauge\n")
+                .append("phonebook_entries ").append(getSize()).append('\n');
+        out.append("# HELP phonebook_calls_total Calls to each operation.\n")
+                .append("# TYPE phonebook_calls_total counter\n");
+        for (Stats s : stats) {
+            long calls = s.getCalls();
+            if (calls > 0) {
+                out.append("phonebook_calls_total{operation=\"")
+                        .append(s.operation.method).append("\"} ")
+                        .append(calls).append('\n');
+            }
+        }
+        summary(out, "phonebook_latency_seconds", "Latency of sampled calls.",
+                s -> s.latency, 1e-9);
+        summary(out, "phonebook_visited_entries",
+                "Entries read by sampled searches and exports.", s -> s.visited, 1);
+        summary(out, "phonebook_result_entries",
+                "Entries returned or written by sampled searches and exports.",
+                s -> s.results, 1);
+        return out.toString();
+    }
+
+    /**
+     * Registers the phone book's MXBean and one per operation with the
+     * platform MBean server, as Phonebook:type=Metrics,name=... and
+     * Phonebook:type=Operation,name=...,operation=....
+     *
+     * @param name Tells this phone book apart from others in the same JVM.
+     * @throws JMException If the names are taken or invalid.
+     */
+    public void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName[] names = new ObjectName[stats.length + 1];
+        String quoted = ObjectName.quote(name);
+        names[0] = new ObjectName("Phonebook:type=Metrics,name=" + quoted);
+        server.registerMBean(new MetricsView(), names[0]);
+        registered = names;
+        for (Stats s : stats) {
+            ObjectName objectName = new ObjectName("Phonebook:type=Operation,name="
+                    + quoted + ",operation=" + ObjectName.quote(s.operation.method));
+            server.registerMBean(new OperationView(s.operation), objectName);
+            names[s.operation.ordinal() + 1] = objectName;
+        }
+    }
+
+    /**
+     * Removes the MXBeans added by register.
+     *
+     * @throws JMException If the MBean server refuses.
+     */
+    public void unregister() throws JMException {
+        if (registered == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            if (name != null && server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        registered = null;
+    }
+
+    /**
+     * Appends one summary for every operation that has samples.
+     *
+     * @param histogram Picks the histogram of an operation; null if the
+     *                  operation has none.
+     * @param scale     Multiplies recorded values to get the unit of the name.
+     */
+    private void summary(StringBuilder out, String name, String help,
+            Function<Stats, Histogram> histogram, double scale) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" summary\n");
+        for (Stats s : stats) {
+            Histogram h = histogram.apply(s);
+            long count = h == null ? 0 : h.count();
+            if (count == 0) {
+                continue;
+            }
+            String label = "{operation=\"" + s.operation.method + "\"";
+            for (double quantile : new double[] { 0.5, 0.99, 0.999 }) {
+                out.append(name).append(label).append(",quantile=\"")
+                        .append(quantile).append("\"} ")
+                        .append(format(h.percentile(quantile) * scale)).append('\n');
+            }
+            out.append(name).append("_sum").append(label).append("} ")
+                    .append(format(h.sum() * scale)).append('\n');
+            out.append(name).append("_count").append(label).append("} ")
+                    .append(count).append('\n');
+        }
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.3g", value);
+    }
+
+    /**
+     * The counters and histograms of one operation.
+     */
+    private static final class Stats implements OperationMXBean {
+        final Operation operation;
+        final LongAdder calls = new LongAdder(); // Up to the last timed call.
+        final Histogram latency = new Histogram();
+        final Histogram visited;
+        final Histogram results;
+        // Calls left until the next timed one, counting it, out of period.
+        // Only the manager's thread writes them.
+        int untilSample = 1;
+        int period = 1;
+
+        Stats(Operation operation) {
+            this.operation = operation;
+            this.visited = operation.counted ? new Histogram() : null;
+            this.results = operation.counted ? new Histogram() : null;
+        }
+
+        @Override
+        public String getMethod() {
+            return operation.method;
+        }
+
+        @Override
+        public long getCalls() {
+            int pending = period - untilSample; // Untimed calls since the last timed one.
+            return calls.sum() + Math.max(0, pending);
+        }
+
+        @Override
+        public long getSampledCalls() {
+            return latency.count();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            long count = latency.count();
+            return count == 0 ? 0 : latency.sum() / 1e3 / count;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latency.percentile(0.5) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latency.percentile(0.99) / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return latency.percentile(0.999) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latency.max() / 1e3;
+        }
+
+        @Override
+        public double getMeanVisited() {
+            return visited == null || visited.count() == 0 ? 0
+                    : (double) visited.sum() / visited.count();
+        }
+
+        @Override
+        public double getMeanResults() {
+            return results == null || results.count() == 0 ? 0
+                    : (double) results.sum() / results.count();
+        }
+
+        @Override
+        public long getP99Results() {
+            return results == null ? 0 : results.percentile(0.99);
+        }
+    }
+
+    /**
+     * The MXBean registered for the phone book.
+     */
+    private final class MetricsView implements PhonebookMXBean {
+        @Override
+        public int getSize() {
+            return PhonebookMetrics.this.getSize();
+        }
+
+        @Override
+        public long getCalls() {
+            return PhonebookMetrics.this.getCalls();
+        }
+
+        @Override
+        public int getSampleInterval() {
+            return PhonebookMetrics.this.getSampleInterval();
+        }
+
+        @Override
+        public void setSampleInterval(int sampleInterval) {
+            PhonebookMetrics.this.setSampleInterval(sampleInterval);
+        }
+
+        @Override
+        public String dump() {
+            return PhonebookMetrics.this.dump();
+        }
+
+        @Override
+        public void reset() {
+            PhonebookMetrics.this.reset();
+        }
+    }
+
+    /**
+     * The MXBean registered for an operation. It looks up the operation's
+     * current Stats on every read, so it keeps working after reset.
+     */
+    private final class OperationView implements OperationMXBean {
+        private final Operation operation;
+
+        OperationView(Operation operation) {
+            this.operation = operation;
+        }
+
+        private Stats stats() {
+            return stats[operation.ordinal()];
+        }
+
+        @Override
+        public String getMethod() {
+            return operation.method;
+        }
+
+        @Override
+        public long getCalls() {
+            return stats().getCalls();
+        }
+
+        @Override
+        public long getSampledCalls() {
+            return stats().getSampledCalls();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return stats().getMeanMicros();
+        }
+
+        @Override
+        public double getP50Micros() {
+            return stats().getP50Micros();
+        }
+
+        @Override
+        public double getP99Micros() {
+            return stats().getP99Micros();
+        }
+
+        @Override
+        public double getP999Micros() {
+            return stats().getP999Micros();
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return stats().getMaxMicros();
+        }
+
+        @Override
+        public double getMeanVisited() {
+            return stats().getMeanVisited();
+        }
+
+        @Override
+        public double getMeanResults() {
+            return stats().getMeanResults();
+        }
+
+        @Override
+        public long getP99Results() {
+            return stats().getP99Results();
+        }
+    }
+
+    /**
+     * A histogram of non-negative values in log-linear buckets: values below
+     * 8 get a bucket each, and every power of two above that is split into
+     * eight equal buckets.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private final AtomicLongArray counts = new AtomicLongArray(61 * SUB_BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            counts.incrementAndGet(bucket(value));
+            total.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        long sum() {
+            return total.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * Returns the largest value of the bucket holding the given share of
+         * the recorded values, never more than the largest value recorded.
+         *
+         * @param quantile From 0 to 1.
+         * @return The value, or 0 if nothing was recorded.
+         */
+        long percentile(double quantile) {
+            long[] snapshot = new long[counts.length()];
+            long count = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+                count += snapshot[i];
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(lowest(i + 1) - 1, max());
+                }
+            }
+            return max();
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value); // At least 3.
+            return (exponent - 2) * SUB_BUCKETS
+                    + (int) ((value >>> (exponent - 3)) & (SUB_BUCKETS - 1));
+        }
+
+        /**
+         * Returns the smallest value that falls in a bucket.
+         */
+        static long lowest(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + 2;
+            long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 3);
+            return lowest < 0 ? Long.MAX_VALUE : lowest;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: One change in a batch passed to PhonebookManager.applyBatch: an
+// insert, a modification or a deletion. The entry to change is given
+// either by its index or by the ListNode itself. Indexes always refer
+// to positions before the batch is applied, so the order of changes
+// within a batch does not shift them.
+//
+
+import java.util.Locale;
+
+public final class PhonebookMutation {
+    enum Kind {
+        INSERT, MODIFY, DELETE
+    }
+
+    static final int END = -1; // Index of an insert after the last entry.
+
+    final Kind kind;
+    final int index; // Position before the batch, or -1 when entry is given.
+    final ListNode entry; // The entry to change, or null when index is given.
+    final String firstName;
+    final String lastName;
+    final String address;
+    final String city;
+    final String phoneNumber;
+
+    private PhonebookMutation(Kind kind, int index, ListNode entry,
+            String firstName, String lastName, String address, String city,
+            String phoneNumber) {
+        this.kind = kind;
+        this.index = index;
+        this.entry = entry;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.city = city;
+        this.phoneNumber = phoneNumber;
+    }
+
+    /**
+     * Inserts a new entry before the entry that is at the index before the
+     * batch, or at the end if the index equals the size. Inserts at the same
+     * index keep their order in the batch.
+     *
+     * @param index       The index, from 0 to the size before the batch.
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @return The mutation.
+     */
+    public static PhonebookMutation insert(int index, String firstName,
+            String lastName, String address, String city, String phoneNumber) {
+        return new PhonebookMutation(Kind.INSERT, requireIndex(index), null,
+                firstName, lastName, address, city, phoneNumber);
+    }
+
+    /**
+     * Inserts a new entry after every entry that is in the phone book before
+     * the batch.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @return The mutation.
+     */
+    public static PhonebookMutation append(String firstName, String lastName,
+            String address, String city, String phoneNumber) {
+        return new PhonebookMutation(Kind.INSERT, END, null, firstName, lastName,
+                address, city, phoneNumber);
+    }
+
+    /**
+     * Replaces the details of the entry at an index.
+     *
+     * @param index       The index of the entry before the batch.
+     * @param firstName   The new first name.
+     * @param lastName    The new last name.
+     * @param address     The new address.
+     * @param city        The new city.
+     * @param phoneNumber The new phone number.
+     * @return The mutation.
+     */
+    public static PhonebookMutation modify(int index, String firstName,
+            String lastName, String address, String city, String phoneNumber) {
+        return new PhonebookMutation(Kind.MODIFY, requireIndex(index), null,
+                firstName, lastName, address, city, phoneNumber);
+    }
+
+    /**
+     * Replaces the details of an entry.
+     *
+     * @param entry       The entry, as returned by a search.
+     * @param firstName   The new first name.
+     * @param lastName    The new last name.
+     * @param address     The new address.
+     * @param city        The new city.
+     * @param phoneNumber The new phone number.
+     * @return The mutation.
+     */
+    public static PhonebookMutation modify(ListNode entry, String firstName,
+            String lastName, String address, String city, String phoneNumber) {
+        return new PhonebookMutation(Kind.MODIFY, -1, requireEntry(entry),
+                firstName, lastName, address, city, phoneNumber);
+    }
+
+    /**
+     * Deletes the entry at an index.
+     *
+     * @param index The index of the entry before the batch.
+     * @return The mutation.
+     */
+    public static PhonebookMutation delete(int index) {
+        return new PhonebookMutation(Kind.DELETE, requireIndex(index), null, null,
+                null, null, null, null);
+    }
+
+    /**
+     * Deletes an entry.
+     *
+     * @param entry The entry, as returned by a search.
+     * @return The mutation.
+     */
+    public static PhonebookMutation delete(ListNode entry) {
+        return new PhonebookMutation(Kind.DELETE, -1, requireEntry(entry), null,
+                null, null, null, null);
+    }
+
+    private static int requireIndex(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index cannot be negative: " + index);
+        }
+        return index;
+    }
+
+    private static ListNode requireEntry(ListNode entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("Entry cannot be null");
+        }
+        return entry;
+    }
+
+    @Override
+    public String toString() {
+        String target = entry != null ? "entry " + entry.getFirstName() + " "
+                + entry.getLastName() : index == END ? "end" : "index " + index;
+        return kind.name().toLowerCase(Locale.ROOT) + " at " + target;
+    }
+}
@@ -0,0 +1,118 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Runs a script of phone book commands, for driving the phone
+// book from other programs without the interactive menu. A script has
+// one request of the PhonebookCommands line protocol per line, the same
+// requests the server takes, and the replies are written in order, as
+// the server would send them. Blank lines and lines starting with # are
+// skipped, and QUIT ends the script early. Input is read in large
+// blocks and split into lines in place, and replies are gathered and
+// written in large blocks, so a command costs little more than the
+// phone book operation it runs.
+//
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+final class PhonebookScript {
+    // Reply characters gathered before they are written out.
+    private static final int REPLY_FLUSH = 1 << 15;
+
+    private PhonebookScript() {
+    }
+
+    /**
+     * Runs every command of a script against a phone book and writes their
+     * replies. A bad command gets an ERR reply and the script carries on.
+     *
+     * @param manager The phone book.
+     * @param in      The script, in UTF-8; read to the end but not closed.
+     * @param out     Receives the replies; flushed at the end but not closed.
+     * @return The number of commands run.
+     * @throws IOException If the script cannot be read or the replies cannot
+     *                     be written.
+     */
+    static long run(PhonebookManager manager, InputStream in, Writer out)
+            throws IOException {
+        PhonebookCommands commands = new PhonebookCommands(manager);
+        StringBuilder reply = new StringBuilder(REPLY_FLUSH + 1024);
+        char[] chars = new char[reply.capacity()];
+        byte[] buffer = new byte[1 << 16];
+        int start = 0; // First byte of the current line.
+        int end = 0; // End of the bytes read so far.
+        long count = 0;
+        boolean quit = false;
+        while (!quit) {
+            int newline = indexOf(buffer, start, end);
+            if (newline < 0) {
+                if (start > 0) { // Move the partial line to the front.
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else if (end == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2); // A long line.
+                }
+                int read = in.read(buffer, end, buffer.length - end);
+                if (read > 0) {
+                    end += read;
+                    continue;
+                }
+                if (start == end) {
+                    break;
+                }
+                newline = end; // The last line has no line break.
+            }
+            int length = newline - start;
+            if (length > 0 && buffer[newline - 1] == '\r') {
+                length--;
+            }
+            if (length > 0 && buffer[start] != '#') {
+                String line = new String(buffer, start, length, StandardCharsets.UTF_8);
+                if ("QUIT".equalsIgnoreCase(line)) {
+                    quit = true;
+                } else {
+                    commands.execute(line, reply);
+                    count++;
+                    if (reply.length() >= REPLY_FLUSH) {
+                        chars = write(reply, chars, out);
+                    }
+                }
+            }
+            start = Math.min(newline + 1, end);
+        }
+        write(reply, chars, out);
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Writes the gathered replies without making a String of them, then
+     * clears them.
+     *
+     * @return The character buffer, grown if a reply did not fit.
+     */
+    private static char[] write(StringBuilder reply, char[] chars, Writer out)
+            throws IOException {
+        if (chars.length < reply.length()) {
+            chars = new char[reply.length()];
+        }
+        reply.getChars(0, reply.length(), chars, 0);
+        out.write(chars, 0, reply.length());
+        reply.setLength(0);
+        return chars;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,253 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Serves a phone book to other processes over TCP on the loopback
+// interface, using the line protocol of PhonebookCommands. One thread
+// runs a selector over every connection, so the phone book is only
+// ever touched by that thread and needs no locking. Clients may
+// pipeline requests: every complete request that has arrived is run,
+// and their replies go out together in one write. When the phone book
+// is journaled, the log is synced once per such group before replying,
+// so an "OK" means the change is on disk. A client that stops reading
+// its replies is not read from until it catches up. A request that fails
+// with anything but a bad request, such as a journal write error, gets an
+// ERR reply like any other. Run on its own, as "java PhonebookServer
+// [port]", it serves an empty phone book kept only in memory, as a shard
+// of a ShardedPhonebook.
+//
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+public class PhonebookServer {
+    // Longest request line; a longer one closes the connection.
+    private static final int REQUEST_BYTES = 64 * 1024;
+    // Reply characters gathered before they are written out, even if more
+    // requests are waiting.
+    private static final int REPLY_LIMIT = 1 << 20;
+
+    private final PhonebookCommands commands;
+    private final PhonebookJournal journal;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final StringBuilder reply = new StringBuilder(); // Reused for every group.
+    private volatile boolean running = true;
+
+    /**
+     * Creates a server for a phone book, listening on a loopback port.
+     *
+     * @param manager The phone book to serve.
+     * @param journal The phone book's journal, synced before changes are
+     *                acknowledged; may be null.
+     * @param port    The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public PhonebookServer(PhonebookManager manager, PhonebookJournal journal,
+            int port) throws IOException {
+        this.commands = new PhonebookCommands(manager);
+        this.journal = journal;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Serves an empty phone book, kept only in memory, until the JVM is
+     * stopped. Prints the port once the server is listening, so that a
+     * parent process can connect to it.
+     *
+     * @param args The port to listen on; 0 or none for any free port.
+     * @throws IOException If the port cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        PhonebookServer server = new PhonebookServer(new PhonebookManager(), null, port);
+        System.out.println("Listening on port " + server.getPort());
+        System.out.flush();
+        server.run();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Serves connections on the calling thread until stop is called, then
+     * closes every connection and the listening socket.
+     *
+     * @throws IOException If the selector fails.
+     */
+    public void run() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isWritable()) {
+                            ((Connection) key.attachment()).drain();
+                        } else if (key.isReadable()) {
+                            ((Connection) key.attachment()).read();
+                        }
+                    } catch (IOException e) {
+                        key.channel().close(); // The client went away.
+                    } catch (RuntimeException e) {
+                        key.channel().close(); // Drop only the client it failed for.
+                    }
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Makes run return. May be called from any thread.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true); // Replies are already batched.
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * The buffers of one client connection.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(REQUEST_BYTES);
+        private ByteBuffer out; // Reply bytes not yet written, or null.
+        private boolean quit; // Close once the reply is written.
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                channel.close();
+                return;
+            }
+            process();
+        }
+
+        /**
+         * Runs the complete requests in the input buffer, up to the reply
+         * limit, and starts writing their replies.
+         */
+        private void process() throws IOException {
+            byte[] bytes = in.array();
+            int start = 0;
+            int end = in.position();
+            boolean changed = false;
+            reply.setLength(0);
+            while (!quit && reply.length() < REPLY_LIMIT) {
+                int newline = indexOf(bytes, start, end);
+                if (newline < 0) {
+                    break;
+                }
+                int length = newline - start;
+                if (length > 0 && bytes[newline - 1] == '\r') {
+                    length--;
+                }
+                String line = new String(bytes, start, length, StandardCharsets.UTF_8);
+                start = newline + 1;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if ("QUIT".equalsIgnoreCase(line)) {
+                    reply.append("OK\n");
+                    quit = true;
+                } else {
+                    int mark = reply.length();
+                    try {
+                        changed |= commands.execute(line, reply);
+                    } catch (RuntimeException e) { // Such as a journal write failing.
+                        reply.setLength(mark);
+                        reply.append("ERR ");
+                        PhonebookCommands.appendEscaped(reply, e.toString());
+                        reply.append('\n');
+                        changed = true; // The request may have got partway.
+                    }
+                }
+            }
+            if (start == 0 && end == bytes.length) {
+                reply.append("ERR request longer than ").append(REQUEST_BYTES)
+                        .append(" bytes\n");
+                quit = true;
+            }
+            in.limit(end).position(start);
+            in.compact(); // Keep the start of the next request.
+            if (changed && journal != null) {
+                journal.sync();
+            }
+            out = ByteBuffer.wrap(reply.toString().getBytes(StandardCharsets.UTF_8));
+            drain();
+        }
+
+        /**
+         * Writes as much of the pending reply as the socket takes. Reading
+         * resumes only once all of it is written.
+         */
+        void drain() throws IOException {
+            channel.write(out);
+            if (out.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            out = null;
+            if (quit) {
+                channel.close();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (indexOf(in.array(), 0, in.position()) >= 0) {
+                process(); // Requests left over when the reply limit was hit.
+            }
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,110 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: One partition of a ShardedPhonebook: a phone book with its own
+// entries and indexes, either in this JVM or served by a PhonebookServer
+// in another process. The operations are the ones ShardedPhonebook
+// routes or fans out, and map one to one onto requests of the
+// PhonebookCommands line protocol, so a remote shard is just a
+// connection. Every method may be called from any thread.
+//
+
+import java.io.IOException;
+import java.util.List;
+
+public interface PhonebookShard extends AutoCloseable {
+    /**
+     * Creates a shard with an empty phone book in this JVM.
+     *
+     * @return The shard.
+     */
+    static PhonebookShard local() {
+        return new LocalShard(new PhonebookManager());
+    }
+
+    /**
+     * Connects to a phone book served by a PhonebookServer on localhost, for
+     * example one started with "java PhonebookServer port".
+     *
+     * @param port The server's port.
+     * @return The shard.
+     * @throws IOException If the server cannot be reached.
+     */
+    static PhonebookShard remote(int port) throws IOException {
+        return new RemoteShard(port);
+    }
+
+    /**
+     * Returns the number of entries in the shard.
+     *
+     * @return The number of entries.
+     * @throws IOException If a remote shard cannot be reached.
+     */
+    int size() throws IOException;
+
+    /**
+     * Adds entries to the end of the shard, in order.
+     *
+     * @param contacts The entries; their order keys are ignored.
+     * @throws IOException If a remote shard cannot be reached.
+     * @throws IllegalArgumentException If the shard rejected an entry. Entries
+     * sent with it may still have been added.
+     */
+    void add(List<ContactRecord> contacts) throws IOException;
+
+    /**
+     * Finds the entries matching a value exactly, as
+     * PhonebookManager.searchByCriteria(criteria, value) does.
+     *
+     * @param criteria The field ("name", "address", "city", or
+     *                 "phoneNumber").
+     * @param value    The value to match.
+     * @return The matching entries in the shard's list order.
+     * @throws IOException If a remote shard cannot be reached.
+     */
+    List<ContactRecord> find(String criteria, String value) throws IOException;
+
+    /**
+     * Finds the entries matching a value in a mode, as
+     * PhonebookManager.searchByCriteria(criteria, value, mode) does.
+     *
+     * @param criteria The field, as for find.
+     * @param value    The text or regular expression to look for.
+     * @param mode     How the value is compared with the field.
+     * @return The matching entries in the shard's list order.
+     * @throws IOException If a remote shard cannot be reached.
+     */
+    List<ContactRecord> search(String criteria, String value, MatchMode mode)
+            throws IOException;
+
+    /**
+     * Deletes the entries find would return.
+     *
+     * @param criteria The field, as for find.
+     * @param value    The value to match.
+     * @return The number of entries deleted.
+     * @throws IOException If a remote shard cannot be reached.
+     */
+    int remove(String criteria, String value) throws IOException;
+
+    /**
+     * Deletes and returns the entries whose partition key falls in a slot,
+     * as given by ShardedPhonebook.slotOf, for moving them to another shard.
+     *
+     * @param field The partition key field.
+     * @param slot  The slot.
+     * @return The deleted entries, in the shard's list order.
+     * @throws IOException If a remote shard cannot be reached.
+     */
+    List<ContactRecord> take(String field, int slot) throws IOException;
+
+    /**
+     * Releases the shard: a remote shard closes its connection, leaving the
+     * server running; a local shard does nothing.
+     *
+     * @throws IOException If the connection cannot be closed cleanly.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,216 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Reads and writes the binary snapshot format used to persist a
+// phone book between runs. A snapshot is a header, then each entry's
+// five fields as length-prefixed UTF-8, then a CRC32 checksum of
+// everything before it. Version 2 headers also record the last
+// write-ahead log segment the snapshot covers. Version 3 headers also
+// record the highest entry ID given out, and each entry starts with its
+// ID. Snapshots are loaded through a memory-mapped file so that large
+// phone books start quickly.
+//
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+class PhonebookSnapshot {
+    static final int MAGIC = 0x50484253; // "PHBS"
+    static final int VERSION = 3;
+    private static final int HEADER_BYTES = 4 + 4 + 8; // Magic, version, entry count.
+    private static final int SEGMENT_BYTES = 8; // Version 2: last covered log segment.
+    private static final int LAST_ID_BYTES = 8; // Version 3: highest entry ID.
+    private static final int CHECKSUM_BYTES = 8;
+    private static final int NULL_FIELD = -1; // Length written for a null field.
+
+    private PhonebookSnapshot() {
+    }
+
+    /**
+     * Writes a chain of entries to a snapshot file. The snapshot is written
+     * to a temporary file first and then moved into place, so an interrupted
+     * save never leaves a half-written snapshot behind.
+     *
+     * @param head       The first entry; entries are followed through next.
+     * @param count      The number of entries in the chain.
+     * @param walSegment The last write-ahead log segment whose records are
+     *                   reflected in the entries, or 0 if there is no log.
+     * @param lastId     The highest ID the phone book has given out.
+     * @param file       The snapshot file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(ListNode head, long count, long walSegment, long lastId,
+            Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(walSegment)
+                    .putLong(lastId);
+            for (ListNode node = head; node != null; node = node.getNext()) {
+                ensureRoom(channel, buffer, crc, 8);
+                buffer.putLong(node.getId());
+                writeField(channel, buffer, crc, node.peekFirstName());
+                writeField(channel, buffer, crc, node.peekLastName());
+                writeField(channel, buffer, crc, node.peekAddress());
+                writeField(channel, buffer, crc, node.peekCity());
+                writeField(channel, buffer, crc, node.peekPhoneNumber());
+            }
+            drain(channel, buffer, crc);
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends every entry of a snapshot file to the end of a phone book. The
+     * checksum is verified before any entry is added.
+     *
+     * @param file    The snapshot file to read.
+     * @param manager The phone book to add the entries to.
+     * @return The last write-ahead log segment the snapshot covers, or 0.
+     * @throws IOException If the file cannot be read or is not a valid
+     *                     snapshot.
+     */
+    static long read(Path file, PhonebookManager manager) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + CHECKSUM_BYTES) {
+                throw new IOException("Snapshot is truncated: " + file);
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, length);
+            int bodyLength = (int) length - CHECKSUM_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().limit(bodyLength));
+            if (crc.getValue() != mapped.getLong(bodyLength)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            ByteBuffer body = mapped.duplicate().limit(bodyLength);
+            if (body.getInt() != MAGIC) {
+                throw new IOException("Not a phone book snapshot: " + file);
+            }
+            int version = body.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version
+                        + ": " + file);
+            }
+            long count = body.getLong();
+            long walSegment = 0;
+            if (version >= 2) {
+                if (body.remaining() < SEGMENT_BYTES) {
+                    throw new IOException("Snapshot is truncated: " + file);
+                }
+                walSegment = body.getLong();
+            }
+            long lastId = 0;
+            if (version >= 3) {
+                if (body.remaining() < LAST_ID_BYTES) {
+                    throw new IOException("Snapshot is truncated: " + file);
+                }
+                lastId = body.getLong();
+            }
+            byte[][] scratch = { new byte[256] }; // Grown by readField as needed.
+            try {
+                for (long i = 0; i < count; i++) {
+                    if (version >= 3) {
+                        manager.restoreId(body.getLong());
+                    }
+                    String firstName = readField(body, scratch);
+                    String lastName = readField(body, scratch);
+                    String address = readField(body, scratch);
+                    String city = readField(body, scratch);
+                    String phoneNumber = readField(body, scratch);
+                    manager.addEntryAtEnd(firstName, lastName, address, city,
+                            phoneNumber);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot is corrupt: " + file, e);
+            } finally {
+                manager.restoreId(0);
+            }
+            manager.restoreLastId(lastId);
+            return walSegment;
+        }
+    }
+
+    private static void writeField(FileChannel channel, ByteBuffer buffer,
+            CRC32 crc, String value) throws IOException {
+        if (value == null) {
+            ensureRoom(channel, buffer, crc, 4);
+            buffer.putInt(NULL_FIELD);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(channel, buffer, crc, 4);
+        buffer.putInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) { // Fields longer than the buffer are written in pieces.
+            ensureRoom(channel, buffer, crc, 1);
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Reads one field, decoding it through scratch[0], which is replaced by
+     * a larger array when a field does not fit, so every later field can
+     * reuse it.
+     */
+    private static String readField(ByteBuffer body, byte[][] scratch) {
+        int length = body.getInt();
+        if (length == NULL_FIELD) {
+            return null;
+        }
+        if (length > body.remaining()) {
+            throw new BufferUnderflowException(); // A corrupt length; don't allocate it.
+        }
+        if (length > scratch[0].length) {
+            scratch[0] = new byte[Math.max(length, scratch[0].length * 2)];
+        }
+        body.get(scratch[0], 0, length);
+        return new String(scratch[0], 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void ensureRoom(FileChannel channel, ByteBuffer buffer,
+            CRC32 crc, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer, crc);
+        }
+    }
+
+    /**
+     * Writes out and checksums everything in the buffer, leaving it empty.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc)
+            throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,190 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A read-only view of a phone book as it was at one version, for
+// long reads such as exports that must not see a half-applied edit.
+// The view shares the phone book's array of entries in list order,
+// which is replaced rather than changed when entries are added or
+// deleted, so opening a view copies nothing. Edits change entries in
+// place, so while a view is open the phone book keeps each entry's
+// older field values as revisions, stamped with the version that
+// replaced them, and the view reads the revision current at its
+// version. Revisions are dropped when the last view closes.
+//
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public final class PhonebookView implements Iterable<ContactRecord>, AutoCloseable {
+    /**
+     * The fields an entry had until a change replaced them.
+     */
+    static final class Revision {
+        final long until; // Version of the change that replaced these fields.
+        final String firstName;
+        final String lastName;
+        final String address;
+        final String city;
+        final String phoneNumber;
+        Revision older; // The fields before these, or null if not kept.
+
+        /**
+         * Records the current fields of an entry that is about to change.
+         *
+         * @param until The version the change will have.
+         * @param node  The entry.
+         * @param older The entry's previous revision, or null.
+         */
+        Revision(long until, ListNode node, Revision older) {
+            this.until = until;
+            this.firstName = node.peekFirstName();
+            this.lastName = node.peekLastName();
+            this.address = node.peekAddress();
+            this.city = node.peekCity();
+            this.phoneNumber = node.peekPhoneNumber();
+            this.older = older;
+        }
+
+        /**
+         * Drops the older revisions that no view open at oldestView or later
+         * can read.
+         *
+         * @param oldestView The version of the oldest open view.
+         */
+        void prune(long oldestView) {
+            for (Revision revision = this; revision.older != null; revision = revision.older) {
+                if (oldestView >= revision.older.until) {
+                    revision.older = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    private final PhonebookManager manager;
+    private final ListNode[] entries;
+    private final long version;
+    private final Map<ListNode, Revision> revisions;
+    private boolean open = true;
+
+    /**
+     * Creates a view; PhonebookManager.openView registers it.
+     *
+     * @param manager   The phone book.
+     * @param entries   The phone book's entries in list order at the
+     *                  version; not changed afterwards.
+     * @param version   The phone book's version.
+     * @param revisions The phone book's revisions of edited entries.
+     */
+    PhonebookView(PhonebookManager manager, ListNode[] entries, long version,
+            Map<ListNode, Revision> revisions) {
+        this.manager = manager;
+        this.entries = entries;
+        this.version = version;
+        this.revisions = revisions;
+    }
+
+    /**
+     * Returns the version of the phone book this view shows: the number of
+     * changes made before it was opened, which is also the sequence number
+     * of the last change in the change feed that it includes.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of entries in the view.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns an entry as it was at the view's version, in O(1).
+     *
+     * @param index The entry's index at that version.
+     * @return The entry, with its index as its order key.
+     * @throws IllegalStateException     If the view is closed.
+     * @throws IndexOutOfBoundsException If the index is not in the view.
+     */
+    public ContactRecord get(int index) {
+        checkOpen();
+        ListNode node = entries[index];
+        Revision revision = revisions.isEmpty() ? null : revisions.get(node);
+        Revision visible = null;
+        for (; revision != null && version < revision.until; revision = revision.older) {
+            visible = revision; // Replaced after the view opened; look further back.
+        }
+        if (visible == null) {
+            return new ContactRecord(index, node.peekFirstName(), node.peekLastName(),
+                    node.peekAddress(), node.peekCity(), node.peekPhoneNumber());
+        }
+        return new ContactRecord(index, visible.firstName, visible.lastName,
+                visible.address, visible.city, visible.phoneNumber);
+    }
+
+    /**
+     * Returns the ID of an entry in the view, for matching it with the
+     * changes in the change feed.
+     *
+     * @param index The entry's index at the view's version.
+     * @return The entry's ID.
+     * @throws IndexOutOfBoundsException If the index is not in the view.
+     */
+    public long getId(int index) {
+        return entries[index].getId();
+    }
+
+    /**
+     * Returns the entries in list order, as they were at the view's
+     * version, however the phone book changes during the iteration.
+     *
+     * @return An iterator over the entries.
+     */
+    @Override
+    public Iterator<ContactRecord> iterator() {
+        checkOpen();
+        return new Iterator<ContactRecord>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < entries.length;
+            }
+
+            @Override
+            public ContactRecord next() {
+                if (next >= entries.length) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Closes the view, letting the phone book drop the revisions kept for
+     * it. An open view makes every edit keep a copy of the edited entry's
+     * fields, so views should be closed as soon as they are read.
+     */
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            manager.closeView(version);
+        }
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("View is closed");
+        }
+    }
+}
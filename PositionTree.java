@@ -0,0 +1,306 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: An order-statistic tree (an implicit treap) over the nodes of the
+// phone book's linked list. Each tree slot stores the size of its
+// subtree, so the node at a position, and the position of a node,
+// can be found in O(log n) expected time instead of by walking the
+// list. Appends are buffered and merged in bulk, so they are O(1)
+// amortized. SortedIndex uses the same tree with its nodes in sorted
+// order instead of list order.
+//
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+
+class PositionTree {
+    /**
+     * A tree slot holding one list node. Slots are ordered by position.
+     */
+    static final class Slot {
+        final ListNode node;
+        final int priority;
+        Slot left;
+        Slot right;
+        Slot parent;
+        int size = 1; // Number of slots in this subtree.
+
+        Slot(ListNode node, int priority) {
+            this.node = node;
+            this.priority = priority;
+        }
+    }
+
+    private Slot root;
+    // Appended slots that have not been merged into the tree yet.
+    private final List<Slot> pending = new ArrayList<>();
+    // Seeded so that tree shapes, and therefore timings, are reproducible.
+    private final SplittableRandom random = new SplittableRandom(0x5eed);
+    // Results of the most recent split.
+    private Slot splitLeft;
+    private Slot splitRight;
+
+    /**
+     * Returns the number of nodes in the tree.
+     *
+     * @return The number of nodes.
+     */
+    int size() {
+        return size(root) + pending.size();
+    }
+
+    /**
+     * Adds a node after the last position in O(1) amortized time.
+     *
+     * @param node The node to add.
+     * @return The slot now holding the node.
+     */
+    Slot append(ListNode node) {
+        Slot slot = new Slot(node, random.nextInt());
+        pending.add(slot);
+        return slot;
+    }
+
+    /**
+     * Inserts a node so that it ends up at the given position.
+     *
+     * @param index The position, between 0 and size() inclusive.
+     * @param node  The node to insert.
+     * @return The slot now holding the node.
+     */
+    Slot insert(int index, ListNode node) {
+        flush();
+        Slot slot = new Slot(node, random.nextInt());
+        split(root, index);
+        Slot right = splitRight;
+        root = merge(merge(splitLeft, slot), right);
+        root.parent = null;
+        return slot;
+    }
+
+    /**
+     * Removes the node at the given position.
+     *
+     * @param index The position, between 0 and size() exclusive.
+     */
+    void remove(int index) {
+        flush();
+        split(root, index);
+        Slot left = splitLeft;
+        split(splitRight, 1);
+        root = merge(left, splitRight);
+        if (root != null) {
+            root.parent = null;
+        }
+    }
+
+    /**
+     * Returns the node at the given position.
+     *
+     * @param index The position, between 0 and size() exclusive.
+     * @return The node at that position.
+     */
+    ListNode get(int index) {
+        flush();
+        Slot current = root;
+        while (true) {
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index == leftSize) {
+                return current.node;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the node held by a slot of this tree.
+     *
+     * @param slot The slot to locate.
+     * @return The position of the slot's node.
+     */
+    int indexOf(Slot slot) {
+        flush();
+        int index = size(slot.left);
+        for (Slot current = slot; current.parent != null; current = current.parent) {
+            if (current.parent.right == current) {
+                index += size(current.parent.left) + 1; // Everything left of the parent comes first.
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Counts the nodes before the first one passing a test, for trees whose
+     * nodes fail the test up to some position and pass it from there on,
+     * as a sorted order does for "comes after this key". Takes O(log n)
+     * expected time.
+     *
+     * @param reached The test; false for every node before the first one
+     *                passing it.
+     * @return The position of the first node passing the test, or size()
+     *         if none does.
+     */
+    int countBefore(Predicate<ListNode> reached) {
+        flush();
+        int count = 0;
+        Slot current = root;
+        while (current != null) {
+            if (reached.test(current.node)) {
+                current = current.left;
+            } else {
+                count += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the nodes at a range of positions to a list, in order, in
+     * O(log n + k) expected time for k nodes.
+     *
+     * @param from The first position, inclusive.
+     * @param to   The last position, exclusive.
+     * @param out  Receives the nodes.
+     */
+    void collect(int from, int to, List<ListNode> out) {
+        flush();
+        collect(root, 0, from, to, out);
+    }
+
+    /**
+     * Removes every node from the tree.
+     */
+    void clear() {
+        root = null;
+        pending.clear();
+    }
+
+    /**
+     * Merges the pending appends into the tree. The pending slots are built
+     * into a treap in one linear pass and then joined onto the right spine.
+     */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Deque<Slot> rightSpine = new ArrayDeque<>();
+        for (Slot slot : pending) {
+            Slot last = null;
+            while (!rightSpine.isEmpty() && rightSpine.peek().priority < slot.priority) {
+                last = rightSpine.pop();
+            }
+            slot.left = last;
+            if (!rightSpine.isEmpty()) {
+                rightSpine.peek().right = slot;
+            }
+            rightSpine.push(slot);
+        }
+        Slot built = rightSpine.peekLast();
+        pending.clear();
+        recompute(built);
+        root = merge(root, built);
+        root.parent = null;
+    }
+
+    /**
+     * Collects the nodes of a subtree whose first slot is at position first.
+     */
+    private static void collect(Slot slot, int first, int from, int to,
+            List<ListNode> out) {
+        if (slot == null || first >= to || first + slot.size <= from) {
+            return;
+        }
+        int position = first + size(slot.left);
+        collect(slot.left, first, from, to, out);
+        if (position >= from && position < to) {
+            out.add(slot.node);
+        }
+        collect(slot.right, position + 1, from, to, out);
+    }
+
+    /**
+     * Recomputes subtree sizes and parent links below a freshly built slot.
+     */
+    private static void recompute(Slot slot) {
+        if (slot == null) {
+            return;
+        }
+        recompute(slot.left);
+        recompute(slot.right);
+        update(slot);
+    }
+
+    /**
+     * Splits a subtree so that splitLeft holds its first count slots and
+     * splitRight holds the rest.
+     */
+    private void split(Slot slot, int count) {
+        if (slot == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        if (size(slot.left) >= count) {
+            split(slot.left, count);
+            slot.left = splitRight;
+            update(slot);
+            splitRight = slot;
+        } else {
+            split(slot.right, count - size(slot.left) - 1);
+            slot.right = splitLeft;
+            update(slot);
+            splitLeft = slot;
+        }
+        if (splitLeft != null) {
+            splitLeft.parent = null;
+        }
+        if (splitRight != null) {
+            splitRight.parent = null;
+        }
+    }
+
+    /**
+     * Joins two subtrees where every slot of the first comes before every
+     * slot of the second.
+     */
+    private static Slot merge(Slot first, Slot second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        }
+        second.left = merge(first, second.left);
+        update(second);
+        return second;
+    }
+
+    private static void update(Slot slot) {
+        slot.size = 1 + size(slot.left) + size(slot.right);
+        if (slot.left != null) {
+            slot.left.parent = slot;
+        }
+        if (slot.right != null) {
+            slot.right.parent = slot;
+        }
+    }
+
+    private static int size(Slot slot) {
+        return slot == null ? 0 : slot.size;
+    }
+}
@@ -0,0 +1,432 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: Decides how PhonebookManager answers a ContactQuery. Each
+// condition is given an estimate of the entries matching it: equalities
+// are counted exactly from the hash indexes, and ranges from the sorted
+// indexes, both without fetching anything. An AND is answered by
+// fetching the entries of its most selective indexed part and testing
+// only those against the other parts, and an OR by joining the entries
+// of its parts when every one of them is indexed. Only a query that no
+// index can narrow down tests every entry. explain describes the plan.
+//
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+final class QueryPlan {
+    // Share of the entries guessed to match a condition that no index can
+    // count, such as a substring or regular expression match.
+    private static final double UNINDEXED_SELECTIVITY = 0.1;
+
+    private final ContactIndex index;
+    private final int size;
+    private final Function<SortedIndex.Key, SortedIndex> sorted;
+    private final Step root;
+    private int read; // Index entries read by fetch, for metrics.
+
+    /**
+     * Plans a query over the entries of a phone book. Range conditions build
+     * the sorted index for their field if it has not been built yet.
+     *
+     * @param query  The query.
+     * @param index  The phone book's indexes.
+     * @param size   The number of entries.
+     * @param sorted Returns the sorted index for a key, building it on first
+     *               use.
+     */
+    QueryPlan(ContactQuery query, ContactIndex index, int size,
+            Function<SortedIndex.Key, SortedIndex> sorted) {
+        this.index = index;
+        this.size = size;
+        this.sorted = sorted;
+        this.root = plan(query);
+    }
+
+    /**
+     * Returns whether the plan reads indexes rather than testing every
+     * entry.
+     *
+     * @return true if fetch answers the query.
+     */
+    boolean usesIndex() {
+        return root instanceof IndexedStep;
+    }
+
+    /**
+     * Returns the estimated number of matching entries.
+     *
+     * @return The estimate.
+     */
+    double estimate() {
+        return root.estimate;
+    }
+
+    /**
+     * Returns the test for the whole query, for scanning every entry when
+     * no index applies. It is safe to call from several threads at once.
+     *
+     * @return The test.
+     */
+    Predicate<ListNode> predicate() {
+        return root.test;
+    }
+
+    /**
+     * Answers a query for which usesIndex is true.
+     *
+     * @return The matching entries, without duplicates.
+     * @throws IllegalStateException If no index answers the query.
+     */
+    List<ListNode> fetch() {
+        if (!usesIndex()) {
+            throw new IllegalStateException("No index answers " + root.query);
+        }
+        read = 0;
+        List<ListNode> results = new ArrayList<>();
+        ((IndexedStep) root).fetch(results);
+        return results;
+    }
+
+    /**
+     * Returns the number of index entries the last fetch read.
+     *
+     * @return The entries read.
+     */
+    int read() {
+        return read;
+    }
+
+    /**
+     * Describes the plan, one step per line, with each step's operands
+     * indented below it and the estimated number of entries it yields:
+     *
+     * <pre>
+     * INTERSECT (est. 7 entries)
+     *   INDEX LOOKUP lastName = "Smith" (est. 70 entries)
+     *   FILTER city = "Tacoma" (est. 9802 entries)
+     * </pre>
+     *
+     * @return The description.
+     */
+    String explain() {
+        StringBuilder out = new StringBuilder();
+        if (usesIndex()) {
+            root.explain(out, 0);
+        } else {
+            line(out, 0, "SCAN", size + " entries", root.estimate);
+            root.explain(out, 1);
+        }
+        return out.toString();
+    }
+
+    private Step plan(ContactQuery query) {
+        switch (query.kind) {
+            case EQUAL:
+                return new Lookup(query);
+            case MATCH: {
+                SortedIndex.Key key = ContactQuery.sortKey(query.field);
+                // A sorted range from a prefix to itself holds the values starting
+                // with it. Phone numbers are left out, since the sorted index
+                // skips numbers too long to pack.
+                if (query.mode == MatchMode.STARTS_WITH
+                        && (key == SortedIndex.Key.NAME || key == SortedIndex.Key.CITY)) {
+                    return new Range(query, sorted.apply(key), query.value, query.value);
+                }
+                String field = query.field;
+                if ("phoneNumber".equals(field) && query.mode != MatchMode.REGEX) {
+                    return new Step(query, size * UNINDEXED_SELECTIVITY,
+                            ContactScanner.phoneTest(query.value, query.mode));
+                }
+                Predicate<String> test = ContactScanner.fieldTest(query.value, query.mode,
+                        false);
+                return new Step(query, size * UNINDEXED_SELECTIVITY,
+                        node -> test.test(ContactQuery.fieldOf(node, field)));
+            }
+            case RANGE:
+                return new Range(query, sorted.apply(ContactQuery.sortKey(query.field)),
+                        query.value, query.to);
+            case NOT: {
+                Step part = plan(query.parts.get(0));
+                return new Step(query, Math.max(0, size - part.estimate), part.test.negate());
+            }
+            case AND:
+                return and(query);
+            default:
+                return or(query);
+        }
+    }
+
+    /**
+     * Plans an AND, assuming its parts match independently of each other.
+     */
+    private Step and(ContactQuery query) {
+        List<Step> parts = new ArrayList<>(query.parts.size());
+        IndexedStep driver = null;
+        double selectivity = 1;
+        for (ContactQuery part : query.parts) {
+            Step step = plan(part);
+            if (query.parts.size() == 1) {
+                return step;
+            }
+            parts.add(step);
+            selectivity *= selectivity(step);
+            if (step instanceof IndexedStep
+                    && (driver == null || step.estimate < driver.estimate)) {
+                driver = (IndexedStep) step;
+            }
+        }
+        Predicate<ListNode> test = parts.get(0).test;
+        for (int i = 1; i < parts.size(); i++) {
+            test = test.and(parts.get(i).test);
+        }
+        if (driver == null) {
+            return new Step(query, size * selectivity, test);
+        }
+        parts.remove(driver);
+        return new Intersect(query, size * selectivity, test, driver, parts);
+    }
+
+    /**
+     * Plans an OR, assuming its parts match independently of each other.
+     */
+    private Step or(ContactQuery query) {
+        List<IndexedStep> parts = new ArrayList<>(query.parts.size());
+        boolean indexed = true;
+        double missed = 1; // Chance that an entry matches no part.
+        Predicate<ListNode> test = null;
+        for (ContactQuery part : query.parts) {
+            Step step = plan(part);
+            if (query.parts.size() == 1) {
+                return step;
+            }
+            if (step instanceof IndexedStep) {
+                parts.add((IndexedStep) step);
+            } else {
+                indexed = false;
+            }
+            missed *= 1 - selectivity(step);
+            test = test == null ? step.test : test.or(step.test);
+        }
+        double estimate = size * (1 - missed);
+        return indexed ? new Union(query, estimate, test, parts)
+                : new Step(query, estimate, test);
+    }
+
+    private double selectivity(Step step) {
+        return size == 0 ? 0 : Math.min(1, step.estimate / size);
+    }
+
+    private static void line(StringBuilder out, int depth, String operation,
+            String detail, double estimate) {
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+        out.append(operation);
+        if (!detail.isEmpty()) {
+            out.append(' ').append(detail);
+        }
+        out.append(" (est. ").append(Math.round(estimate)).append(" entries)\n");
+    }
+
+    /**
+     * One step of a plan: the condition it answers, the estimated number of
+     * entries matching it, and the test for a single entry. A plain step
+     * has no index to read, so it is only ever used as a test.
+     */
+    private class Step {
+        final ContactQuery query;
+        final double estimate;
+        final Predicate<ListNode> test;
+
+        Step(ContactQuery query, double estimate, Predicate<ListNode> test) {
+            this.query = query;
+            this.estimate = estimate;
+            this.test = test;
+        }
+
+        void explain(StringBuilder out, int depth) {
+            line(out, depth, "FILTER", query.toString(), estimate);
+        }
+    }
+
+    /**
+     * A step whose matching entries can be found from indexes.
+     */
+    private abstract class IndexedStep extends Step {
+        IndexedStep(ContactQuery query, double estimate, Predicate<ListNode> test) {
+            super(query, estimate, test);
+        }
+
+        /**
+         * Adds the matching entries to a list, once each.
+         */
+        abstract void fetch(Collection<ListNode> out);
+    }
+
+    /**
+     * An equality answered from a hash index, whose count is exact. Cities
+     * and first names are tested by their dictionary codes.
+     */
+    private final class Lookup extends IndexedStep {
+        Lookup(ContactQuery query) {
+            super(query, index.countEqual(query.field, query.value),
+                    equalityTest(query.field, query.value));
+        }
+
+        @Override
+        void fetch(Collection<ListNode> out) {
+            List<ListNode> matches = index.findEqual(query.field, query.value);
+            read += matches.size();
+            out.addAll(matches);
+        }
+
+        @Override
+        void explain(StringBuilder out, int depth) {
+            line(out, depth, "INDEX LOOKUP", query.toString(), estimate);
+        }
+    }
+
+    /**
+     * A range, or a prefix, answered from a sorted index, whose count is
+     * exact.
+     */
+    private final class Range extends IndexedStep {
+        private final SortedIndex order;
+        private final String from;
+        private final String to;
+
+        Range(ContactQuery query, SortedIndex order, String from, String to) {
+            super(query, order.count(from, to), node -> order.contains(node, from, to));
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        void fetch(Collection<ListNode> out) {
+            List<ListNode> matches = order.range(from, to, 0, Integer.MAX_VALUE);
+            read += matches.size();
+            out.addAll(matches);
+        }
+
+        @Override
+        void explain(StringBuilder out, int depth) {
+            line(out, depth, "INDEX RANGE", query.toString(), estimate);
+        }
+    }
+
+    /**
+     * An AND with an indexed part: that part's entries are fetched and kept
+     * if they pass the other parts' tests, which is cheaper than fetching
+     * the other parts' entries to intersect with them.
+     */
+    private final class Intersect extends IndexedStep {
+        private final IndexedStep driver;
+        private final List<Step> others;
+
+        Intersect(ContactQuery query, double estimate, Predicate<ListNode> test,
+                IndexedStep driver, List<Step> others) {
+            super(query, estimate, test);
+            this.driver = driver;
+            this.others = others;
+        }
+
+        @Override
+        void fetch(Collection<ListNode> out) {
+            List<ListNode> candidates = new ArrayList<>();
+            driver.fetch(candidates);
+            for (ListNode node : candidates) {
+                if (passes(node)) {
+                    out.add(node);
+                }
+            }
+        }
+
+        private boolean passes(ListNode node) {
+            for (Step other : others) {
+                if (!other.test.test(node)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void explain(StringBuilder out, int depth) {
+            line(out, depth, "INTERSECT", "", estimate);
+            driver.explain(out, depth + 1);
+            for (Step other : others) {
+                line(out, depth + 1, "FILTER", other.query.toString(), other.estimate);
+            }
+        }
+    }
+
+    /**
+     * An OR whose parts are all indexed: their entries are joined, dropping
+     * entries that match more than one part.
+     */
+    private final class Union extends IndexedStep {
+        private final List<IndexedStep> parts;
+
+        Union(ContactQuery query, double estimate, Predicate<ListNode> test,
+                List<IndexedStep> parts) {
+            super(query, estimate, test);
+            this.parts = parts;
+        }
+
+        @Override
+        void fetch(Collection<ListNode> out) {
+            Set<ListNode> matches = new LinkedHashSet<>();
+            for (IndexedStep part : parts) {
+                part.fetch(matches);
+            }
+            out.addAll(matches);
+        }
+
+        @Override
+        void explain(StringBuilder out, int depth) {
+            line(out, depth, "UNION", "", estimate);
+            for (Step part : parts) {
+                part.explain(out, depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Builds the test matching exactly the entries ContactIndex.findEqual
+     * returns for a field and value.
+     */
+    private Predicate<ListNode> equalityTest(String field, String value) {
+        switch (field) {
+            case "firstName":
+            case "city": {
+                int code = index.codeOf(field, value);
+                if (code == FieldDictionary.NONE) {
+                    return node -> false;
+                }
+                return "city".equals(field) ? node -> node.cityCode == code
+                        : node -> node.firstNameCode == code;
+            }
+            case "phoneNumber": {
+                long packed = PhoneNumbers.pack(value);
+                if (packed != PhoneNumbers.NONE) {
+                    return node -> node.getPackedPhone() == packed;
+                }
+                String key = ContactIndex.phoneKey(value);
+                return node -> node.getPackedPhone() == PhoneNumbers.NONE
+                        && key.equals(ContactIndex.phoneKey(node.peekPhoneNumber()));
+            }
+            default: {
+                String key = ContactIndex.fold(value);
+                return node -> key.equals(ContactIndex.fold(ContactQuery.fieldOf(node, field)));
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A PhonebookShard served by a PhonebookServer, usually in
+// another JVM, over one connection speaking the PhonebookCommands line
+// protocol. Calls are serialized on the connection, as the server runs
+// one request at a time anyway. Adds are pipelined in windows, so
+// loading or moving many entries costs one round trip per window
+// rather than per entry. Empty fields come back as empty strings.
+//
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+final class RemoteShard implements PhonebookShard {
+    // Adds sent before their replies are read. The server stops reading a
+    // client that does not read its replies, so a window must fit in the
+    // socket buffers.
+    private static final int WINDOW = 1000;
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(128); // Reused for every request.
+    private final List<String> fields = new ArrayList<>(); // Reused for every reply line.
+
+    /**
+     * Connects to a server on localhost.
+     *
+     * @param port The server's port.
+     * @throws IOException If the server cannot be reached.
+     */
+    RemoteShard(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8), 1 << 16);
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public synchronized int size() throws IOException {
+        send("SIZE");
+        return number(ok());
+    }
+
+    @Override
+    public synchronized void add(List<ContactRecord> contacts) throws IOException {
+        for (int start = 0; start < contacts.size(); start += WINDOW) {
+            int end = Math.min(contacts.size(), start + WINDOW);
+            for (int i = start; i < end; i++) {
+                ContactRecord contact = contacts.get(i);
+                queue("ADD", contact.getFirstName(), contact.getLastName(),
+                        contact.getAddress(), contact.getCity(), contact.getPhoneNumber());
+            }
+            out.flush();
+            // Every reply in the window is read before any error is thrown, so
+            // the connection stays in step for the next request.
+            IllegalArgumentException rejected = null;
+            for (int i = start; i < end; i++) {
+                try {
+                    ok();
+                } catch (IllegalArgumentException e) {
+                    if (rejected == null) {
+                        rejected = e;
+                    }
+                }
+            }
+            if (rejected != null) {
+                throw rejected;
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<ContactRecord> find(String criteria, String value)
+            throws IOException {
+        send("FIND", criteria, value);
+        return found();
+    }
+
+    @Override
+    public synchronized List<ContactRecord> search(String criteria, String value,
+            MatchMode mode) throws IOException {
+        send("SEARCH", criteria, modeName(mode), value);
+        return found();
+    }
+
+    @Override
+    public synchronized int remove(String criteria, String value) throws IOException {
+        send("REMOVE", criteria, value);
+        return number(ok());
+    }
+
+    @Override
+    public synchronized List<ContactRecord> take(String field, int slot)
+            throws IOException {
+        send("TAKE", field, Integer.toString(slot));
+        return found();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            send("QUIT");
+            ok();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Sends one request; the caller reads its reply.
+     */
+    private void send(String... request) throws IOException {
+        queue(request);
+        out.flush();
+    }
+
+    /**
+     * Buffers one request; nothing is sent until the writer is flushed.
+     */
+    private void queue(String... request) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < request.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            PhonebookCommands.appendEscaped(line, request[i]);
+        }
+        line.append('\n');
+        out.append(line);
+    }
+
+    /**
+     * Reads a reply's status line, which must not be an error.
+     *
+     * @throws IllegalArgumentException If the server rejected the request.
+     */
+    private String ok() throws IOException {
+        String status = in.readLine();
+        if (status == null) {
+            throw new IOException("Shard closed the connection");
+        }
+        if (status.startsWith("ERR ")) {
+            List<String> message = new ArrayList<>();
+            PhonebookCommands.split(status.substring(4), message);
+            throw new IllegalArgumentException(message.get(0));
+        }
+        return status;
+    }
+
+    /**
+     * Reads a FOUND reply and the contact lines that follow it.
+     */
+    private List<ContactRecord> found() throws IOException {
+        String status = ok();
+        if (!status.startsWith("FOUND ")) {
+            throw new IOException("Unexpected reply: " + status);
+        }
+        int count = Integer.parseInt(status.substring(6));
+        List<ContactRecord> contacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String contact = in.readLine();
+            if (contact == null) {
+                throw new IOException("Shard closed the connection");
+            }
+            PhonebookCommands.split(contact, fields);
+            if (fields.size() != 5) {
+                throw new IOException("Malformed contact: " + contact);
+            }
+            contacts.add(new ContactRecord(i, fields.get(0), fields.get(1), fields.get(2),
+                    fields.get(3), fields.get(4)));
+        }
+        return contacts;
+    }
+
+    private static int number(String status) throws IOException {
+        try {
+            return Integer.parseInt(status.substring(3));
+        } catch (RuntimeException e) {
+            throw new IOException("Unexpected reply: " + status);
+        }
+    }
+
+    private static String modeName(MatchMode mode) {
+        switch (mode) {
+            case EXACT:
+                return "exact";
+            case CONTAINS:
+                return "contains";
+            case STARTS_WITH:
+                return "startsWith";
+            default:
+                return "regex";
+        }
+    }
+}
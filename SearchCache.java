@@ -0,0 +1,378 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A bounded cache of the results of PhonebookManager searches that
+// have to scan every entry: contains, starts-with and regular
+// expression matches. Results are keyed by the field, the match mode
+// and the value as the match normalizes it. Each cached result keeps
+// the test it was built with, so exactly the results an entry joins
+// or leaves are dropped: those it matches when it is added or
+// removed, and those it matches before or after a change, but not
+// both. Entries are evicted either in least recently used order, or
+// W-TinyLFU style: new results wait in a small LRU window and only
+// replace a main cache entry if a frequency sketch says they are used
+// more often, so a burst of one-off searches cannot flush out the
+// popular ones. Like PhonebookManager, it is not thread-safe.
+//
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+public final class SearchCache {
+    /**
+     * How a full cache chooses what to evict.
+     */
+    public enum Policy {
+        // Evict the least recently used result.
+        LRU,
+        // Admit a new result only if it is used more often than the one it
+        // would replace.
+        TINY_LFU
+    }
+
+    // Larger results are not cached, so that a full cache holds at most
+    // capacity * MAX_RESULTS entries alive.
+    static final int MAX_RESULTS = 10_000;
+
+    private final int capacity;
+    private final Policy policy;
+    // New results, for TINY_LFU; unused by LRU.
+    private final LinkedHashMap<String, Cached> window;
+    private final int windowCapacity;
+    private final LinkedHashMap<String, Cached> main;
+    private final int mainCapacity;
+    private final FrequencySketch sketch;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity The largest number of results to keep; at least 1.
+     * @param policy   The eviction policy.
+     */
+    SearchCache(int capacity, Policy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        boolean windowed = policy == Policy.TINY_LFU && capacity > 1;
+        windowCapacity = windowed ? Math.max(1, capacity / 100) : 0;
+        mainCapacity = capacity - windowCapacity;
+        window = new LinkedHashMap<>(16, 0.75f, true);
+        main = new LinkedHashMap<>(16, 0.75f, true);
+        sketch = windowed ? new FrequencySketch(capacity) : null;
+    }
+
+    /**
+     * Returns the cache key of a search. Values that the match treats alike
+     * share a key: phone numbers by their digits, and for CONTAINS and
+     * STARTS_WITH, ASCII text regardless of case.
+     *
+     * @param criteria The field searched.
+     * @param value    The value or regular expression searched for.
+     * @param mode     The match mode, other than EXACT.
+     * @return The key.
+     */
+    static String key(String criteria, String value, MatchMode mode) {
+        String normalized = value;
+        if (mode != MatchMode.REGEX) {
+            if ("phoneNumber".equals(criteria)) {
+                normalized = ContactIndex.phoneKey(value);
+            } else if (isAscii(value)) {
+                normalized = value.toLowerCase(Locale.ROOT);
+            }
+        }
+        return criteria + '\0' + mode + '\0' + normalized;
+    }
+
+    /**
+     * Returns a copy of a cached result.
+     *
+     * @param key The key from key(criteria, value, mode).
+     * @return The result, or null on a miss.
+     */
+    List<ListNode> get(String key) {
+        if (sketch != null) {
+            sketch.increment(key.hashCode());
+        }
+        Cached cached = main.get(key);
+        if (cached == null) {
+            cached = window.get(key);
+        }
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(Arrays.asList(cached.results));
+    }
+
+    /**
+     * Caches the result of a search that just missed.
+     *
+     * @param key       The key from key(criteria, value, mode).
+     * @param predicate The test the result was built with.
+     * @param results   The result; copied, so the caller may change it.
+     */
+    void put(String key, Predicate<ListNode> predicate, List<ListNode> results) {
+        if (results.size() > MAX_RESULTS || main.containsKey(key)
+                || window.containsKey(key)) {
+            return;
+        }
+        Cached cached = new Cached(key, results.toArray(new ListNode[0]), predicate);
+        if (sketch == null) {
+            main.put(key, cached);
+            if (main.size() > mainCapacity) {
+                removeEldest(main);
+                evictions++;
+            }
+            return;
+        }
+        window.put(key, cached);
+        if (window.size() <= windowCapacity) {
+            return;
+        }
+        Cached candidate = removeEldest(window);
+        if (main.size() < mainCapacity) {
+            main.put(candidate.key, candidate);
+            return;
+        }
+        Cached victim = main.values().iterator().next(); // Least recently used.
+        if (sketch.frequency(candidate.key.hashCode())
+                > sketch.frequency(victim.key.hashCode())) {
+            main.remove(victim.key);
+            main.put(candidate.key, candidate);
+        }
+        evictions++; // Either the victim or the candidate.
+    }
+
+    /**
+     * Drops every cached result an entry matches, because the entry is being
+     * added or removed.
+     *
+     * @param node The entry.
+     */
+    void invalidate(ListNode node) {
+        invalidate(main, node);
+        invalidate(window, node);
+    }
+
+    /**
+     * Notes which cached results an entry matches before it changes.
+     *
+     * @param node The entry about to change.
+     */
+    void beforeChange(ListNode node) {
+        for (Cached cached : main.values()) {
+            cached.matched = cached.predicate.test(node);
+        }
+        for (Cached cached : window.values()) {
+            cached.matched = cached.predicate.test(node);
+        }
+    }
+
+    /**
+     * Drops the cached results an entry joined or left by changing.
+     *
+     * @param node The entry that changed.
+     */
+    void afterChange(ListNode node) {
+        invalidate(main, node);
+        invalidate(window, node);
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    void clear() {
+        invalidations += window.size() + main.size();
+        window.clear();
+        main.clear();
+    }
+
+    /**
+     * Returns the number of searches answered from the cache.
+     *
+     * @return The hit count.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of searches that were not in the cache.
+     *
+     * @return The miss count.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results dropped, or not admitted, to stay within
+     * the capacity.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of results dropped because the phone book changed.
+     *
+     * @return The invalidation count.
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the number of results currently cached.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return window.size() + main.size();
+    }
+
+    /**
+     * Returns the largest number of results the cache keeps.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the eviction policy.
+     *
+     * @return The policy.
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the counters and size, for logs.
+     *
+     * @return A one-line summary.
+     */
+    @Override
+    public String toString() {
+        long lookups = hits + misses;
+        return String.format("%s cache: %d/%d entries, %d hits, %d misses (%.1f%% hit rate),"
+                + " %d evictions, %d invalidations", policy, size(), capacity, hits,
+                misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions,
+                invalidations);
+    }
+
+    /**
+     * Drops the results whose test on the entry differs from matched, which
+     * is false unless beforeChange has just set it.
+     */
+    private void invalidate(LinkedHashMap<String, Cached> map, ListNode node) {
+        for (Iterator<Cached> it = map.values().iterator(); it.hasNext();) {
+            Cached cached = it.next();
+            if (cached.predicate.test(node) != cached.matched) {
+                it.remove();
+                invalidations++;
+            }
+            cached.matched = false;
+        }
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Cached removeEldest(LinkedHashMap<String, Cached> map) {
+        Iterator<Cached> eldest = map.values().iterator();
+        Cached cached = eldest.next();
+        eldest.remove();
+        return cached;
+    }
+
+    /**
+     * A cached result and the test that decides which entries belong in it.
+     */
+    private static final class Cached {
+        final String key;
+        final ListNode[] results;
+        final Predicate<ListNode> predicate;
+        boolean matched; // Whether the entry being changed matched before.
+
+        Cached(String key, ListNode[] results, Predicate<ListNode> predicate) {
+            this.key = key;
+            this.results = results;
+            this.predicate = predicate;
+        }
+    }
+
+    /**
+     * A count-min sketch of how often each key was looked up recently, with
+     * four rows of saturating 4-bit counts kept in bytes. Every count is
+     * halved after ten lookups per cached result, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int[] SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35,
+                0x27d4eb2f };
+        private final byte[] counts;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+            counts = new byte[ROWS * width];
+            mask = width - 1;
+            sampleSize = 10 * capacity;
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, counts[slot(hash, row)]);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            for (int row = 0; row < ROWS; row++) {
+                int slot = slot(hash, row);
+                if (counts[slot] < 15) {
+                    counts[slot]++;
+                }
+            }
+            if (++additions == sampleSize) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int slot(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
@@ -0,0 +1,609 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A phone book split over several independent PhonebookShards,
+// each with its own entries and indexes, in this JVM or in other
+// processes. Entries are partitioned by a key field, the phone number
+// by default: the key, normalized as the indexes compare it, is hashed
+// into one of SLOTS slots, and a table gives each slot's shard. Exact
+// searches on the key field go to one shard; every other search asks
+// all shards at once and merges their results. Results come back in
+// name order, as no order spans the shards. Shards can be added and
+// removed while the phone book is in use: slots move one at a time,
+// and only requests that arrive while a slot is moving wait for it.
+// A moved entry is added afresh to its new shard, which gives it a new
+// ID there, and a shard in another JVM keeps missing fields as empty.
+//
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ShardedPhonebook implements AutoCloseable {
+    // Number of hash slots. A slot is the unit that moves between shards,
+    // so more slots even out the shards and shorten each move, but every
+    // move walks the whole source shard.
+    static final int SLOTS = 256;
+
+    // The order of every search result: by name, then phone number, address
+    // and city, each ignoring case first. A missing field sorts as empty, as
+    // a remote shard returns it.
+    private static final Comparator<ContactRecord> ORDER =
+            Comparator.comparing(ContactRecord::getLastName, ShardedPhonebook::compareText)
+                    .thenComparing(ContactRecord::getFirstName, ShardedPhonebook::compareText)
+                    .thenComparing(ContactRecord::getPhoneNumber, ShardedPhonebook::compareText)
+                    .thenComparing(ContactRecord::getAddress, ShardedPhonebook::compareText)
+                    .thenComparing(ContactRecord::getCity, ShardedPhonebook::compareText);
+
+    private final String field;
+    // Held shared by every request and exclusively while a slot moves, so a
+    // request never sees an entry in both shards or in neither.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService pool;
+    private PhonebookShard[] shards; // Replaced, not changed, under the write lock.
+    private final int[] owners = new int[SLOTS]; // Index in shards of each slot's shard.
+    private long moved; // Entries moved between shards so far.
+
+    /**
+     * Creates a phone book over empty shards, partitioned by phone number.
+     *
+     * @param shards The shards, at least one; they should be empty.
+     * @throws IllegalArgumentException If there are no shards.
+     */
+    public ShardedPhonebook(List<PhonebookShard> shards) {
+        this("phoneNumber", shards);
+    }
+
+    /**
+     * Creates a phone book over empty shards, giving each an equal share of
+     * the slots.
+     *
+     * @param field  The partition key: "phoneNumber", "firstName",
+     *               "lastName", "address" or "city".
+     * @param shards The shards, at least one; they should be empty.
+     * @throws IllegalArgumentException If the field is unknown or there are
+     *                                  no shards.
+     */
+    public ShardedPhonebook(String field, List<PhonebookShard> shards) {
+        if (!isPartitionField(field)) {
+            throw new IllegalArgumentException("Unknown partition key " + field);
+        }
+        if (shards == null || shards.isEmpty() || shards.contains(null)) {
+            throw new IllegalArgumentException("A sharded phone book needs shards");
+        }
+        this.field = field;
+        this.shards = shards.toArray(new PhonebookShard[0]);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            owners[slot] = slot % this.shards.length;
+        }
+        this.pool = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "phonebook-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns whether a field can be a partition key.
+     *
+     * @param field The field.
+     * @return true for "phoneNumber", "firstName", "lastName", "address" and
+     *         "city".
+     */
+    static boolean isPartitionField(String field) {
+        if (field == null) {
+            return false;
+        }
+        switch (field) {
+            case "phoneNumber":
+            case "firstName":
+            case "lastName":
+            case "address":
+            case "city":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the slot of a partition key. Phone numbers are hashed on their
+     * digits and other fields ignoring case, as the indexes compare them, so
+     * every spelling that FIND matches lands in the same slot. Shards in
+     * other JVMs compute the same slot, since String hash codes are fixed.
+     *
+     * @param field The partition key field.
+     * @param value The entry's value for the field; may be null.
+     * @return The slot, from 0 to SLOTS - 1.
+     */
+    static int slotOf(String field, String value) {
+        String key = "phoneNumber".equals(field) ? ContactIndex.phoneKey(value)
+                : ContactIndex.fold(value);
+        return slotOf(key == null ? 0 : key.hashCode());
+    }
+
+    /**
+     * Returns the slot of an entry's partition key, as slotOf(field, value)
+     * does for the entry's value. A packed phone number is hashed from its
+     * digits directly, which keeps moving a slot from rebuilding every
+     * number in the shard.
+     *
+     * @param field The partition key field.
+     * @param node  The entry.
+     * @return The slot, from 0 to SLOTS - 1.
+     */
+    static int slotOf(String field, ListNode node) {
+        if ("phoneNumber".equals(field) && node.getPackedPhone() != PhoneNumbers.NONE) {
+            return slotOf(PhoneNumbers.digitsHashCode(node.getPackedPhone()));
+        }
+        return slotOf(field, ContactQuery.fieldOf(node, field));
+    }
+
+    private static int slotOf(int hash) {
+        return (hash * 0x9E3779B9) >>> 24; // The top bits, which mix in every bit.
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        lock.readLock().lock();
+        try {
+            return shards.length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of slots each shard owns.
+     *
+     * @return The slot counts, by shard.
+     */
+    public int[] getSlotCounts() {
+        lock.readLock().lock();
+        try {
+            int[] counts = new int[shards.length];
+            for (int owner : owners) {
+                counts[owner]++;
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries moved between shards by addShard and
+     * removeShard so far.
+     *
+     * @return The number of entries moved.
+     */
+    public synchronized long getEntriesMoved() {
+        return moved;
+    }
+
+    /**
+     * Returns the number of entries in each shard, asking them all at once.
+     *
+     * @return The sizes, by shard.
+     * @throws IOException If a shard cannot be reached.
+     */
+    public int[] getShardSizes() throws IOException {
+        lock.readLock().lock();
+        try {
+            List<Integer> sizes = fanOut(PhonebookShard::size);
+            int[] result = new int[sizes.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = sizes.get(i);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the phone book.
+     *
+     * @return The number of entries.
+     * @throws IOException If a shard cannot be reached.
+     */
+    public int size() throws IOException {
+        int size = 0;
+        for (int shardSize : getShardSizes()) {
+            size += shardSize;
+        }
+        return size;
+    }
+
+    /**
+     * Adds an entry to the shard that owns its key.
+     *
+     * @param firstName   The first name of the contact.
+     * @param lastName    The last name of the contact.
+     * @param address     The address of the contact.
+     * @param city        The city of the contact.
+     * @param phoneNumber The phone number of the contact.
+     * @throws IOException If the shard cannot be reached.
+     */
+    public void add(String firstName, String lastName, String address, String city,
+            String phoneNumber) throws IOException {
+        ContactRecord contact = new ContactRecord(0, firstName, lastName, address, city,
+                phoneNumber);
+        lock.readLock().lock();
+        try {
+            shards[owners[slotOf(field, keyOf(contact))]]
+                    .add(Collections.singletonList(contact));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many entries, sending each shard its share in one call and all
+     * shards at once. Entries with the same key keep their order.
+     *
+     * @param contacts The entries, each the first name, last name, address,
+     *                 city and phone number.
+     * @throws IOException If a shard cannot be reached; some entries may
+     *                     have been added.
+     */
+    public void addAll(List<String[]> contacts) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<List<ContactRecord>> shares = new ArrayList<>(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                shares.add(new ArrayList<>());
+            }
+            for (String[] fields : contacts) {
+                ContactRecord contact = new ContactRecord(0, fields[0], fields[1],
+                        fields[2], fields[3], fields[4]);
+                shares.get(owners[slotOf(field, keyOf(contact))]).add(contact);
+            }
+            fanOut((shard, index) -> {
+                shard.add(shares.get(index));
+                return null;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the entries matching a value exactly, as
+     * PhonebookManager.searchByCriteria(criteria, value) does. A search on
+     * the partition key goes to one shard; others go to every shard.
+     *
+     * @param criteria The field ("name", "address", "city", or
+     *                 "phoneNumber").
+     * @param value    The value to match.
+     * @return The matching entries by last name, then first name, phone
+     *         number, address and city, whichever shards hold them. Entries
+     *         from a shard in another JVM have empty strings for missing
+     *         fields.
+     * @throws IOException If a shard cannot be reached.
+     */
+    public List<ContactRecord> searchByCriteria(String criteria, String value)
+            throws IOException {
+        lock.readLock().lock();
+        try {
+            if (field.equals(criteria)) {
+                return merge(Collections.singletonList(
+                        shards[owners[slotOf(field, value)]].find(criteria, value)));
+            }
+            return merge(fanOut(shard -> shard.find(criteria, value)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the entries matching a value in a mode, as
+     * PhonebookManager.searchByCriteria(criteria, value, mode) does. Only
+     * EXACT searches on the partition key go to one shard; every shard
+     * searches its own entries in parallel with the others.
+     *
+     * @param criteria The field, as for searchByCriteria(criteria, value).
+     * @param value    The text or regular expression to look for.
+     * @param mode     How the value is compared with the field.
+     * @return The matching entries, in the same order as for
+     *         searchByCriteria(criteria, value).
+     * @throws IOException If a shard cannot be reached.
+     */
+    public List<ContactRecord> searchByCriteria(String criteria, String value,
+            MatchMode mode) throws IOException {
+        if (mode == MatchMode.EXACT) {
+            return searchByCriteria(criteria, value);
+        }
+        lock.readLock().lock();
+        try {
+            return merge(fanOut(shard -> shard.search(criteria, value, mode)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the entries searchByCriteria(criteria, value) returns.
+     *
+     * @param criteria The field, as for searchByCriteria.
+     * @param value    The value to match.
+     * @return The number of entries deleted.
+     * @throws IOException If a shard cannot be reached.
+     */
+    public int delete(String criteria, String value) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (field.equals(criteria)) {
+                return shards[owners[slotOf(field, value)]].remove(criteria, value);
+            }
+            int deleted = 0;
+            for (int count : fanOut(shard -> shard.remove(criteria, value))) {
+                deleted += count;
+            }
+            return deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a shard and moves slots to it from the shards with the most,
+     * until every shard has an equal share, give or take one. The phone book
+     * stays usable throughout; each slot's entries move in one step, during
+     * which requests wait. Moved entries get new IDs in the new shard.
+     *
+     * @param shard The new shard; it should be empty.
+     * @throws IOException If a shard cannot be reached. Slots already moved
+     *                     stay moved, and the slot being moved stays where
+     *                     it was.
+     */
+    public synchronized void addShard(PhonebookShard shard) throws IOException {
+        if (shard == null) {
+            throw new IllegalArgumentException("Shard cannot be null");
+        }
+        int added;
+        lock.writeLock().lock();
+        try {
+            added = shards.length;
+            shards = Arrays.copyOf(shards, added + 1);
+            shards[added] = shard;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        int[] counts = getSlotCounts();
+        while (counts[added] < SLOTS / counts.length) {
+            int from = 0;
+            for (int i = 1; i < added; i++) {
+                if (counts[i] > counts[from]) {
+                    from = i;
+                }
+            }
+            moveSlot(lastSlotOf(from), added);
+            counts[from]--;
+            counts[added]++;
+        }
+    }
+
+    /**
+     * Moves every slot of the last shard to the other shards, fewest slots
+     * first, then removes it. The phone book stays usable throughout, as for
+     * addShard.
+     *
+     * @return The removed shard, now empty; the caller closes it.
+     * @throws IllegalStateException If there is only one shard.
+     * @throws IOException           If a shard cannot be reached; the last
+     *                               shard then keeps its remaining slots.
+     */
+    public synchronized PhonebookShard removeShard() throws IOException {
+        int[] counts = getSlotCounts();
+        int removed = counts.length - 1;
+        if (removed == 0) {
+            throw new IllegalStateException("Cannot remove the only shard");
+        }
+        while (counts[removed] > 0) {
+            int to = 0;
+            for (int i = 1; i < removed; i++) {
+                if (counts[i] < counts[to]) {
+                    to = i;
+                }
+            }
+            moveSlot(lastSlotOf(removed), to);
+            counts[removed]--;
+            counts[to]++;
+        }
+        lock.writeLock().lock();
+        try {
+            PhonebookShard shard = shards[removed];
+            shards = Arrays.copyOf(shards, removed);
+            return shard;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the threads that ask shards in parallel and closes every shard.
+     *
+     * @throws IOException If a shard cannot be closed cleanly; the others
+     *                     are still closed.
+     */
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        IOException failure = null;
+        lock.writeLock().lock();
+        try {
+            for (PhonebookShard shard : shards) {
+                try {
+                    shard.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Moves the entries of a slot to another shard and routes the slot there.
+     * Holds the write lock throughout, so no request sees the move half done.
+     */
+    private void moveSlot(int slot, int to) throws IOException {
+        lock.writeLock().lock();
+        try {
+            PhonebookShard from = shards[owners[slot]];
+            List<ContactRecord> entries = from.take(field, slot);
+            try {
+                shards[to].add(entries);
+            } catch (IOException | RuntimeException e) {
+                from.add(entries); // Put them back; the slot has not moved.
+                throw e;
+            }
+            owners[slot] = to;
+            moved += entries.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the highest-numbered slot a shard owns, or -1 if none.
+     */
+    private int lastSlotOf(int shard) {
+        lock.readLock().lock();
+        try {
+            for (int slot = SLOTS - 1; slot >= 0; slot--) {
+                if (owners[slot] == shard) {
+                    return slot;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String keyOf(ContactRecord contact) {
+        switch (field) {
+            case "firstName":
+                return contact.getFirstName();
+            case "lastName":
+                return contact.getLastName();
+            case "address":
+                return contact.getAddress();
+            case "city":
+                return contact.getCity();
+            default:
+                return contact.getPhoneNumber();
+        }
+    }
+
+    /**
+     * A call on one shard, given the shard and its index.
+     */
+    private interface ShardCall<T> {
+        T apply(PhonebookShard shard, int index) throws IOException;
+    }
+
+    /**
+     * A call on one shard that does not need its index.
+     */
+    private interface SimpleShardCall<T> {
+        T apply(PhonebookShard shard) throws IOException;
+    }
+
+    private <T> List<T> fanOut(SimpleShardCall<T> call) throws IOException {
+        return fanOut((shard, index) -> call.apply(shard));
+    }
+
+    /**
+     * Runs a call on every shard at once, the first on the calling thread
+     * and the rest on the pool, and returns the results in shard order. The
+     * caller holds the read lock.
+     */
+    private <T> List<T> fanOut(ShardCall<T> call) throws IOException {
+        PhonebookShard[] targets = shards;
+        List<Future<T>> futures = new ArrayList<>(targets.length - 1);
+        for (int i = 1; i < targets.length; i++) {
+            PhonebookShard shard = targets[i];
+            int index = i;
+            futures.add(pool.submit(() -> call.apply(shard, index)));
+        }
+        List<T> results = new ArrayList<>(targets.length);
+        try {
+            results.add(call.apply(targets[0], 0));
+        } finally {
+            for (Future<T> future : futures) {
+                results.add(await(future)); // Even on failure, wait out the others.
+            }
+        }
+        return results;
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new InterruptedIOException("Interrupted while waiting for a shard");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Joins the shards' results and sorts them into ORDER, keying each
+     * record by its place in the merged list.
+     */
+    private static List<ContactRecord> merge(List<List<ContactRecord>> parts) {
+        int size = 0;
+        for (List<ContactRecord> part : parts) {
+            size += part.size();
+        }
+        List<ContactRecord> joined = new ArrayList<>(size);
+        for (List<ContactRecord> part : parts) {
+            joined.addAll(part);
+        }
+        joined.sort(ORDER);
+        for (int i = 0; i < joined.size(); i++) {
+            ContactRecord contact = joined.get(i);
+            joined.set(i, new ContactRecord(i, contact.getFirstName(),
+                    contact.getLastName(), contact.getAddress(), contact.getCity(),
+                    contact.getPhoneNumber()));
+        }
+        return joined;
+    }
+
+    private static int compareText(String a, String b) {
+        a = a == null ? "" : a;
+        b = b == null ? "" : b;
+        int order = String.CASE_INSENSITIVE_ORDER.compare(a, b);
+        return order != 0 ? order : a.compareTo(b);
+    }
+}
@@ -0,0 +1,326 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: A secondary index keeping the entries of a PhonebookManager
+// sorted by name, city or phone number, for sorted views and range
+// queries. The entries are held in a PositionTree in sorted order
+// instead of list order, so the rank at which a key would go and the
+// entries at any rank are found in O(log n), and a page of k entries
+// is read in O(log n + k) without sorting anything. Entries with equal
+// keys stay in the order they were indexed.
+//
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+final class SortedIndex {
+    /**
+     * The fields an index can sort by. Names and cities compare ignoring
+     * case. Phone numbers compare by their digits as text, so a range from
+     * "253" to "253" holds every number starting with 253. Entries without
+     * a value to sort by come last and are outside every range.
+     */
+    enum Key {
+        // Last name, then first name.
+        NAME {
+            @Override
+            boolean hasKey(ListNode node) {
+                return node.peekLastName() != null;
+            }
+
+            @Override
+            int compare(ListNode a, ListNode b) {
+                int order = TEXT.compare(a.peekLastName(), b.peekLastName());
+                return order != 0 ? order : TEXT.compare(a.peekFirstName(), b.peekFirstName());
+            }
+
+            @Override
+            int compareTo(ListNode node, String bound) {
+                return String.CASE_INSENSITIVE_ORDER.compare(node.peekLastName(), bound);
+            }
+
+            @Override
+            boolean startsWith(ListNode node, String bound) {
+                return node.peekLastName().regionMatches(true, 0, bound, 0, bound.length());
+            }
+
+            @Override
+            PositionTree.Slot slot(ListNode node) {
+                return node.nameOrder;
+            }
+
+            @Override
+            void setSlot(ListNode node, PositionTree.Slot slot) {
+                node.nameOrder = slot;
+            }
+        },
+        CITY {
+            @Override
+            boolean hasKey(ListNode node) {
+                return node.peekCity() != null;
+            }
+
+            @Override
+            int compare(ListNode a, ListNode b) {
+                if (a.peekCity() == b.peekCity()) {
+                    return 0; // Spelled alike, so sharing the dictionary's String.
+                }
+                return TEXT.compare(a.peekCity(), b.peekCity());
+            }
+
+            @Override
+            int compareTo(ListNode node, String bound) {
+                return String.CASE_INSENSITIVE_ORDER.compare(node.peekCity(), bound);
+            }
+
+            @Override
+            boolean startsWith(ListNode node, String bound) {
+                return node.peekCity().regionMatches(true, 0, bound, 0, bound.length());
+            }
+
+            @Override
+            PositionTree.Slot slot(ListNode node) {
+                return node.cityOrder;
+            }
+
+            @Override
+            void setSlot(ListNode node, PositionTree.Slot slot) {
+                node.cityOrder = slot;
+            }
+        },
+        // Numbers that cannot be packed, with no digits or more than 15, come
+        // after the others in text order.
+        PHONE {
+            @Override
+            boolean hasKey(ListNode node) {
+                return node.getPackedPhone() != PhoneNumbers.NONE;
+            }
+
+            @Override
+            int compare(ListNode a, ListNode b) {
+                boolean packedA = hasKey(a);
+                boolean packedB = hasKey(b);
+                if (packedA && packedB) {
+                    return PhoneNumbers.compare(a.getPackedPhone(), b.getPackedPhone());
+                }
+                if (packedA != packedB) {
+                    return packedA ? -1 : 1;
+                }
+                return TEXT.compare(a.peekPhoneNumber(), b.peekPhoneNumber());
+            }
+
+            @Override
+            boolean isBound(String bound) {
+                return PhoneNumbers.pack(bound) != PhoneNumbers.NONE;
+            }
+
+            @Override
+            int compareTo(ListNode node, String bound) {
+                return PhoneNumbers.compare(node.getPackedPhone(), PhoneNumbers.pack(bound));
+            }
+
+            @Override
+            boolean startsWith(ListNode node, String bound) {
+                return PhoneNumbers.startsWith(node.getPackedPhone(), PhoneNumbers.pack(bound));
+            }
+
+            @Override
+            PositionTree.Slot slot(ListNode node) {
+                return node.phoneOrder;
+            }
+
+            @Override
+            void setSlot(ListNode node, PositionTree.Slot slot) {
+                node.phoneOrder = slot;
+            }
+        };
+
+        private static final Comparator<String> TEXT =
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER);
+
+        /**
+         * Returns whether a node has a value to sort by, which places it
+         * before every node that does not and inside ranges.
+         */
+        abstract boolean hasKey(ListNode node);
+
+        /**
+         * Compares two nodes in sorted order.
+         */
+        abstract int compare(ListNode a, ListNode b);
+
+        /**
+         * Returns whether a range bound can be compared with this key.
+         */
+        boolean isBound(String bound) {
+            return true;
+        }
+
+        /**
+         * Compares the value of a node that has one with a range bound.
+         */
+        abstract int compareTo(ListNode node, String bound);
+
+        /**
+         * Returns whether the value of a node that has one starts with a
+         * range bound.
+         */
+        abstract boolean startsWith(ListNode node, String bound);
+
+        /**
+         * Returns the node's slot in this key's index, or null if it is not
+         * in one.
+         */
+        abstract PositionTree.Slot slot(ListNode node);
+
+        abstract void setSlot(ListNode node, PositionTree.Slot slot);
+    }
+
+    private final Key key;
+    private final PositionTree tree = new PositionTree();
+
+    /**
+     * Builds an index over the nodes of a list, sorting them once.
+     *
+     * @param key  The field to sort by.
+     * @param head The first node of the list, or null if it is empty.
+     * @param size The number of nodes in the list.
+     */
+    SortedIndex(Key key, ListNode head, int size) {
+        this.key = key;
+        ListNode[] nodes = new ListNode[size];
+        int count = 0;
+        for (ListNode node = head; node != null; node = node.getNext()) {
+            nodes[count++] = node;
+        }
+        Arrays.sort(nodes, 0, count, key::compare); // Stable, so ties keep list order.
+        for (int i = 0; i < count; i++) {
+            key.setSlot(nodes[i], tree.append(nodes[i]));
+        }
+    }
+
+    /**
+     * Adds a node at its place in sorted order, after any equal nodes.
+     *
+     * @param node The node to add.
+     */
+    void add(ListNode node) {
+        int rank = tree.countBefore(other -> key.compare(other, node) > 0);
+        key.setSlot(node, tree.insert(rank, node));
+    }
+
+    /**
+     * Removes a node. Unlike ContactIndex.remove, this may be called after
+     * the node's fields have changed, since the node keeps its slot.
+     *
+     * @param node The node to remove.
+     */
+    void remove(ListNode node) {
+        PositionTree.Slot slot = key.slot(node);
+        if (slot != null) {
+            tree.remove(tree.indexOf(slot));
+            key.setSlot(node, null);
+        }
+    }
+
+    /**
+     * Removes every node. The nodes' slots are left for the caller to
+     * reset.
+     */
+    void clear() {
+        tree.clear();
+    }
+
+    /**
+     * Returns a page of every node in sorted order, including the nodes
+     * with no value to sort by, at the end.
+     *
+     * @param offset The number of nodes to skip.
+     * @param limit  The largest number of nodes to return.
+     * @return The nodes of the page.
+     */
+    List<ListNode> page(int offset, int limit) {
+        return slice(0, tree.size(), offset, limit);
+    }
+
+    /**
+     * Returns a page of the nodes from a lower bound up to and including
+     * every value starting with an upper bound, so that a range of last
+     * names from "M" to "O" includes "Olsen".
+     *
+     * @param from   The lower bound, or null for none.
+     * @param to     The upper bound, or null for none.
+     * @param offset The number of nodes in the range to skip.
+     * @param limit  The largest number of nodes to return.
+     * @return The nodes of the page, in sorted order.
+     */
+    List<ListNode> range(String from, String to, int offset, int limit) {
+        if (!isRange(from, to)) {
+            return new ArrayList<>();
+        }
+        return slice(start(from), end(to), offset, limit);
+    }
+
+    /**
+     * Counts the nodes in a range, as range(from, to, 0, all) would return
+     * them, in O(log n).
+     *
+     * @param from The lower bound, or null for none.
+     * @param to   The upper bound, or null for none.
+     * @return The number of nodes in the range.
+     */
+    int count(String from, String to) {
+        return isRange(from, to) ? Math.max(0, end(to) - start(from)) : 0;
+    }
+
+    /**
+     * Returns whether a node is one that range(from, to, ...) would return,
+     * without looking it up, for testing entries found some other way.
+     *
+     * @param node The node to test.
+     * @param from The lower bound, or null for none.
+     * @param to   The upper bound, or null for none.
+     * @return true if the node is in the range.
+     */
+    boolean contains(ListNode node, String from, String to) {
+        return isRange(from, to) && key.hasKey(node)
+                && (from == null || key.compareTo(node, from) >= 0)
+                && (to == null || key.compareTo(node, to) <= 0 || key.startsWith(node, to));
+    }
+
+    private boolean isRange(String from, String to) {
+        return (from == null || key.isBound(from)) && (to == null || key.isBound(to));
+    }
+
+    /**
+     * Returns the rank of the first node at or after a lower bound.
+     */
+    private int start(String from) {
+        if (from == null) {
+            return 0;
+        }
+        return tree.countBefore(node -> !key.hasKey(node) || key.compareTo(node, from) >= 0);
+    }
+
+    /**
+     * Returns the rank of the first node after every value starting with an
+     * upper bound. The values starting with a bound come right after it in
+     * sorted order, so the nodes past it are still a suffix.
+     */
+    private int end(String to) {
+        return tree.countBefore(node -> !key.hasKey(node)
+                || (to != null && key.compareTo(node, to) > 0 && !key.startsWith(node, to)));
+    }
+
+    private List<ListNode> slice(int start, int end, int offset, int limit) {
+        List<ListNode> page = new ArrayList<>();
+        long first = (long) start + offset;
+        if (first < end) {
+            tree.collect((int) first, (int) Math.min(end, first + limit), page);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,363 @@
+//
+// Author: Caiden Sanders
+// Date: October 18, 2026
+// Class: CS145 Assignment 2
+// Purpose: An append-only, segmented write-ahead log with group commit.
+// Records from any number of threads are gathered into one batch,
+// and a background flusher writes and fsyncs each batch once, either
+// when it reaches the configured size or when the flush interval
+// passes. Each record is framed with its length and a CRC32 so that
+// a torn write at the end of a segment is detected on replay.
+//
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+class WriteAheadLog implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_BYTES = 4 + 4; // Payload length and CRC32.
+
+    private final Path directory;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final boolean synchronous;
+    private final Thread flusher;
+
+    // Guarded by this.
+    private FileChannel segment;
+    private long segmentNumber;
+    private ByteBuffer batch = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private int batchRecords;
+    private long appendedCount; // Records appended so far.
+    private long durableCount; // Records written and forced to disk so far.
+    private boolean flushing; // The flusher is writing a batch outside the lock.
+    private boolean flushRequested; // Flush the current batch without waiting.
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Opens a log in a directory, starting a new segment after any that
+     * already exist. Existing segments should be replayed before opening.
+     *
+     * @param directory           The directory holding the segments.
+     * @param batchSize           Records per group commit before a flush is
+     *                            started early.
+     * @param flushIntervalMillis Longest time a record waits before its batch
+     *                            is flushed.
+     * @param synchronous         true if append should wait until its record
+     *                            is on disk.
+     * @throws IOException If the directory or segment cannot be created.
+     */
+    WriteAheadLog(Path directory, int batchSize, long flushIntervalMillis,
+            boolean synchronous) throws IOException {
+        if (batchSize < 1 || flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("batchSize and flushIntervalMillis must be positive");
+        }
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.synchronous = synchronous;
+        Files.createDirectories(directory);
+        List<Long> existing = segmentNumbers(directory);
+        segmentNumber = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        segment = openSegment(segmentNumber);
+        flusher = new Thread(this::runFlusher, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Adds a record to the current batch. In synchronous mode this waits
+     * until the batch holding the record has been forced to disk; otherwise
+     * it returns at once and the record is durable within the flush interval.
+     *
+     * @param record The record bytes, from position to limit.
+     * @throws IOException If the log is closed or an earlier flush failed.
+     */
+    synchronized void append(ByteBuffer record) throws IOException {
+        checkOpen();
+        int length = record.remaining();
+        if (batch.remaining() < FRAME_BYTES + length) {
+            batch = grow(batch, FRAME_BYTES + length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        batch.putInt(length).putInt((int) crc.getValue()).put(record);
+        batchRecords++;
+        long count = ++appendedCount;
+        if (batchRecords == 1 || batchRecords >= batchSize) {
+            notifyAll(); // Start the flush interval, or flush a full batch early.
+        }
+        if (synchronous) {
+            awaitDurable(count);
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is on disk.
+     *
+     * @throws IOException If the log is closed or a flush failed.
+     */
+    synchronized void sync() throws IOException {
+        checkOpen();
+        flushRequested = true;
+        notifyAll();
+        awaitDurable(appendedCount);
+    }
+
+    /**
+     * Seals the current segment and starts the next one. Records appended
+     * before this call are durable in sealed segments when it returns.
+     *
+     * @return The number of the segment that was sealed.
+     * @throws IOException If the segment cannot be flushed or created.
+     */
+    synchronized long roll() throws IOException {
+        sync();
+        while (flushing) { // Records appended while waiting may be mid-write.
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for log flush");
+            }
+        }
+        segment.close();
+        long sealed = segmentNumber;
+        segmentNumber++;
+        segment = openSegment(segmentNumber);
+        return sealed;
+    }
+
+    /**
+     * Deletes every sealed segment up to and including the given number,
+     * after a snapshot covering them has been written.
+     *
+     * @param lastSegment The highest segment number to delete.
+     * @throws IOException If a segment cannot be deleted.
+     */
+    void deleteThrough(long lastSegment) throws IOException {
+        for (long number : segmentNumbers(directory)) {
+            if (number <= lastSegment) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /**
+     * Flushes every pending record and closes the log.
+     *
+     * @throws IOException If the final flush fails.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                sync();
+            } finally {
+                closed = true;
+                notifyAll();
+            }
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Passes the payload of every intact record in the segments after a
+     * given number to a consumer, oldest first. Replay of a segment stops at
+     * the first truncated or corrupt record, which can only be the tail of a
+     * write interrupted by a crash.
+     *
+     * @param directory  The directory holding the segments.
+     * @param afterSegment Segments up to and including this number are
+     *                   skipped, since a snapshot already covers them.
+     * @param consumer   Receives each payload; the buffer is only valid
+     *                   during the call.
+     * @return The number of records replayed.
+     * @throws IOException If a segment cannot be read.
+     */
+    static long replay(Path directory, long afterSegment,
+            Consumer<ByteBuffer> consumer) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long replayed = 0;
+        for (long number : segmentNumbers(directory)) {
+            if (number <= afterSegment) {
+                continue;
+            }
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segmentPath(directory, number)));
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= FRAME_BYTES) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length < 0 || length > data.remaining()) {
+                    break; // Torn tail.
+                }
+                ByteBuffer payload = data.slice().limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break; // Torn tail.
+                }
+                consumer.accept(payload);
+                data.position(data.position() + length);
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Body of the flusher thread: repeatedly waits for a full batch or the
+     * flush interval, then writes and forces the batch outside the lock so
+     * that appenders can keep filling the next one.
+     */
+    private void runFlusher() {
+        while (true) {
+            ByteBuffer toWrite;
+            FileChannel channel;
+            long count;
+            synchronized (this) {
+                try {
+                    while (!closed && batchRecords == 0) {
+                        wait();
+                    }
+                    // Give other writers until the interval ends to join this batch.
+                    long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    while (!closed && !flushRequested && batchRecords < batchSize) {
+                        long wait = deadline - System.currentTimeMillis();
+                        if (wait <= 0) {
+                            break;
+                        }
+                        wait(wait);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                flushRequested = false;
+                if (batchRecords == 0) {
+                    return; // Closed with nothing left to write.
+                }
+                toWrite = batch;
+                batch = spare;
+                spare = null;
+                batchRecords = 0;
+                count = appendedCount;
+                channel = segment;
+                flushing = true;
+            }
+            IOException error = null;
+            try {
+                toWrite.flip();
+                while (toWrite.hasRemaining()) {
+                    channel.write(toWrite);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (this) {
+                toWrite.clear();
+                spare = toWrite;
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableCount = count;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits, holding the monitor between waits, until the first count
+     * records are durable.
+     */
+    private void awaitDurable(long count) throws IOException {
+        while (durableCount < count) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log flush failed", failure);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for log flush");
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Write-ahead log is closed");
+        }
+        if (failure != null) {
+            throw new IOException("Write-ahead log flush failed", failure);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + needed);
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number,
+                SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Lists the numbers of the segments in a directory, in ascending order.
+     */
+    private static List<Long> segmentNumbers(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of our segments.
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}